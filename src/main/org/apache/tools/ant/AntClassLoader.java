@@ -28,12 +28,17 @@ import java.net.URL;
 import java.security.CodeSource;
 import java.security.ProtectionDomain;
 import java.security.cert.Certificate;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.Vector;
 import java.util.jar.Attributes;
@@ -92,6 +97,11 @@ public class AntClassLoader extends ClassLoader implements SubBuildListener {
          */
         private int pathElementsIndex;
 
+        /**
+         * The classpath elements that may contain the resource.
+         */
+        private final List<File> candidates;
+
         /**
          * The URL of the next resource to return in the enumeration. If this
          * field is <code>null</code> then the enumeration has been completed,
@@ -108,6 +118,7 @@ public class AntClassLoader extends ClassLoader implements SubBuildListener {
         ResourceEnumeration(String name) {
             this.resourceName = name;
             this.pathElementsIndex = 0;
+            this.candidates = getCandidates(name);
             findNextResource();
         }
 
@@ -144,9 +155,9 @@ public class AntClassLoader extends ClassLoader implements SubBuildListener {
          */
         private void findNextResource() {
             URL url = null;
-            while ((pathElementsIndex < pathComponents.size()) && (url == null)) {
+            while ((pathElementsIndex < candidates.size()) && (url == null)) {
                 try {
-                    File pathComponent = (File) pathComponents.elementAt(pathElementsIndex);
+                    File pathComponent = candidates.get(pathElementsIndex);
                     url = getResourceURL(pathComponent, this.resourceName);
                     pathElementsIndex++;
                 } catch (BuildException e) {
@@ -220,6 +231,52 @@ public class AntClassLoader extends ClassLoader implements SubBuildListener {
     /** Static map of jar file/time to manifest class-path entries */
     private static Map<String,String> pathMap = Collections.synchronizedMap(new HashMap<String, String>());
 
+    /** Static map of jar file/time to the directories inside the jar */
+    private static Map<String, Set<String>> jarDirectories =
+        Collections.synchronizedMap(new HashMap<String, Set<String>>());
+
+    /**
+     * Maps directories to the path components that may contain them,
+     * built when it is first needed.
+     */
+    private PackageIndex packageIndex = null;
+
+    /**
+     * Knows which path components may contain a resource.
+     *
+     * <p>Only the contents of jars are indexed.  Directories - whose
+     * contents may change while the loader is used - and jars that
+     * can't be read are candidates for every resource.</p>
+     */
+    private static class PackageIndex {
+        /** Candidates by directory of the resource. */
+        private final Map<String, List<File>> byDirectory =
+            new HashMap<String, List<File>>();
+        /** Components that can't be indexed. */
+        private final List<File> unindexed = new ArrayList<File>();
+
+        private void addUnindexed(File component) {
+            unindexed.add(component);
+            for (List<File> l : byDirectory.values()) {
+                l.add(component);
+            }
+        }
+
+        private void add(String directory, File component) {
+            List<File> l = byDirectory.get(directory);
+            if (l == null) {
+                l = new ArrayList<File>(unindexed);
+                byDirectory.put(directory, l);
+            }
+            l.add(component);
+        }
+
+        private List<File> getCandidates(String resourceName) {
+            List<File> l = byDirectory.get(getDirectory(resourceName));
+            return l == null ? unindexed : l;
+        }
+    }
+
     /**
      * The context loader saved when setting the thread's current
      * context loader.
@@ -352,6 +409,7 @@ public class AntClassLoader extends ClassLoader implements SubBuildListener {
      */
     public void setClassPath(Path classpath) {
         pathComponents.removeAllElements();
+        invalidatePackageIndex();
         if (classpath != null) {
             Path actualClasspath = classpath.concatSystemClasspath("ignore");
             String[] pathElements = actualClasspath.list();
@@ -464,6 +522,7 @@ public class AntClassLoader extends ClassLoader implements SubBuildListener {
             return;
         }
         pathComponents.addElement(file);
+        invalidatePackageIndex();
     }
 
     /**
@@ -479,6 +538,7 @@ public class AntClassLoader extends ClassLoader implements SubBuildListener {
     protected void addPathFile(File pathComponent) throws IOException {
         if (!pathComponents.contains(pathComponent)) {
             pathComponents.addElement(pathComponent);
+            invalidatePackageIndex();
         }
         if (pathComponent.isDirectory()) {
             return;
@@ -616,7 +676,10 @@ public class AntClassLoader extends ClassLoader implements SubBuildListener {
      *                    Should not be <code>null</code>.
      */
     public void addSystemPackageRoot(String packageRoot) {
-        systemPackages.addElement(packageRoot + (packageRoot.endsWith(".") ? "" : "."));
+        String root = packageRoot + (packageRoot.endsWith(".") ? "" : ".");
+        if (!systemPackages.contains(root)) {
+            systemPackages.addElement(root);
+        }
     }
 
     /**
@@ -740,9 +803,9 @@ public class AntClassLoader extends ClassLoader implements SubBuildListener {
         // find the class we want.
         InputStream stream = null;
 
-        Enumeration<File> e = pathComponents.elements();
-        while (e.hasMoreElements() && stream == null) {
-            File pathComponent = e.nextElement();
+        Iterator<File> e = getCandidates(name).iterator();
+        while (e.hasNext() && stream == null) {
+            File pathComponent = e.next();
             stream = getResourceStream(pathComponent, name);
         }
         return stream;
@@ -882,9 +945,9 @@ public class AntClassLoader extends ClassLoader implements SubBuildListener {
         } else {
             // try and load from this loader if the parent either didn't find
             // it or wasn't consulted.
-            Enumeration<File> e = pathComponents.elements();
-            while (e.hasMoreElements() && url == null) {
-                File pathComponent = e.nextElement();
+            Iterator<File> e = getCandidates(name).iterator();
+            while (e.hasNext() && url == null) {
+                File pathComponent = e.next();
                 url = getResourceURL(pathComponent, name);
                 if (url != null) {
                     log("Resource " + name + " loaded from ant loader", Project.MSG_DEBUG);
@@ -1334,6 +1397,96 @@ public class AntClassLoader extends ClassLoader implements SubBuildListener {
         return pathComponents.contains(component);
     }
 
+    /**
+     * The path components that may contain the given resource, in
+     * classpath order.
+     *
+     * @param resourceName the name of the resource.
+     * @return the path components to search.
+     */
+    private List<File> getCandidates(String resourceName) {
+        return getPackageIndex().getCandidates(resourceName);
+    }
+
+    /**
+     * Forgets the package index after the path has been changed.
+     */
+    private synchronized void invalidatePackageIndex() {
+        packageIndex = null;
+    }
+
+    /**
+     * Returns the package index, building it if necessary.
+     */
+    private synchronized PackageIndex getPackageIndex() {
+        if (packageIndex == null) {
+            PackageIndex index = new PackageIndex();
+            File[] components;
+            synchronized (pathComponents) {
+                components = pathComponents.toArray(new File[pathComponents.size()]);
+            }
+            for (int i = 0; i < components.length; i++) {
+                Set<String> directories = getJarDirectories(components[i]);
+                if (directories == null) {
+                    index.addUnindexed(components[i]);
+                } else {
+                    for (String directory : directories) {
+                        index.add(directory, components[i]);
+                    }
+                }
+            }
+            packageIndex = index;
+        }
+        return packageIndex;
+    }
+
+    /**
+     * The directories of all entries of a jar.
+     *
+     * @param file the path component.
+     * @return null if the file is no readable jar.
+     */
+    private Set<String> getJarDirectories(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        String key = file.getAbsolutePath() + file.lastModified()
+            + "-" + file.length();
+        Set<String> directories = jarDirectories.get(key);
+        if (directories == null) {
+            try {
+                if (!isZip(file)) {
+                    return null;
+                }
+                JarFile jarFile = jarFiles.get(file);
+                if (jarFile == null) {
+                    jarFile = new JarFile(file);
+                    jarFiles.put(file, jarFile);
+                }
+                directories = new HashSet<String>();
+                for (Enumeration<JarEntry> e = jarFile.entries();
+                     e.hasMoreElements();) {
+                    directories.add(getDirectory(e.nextElement().getName()));
+                }
+                jarDirectories.put(key, directories);
+            } catch (IOException ex) {
+                log("Not indexing " + file + ": " + ex, Project.MSG_VERBOSE);
+                return null;
+            }
+        }
+        return directories;
+    }
+
+    /**
+     * The directory part of a resource or jar entry name, the name of
+     * the parent directory for directories.
+     */
+    private static String getDirectory(String name) {
+        int end = name.endsWith("/") ? name.length() - 1 : name.length();
+        int slash = name.lastIndexOf('/', end - 1);
+        return slash < 0 ? "" : name.substring(0, slash);
+    }
+
     /**
      * Finds a class on the given classpath.
      *
@@ -1350,9 +1503,9 @@ public class AntClassLoader extends ClassLoader implements SubBuildListener {
         // we need to search the components of the path to see if
         // we can find the class we want.
         String classFilename = getClassFilename(name);
-        Enumeration<File> e = pathComponents.elements();
-        while (e.hasMoreElements()) {
-            File pathComponent = (File) e.nextElement();
+        Iterator<File> e = getCandidates(classFilename).iterator();
+        while (e.hasNext()) {
+            File pathComponent = e.next();
             InputStream stream = null;
             try {
                 stream = getResourceStream(pathComponent, classFilename);
@@ -1407,6 +1560,7 @@ public class AntClassLoader extends ClassLoader implements SubBuildListener {
             }
         }
         jarFiles = new Hashtable<File, JarFile>();
+        packageIndex = null;
         if (project != null) {
             project.removeBuildListener(this);
         }
@@ -52,6 +52,12 @@ public class BuildEvent extends EventObject {
      * and "buildFinished" events.
      */
     private Throwable exception;
+    /** The thread that created the event. */
+    private final transient Thread thread = Thread.currentThread();
+    /** When the event has been created, as System.currentTimeMillis. */
+    private final long timestamp = System.currentTimeMillis();
+    /** When the event has been created, as System.nanoTime. */
+    private final long nanoTime = System.nanoTime();
 
     /**
      * Construct a BuildEvent for a project level event.
@@ -200,4 +206,44 @@ public class BuildEvent extends EventObject {
     public Throwable getException() {
         return exception;
     }
+
+    /**
+     * Returns the thread that created this event.
+     *
+     * <p>This is the thread the event has been fired in, listeners
+     * should use it rather than the current thread since events may
+     * be delivered by a different thread later, see {@link
+     * org.apache.tools.ant.listener.AsyncBuildListener
+     * AsyncBuildListener}.</p>
+     *
+     * @return the thread that created this event, <code>null</code>
+     *         if the event has been deserialized.
+     * @since Ant 1.9.5
+     */
+    public Thread getThread() {
+        return thread;
+    }
+
+    /**
+     * Returns the time this event has been created.
+     *
+     * @return the time this event has been created as returned by
+     *         <code>System.currentTimeMillis()</code>.
+     * @since Ant 1.9.5
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns the time this event has been created with nanosecond
+     * precision.
+     *
+     * @return the value of <code>System.nanoTime()</code> at the time
+     *         this event has been created.
+     * @since Ant 1.9.5
+     */
+    public long getNanoTime() {
+        return nanoTime;
+    }
 }
@@ -560,7 +560,9 @@ public class ComponentHelper  {
         // set default value, can be changed by the user
         task.setTaskName(taskType);
 
-        project.log("   +Task: " + taskType, Project.MSG_DEBUG);
+        if (project.isLoggable(Project.MSG_DEBUG)) {
+            project.log("   +Task: " + taskType, Project.MSG_DEBUG);
+        }
         return task;
     }
 
@@ -724,7 +726,10 @@ public class ComponentHelper  {
                         + (isTask ? "task " : "datatype ") + name, (def.similarDefinition(old,
                         project)) ? Project.MSG_VERBOSE : Project.MSG_WARN);
             }
-            project.log(" +Datatype " + name + " " + def.getClassName(), Project.MSG_DEBUG);
+            if (project.isLoggable(Project.MSG_DEBUG)) {
+                project.log(" +Datatype " + name + " " + def.getClassName(),
+                            Project.MSG_DEBUG);
+            }
             antTypeTable.put(name, def);
         }
     }
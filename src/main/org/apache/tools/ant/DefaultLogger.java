@@ -28,6 +28,7 @@ import java.text.DateFormat;
 import org.apache.tools.ant.util.DateUtils;
 import org.apache.tools.ant.util.StringUtils;
 import org.apache.tools.ant.util.FileUtils;
+import org.apache.tools.ant.util.ReflectUtil;
 
 /**
  * Writes build events to a PrintStream. Currently, it
@@ -35,7 +36,7 @@ import org.apache.tools.ant.util.FileUtils;
  * any messages that get logged.
  *
  */
-public class DefaultLogger implements BuildLogger {
+public class DefaultLogger implements BuildLogger, LevelAwareListener {
     /**
      * Size of left-hand column for right-justified task name.
      * @see #messageLogged(BuildEvent)
@@ -55,6 +56,13 @@ public class DefaultLogger implements BuildLogger {
     /** Time of the start of the build */
     private long startTime = System.currentTimeMillis();
 
+    /**
+     * Whether messageLogged ignores messages above the output level,
+     * false for subclasses that override it.
+     */
+    private final boolean ignoresVerboseMessages =
+        ignoresVerboseMessages(getClass());
+
     // CheckStyle:ConstantNameCheck OFF - bc
     /** Line separator */
     protected static final String lSep = StringUtils.LINE_SEP;
@@ -91,6 +99,28 @@ public class DefaultLogger implements BuildLogger {
         this.msgOutputLevel = level;
     }
 
+    /**
+     * The most verbose level of the messages this logger wants to
+     * receive.
+     *
+     * <p>This is the logging level of this logger unless a subclass
+     * overrides {@link #messageLogged messageLogged}, subclasses that
+     * do receive all messages, just like they did before Ant
+     * 1.9.5.</p>
+     * @return the logging level.
+     * @since Ant 1.9.5
+     */
+    public int getMessageOutputLevel() {
+        return ignoresVerboseMessages ? msgOutputLevel : Project.MSG_DEBUG;
+    }
+
+    private static boolean ignoresVerboseMessages(Class<?> c) {
+        Class<?> declaring = ReflectUtil.getDeclaringClass(c, "messageLogged",
+                                                           BuildEvent.class);
+        return declaring == DefaultLogger.class
+            || declaring == NoBannerLogger.class;
+    }
+
     /**
      * Sets the output stream to which this logger is to send its output.
      *
@@ -127,7 +157,7 @@ public class DefaultLogger implements BuildLogger {
      * @param event Ignored.
      */
     public void buildStarted(BuildEvent event) {
-        startTime = System.currentTimeMillis();
+        startTime = event.getTimestamp();
     }
 
     static void throwableMessage(StringBuffer m, Throwable error, boolean verbose) {
@@ -174,7 +204,7 @@ public class DefaultLogger implements BuildLogger {
         }
         message.append(StringUtils.LINE_SEP);
         message.append("Total time: ");
-        message.append(formatTime(System.currentTimeMillis() - startTime));
+        message.append(formatTime(event.getTimestamp() - startTime));
 
         String msg = message.toString();
         if (error == null) {
@@ -24,22 +24,29 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.tools.ant.taskdefs.condition.Os;
 import org.apache.tools.ant.types.Resource;
 import org.apache.tools.ant.types.ResourceFactory;
 import org.apache.tools.ant.types.resources.FileResource;
 import org.apache.tools.ant.types.selectors.FileSelector;
+import org.apache.tools.ant.types.selectors.PatternTrie;
 import org.apache.tools.ant.types.selectors.SelectorScanner;
 import org.apache.tools.ant.types.selectors.SelectorUtils;
 import org.apache.tools.ant.types.selectors.TokenizedPath;
 import org.apache.tools.ant.types.selectors.TokenizedPattern;
 import org.apache.tools.ant.util.CollectionUtils;
+import org.apache.tools.ant.util.DirectoryListingCache;
 import org.apache.tools.ant.util.FileUtils;
 import org.apache.tools.ant.util.SymbolicLinkUtils;
 import org.apache.tools.ant.util.VectorSet;
@@ -363,13 +370,31 @@ public class DirectoryScanner
      */
     private TokenizedPattern[] excludePatterns;
 
+    /**
+     * All in- and exclude patterns compiled into a single trie.
+     *
+     * <p>Gets lazily initialized on the first invocation of
+     * isIncluded or isExcluded and cleared at the end of the scan
+     * method (cleared in clearCaches, actually).</p>
+     *
+     * @since Ant 1.9.5
+     */
+    private PatternTrie patternTrie;
+
+    /**
+     * Result of the last invocation of match per thread.
+     *
+     * @since Ant 1.9.5
+     */
+    private final ThreadLocal<LastMatch> lastMatch = new ThreadLocal<LastMatch>();
+
     /**
      * Have the non-pattern sets and pattern arrays for in- and
      * excludes been initialized?
      *
      * @since Ant 1.6.3
      */
-    private boolean areNonPatternSetsReady = false;
+    private volatile boolean areNonPatternSetsReady = false;
 
     /**
      * Scanning flag.
@@ -424,6 +449,27 @@ public class DirectoryScanner
      */
     private Set<String> notFollowedSymlinks = new HashSet<String>();
 
+    /**
+     * Number of threads used to scan directories concurrently.
+     *
+     * @since Ant 1.9.5
+     */
+    private int threads = 1;
+
+    /**
+     * Persistent cache of directory listings, may be null.
+     *
+     * @since Ant 1.9.5
+     */
+    private DirectoryListingCache listingCache = null;
+
+    /**
+     * Use of the listing cache by the current scan.
+     *
+     * @since Ant 1.9.5
+     */
+    private DirectoryListingCache.Session listings = null;
+
     /**
      * Sole constructor.
      */
@@ -706,6 +752,33 @@ public class DirectoryScanner
         maxLevelsOfSymlinks = max;
     }
 
+    /**
+     * The number of threads used to list and match directories
+     * concurrently.  Values smaller than two make the scanner
+     * traverse the tree on the calling thread, which is the default.
+     *
+     * <p>The results of a parallel scan are the same as those of a
+     * serial one - including the order of names - but selectors are
+     * invoked from several threads at once.</p>
+     *
+     * @param threads the number of threads to use.
+     * @since Ant 1.9.5
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Sets a cache the listings of directories are taken from as
+     * long as the directory's timestamp hasn't changed.
+     *
+     * @param cache the cache to use, may be null.
+     * @since Ant 1.9.5
+     */
+    public synchronized void setListingCache(DirectoryListingCache cache) {
+        listingCache = cache;
+    }
+
     /**
      * Set the list of include patterns to use. All '/' and '\' characters
      * are replaced by <code>File.separatorChar</code>, so the separator used
@@ -854,6 +927,7 @@ public class DirectoryScanner
             synchronized (this) {
                 illegal = null;
                 clearResults();
+                startListingSession();
 
                 // set in/excludes to reasonable defaults if needed:
                 boolean nullIncludes = (includes == null);
@@ -1110,6 +1184,8 @@ public class DirectoryScanner
                 boolean nullExcludes = (excludes == null);
                 excludes = nullExcludes ? new String[0] : excludes;
 
+                startListingSession();
+
                 String[] excl = new String[dirsExcluded.size()];
                 dirsExcluded.copyInto(excl);
 
@@ -1190,7 +1266,7 @@ public class DirectoryScanner
         if (dir == null) {
             throw new BuildException("dir must not be null.");
         }
-        String[] newfiles = dir.list();
+        String[] newfiles = list(dir);
         if (newfiles == null) {
             if (!dir.exists()) {
                 throw new BuildException(dir + DOES_NOT_EXIST_POSTFIX);
@@ -1201,7 +1277,11 @@ public class DirectoryScanner
                                          + dir.getAbsolutePath() + "'");
             }
         }
-        scandir(dir, path, fast, newfiles, new LinkedList<String>());
+        if (threads > 1) {
+            new ParallelScan(fast).run(dir, path, newfiles);
+        } else {
+            scandir(dir, path, fast, newfiles, new LinkedList<String>());
+        }
     }
 
     private void scandir(File dir, TokenizedPath path, boolean fast,
@@ -1248,7 +1328,7 @@ public class DirectoryScanner
             String name = vpath + newfiles[i];
             TokenizedPath newPath = new TokenizedPath(path, newfiles[i]);
             File file = new File(dir, newfiles[i]);
-            String[] children = file.list();
+            String[] children = list(file);
             if (children == null || (children.length == 0 && file.isFile())) {
                 if (isIncluded(newPath)) {
                     accountForIncludedFile(newPath, file);
@@ -1293,6 +1373,280 @@ public class DirectoryScanner
         }
     }
 
+    /**
+     * Scans a directory tree using a pool of worker threads.
+     *
+     * <p>Each directory is listed and matched by a worker that records
+     * the changes the serial scan would make to the result
+     * collections, in the same order, and hands its subdirectories
+     * back to the pool.  The calling thread applies the records
+     * walking the tree depth first, so the results are exactly those
+     * of {@link #scandir(File, TokenizedPath, boolean, String[],
+     * LinkedList)}.</p>
+     *
+     * <p>A record is either a <code>Runnable</code> that is run on the
+     * calling thread or the <code>Future</code> of a subdirectory's
+     * records.</p>
+     *
+     * @since Ant 1.9.5
+     */
+    private class ParallelScan {
+        private final boolean fast;
+        private final ExecutorService pool;
+
+        ParallelScan(boolean fast) {
+            this.fast = fast;
+            // make sure the workers never need this scanner's monitor,
+            // it is held by the calling thread
+            ensureNonPatternSetsReady();
+            pool = Executors.newFixedThreadPool(threads);
+        }
+
+        void run(File dir, TokenizedPath path, String[] newfiles) {
+            try {
+                replay(fork(dir, path, newfiles, new LinkedList<String>()));
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+
+        private Future<List<Object>> fork(final File dir,
+                                          final TokenizedPath path,
+                                          final String[] newfiles,
+                                          final LinkedList<String> followed) {
+            return pool.submit(new Callable<List<Object>>() {
+                    public List<Object> call() {
+                        return scan(dir, path, newfiles, followed);
+                    }
+                });
+        }
+
+        @SuppressWarnings("unchecked")
+        private void replay(Future<List<Object>> future) {
+            List<Object> records;
+            try {
+                records = future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BuildException("interrupted while scanning "
+                                         + basedir);
+            } catch (ExecutionException e) {
+                Throwable t = e.getCause();
+                if (t instanceof RuntimeException) {
+                    throw (RuntimeException) t;
+                }
+                if (t instanceof Error) {
+                    throw (Error) t;
+                }
+                throw new BuildException(t);
+            }
+            for (Object record : records) {
+                if (record instanceof Future) {
+                    replay((Future<List<Object>>) record);
+                } else {
+                    ((Runnable) record).run();
+                }
+            }
+        }
+
+        /**
+         * Mirrors {@link DirectoryScanner#scandir(File, TokenizedPath,
+         * boolean, String[], LinkedList)} but only records its
+         * results.
+         */
+        private List<Object> scan(File dir, TokenizedPath path,
+                                  String[] newfiles,
+                                  LinkedList<String> directoryNamesFollowed) {
+            List<Object> records = new ArrayList<Object>();
+            String vpath = path.toString();
+            if (vpath.length() > 0 && !vpath.endsWith(File.separator)) {
+                vpath += File.separator;
+            }
+
+            if (fast && hasBeenScanned(vpath)) {
+                return records;
+            }
+            if (!followSymlinks) {
+                ArrayList<String> noLinks = new ArrayList<String>();
+                for (int i = 0; i < newfiles.length; i++) {
+                    try {
+                        if (SYMLINK_UTILS.isSymbolicLink(dir, newfiles[i])) {
+                            String name = vpath + newfiles[i];
+                            File file = new File(dir, newfiles[i]);
+                            if (file.isDirectory()) {
+                                add(records, dirsExcluded, name, false);
+                            } else if (file.isFile()) {
+                                add(records, filesExcluded, name, false);
+                            }
+                            notFollowed(records, new TokenizedPath(name), file);
+                        } else {
+                            noLinks.add(newfiles[i]);
+                        }
+                    } catch (IOException ioe) {
+                        message(records, "IOException caught while checking "
+                                + "for links, couldn't get canonical path!");
+                        noLinks.add(newfiles[i]);
+                    }
+                }
+                newfiles = noLinks.toArray(new String[noLinks.size()]);
+            } else {
+                directoryNamesFollowed.addFirst(dir.getName());
+            }
+
+            for (int i = 0; i < newfiles.length; i++) {
+                String name = vpath + newfiles[i];
+                TokenizedPath newPath = new TokenizedPath(path, newfiles[i]);
+                File file = new File(dir, newfiles[i]);
+                String[] children = list(file);
+                if (children == null
+                    || (children.length == 0 && file.isFile())) {
+                    if (isIncluded(newPath)) {
+                        included(records, newPath, file, filesIncluded,
+                                 filesExcluded, filesDeselected);
+                    } else {
+                        add(records, filesNotIncluded, name, true);
+                    }
+                } else if (file.isDirectory()) {
+
+                    if (followSymlinks
+                        && causesIllegalSymlinkLoop(newfiles[i], dir,
+                                                    directoryNamesFollowed)) {
+                        message(records, "skipping symbolic link "
+                                + file.getAbsolutePath()
+                                + " -- too many levels of symbolic"
+                                + " links.");
+                        notFollowed(records, file);
+                        continue;
+                    }
+
+                    if (isIncluded(newPath)) {
+                        included(records, newPath, file, dirsIncluded,
+                                 dirsExcluded, dirsDeselected);
+                    } else {
+                        add(records, dirsNotIncluded, name, true);
+                    }
+                    if (!fast || (couldHoldIncluded(newPath)
+                                  && !contentsExcluded(newPath))) {
+                        records.add(fork(file, newPath, children,
+                                         new LinkedList<String>(directoryNamesFollowed)));
+                    }
+                }
+            }
+            return records;
+        }
+
+        private void add(List<Object> records, final Vector<String> v,
+                         final String name, final boolean notIncluded) {
+            records.add(new Runnable() {
+                    public void run() {
+                        if (notIncluded) {
+                            everythingIncluded = false;
+                        }
+                        v.addElement(name);
+                    }
+                });
+        }
+
+        /**
+         * Records the outcome of {@link DirectoryScanner#processIncluded},
+         * the selectors are evaluated by the worker.
+         */
+        private void included(List<Object> records, TokenizedPath path,
+                              File file, final Vector<String> inc,
+                              final Vector<String> exc,
+                              final Vector<String> des) {
+            final String name = path.toString();
+            if (inc.contains(name) || exc.contains(name)
+                || des.contains(name)) {
+                return;
+            }
+            final Vector<String> target;
+            if (isExcluded(path)) {
+                target = exc;
+            } else if (isSelected(name, file)) {
+                target = inc;
+            } else {
+                target = des;
+            }
+            records.add(new Runnable() {
+                    public void run() {
+                        if (inc.contains(name) || exc.contains(name)
+                            || des.contains(name)) {
+                            return;
+                        }
+                        target.add(name);
+                        everythingIncluded &= (target == inc);
+                    }
+                });
+        }
+
+        private void notFollowed(List<Object> records, TokenizedPath name,
+                                 File file) {
+            if (!isExcluded(name)
+                && (isIncluded(name)
+                    || (file.isDirectory() && couldHoldIncluded(name)
+                        && !contentsExcluded(name)))) {
+                notFollowed(records, file);
+            }
+        }
+
+        private void notFollowed(List<Object> records, File file) {
+            final String link = file.getAbsolutePath();
+            records.add(new Runnable() {
+                    public void run() {
+                        notFollowedSymlinks.add(link);
+                    }
+                });
+        }
+
+        private void message(List<Object> records, final String msg) {
+            records.add(new Runnable() {
+                    public void run() {
+                        // will be caught and redirected to Ant's logging system
+                        System.err.println(msg);
+                    }
+                });
+        }
+    }
+
+    /**
+     * The flags {@link PatternTrie#match} returned for a path.
+     *
+     * @since Ant 1.9.5
+     */
+    private static class LastMatch {
+        private final TokenizedPath path;
+        private final PatternTrie trie;
+        private final int flags;
+        LastMatch(TokenizedPath path, PatternTrie trie, int flags) {
+            this.path = path;
+            this.trie = trie;
+            this.flags = flags;
+        }
+    }
+
+    /**
+     * Starts a new session of the listing cache, if there is one.
+     *
+     * @since Ant 1.9.5
+     */
+    private void startListingSession() {
+        listings = listingCache == null ? null : listingCache.newSession();
+    }
+
+    /**
+     * Lists a directory, using the listing cache if there is one.
+     *
+     * @param dir the file to list.
+     * @return the names of the directory's children or null if it is
+     * not a directory.
+     * @since Ant 1.9.5
+     */
+    private String[] list(File dir) {
+        DirectoryListingCache.Session s = listings;
+        return s == null ? dir.list() : s.list(dir);
+    }
+
     /**
      * Process included file.
      * @param name  path of the file relative to the directory of the FileSet.
@@ -1384,17 +1738,12 @@ public class DirectoryScanner
     private boolean isIncluded(TokenizedPath path) {
         ensureNonPatternSetsReady();
 
-        if (isCaseSensitive()
+        if (isCaseSensitive
             ? includeNonPatterns.containsKey(path.toString())
             : includeNonPatterns.containsKey(path.toString().toUpperCase())) {
             return true;
         }
-        for (int i = 0; i < includePatterns.length; i++) {
-            if (includePatterns[i].matchPath(path, isCaseSensitive())) {
-                return true;
-            }
-        }
-        return false;
+        return (match(path) & PatternTrie.INCLUDED) != 0;
     }
 
     /**
@@ -1418,74 +1767,7 @@ public class DirectoryScanner
      *         least one include pattern, or <code>false</code> otherwise.
      */
     private boolean couldHoldIncluded(TokenizedPath tokenizedName) {
-        for (int i = 0; i < includePatterns.length; i++) {
-            if (couldHoldIncluded(tokenizedName, includePatterns[i])) {
-                return true;
-            }
-        }
-        for (Iterator<TokenizedPath> iter = includeNonPatterns.values().iterator();
-             iter.hasNext(); ) {
-            if (couldHoldIncluded(tokenizedName,
-                                  iter.next().toPattern())) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    /**
-     * Test whether or not a name matches the start of the given
-     * include pattern.
-     *
-     * @param tokenizedName The name to match. Must not be <code>null</code>.
-     * @return <code>true</code> when the name matches against the start of the
-     *         include pattern, or <code>false</code> otherwise.
-     */
-    private boolean couldHoldIncluded(TokenizedPath tokenizedName,
-                                      TokenizedPattern tokenizedInclude) {
-        return tokenizedInclude.matchStartOf(tokenizedName, isCaseSensitive())
-            && isMorePowerfulThanExcludes(tokenizedName.toString())
-            && isDeeper(tokenizedInclude, tokenizedName);
-    }
-
-    /**
-     * Verify that a pattern specifies files deeper
-     * than the level of the specified file.
-     * @param pattern the pattern to check.
-     * @param name the name to check.
-     * @return whether the pattern is deeper than the name.
-     * @since Ant 1.6.3
-     */
-    private boolean isDeeper(TokenizedPattern pattern, TokenizedPath name) {
-        return pattern.containsPattern(SelectorUtils.DEEP_TREE_MATCH)
-            || pattern.depth() > name.depth();
-    }
-
-    /**
-     *  Find out whether one particular include pattern is more powerful
-     *  than all the excludes.
-     *  Note:  the power comparison is based on the length of the include pattern
-     *  and of the exclude patterns without the wildcards.
-     *  Ideally the comparison should be done based on the depth
-     *  of the match; that is to say how many file separators have been matched
-     *  before the first ** or the end of the pattern.
-     *
-     *  IMPORTANT : this function should return false "with care".
-     *
-     *  @param name the relative path to test.
-     *  @return true if there is no exclude pattern more powerful than
-     *  this include pattern.
-     *  @since Ant 1.6
-     */
-    private boolean isMorePowerfulThanExcludes(String name) {
-        final String soughtexclude =
-            name + File.separatorChar + SelectorUtils.DEEP_TREE_MATCH;
-        for (int counter = 0; counter < excludePatterns.length; counter++) {
-            if (excludePatterns[counter].toString().equals(soughtexclude))  {
-                return false;
-            }
-        }
-        return true;
+        return (match(tokenizedName) & PatternTrie.COULD_HOLD_INCLUDED) != 0;
     }
 
     /**
@@ -1494,14 +1776,7 @@ public class DirectoryScanner
      * @return whether all the specified directory's contents are excluded.
      */
     /* package */ boolean contentsExcluded(TokenizedPath path) {
-        for (int i = 0; i < excludePatterns.length; i++) {
-            if (excludePatterns[i].endsWith(SelectorUtils.DEEP_TREE_MATCH)
-                && excludePatterns[i].withoutLastToken()
-                   .matchPath(path, isCaseSensitive())) {
-                return true;
-            }
-        }
-        return false;
+        return (match(path) & PatternTrie.CONTENTS_EXCLUDED) != 0;
     }
 
     /**
@@ -1527,17 +1802,34 @@ public class DirectoryScanner
     private boolean isExcluded(TokenizedPath name) {
         ensureNonPatternSetsReady();
 
-        if (isCaseSensitive()
+        if (isCaseSensitive
             ? excludeNonPatterns.containsKey(name.toString())
             : excludeNonPatterns.containsKey(name.toString().toUpperCase())) {
             return true;
         }
-        for (int i = 0; i < excludePatterns.length; i++) {
-            if (excludePatterns[i].matchPath(name, isCaseSensitive())) {
-                return true;
-            }
+        return (match(name) & PatternTrie.EXCLUDED) != 0;
+    }
+
+    /**
+     * Matches a name against all in- and exclude patterns at once.
+     *
+     * <p>The scanner asks several questions about each directory it
+     * encounters, so the result for the last name seen by the
+     * current thread is remembered.</p>
+     *
+     * @param name the name to match.
+     * @return the flags as defined by {@link PatternTrie#match}.
+     * @since Ant 1.9.5
+     */
+    private int match(TokenizedPath name) {
+        ensureNonPatternSetsReady();
+        PatternTrie trie = patternTrie;
+        LastMatch last = lastMatch.get();
+        if (last == null || last.path != name || last.trie != trie) {
+            last = new LastMatch(name, trie, trie.match(name));
+            lastMatch.set(last);
         }
-        return false;
+        return last.flags;
     }
 
     /**
@@ -1789,7 +2081,9 @@ public class DirectoryScanner
      * @since Ant 1.6
      */
     private boolean hasBeenScanned(String vpath) {
-        return !scannedDirs.add(vpath);
+        synchronized (scannedDirs) {
+            return !scannedDirs.add(vpath);
+        }
     }
 
     /**
@@ -1807,10 +2101,13 @@ public class DirectoryScanner
      * @since Ant 1.6
      */
     private synchronized void clearCaches() {
+        listings = null;
         includeNonPatterns.clear();
         excludeNonPatterns.clear();
         includePatterns = null;
         excludePatterns = null;
+        patternTrie = null;
+        lastMatch.remove();
         areNonPatternSetsReady = false;
     }
 
@@ -1820,11 +2117,19 @@ public class DirectoryScanner
      *
      * @since Ant 1.6.3
      */
-    /* package */ synchronized void ensureNonPatternSetsReady() {
+    /* package */ void ensureNonPatternSetsReady() {
         if (!areNonPatternSetsReady) {
-            includePatterns = fillNonPatternSet(includeNonPatterns, includes);
-            excludePatterns = fillNonPatternSet(excludeNonPatterns, excludes);
-            areNonPatternSetsReady = true;
+            synchronized (this) {
+                if (!areNonPatternSetsReady) {
+                    includePatterns =
+                        fillNonPatternSet(includeNonPatterns, includes);
+                    excludePatterns =
+                        fillNonPatternSet(excludeNonPatterns, excludes);
+                    patternTrie = PatternTrie.compile(includes, excludes,
+                                                      isCaseSensitive());
+                    areNonPatternSetsReady = true;
+                }
+            }
         }
     }
 
@@ -0,0 +1,49 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.tools.ant;
+
+/**
+ * Instances of classes that implement this interface tell the
+ * project which messages they are interested in.
+ *
+ * <p>A project doesn't create and fire message logged events for
+ * messages that are more verbose than the level of every registered
+ * listener, listeners that don't implement this interface receive
+ * all messages.  A listener that changes its level while it is
+ * registered will only receive the messages of its new level that are
+ * logged after the change.</p>
+ *
+ * @see Project#isLoggable(int)
+ *
+ * @since Ant 1.9.5
+ */
+public interface LevelAwareListener extends BuildListener {
+
+    /**
+     * The most verbose level of the messages this listener wants to
+     * receive.
+     *
+     * <p>Constants for the message levels are in the {@link Project
+     * Project} class.  Return a value less than
+     * <code>Project.MSG_ERR</code> if the listener doesn't care about
+     * messages at all.</p>
+     *
+     * @return the message output level of this listener.
+     */
+    int getMessageOutputLevel();
+}
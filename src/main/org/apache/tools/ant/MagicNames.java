@@ -101,6 +101,14 @@ public final class MagicNames {
      */
     public static final String ANT_EXECUTOR_CLASSNAME = "ant.executor.class";
 
+    /**
+     * Property defining the number of worker threads used by the
+     * parallel executor.
+     * Value: {@value}
+     * @since Ant 1.9.5
+     */
+    public static final String ANT_EXECUTOR_THREADS = "ant.executor.threads";
+
     /**
      * property name for basedir of the project.
      * Value: {@value}
@@ -289,5 +297,74 @@ public final class MagicNames {
      * Value {@value}
      */
     public static final String HTTP_AGENT_PROPERTY = "ant.http.agent";
-}
 
+    /**
+     * Name of the property holding the default number of threads
+     * used to scan the directories of a fileset.
+     * Value {@value}
+     * @since Ant 1.9.5
+     */
+    public static final String FILESET_THREADS = "ant.fileset.threads";
+
+    /**
+     * Name of the property holding the default file filesets store
+     * the directory listings of their scans in.
+     * Value {@value}
+     * @since Ant 1.9.5
+     */
+    public static final String FILESET_SCANCACHE = "ant.fileset.scancache";
+
+    /**
+     * Name of the property that makes tasks executing processes copy
+     * the processes' output using threads shared by all tasks.
+     * Value {@value}
+     * @since Ant 1.9.5
+     */
+    public static final String SHARED_STREAM_PUMPERS =
+        "ant.execute.sharedpumpers";
+
+    /**
+     * Name of the property that makes Ant pass build events to the
+     * logger and listeners using threads of their own.  Must be set
+     * on the command line.
+     * Value {@value}
+     * @since Ant 1.9.5
+     */
+    public static final String ASYNC_LISTENERS = "ant.listeners.async";
+
+    /**
+     * Name of the property holding the number of events that can be
+     * queued for each asynchronous listener.
+     * Value {@value}
+     * @since Ant 1.9.5
+     */
+    public static final String ASYNC_LISTENERS_QUEUE_SIZE =
+        "ant.listeners.async.queuesize";
+
+    /**
+     * Name of the property that selects what happens if the queue of
+     * an asynchronous listener is full, "block" or "drop".
+     * Value {@value}
+     * @since Ant 1.9.5
+     */
+    public static final String ASYNC_LISTENERS_POLICY =
+        "ant.listeners.async.policy";
+
+    /**
+     * Name of the property that controls whether class loaders for
+     * identical classpaths are shared between tasks and projects.
+     * Value {@value}
+     * @since Ant 1.9.5
+     */
+    public static final String SHARE_CLASSLOADERS =
+        "ant.classloader.share";
+
+    /**
+     * Name of the property that controls whether parsed build files
+     * are cached and reused when the same file is imported, included
+     * or run by ant or subant again.
+     * Value {@value}
+     * @since Ant 1.9.5
+     */
+    public static final String PARSER_CACHE = "ant.parser.cache";
+}
@@ -39,9 +39,12 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.Vector;
 
+import org.apache.tools.ant.helper.ParallelExecutor;
 import org.apache.tools.ant.input.DefaultInputHandler;
 import org.apache.tools.ant.input.InputHandler;
 import org.apache.tools.ant.launch.AntMain;
+import org.apache.tools.ant.listener.AsyncBuildListener;
+import org.apache.tools.ant.listener.AsyncBuildLogger;
 import org.apache.tools.ant.listener.SilentLogger;
 import org.apache.tools.ant.property.GetProperty;
 import org.apache.tools.ant.property.ResolvePropertyMap;
@@ -150,6 +153,20 @@ public class Main implements AntMain {
      */
     private Integer threadPriority = null;
 
+    /**
+     * Number of events queued for each listener if listeners are
+     * notified asynchronously, 0 if they are notified synchronously.
+     */
+    private int asyncQueueSize = 0;
+
+    /** Whether asynchronous listeners drop verbose and debug messages. */
+    private boolean asyncDropDebugMessages = false;
+
+    /**
+     * optional number of threads used to execute independent targets
+     */
+    private Integer executorThreads = null;
+
     /**
      * proxy flag: default is false
      */
@@ -393,6 +410,8 @@ public class Main implements AntMain {
                 keepGoingMode = true;
             } else if (arg.equals("-nice")) {
                 i = handleArgNice(args, i);
+            } else if (arg.equals("-threads") || arg.equals("-j")) {
+                i = handleArgThreads(args, i);
             } else if (LAUNCH_COMMANDS.contains(arg)) {
                 //catch script/ant mismatch with a meaningful message
                 //we could ignore it, but there are likely to be other
@@ -508,6 +527,8 @@ public class Main implements AntMain {
         // Load the property files specified by -propertyfile
         loadPropertyFiles();
 
+        readAsyncListenerSettings();
+
         if (msgOutputLevel >= Project.MSG_INFO) {
             System.out.println("Buildfile: " + buildFile);
         }
@@ -643,6 +664,26 @@ public class Main implements AntMain {
         return pos;
     }
 
+    /** Handle the -threads argument. */
+    private int handleArgThreads(String[] args, int pos) {
+        try {
+            executorThreads = Integer.decode(args[++pos]);
+        } catch (ArrayIndexOutOfBoundsException aioobe) {
+            throw new BuildException(
+                "You must supply the number of threads"
+                + " after the -threads option");
+        } catch (NumberFormatException e) {
+            throw new BuildException("Unrecognized number of threads: "
+                                     + args[pos]);
+        }
+
+        if (executorThreads.intValue() < 1) {
+            throw new BuildException(
+                "The number of threads must be a positive number");
+        }
+        return pos;
+    }
+
     // --------------------------------------------------------
     //    other methods
     // --------------------------------------------------------
@@ -883,8 +924,16 @@ public class Main implements AntMain {
                     }
                     throw new BuildException(t);
                 }
-            } else if (error != null) {
-                project.log(error.toString(), Project.MSG_ERR);
+            } else {
+                if (error != null) {
+                    project.log(error.toString(), Project.MSG_ERR);
+                }
+                // there won't be a build finished event
+                for (BuildListener l : project.getBuildListeners()) {
+                    if (l instanceof AsyncBuildListener) {
+                        ((AsyncBuildListener) l).flush();
+                    }
+                }
             }
         }
     }
@@ -915,6 +964,16 @@ public class Main implements AntMain {
                                 buildFile.getAbsolutePath());
         project.setUserProperty(MagicNames.ANT_FILE_TYPE,
                                 MagicNames.ANT_FILE_TYPE_FILE);
+
+        if (executorThreads != null) {
+            project.setUserProperty(MagicNames.ANT_EXECUTOR_THREADS,
+                                    executorThreads.toString());
+            if (project.getProperty(MagicNames.ANT_EXECUTOR_CLASSNAME)
+                == null) {
+                project.setUserProperty(MagicNames.ANT_EXECUTOR_CLASSNAME,
+                                        ParallelExecutor.class.getName());
+            }
+        }
     }
 
     /**
@@ -927,7 +986,7 @@ public class Main implements AntMain {
     protected void addBuildListeners(Project project) {
 
         // Add the default listener
-        project.addBuildListener(createLogger());
+        project.addBuildListener(makeAsync(createLogger()));
 
         final int count = listeners.size();
         for (int i = 0; i < count; i++) {
@@ -937,8 +996,61 @@ public class Main implements AntMain {
                             Main.class.getClassLoader(), BuildListener.class);
             project.setProjectReference(listener);
 
-            project.addBuildListener(listener);
+            project.addBuildListener(makeAsync(listener));
+        }
+    }
+
+    /**
+     * Wraps the listener so it receives events on a thread of its
+     * own if the ant.listeners.async property has been set.
+     */
+    private BuildListener makeAsync(BuildListener listener) {
+        if (asyncQueueSize == 0) {
+            return listener;
+        }
+        if (listener instanceof BuildLogger) {
+            return new AsyncBuildLogger((BuildLogger) listener, asyncQueueSize,
+                                        asyncDropDebugMessages);
+        }
+        return new AsyncBuildListener(listener, asyncQueueSize,
+                                      asyncDropDebugMessages);
+    }
+
+    /**
+     * Reads the properties controlling asynchronous listeners.
+     */
+    private void readAsyncListenerSettings() {
+        if (!Project.toBoolean(getDefinedProperty(MagicNames.ASYNC_LISTENERS))) {
+            return;
+        }
+        asyncQueueSize = AsyncBuildListener.DEFAULT_QUEUE_SIZE;
+        String size = getDefinedProperty(MagicNames.ASYNC_LISTENERS_QUEUE_SIZE);
+        if (size != null) {
+            try {
+                asyncQueueSize = Integer.parseInt(size.trim());
+            } catch (NumberFormatException ex) {
+                asyncQueueSize = 0;
+            }
+            if (asyncQueueSize < 1) {
+                throw new BuildException(MagicNames.ASYNC_LISTENERS_QUEUE_SIZE
+                                         + " must be a positive number");
+            }
+        }
+        String policy = getDefinedProperty(MagicNames.ASYNC_LISTENERS_POLICY);
+        if (policy != null && !"block".equals(policy)
+            && !"drop".equals(policy)) {
+            throw new BuildException(MagicNames.ASYNC_LISTENERS_POLICY
+                                     + " must be either block or drop");
         }
+        asyncDropDebugMessages = "drop".equals(policy);
+    }
+
+    /**
+     * A property defined on the command line or as system property.
+     */
+    private String getDefinedProperty(String name) {
+        String value = definedProps.getProperty(name);
+        return value != null ? value : System.getProperty(name);
     }
 
     /**
@@ -1036,6 +1148,8 @@ public class Main implements AntMain {
         System.out.println("    -s  <file>           the filesystem and use it");
         System.out.println("  -nice  number          A niceness value for the main thread:"
                 + "                         1 (lowest) to 10 (highest); 5 is the default");
+        System.out.println("  -threads, -j number    run independent targets in parallel using");
+        System.out.println("                         the given number of threads");
         System.out.println("  -nouserlib             Run ant without using the jar files from"
                 + "                         ${user.home}/.ant/lib");
         System.out.println("  -noclasspath           Run ant without using CLASSPATH");
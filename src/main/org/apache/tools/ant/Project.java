@@ -398,6 +398,32 @@ public class Project implements ResourceFactory {
         }
     }
 
+    /**
+     * Adds all build listeners of another project to this project.
+     *
+     * <p>If this project doesn't have any listeners yet, it shares
+     * the listener list of the other project until one of them adds
+     * or removes a listener.  Subclasses get the listeners added one
+     * by one via {@link #addBuildListener addBuildListener}.</p>
+     *
+     * @param parent the project whose listeners should be added.
+     *               Must not be <code>null</code>.
+     * @since Ant 1.9.5
+     */
+    public void inheritBuildListeners(Project parent) {
+        BuildListener[] inherited = parent.listeners;
+        synchronized (listenersLock) {
+            if (listeners.length == 0 && getClass() == Project.class) {
+                // the arrays are never modified, only replaced
+                listeners = inherited;
+                return;
+            }
+        }
+        for (int i = 0; i < inherited.length; i++) {
+            addBuildListener(inherited[i]);
+        }
+    }
+
     /**
      * Remove a build listener from the list. This listener
      * will no longer be notified of build events for this project.
@@ -467,6 +493,32 @@ public class Project implements ResourceFactory {
         fireMessageLogged(this, message, throwable, msgLevel);
     }
 
+    /**
+     * Whether any of the registered listeners is interested in
+     * messages of the given level.
+     *
+     * <p>Messages of a level for which this method returns false are
+     * discarded without creating an event.  Code that has to do
+     * expensive work to create a message can use this method to avoid
+     * it.</p>
+     *
+     * @param msgLevel The log priority level.
+     * @return false if no listener would receive the message.
+     * @see LevelAwareListener
+     * @since Ant 1.9.5
+     */
+    public boolean isLoggable(int msgLevel) {
+        BuildListener[] currListeners = listeners;
+        for (int i = 0; i < currListeners.length; i++) {
+            if (!(currListeners[i] instanceof LevelAwareListener)
+                || msgLevel <= ((LevelAwareListener) currListeners[i])
+                .getMessageOutputLevel()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Write a task level message to the log with the given log level.
      * @param task The task to use in the log. Must not be <code>null</code>.
@@ -2279,6 +2331,9 @@ public class Project implements ResourceFactory {
      */
     protected void fireMessageLogged(Project project, String message,
             Throwable throwable, int priority) {
+        if (!isLoggable(priority)) {
+            return;
+        }
         BuildEvent event = new BuildEvent(project);
         event.setException(throwable);
         fireMessageLoggedEvent(event, message, priority);
@@ -2311,6 +2366,9 @@ public class Project implements ResourceFactory {
      */
     protected void fireMessageLogged(Target target, String message,
             Throwable throwable, int priority) {
+        if (!isLoggable(priority)) {
+            return;
+        }
         BuildEvent event = new BuildEvent(target);
         event.setException(throwable);
         fireMessageLoggedEvent(event, message, priority);
@@ -2342,6 +2400,9 @@ public class Project implements ResourceFactory {
      */
     protected void fireMessageLogged(Task task, String message,
             Throwable throwable, int priority) {
+        if (!isLoggable(priority)) {
+            return;
+        }
         BuildEvent event = new BuildEvent(task);
         event.setException(throwable);
         fireMessageLoggedEvent(event, message, priority);
@@ -2351,18 +2412,27 @@ public class Project implements ResourceFactory {
      * Register a task as the current task for a thread.
      * If the task is null, the thread's entry is removed.
      *
+     * <p>The thread group's entry is only removed if it still refers
+     * to the task that has been registered for this thread, so
+     * threads sharing a group - like the workers of the parallel
+     * executor or &lt;parallel&gt; - don't unregister each other's
+     * tasks.</p>
+     *
      * @param thread the thread on which the task is registered.
      * @param task the task to be registered.
      * @since Ant 1.5
      */
     public void registerThreadTask(Thread thread, Task task) {
         synchronized(threadTasks) {
+            ThreadGroup group = thread.getThreadGroup();
             if (task != null) {
                 threadTasks.put(thread, task);
-                threadGroupTasks.put(thread.getThreadGroup(), task);
+                threadGroupTasks.put(group, task);
             } else {
-                threadTasks.remove(thread);
-                threadGroupTasks.remove(thread.getThreadGroup());
+                Task old = threadTasks.remove(thread);
+                if (old == null || threadGroupTasks.get(group) == old) {
+                    threadGroupTasks.remove(group);
+                }
             }
         }
     }
@@ -154,6 +154,23 @@ public abstract class ProjectComponent implements Cloneable {
         }
     }
 
+    /**
+     * Whether a message of the given priority logged by this
+     * component would be seen by anybody.
+     *
+     * <p>Can be used to avoid building messages nobody is going to
+     * read.</p>
+     *
+     * @param msgLevel the message priority.
+     * @return false if the message would be discarded.
+     * @see Project#isLoggable(int)
+     * @since Ant 1.9.5
+     */
+    public boolean isLoggable(int msgLevel) {
+        return getProject() != null ? getProject().isLoggable(msgLevel)
+            : msgLevel <= Project.MSG_INFO;
+    }
+
     /**
      * @since Ant 1.7
      * @return a shallow copy of this projectcomponent.
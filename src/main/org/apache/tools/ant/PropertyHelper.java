@@ -25,6 +25,7 @@ import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
 
@@ -649,8 +650,10 @@ public class PropertyHelper implements GetProperty {
                     project.log("Overriding previous definition of property \""
                                 + name + "\"", Project.MSG_VERBOSE);
                 }
-                project.log("Setting project property: " + name + " -> "
-                            + value, Project.MSG_DEBUG);
+                if (project.isLoggable(Project.MSG_DEBUG)) {
+                    project.log("Setting project property: " + name + " -> "
+                                + value, Project.MSG_DEBUG);
+                }
             }
             if (name != null && value != null) {
                 properties.put(name, value);
@@ -702,7 +705,7 @@ public class PropertyHelper implements GetProperty {
                             + "\"", Project.MSG_VERBOSE);
                 return;
             }
-            if (project != null) {
+            if (project != null && project.isLoggable(Project.MSG_DEBUG)) {
                 project.log("Setting project property: " + name
                             + " -> " + value, Project.MSG_DEBUG);
             }
@@ -712,6 +715,70 @@ public class PropertyHelper implements GetProperty {
         }
     }
 
+    /**
+     * Sets all properties of another PropertyHelper as new properties
+     * of this instance, skipping the ones that are already set.
+     *
+     * <p>Behaves like calling {@link #setNewProperty(String, Object)
+     * setNewProperty} for each property whose value is not yet
+     * known to {@link #getProperty(String) getProperty} but doesn't
+     * consult the delegates for each property as long as no delegates
+     * other than Ant's built-in ones have been added to this
+     * instance.  The properties are copied, so changes made to either
+     * instance later are not seen by the other.  This is used when
+     * <code>&lt;ant&gt;</code> creates a child project that inherits
+     * all properties.</p>
+     *
+     * @param source the PropertyHelper to copy properties from.
+     * @param skip names of properties that must not be copied.
+     * @since Ant 1.9.5
+     */
+    public void setNewProperties(PropertyHelper source, Set<String> skip) {
+        @SuppressWarnings("unchecked")
+        Hashtable<String, Object> props =
+            (Hashtable<String, Object>) source.properties.clone();
+        if (!hasOnlyBuiltinDelegates()) {
+            for (Map.Entry<String, Object> e : props.entrySet()) {
+                String name = e.getKey();
+                if (!skip.contains(name) && getProperty(name) == null) {
+                    setNewProperty(name, e.getValue().toString());
+                }
+            }
+            return;
+        }
+        boolean debug = project != null && project.isLoggable(Project.MSG_DEBUG);
+        synchronized (this) {
+            for (Map.Entry<String, Object> e : props.entrySet()) {
+                String name = e.getKey();
+                if (skip.contains(name) || getProperty(name) != null) {
+                    continue;
+                }
+                String value = e.getValue().toString();
+                if (debug) {
+                    project.log("Setting project property: " + name
+                                + " -> " + value, Project.MSG_DEBUG);
+                }
+                properties.put(name, value);
+            }
+        }
+    }
+
+    /**
+     * Whether the only setters and evaluators are the ones every
+     * PropertyHelper starts with.
+     */
+    private boolean hasOnlyBuiltinDelegates() {
+        if (!getDelegates(PropertySetter.class).isEmpty()) {
+            return false;
+        }
+        for (PropertyEvaluator e : getDelegates(PropertyEvaluator.class)) {
+            if (e != FROM_REF && e != TO_STRING) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Sets a user property, which cannot be overwritten by
      * set/unset property calls. Any previous value is overwritten.
@@ -742,7 +809,7 @@ public class PropertyHelper implements GetProperty {
      *              Must not be <code>null</code>.
      */
     public void setUserProperty(String name, Object value) {
-        if (project != null) {
+        if (project != null && project.isLoggable(Project.MSG_DEBUG)) {
             project.log("Setting ro project property: "
                         + name + " -> " + value, Project.MSG_DEBUG);
         }
@@ -786,7 +853,7 @@ public class PropertyHelper implements GetProperty {
      *              Must not be <code>null</code>.
      */
     public void setInheritedProperty(String name, Object value) {
-        if (project != null) {
+        if (project != null && project.isLoggable(Project.MSG_DEBUG)) {
             project.log("Setting ro project property: " + name + " -> "
                         + value, Project.MSG_DEBUG);
         }
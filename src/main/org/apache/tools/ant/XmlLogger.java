@@ -31,6 +31,7 @@ import javax.xml.parsers.DocumentBuilderFactory;
 
 import org.apache.tools.ant.util.DOMElementWriter;
 import org.apache.tools.ant.util.FileUtils;
+import org.apache.tools.ant.util.ReflectUtil;
 import org.apache.tools.ant.util.StringUtils;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -51,11 +52,19 @@ import org.w3c.dom.Text;
  *
  * @see Project#addBuildListener(BuildListener)
  */
-public class XmlLogger implements BuildLogger {
+public class XmlLogger implements BuildLogger, LevelAwareListener {
 
     private int msgOutputLevel = Project.MSG_DEBUG;
     private PrintStream outStream;
 
+    /**
+     * Whether messageLogged ignores messages above the output level,
+     * false for subclasses that override it.
+     */
+    private final boolean ignoresVerboseMessages =
+        ReflectUtil.getDeclaringClass(getClass(), "messageLogged",
+                                      BuildEvent.class) == XmlLogger.class;
+
     /** DocumentBuilder to use when creating the document to start with. */
     private static DocumentBuilder builder = getDocumentBuilder();
 
@@ -151,7 +160,7 @@ public class XmlLogger implements BuildLogger {
      */
     public void buildStarted(BuildEvent event) {
         buildElement = new TimedElement();
-        buildElement.startTime = System.currentTimeMillis();
+        buildElement.startTime = event.getTimestamp();
         buildElement.element = doc.createElement(BUILD_TAG);
     }
 
@@ -163,7 +172,7 @@ public class XmlLogger implements BuildLogger {
      *              Will not be <code>null</code>.
      */
     public void buildFinished(BuildEvent event) {
-        long totalTime = System.currentTimeMillis() - buildElement.startTime;
+        long totalTime = event.getTimestamp() - buildElement.startTime;
         buildElement.element.setAttribute(TIME_ATTR, DefaultLogger.formatTime(totalTime));
 
         if (event.getException() != null) {
@@ -208,14 +217,20 @@ public class XmlLogger implements BuildLogger {
     }
 
     /**
-     * Returns the stack of timed elements for the current thread.
-     * @return the stack of timed elements for the current thread
+     * Returns the stack of timed elements for the thread that fired
+     * the event.
+     * @param event the event
+     * @return the stack of timed elements for the event's thread
      */
-    private Stack<TimedElement> getStack() {
-        Stack<TimedElement> threadStack = threadStacks.get(Thread.currentThread());
+    private Stack<TimedElement> getStack(BuildEvent event) {
+        Thread thread = event.getThread();
+        if (thread == null) {
+            thread = Thread.currentThread();
+        }
+        Stack<TimedElement> threadStack = threadStacks.get(thread);
         if (threadStack == null) {
             threadStack = new Stack<TimedElement>();
-            threadStacks.put(Thread.currentThread(), threadStack);
+            threadStacks.put(thread, threadStack);
         }
         /* For debugging purposes uncomment:
         org.w3c.dom.Comment s = doc.createComment("stack=" + threadStack);
@@ -235,11 +250,11 @@ public class XmlLogger implements BuildLogger {
     public void targetStarted(BuildEvent event) {
         Target target = event.getTarget();
         TimedElement targetElement = new TimedElement();
-        targetElement.startTime = System.currentTimeMillis();
+        targetElement.startTime = event.getTimestamp();
         targetElement.element = doc.createElement(TARGET_TAG);
         targetElement.element.setAttribute(NAME_ATTR, target.getName());
         targets.put(target, targetElement);
-        getStack().push(targetElement);
+        getStack(event).push(targetElement);
     }
 
     /**
@@ -253,11 +268,11 @@ public class XmlLogger implements BuildLogger {
         Target target = event.getTarget();
         TimedElement targetElement = (TimedElement) targets.get(target);
         if (targetElement != null) {
-            long totalTime = System.currentTimeMillis() - targetElement.startTime;
+            long totalTime = event.getTimestamp() - targetElement.startTime;
             targetElement.element.setAttribute(TIME_ATTR, DefaultLogger.formatTime(totalTime));
 
             TimedElement parentElement = null;
-            Stack<TimedElement> threadStack = getStack();
+            Stack<TimedElement> threadStack = getStack(event);
             if (!threadStack.empty()) {
                 TimedElement poppedStack = threadStack.pop();
                 if (poppedStack != targetElement) {
@@ -288,7 +303,7 @@ public class XmlLogger implements BuildLogger {
      */
     public void taskStarted(BuildEvent event) {
         TimedElement taskElement = new TimedElement();
-        taskElement.startTime = System.currentTimeMillis();
+        taskElement.startTime = event.getTimestamp();
         taskElement.element = doc.createElement(TASK_TAG);
 
         Task task = event.getTask();
@@ -299,7 +314,7 @@ public class XmlLogger implements BuildLogger {
         taskElement.element.setAttribute(NAME_ATTR, name);
         taskElement.element.setAttribute(LOCATION_ATTR, event.getTask().getLocation().toString());
         tasks.put(task, taskElement);
-        getStack().push(taskElement);
+        getStack(event).push(taskElement);
     }
 
     /**
@@ -315,7 +330,7 @@ public class XmlLogger implements BuildLogger {
         if (taskElement == null) {
             throw new RuntimeException("Unknown task " + task + " not in " + tasks);
         }
-        long totalTime = System.currentTimeMillis() - taskElement.startTime;
+        long totalTime = event.getTimestamp() - taskElement.startTime;
         taskElement.element.setAttribute(TIME_ATTR, DefaultLogger.formatTime(totalTime));
         Target target = task.getOwningTarget();
         TimedElement targetElement = null;
@@ -327,7 +342,7 @@ public class XmlLogger implements BuildLogger {
         } else {
             synchronizedAppend(targetElement.element, taskElement.element);
         }
-        Stack<TimedElement> threadStack = getStack();
+        Stack<TimedElement> threadStack = getStack(event);
         if (!threadStack.empty()) {
             TimedElement poppedStack = threadStack.pop();
             if (poppedStack != taskElement) {
@@ -433,6 +448,16 @@ public class XmlLogger implements BuildLogger {
         msgOutputLevel = level;
     }
 
+    /**
+     * The logging level of this logger, Project.MSG_DEBUG if a
+     * subclass overrides {@link #messageLogged messageLogged}.
+     * @return the logging level.
+     * @since Ant 1.9.5
+     */
+    public int getMessageOutputLevel() {
+        return ignoresVerboseMessages ? msgOutputLevel : Project.MSG_DEBUG;
+    }
+
     /**
      * Set the output stream to which logging output is sent when operating
      * as a logger.
@@ -0,0 +1,298 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.tools.ant.helper;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Executor;
+import org.apache.tools.ant.MagicNames;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Target;
+
+/**
+ * Target executor implementation that runs independent targets
+ * concurrently.
+ *
+ * <p>Like {@link SingleCheckExecutor} the targets given and all of
+ * their dependencies are merged into a single graph so that each
+ * target is executed at most once.  A target is handed to a bounded
+ * pool of worker threads as soon as all of the targets it depends on
+ * have completed successfully.  The size of the pool is read from the
+ * <code>ant.executor.threads</code> property and defaults to the
+ * number of available processors.</p>
+ *
+ * <p>The order of targets listed in a <code>depends</code> attribute
+ * is no longer guaranteed, only the dependencies themselves are
+ * honored.  If an error occurs, behavior is determined by the
+ * Project's "keep-going" mode: without it no new targets are started
+ * and the first failure is rethrown once the running targets have
+ * finished, with it all targets that don't depend on a failed target
+ * are executed.</p>
+ *
+ * @since Ant 1.9.5
+ */
+public class ParallelExecutor implements Executor {
+
+    private static final SingleCheckExecutor SUB_EXECUTOR = new SingleCheckExecutor();
+
+    /** {@inheritDoc}. */
+    public void executeTargets(Project project, String[] targetNames)
+        throws BuildException {
+        Vector<Target> sortedTargets =
+            project.topoSort(targetNames, project.getTargets(), false);
+        int threads = getThreadCount(project);
+        if (threads < 2 || sortedTargets.size() < 2) {
+            project.executeSortedTargets(sortedTargets);
+            return;
+        }
+        ExecutorService pool =
+            Executors.newFixedThreadPool(threads, new WorkerFactory());
+        try {
+            new Schedule(project, sortedTargets, pool).run();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** {@inheritDoc}. */
+    public Executor getSubProjectExecutor() {
+        return SUB_EXECUTOR;
+    }
+
+    /**
+     * Reads the number of worker threads to use from the project.
+     * @param project the project to run.
+     * @return the configured number of threads.
+     */
+    private static int getThreadCount(Project project) {
+        String value = project.getProperty(MagicNames.ANT_EXECUTOR_THREADS);
+        if (value == null) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        try {
+            int threads = Integer.parseInt(value.trim());
+            if (threads < 1) {
+                throw new BuildException(MagicNames.ANT_EXECUTOR_THREADS
+                                         + " must be a positive number, not "
+                                         + value);
+            }
+            return threads;
+        } catch (NumberFormatException e) {
+            throw new BuildException("Invalid value for "
+                                     + MagicNames.ANT_EXECUTOR_THREADS
+                                     + ": " + value);
+        }
+    }
+
+    /**
+     * Keeps track of the state of a single run of the executor.
+     * All state is only ever touched by the thread that invoked
+     * executeTargets, the workers only run the targets.
+     */
+    private static class Schedule {
+        private final Project project;
+        private final Vector<Target> sortedTargets;
+        private final CompletionService<Completed> completion;
+        private final Map<String, Integer> pendingDependencies =
+            new HashMap<String, Integer>();
+        private final Map<String, List<Target>> dependents =
+            new HashMap<String, List<Target>>();
+        private final Set<String> skipped = new HashSet<String>();
+        private final boolean keepGoing;
+        private BuildException buildException = null;
+        private int running = 0;
+
+        Schedule(Project project, Vector<Target> sortedTargets,
+                 ExecutorService pool) {
+            this.project = project;
+            this.sortedTargets = sortedTargets;
+            this.completion = new ExecutorCompletionService<Completed>(pool);
+            keepGoing = project.isKeepGoingMode();
+            for (Target t : sortedTargets) {
+                int count = 0;
+                for (Enumeration<String> deps = t.getDependencies();
+                     deps.hasMoreElements();) {
+                    String dependency = deps.nextElement();
+                    List<Target> l = dependents.get(dependency);
+                    if (l == null) {
+                        l = new ArrayList<Target>();
+                        dependents.put(dependency, l);
+                    }
+                    l.add(t);
+                    count++;
+                }
+                pendingDependencies.put(t.getName(), Integer.valueOf(count));
+            }
+        }
+
+        void run() {
+            for (Target t : sortedTargets) {
+                if (pendingDependencies.get(t.getName()).intValue() == 0) {
+                    submit(t);
+                }
+            }
+            while (running > 0) {
+                Completed c = take();
+                running--;
+                if (c.failure == null) {
+                    if (buildException == null || keepGoing) {
+                        release(c.target);
+                    }
+                } else {
+                    failed(c.target, c.failure);
+                }
+            }
+            if (buildException != null) {
+                throw buildException;
+            }
+        }
+
+        private void submit(final Target target) {
+            running++;
+            completion.submit(new Callable<Completed>() {
+                    public Completed call() {
+                        try {
+                            target.performTasks();
+                            return new Completed(target, null);
+                        } catch (Throwable t) {
+                            return new Completed(target, t);
+                        }
+                    }
+                });
+        }
+
+        private Completed take() {
+            try {
+                return completion.take().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BuildException("interrupted while waiting for"
+                                         + " targets to finish", e);
+            } catch (ExecutionException e) {
+                // performTasks failures are returned, not thrown
+                throw new BuildException(e.getCause());
+            }
+        }
+
+        /**
+         * Submits all targets whose last outstanding dependency was
+         * the given, successfully completed, target.
+         */
+        private void release(Target target) {
+            List<Target> l = dependents.get(target.getName());
+            if (l == null) {
+                return;
+            }
+            for (Target t : l) {
+                String name = t.getName();
+                int left = pendingDependencies.get(name).intValue() - 1;
+                pendingDependencies.put(name, Integer.valueOf(left));
+                if (left == 0 && !skipped.contains(name)) {
+                    submit(t);
+                }
+            }
+        }
+
+        private void failed(Target target, Throwable thrown) {
+            if (!keepGoing) {
+                if (buildException == null) {
+                    buildException = thrown instanceof BuildException
+                        ? (BuildException) thrown
+                        : new BuildException(thrown);
+                }
+                return;
+            }
+            project.log(target, "Target '" + target.getName()
+                        + "' failed with message '"
+                        + thrown.getMessage() + "'.", Project.MSG_ERR);
+            if (thrown instanceof BuildException) {
+                if (buildException == null) {
+                    buildException = (BuildException) thrown;
+                }
+            } else {
+                thrown.printStackTrace(System.err);
+                if (buildException == null) {
+                    buildException = new BuildException(thrown);
+                }
+            }
+            skipDependents(target.getName());
+        }
+
+        /**
+         * Marks all targets that (transitively) depend on a failed
+         * target as skipped, logging the same message as {@link
+         * Project#executeSortedTargets}.
+         */
+        private void skipDependents(String failedTarget) {
+            List<Target> l = dependents.get(failedTarget);
+            if (l == null) {
+                return;
+            }
+            for (Target t : l) {
+                if (skipped.add(t.getName())) {
+                    project.log(t, "Cannot execute '" + t.getName() + "' - '"
+                                + failedTarget
+                                + "' failed or was not executed.",
+                                Project.MSG_ERR);
+                    skipDependents(t.getName());
+                }
+            }
+        }
+    }
+
+    /** Outcome of a single target, a null failure means success. */
+    private static class Completed {
+        private final Target target;
+        private final Throwable failure;
+        Completed(Target target, Throwable failure) {
+            this.target = target;
+            this.failure = failure;
+        }
+    }
+
+    /**
+     * Creates a worker thread in a thread group of its own so that
+     * threads started by a task are associated with the correct task
+     * by {@link Project#getThreadTask}.
+     */
+    private static class WorkerFactory implements ThreadFactory {
+        private int count = 0;
+        public synchronized Thread newThread(Runnable r) {
+            String name = "ant-executor-" + (++count);
+            Thread t = new Thread(new ThreadGroup(name), r, name);
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
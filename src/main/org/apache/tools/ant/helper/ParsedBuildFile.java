@@ -0,0 +1,340 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.tools.ant.helper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.tools.ant.launch.Locator;
+import org.apache.tools.ant.util.FileUtils;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+import org.xml.sax.helpers.LocatorImpl;
+
+/**
+ * The SAX events of a parsed build file, ready to be replayed into
+ * the handlers of another project without parsing the file again.
+ *
+ * <p>Parsed files are cached process wide by URI.  A cached file is
+ * only used as long as neither it nor any external entity it has
+ * pulled in have been modified.</p>
+ *
+ * @since Ant 1.9.5
+ */
+final class ParsedBuildFile {
+
+    private static final FileUtils FILE_UTILS = FileUtils.getFileUtils();
+
+    private static final Map<String, ParsedBuildFile> CACHE =
+        new HashMap<String, ParsedBuildFile>();
+
+    private final List<Event> events;
+    private final List<File> files;
+    private final long[] fingerprint;
+
+    private ParsedBuildFile(List<Event> events, List<File> files) {
+        this.events = events;
+        this.files = files;
+        fingerprint = fingerprint(files);
+    }
+
+    /**
+     * Returns the cached build file for the given URI if it is still
+     * up to date.
+     * @param uri the URI of the build file.
+     * @return the cached file or null.
+     */
+    static ParsedBuildFile get(String uri) {
+        synchronized (CACHE) {
+            ParsedBuildFile p = CACHE.get(uri);
+            if (p != null
+                && !Arrays.equals(p.fingerprint, fingerprint(p.files))) {
+                CACHE.remove(uri);
+                p = null;
+            }
+            return p;
+        }
+    }
+
+    /**
+     * Returns the file that needs to be checked for modifications
+     * for a build file at the given URI.
+     * @param uri the URI of the build file.
+     * @return the file or jar file holding the build file, null if
+     * the URI doesn't point to the local file system.
+     */
+    static File getSourceFile(String uri) {
+        if (uri.startsWith("file:")) {
+            return new File(FILE_UTILS.fromURI(uri));
+        }
+        if (uri.startsWith("jar:file:") && uri.indexOf("!/") > -1) {
+            return new File(Locator.fromJarURI(uri));
+        }
+        return null;
+    }
+
+    /**
+     * Removes all cached build files.
+     */
+    static void clear() {
+        synchronized (CACHE) {
+            CACHE.clear();
+        }
+    }
+
+    /**
+     * Sends the recorded events to the given handler.
+     * @param handler the handler
+     * @param systemId the system id of the build file
+     * @throws SAXException if the handler fails
+     */
+    void replay(DefaultHandler handler, String systemId) throws SAXException {
+        LocatorImpl locator = new LocatorImpl();
+        locator.setSystemId(systemId);
+        handler.setDocumentLocator(locator);
+        for (Event e : events) {
+            locator.setSystemId(e.systemId);
+            locator.setLineNumber(e.line);
+            locator.setColumnNumber(e.column);
+            e.replay(handler);
+        }
+    }
+
+    private static long[] fingerprint(List<File> files) {
+        long[] f = new long[files.size() * 2];
+        int i = 0;
+        for (File file : files) {
+            f[i++] = file.lastModified();
+            f[i++] = file.length();
+        }
+        return f;
+    }
+
+    /**
+     * Passes SAX events on to another handler and records them.
+     */
+    static class Recorder extends DefaultHandler {
+        private final DefaultHandler delegate;
+        private final String uri;
+        private final List<Event> events = new ArrayList<Event>();
+        private final List<File> files = new ArrayList<File>();
+        private org.xml.sax.Locator locator;
+        private boolean cacheable = true;
+
+        /**
+         * @param delegate the handler to pass events to
+         * @param uri the URI of the build file
+         * @param source the file holding the build file
+         */
+        Recorder(DefaultHandler delegate, String uri, File source) {
+            this.delegate = delegate;
+            this.uri = uri;
+            files.add(source);
+        }
+
+        /**
+         * Stores the recorded events in the cache unless the build
+         * file has been modified too recently to tell further
+         * modifications apart or has pulled in entities that can't be
+         * checked for modifications.
+         */
+        void store() {
+            if (!cacheable) {
+                return;
+            }
+            long recent = System.currentTimeMillis()
+                - FILE_UTILS.getFileTimestampGranularity();
+            for (File f : files) {
+                if (f.lastModified() > recent) {
+                    return;
+                }
+            }
+            synchronized (CACHE) {
+                CACHE.put(uri, new ParsedBuildFile(events, files));
+            }
+        }
+
+        private void record(Event e) {
+            if (locator != null) {
+                e.systemId = locator.getSystemId();
+                e.line = locator.getLineNumber();
+                e.column = locator.getColumnNumber();
+            }
+            events.add(e);
+        }
+
+        @Override
+        public InputSource resolveEntity(String publicId, String systemId)
+            throws IOException, SAXException {
+            InputSource s = delegate.resolveEntity(publicId, systemId);
+            File f = s == null || s.getSystemId() == null ? null
+                : getSourceFile(s.getSystemId());
+            if (f == null) {
+                cacheable = false;
+            } else {
+                files.add(f);
+            }
+            return s;
+        }
+
+        @Override
+        public void setDocumentLocator(org.xml.sax.Locator locator) {
+            this.locator = locator;
+            delegate.setDocumentLocator(locator);
+        }
+
+        @Override
+        public void startElement(String uri, String tag, String qname,
+                                 Attributes attrs) throws SAXException {
+            record(new StartElement(uri, tag, qname, attrs));
+            delegate.startElement(uri, tag, qname, attrs);
+        }
+
+        @Override
+        public void endElement(String uri, String tag, String qname)
+            throws SAXException {
+            record(new EndElement(uri, tag, qname));
+            delegate.endElement(uri, tag, qname);
+        }
+
+        @Override
+        public void characters(char[] buf, int start, int count)
+            throws SAXException {
+            record(new Characters(buf, start, count));
+            delegate.characters(buf, start, count);
+        }
+
+        @Override
+        public void startPrefixMapping(String prefix, String uri)
+            throws SAXException {
+            record(new StartPrefixMapping(prefix, uri));
+            delegate.startPrefixMapping(prefix, uri);
+        }
+
+        @Override
+        public void endPrefixMapping(String prefix) throws SAXException {
+            record(new EndPrefixMapping(prefix));
+            delegate.endPrefixMapping(prefix);
+        }
+
+        @Override
+        public void warning(SAXParseException e) throws SAXException {
+            delegate.warning(e);
+        }
+
+        @Override
+        public void error(SAXParseException e) throws SAXException {
+            delegate.error(e);
+        }
+
+        @Override
+        public void fatalError(SAXParseException e) throws SAXException {
+            delegate.fatalError(e);
+        }
+    }
+
+    private abstract static class Event {
+        private String systemId;
+        private int line = -1;
+        private int column = -1;
+
+        abstract void replay(DefaultHandler h) throws SAXException;
+    }
+
+    private static class StartElement extends Event {
+        private final String uri;
+        private final String tag;
+        private final String qname;
+        private final Attributes attrs;
+
+        StartElement(String uri, String tag, String qname, Attributes attrs) {
+            this.uri = uri;
+            this.tag = tag;
+            this.qname = qname;
+            this.attrs = new AttributesImpl(attrs);
+        }
+
+        void replay(DefaultHandler h) throws SAXException {
+            h.startElement(uri, tag, qname, attrs);
+        }
+    }
+
+    private static class EndElement extends Event {
+        private final String uri;
+        private final String tag;
+        private final String qname;
+
+        EndElement(String uri, String tag, String qname) {
+            this.uri = uri;
+            this.tag = tag;
+            this.qname = qname;
+        }
+
+        void replay(DefaultHandler h) throws SAXException {
+            h.endElement(uri, tag, qname);
+        }
+    }
+
+    private static class Characters extends Event {
+        private final char[] text;
+
+        Characters(char[] buf, int start, int count) {
+            text = new char[count];
+            System.arraycopy(buf, start, text, 0, count);
+        }
+
+        void replay(DefaultHandler h) throws SAXException {
+            h.characters(text, 0, text.length);
+        }
+    }
+
+    private static class StartPrefixMapping extends Event {
+        private final String prefix;
+        private final String uri;
+
+        StartPrefixMapping(String prefix, String uri) {
+            this.prefix = prefix;
+            this.uri = uri;
+        }
+
+        void replay(DefaultHandler h) throws SAXException {
+            h.startPrefixMapping(prefix, uri);
+        }
+    }
+
+    private static class EndPrefixMapping extends Event {
+        private final String prefix;
+
+        EndPrefixMapping(String prefix) {
+            this.prefix = prefix;
+        }
+
+        void replay(DefaultHandler h) throws SAXException {
+            h.endPrefixMapping(prefix);
+        }
+    }
+}
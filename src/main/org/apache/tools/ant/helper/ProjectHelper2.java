@@ -238,18 +238,30 @@ public class ProjectHelper2 extends ProjectHelper {
         InputSource inputSource = null;
         ZipFile zf = null;
 
+        String uri = buildFile != null
+            ? FILE_UTILS.toURI(buildFile.getAbsolutePath()) : url.toString();
+        File sourceFile = isParserCacheEnabled(project)
+            ? ParsedBuildFile.getSourceFile(uri) : null;
+
         try {
+            if (sourceFile != null) {
+                ParsedBuildFile parsed = ParsedBuildFile.get(uri);
+                if (parsed != null) {
+                    project.log("using cached parse of buildfile "
+                                + buildFileName, Project.MSG_VERBOSE);
+                    parsed.replay(handler, uri);
+                    return;
+                }
+            }
+
             /**
              * SAX 2 style parser used to parse the given file.
              */
             XMLReader parser = JAXPUtils.getNamespaceXMLReader();
 
-            String uri = null;
             if (buildFile != null) {
-                uri = FILE_UTILS.toURI(buildFile.getAbsolutePath());
                 inputStream = new FileInputStream(buildFile);
             } else {
-                uri = url.toString();
                 int pling = -1;
                 if (uri.startsWith("jar:file")
                     && (pling = uri.indexOf("!/")) > -1) {
@@ -265,20 +277,26 @@ public class ProjectHelper2 extends ProjectHelper {
             }
 
             inputSource = new InputSource(inputStream);
-            if (uri != null) {
-                inputSource.setSystemId(uri);
-            }
+            inputSource.setSystemId(uri);
             project.log("parsing buildfile " + buildFileName + " with URI = "
                         + uri + (zf != null ? " from a zip file" : ""),
                         Project.MSG_VERBOSE);
 
             DefaultHandler hb = handler;
+            ParsedBuildFile.Recorder recorder = null;
+            if (sourceFile != null) {
+                recorder = new ParsedBuildFile.Recorder(handler, uri, sourceFile);
+                hb = recorder;
+            }
 
             parser.setContentHandler(hb);
             parser.setEntityResolver(hb);
             parser.setErrorHandler(hb);
             parser.setDTDHandler(hb);
             parser.parse(inputSource);
+            if (recorder != null) {
+                recorder.store();
+            }
         } catch (SAXParseException exc) {
             Location location = new Location(exc.getSystemId(), exc.getLineNumber(), exc
                                              .getColumnNumber());
@@ -312,6 +330,15 @@ public class ProjectHelper2 extends ProjectHelper {
         }
     }
 
+    /**
+     * Whether build files may be taken from and stored in the cache
+     * of parsed build files.
+     */
+    private static boolean isParserCacheEnabled(Project project) {
+        String cache = project.getProperty(MagicNames.PARSER_CACHE);
+        return cache == null || Project.toBoolean(cache);
+    }
+
     /**
      * Returns main handler
      * @return main handler
@@ -0,0 +1,418 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.tools.ant.listener;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.BuildListener;
+import org.apache.tools.ant.LevelAwareListener;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.SubBuildListener;
+
+/**
+ * Passes build events to another listener using a thread of its
+ * own, so a slow listener doesn't hold up the build.
+ *
+ * <p>Events are put into a bounded queue and delivered in the order
+ * they have been fired.  If the queue is full, the thread firing an
+ * event waits until there is room for it - unless the event is a
+ * verbose or debug message and the listener has been told to drop
+ * such messages instead.</p>
+ *
+ * <p>All events are delivered by the same thread, events fired by
+ * any given thread reach the wrapped listener in the order they have
+ * been fired by that thread.  Listeners that keep state per thread or
+ * measure times must use {@link BuildEvent#getThread} and {@link
+ * BuildEvent#getTimestamp} rather than the current thread and clock,
+ * like the listeners and loggers that come with Ant do.</p>
+ *
+ * <p>The build finished event is only passed on once all earlier
+ * events have been delivered and {@link #buildFinished buildFinished}
+ * doesn't return before the wrapped listener has handled it.  Any
+ * exception thrown by the wrapped listener is rethrown at that
+ * point.</p>
+ *
+ * @since Ant 1.9.5
+ */
+public class AsyncBuildListener
+    implements LevelAwareListener, SubBuildListener {
+
+    /** Default number of events that can be queued. */
+    public static final int DEFAULT_QUEUE_SIZE = 8192;
+
+    private static final int BUILD_STARTED = 0;
+    private static final int BUILD_FINISHED = 1;
+    private static final int SUBBUILD_STARTED = 2;
+    private static final int SUBBUILD_FINISHED = 3;
+    private static final int TARGET_STARTED = 4;
+    private static final int TARGET_FINISHED = 5;
+    private static final int TASK_STARTED = 6;
+    private static final int TASK_FINISHED = 7;
+    private static final int MESSAGE_LOGGED = 8;
+    private static final int FLUSH = 9;
+
+    private static int threadCount = 0;
+
+    private final BuildListener delegate;
+    private final BlockingQueue<Item> queue;
+    private final boolean dropDebugMessages;
+
+    /** Thread delivering events, null if there is no such thread. */
+    private Dispatcher dispatcher;
+    /** Whether the dispatcher stops once the queue is empty. */
+    private boolean stopping;
+    /** Number of messages that have been dropped. */
+    private int dropped;
+    /** First exception thrown by the wrapped listener. */
+    private Throwable failure;
+
+    /**
+     * An event waiting to be delivered.
+     */
+    private static class Item {
+        private final int type;
+        private final BuildEvent event;
+        private final CountDownLatch done;
+
+        Item(int type, BuildEvent event, CountDownLatch done) {
+            this.type = type;
+            this.event = event;
+            this.done = done;
+        }
+    }
+
+    /**
+     * Creates a listener that blocks the build if the queue is full.
+     * @param delegate the listener to pass events to.
+     */
+    public AsyncBuildListener(BuildListener delegate) {
+        this(delegate, DEFAULT_QUEUE_SIZE, false);
+    }
+
+    /**
+     * Creates a listener.
+     * @param delegate the listener to pass events to.
+     * @param queueSize the number of events that can be queued.
+     * @param dropDebugMessages whether verbose and debug messages
+     * should be dropped rather than wait for room in the queue.
+     */
+    public AsyncBuildListener(BuildListener delegate, int queueSize,
+                              boolean dropDebugMessages) {
+        if (queueSize < 1) {
+            throw new BuildException("queue size must be a positive number");
+        }
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<Item>(queueSize);
+        this.dropDebugMessages = dropDebugMessages;
+    }
+
+    /**
+     * The listener events are passed to.
+     * @return the wrapped listener.
+     */
+    public BuildListener getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Queues the event.
+     * @param event the event.
+     */
+    public void buildStarted(BuildEvent event) {
+        enqueue(new Item(BUILD_STARTED, event, null));
+    }
+
+    /**
+     * Passes the event to the wrapped listener after all earlier
+     * events and waits for it to be handled.
+     * @param event the event.
+     */
+    public void buildFinished(BuildEvent event) {
+        int lost;
+        synchronized (this) {
+            lost = dropped;
+            dropped = 0;
+        }
+        if (lost > 0) {
+            BuildEvent warning = new BuildEvent(event.getProject());
+            warning.setMessage(lost + " verbose or debug messages have been"
+                               + " dropped", Project.MSG_WARN);
+            enqueue(new Item(MESSAGE_LOGGED, warning, null));
+        }
+        enqueue(new Item(BUILD_FINISHED, event, null));
+        flush();
+    }
+
+    /**
+     * Queues the event if the wrapped listener is a SubBuildListener.
+     * @param event the event.
+     */
+    public void subBuildStarted(BuildEvent event) {
+        if (delegate instanceof SubBuildListener) {
+            enqueue(new Item(SUBBUILD_STARTED, event, null));
+        }
+    }
+
+    /**
+     * Queues the event if the wrapped listener is a SubBuildListener.
+     * @param event the event.
+     */
+    public void subBuildFinished(BuildEvent event) {
+        if (delegate instanceof SubBuildListener) {
+            enqueue(new Item(SUBBUILD_FINISHED, event, null));
+        }
+    }
+
+    /**
+     * Queues the event.
+     * @param event the event.
+     */
+    public void targetStarted(BuildEvent event) {
+        enqueue(new Item(TARGET_STARTED, event, null));
+    }
+
+    /**
+     * Queues the event.
+     * @param event the event.
+     */
+    public void targetFinished(BuildEvent event) {
+        enqueue(new Item(TARGET_FINISHED, event, null));
+    }
+
+    /**
+     * Queues the event.
+     * @param event the event.
+     */
+    public void taskStarted(BuildEvent event) {
+        enqueue(new Item(TASK_STARTED, event, null));
+    }
+
+    /**
+     * Queues the event.
+     * @param event the event.
+     */
+    public void taskFinished(BuildEvent event) {
+        enqueue(new Item(TASK_FINISHED, event, null));
+    }
+
+    /**
+     * Queues the event.
+     *
+     * <p>Messages logged while an event is delivered are swallowed,
+     * the same way Project swallows messages logged by a listener
+     * that is handling a message.</p>
+     * @param event the event.
+     */
+    public void messageLogged(BuildEvent event) {
+        if (Thread.currentThread() instanceof Dispatcher) {
+            return;
+        }
+        Item item = new Item(MESSAGE_LOGGED, event, null);
+        if (dropDebugMessages && event.getPriority() > Project.MSG_INFO) {
+            ensureDispatcher();
+            if (!queue.offer(item)) {
+                synchronized (this) {
+                    dropped++;
+                }
+            }
+            ensureDispatcher();
+        } else {
+            enqueue(item);
+        }
+    }
+
+    /**
+     * The level of the wrapped listener.
+     * @return the level of the wrapped listener if it is a
+     * LevelAwareListener, Project.MSG_DEBUG otherwise.
+     */
+    public int getMessageOutputLevel() {
+        return delegate instanceof LevelAwareListener
+            ? ((LevelAwareListener) delegate).getMessageOutputLevel()
+            : Project.MSG_DEBUG;
+    }
+
+    /**
+     * Waits until all events fired so far have been passed to the
+     * wrapped listener.
+     * @throws BuildException if the wrapped listener has thrown an
+     * exception since the last time this method has been invoked.
+     */
+    public void flush() {
+        synchronized (this) {
+            if (Thread.currentThread() == dispatcher) {
+                return;
+            }
+        }
+        CountDownLatch done = new CountDownLatch(1);
+        enqueue(new Item(FLUSH, null, done));
+        boolean interrupted = false;
+        while (true) {
+            try {
+                done.await();
+                break;
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        Throwable t;
+        synchronized (this) {
+            t = failure;
+            failure = null;
+        }
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        if (t != null) {
+            throw new BuildException(t);
+        }
+    }
+
+    /**
+     * Puts the item into the queue, waiting for room if necessary.
+     */
+    private void enqueue(Item item) {
+        ensureDispatcher();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(item);
+                break;
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        // the dispatcher may have stopped before the item has been
+        // queued
+        ensureDispatcher();
+    }
+
+    private synchronized void ensureDispatcher() {
+        if (dispatcher == null) {
+            dispatcher = new Dispatcher(nextThreadName());
+            dispatcher.start();
+        }
+    }
+
+    private static synchronized String nextThreadName() {
+        return "build-listener-" + (++threadCount);
+    }
+
+    /**
+     * Takes items from the queue until the build has finished and
+     * there is nothing left to deliver.
+     */
+    private void dispatch() {
+        while (true) {
+            Item item;
+            synchronized (this) {
+                item = queue.poll();
+                if (item == null && stopping) {
+                    dispatcher = null;
+                    stopping = false;
+                    return;
+                }
+            }
+            if (item == null) {
+                try {
+                    item = queue.take();
+                } catch (InterruptedException ex) {
+                    continue;
+                }
+            }
+            if (item.type == FLUSH) {
+                item.done.countDown();
+                continue;
+            }
+            try {
+                deliver(item);
+            } catch (Throwable t) {
+                synchronized (this) {
+                    if (failure == null) {
+                        failure = t;
+                    }
+                }
+            }
+            if (item.type == BUILD_FINISHED) {
+                synchronized (this) {
+                    stopping = true;
+                }
+            }
+        }
+    }
+
+    private void deliver(Item item) {
+        BuildEvent event = item.event;
+        switch (item.type) {
+        case BUILD_STARTED:
+            delegate.buildStarted(event);
+            break;
+        case BUILD_FINISHED:
+            delegate.buildFinished(event);
+            break;
+        case SUBBUILD_STARTED:
+            ((SubBuildListener) delegate).subBuildStarted(event);
+            break;
+        case SUBBUILD_FINISHED:
+            ((SubBuildListener) delegate).subBuildFinished(event);
+            break;
+        case TARGET_STARTED:
+            delegate.targetStarted(event);
+            break;
+        case TARGET_FINISHED:
+            delegate.targetFinished(event);
+            break;
+        case TASK_STARTED:
+            delegate.taskStarted(event);
+            break;
+        case TASK_FINISHED:
+            delegate.taskFinished(event);
+            break;
+        default:
+            delegate.messageLogged(event);
+            break;
+        }
+    }
+
+    /**
+     * The thread delivering events.
+     */
+    private class Dispatcher extends Thread {
+        Dispatcher(String name) {
+            super(name);
+            setDaemon(true);
+        }
+
+        public void run() {
+            dispatch();
+        }
+    }
+}
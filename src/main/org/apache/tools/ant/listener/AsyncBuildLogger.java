@@ -0,0 +1,77 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.tools.ant.listener;
+
+import java.io.PrintStream;
+
+import org.apache.tools.ant.BuildLogger;
+
+/**
+ * An {@link AsyncBuildListener} wrapping a logger.
+ *
+ * <p>The configuration methods of BuildLogger are passed on to the
+ * wrapped logger immediately.</p>
+ *
+ * @since Ant 1.9.5
+ */
+public class AsyncBuildLogger extends AsyncBuildListener
+    implements BuildLogger {
+
+    private final BuildLogger logger;
+
+    /**
+     * Creates a logger that blocks the build if the queue is full.
+     * @param delegate the logger to pass events to.
+     */
+    public AsyncBuildLogger(BuildLogger delegate) {
+        this(delegate, DEFAULT_QUEUE_SIZE, false);
+    }
+
+    /**
+     * Creates a logger.
+     * @param delegate the logger to pass events to.
+     * @param queueSize the number of events that can be queued.
+     * @param dropDebugMessages whether verbose and debug messages
+     * should be dropped rather than wait for room in the queue.
+     */
+    public AsyncBuildLogger(BuildLogger delegate, int queueSize,
+                            boolean dropDebugMessages) {
+        super(delegate, queueSize, dropDebugMessages);
+        logger = delegate;
+    }
+
+    /** {@inheritDoc} */
+    public void setMessageOutputLevel(int level) {
+        logger.setMessageOutputLevel(level);
+    }
+
+    /** {@inheritDoc} */
+    public void setOutputPrintStream(PrintStream output) {
+        logger.setOutputPrintStream(output);
+    }
+
+    /** {@inheritDoc} */
+    public void setEmacsMode(boolean emacsMode) {
+        logger.setEmacsMode(emacsMode);
+    }
+
+    /** {@inheritDoc} */
+    public void setErrorPrintStream(PrintStream err) {
+        logger.setErrorPrintStream(err);
+    }
+}
@@ -42,7 +42,7 @@ public class ProfileLogger extends DefaultLogger {
      *            <code>null</code>.
      */
     public void targetStarted(BuildEvent event) {
-        Date now = new Date();
+        Date now = new Date(event.getTimestamp());
         String name = "Target " + event.getTarget().getName();
         logStart(event, now, name);
         profileData.put(event.getTarget(), now);
@@ -70,7 +70,7 @@ public class ProfileLogger extends DefaultLogger {
      */
     public void taskStarted(BuildEvent event) {
         String name = event.getTask().getTaskName();
-        Date now = new Date();
+        Date now = new Date(event.getTimestamp());
         logStart(event, now, name);
         profileData.put(event.getTask(), now);
     }
@@ -89,7 +89,7 @@ public class ProfileLogger extends DefaultLogger {
     }
 
     private void logFinish(BuildEvent event, Date start, String name) {
-        Date now = new Date();
+        Date now = new Date(event.getTimestamp());
         String msg = null;
         if (start != null) {
             long diff = now.getTime() - start.getTime();
@@ -0,0 +1,483 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.tools.ant.listener;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.LevelAwareListener;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Target;
+import org.apache.tools.ant.Task;
+import org.apache.tools.ant.util.FileUtils;
+
+/**
+ * Records how much time the targets and tasks of a build take and
+ * writes the result to a file once the build has finished.
+ *
+ * <p>For each target and task - this includes macros as well as the
+ * targets and tasks run by antcall, ant and subant - the listener
+ * records the wall clock time, the CPU time and the number of bytes
+ * allocated by the thread running it, if the VM can measure them.
+ * Targets and tasks are nested the way they have been executed,
+ * tasks that run in threads of their own, like those inside
+ * &lt;parallel&gt;, are nested inside of their target.</p>
+ *
+ * <p>Times are taken from the events, so the wall clock times are
+ * correct even if the events are delivered asynchronously.  CPU time
+ * and allocations can only be measured when the events are delivered
+ * by the thread that fired them, they are not recorded
+ * otherwise.</p>
+ *
+ * <p>The file name is taken from the property
+ * <code>ProfilingListener.file</code>.  The property
+ * <code>ProfilingListener.format</code> selects the format, which is
+ * either "trace" - the default - for the trace event format
+ * understood by Chrome's about:tracing and similar viewers, or
+ * "collapsed" for the collapsed stacks used by flame graph tools.
+ * The default file name is profile.json or profile.collapsed
+ * respectively.</p>
+ *
+ * @since Ant 1.9.5
+ */
+public class ProfilingListener implements LevelAwareListener {
+
+    /** Name of the property holding the name of the output file. */
+    public static final String FILE_PROPERTY = "ProfilingListener.file";
+
+    /** Name of the property holding the output format. */
+    public static final String FORMAT_PROPERTY = "ProfilingListener.format";
+
+    /** Trace event format. */
+    public static final String FORMAT_TRACE = "trace";
+
+    /** Collapsed stacks format. */
+    public static final String FORMAT_COLLAPSED = "collapsed";
+
+    private static final long NANOS_PER_MICRO = 1000;
+    private static final long NANOS_PER_MILLI = 1000000;
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final boolean cpuTime;
+    /** ThreadMXBean#getThreadAllocatedBytes of Sun's VMs, if present. */
+    private final Method allocatedBytes;
+
+    private long buildStart;
+
+    /** Started tasks and targets. */
+    private final Hashtable<Object, Frame> running =
+        new Hashtable<Object, Frame>();
+    /** Frames started by each thread that haven't finished, yet. */
+    private final Hashtable<Thread, Stack<Frame>> threadStacks =
+        new Hashtable<Thread, Stack<Frame>>();
+    /** Finished frames. */
+    private final List<Frame> frames = new ArrayList<Frame>();
+    /** Names of all threads by id. */
+    private final Map<Long, String> threadNames = new LinkedHashMap<Long, String>();
+
+    /**
+     * A target or task.
+     */
+    private static class Frame {
+        private final String name;
+        private final String category;
+        private final String location;
+        private final String project;
+        private final Frame parent;
+        private final long threadId;
+        /** Frames of the thread running this one. */
+        private final Stack<Frame> stack;
+        private final long start;
+        private long duration;
+        private long cpuStart = -1;
+        private long cpu = -1;
+        private long allocStart = -1;
+        private long alloc = -1;
+        /** Time spent in children on the same thread. */
+        private long childTime = 0;
+
+        Frame(String name, String category, String location,
+              String project, Frame parent, long threadId,
+              Stack<Frame> stack, long start) {
+            this.name = name;
+            this.category = category;
+            this.location = location;
+            this.project = project;
+            this.parent = parent;
+            this.threadId = threadId;
+            this.stack = stack;
+            this.start = start;
+        }
+
+        String path() {
+            String n = name.replace(';', ':');
+            return parent == null ? n : parent.path() + ";" + n;
+        }
+    }
+
+    /**
+     * Creates the listener.
+     */
+    public ProfilingListener() {
+        boolean cpu = false;
+        try {
+            cpu = threads.isCurrentThreadCpuTimeSupported();
+            if (cpu && !threads.isThreadCpuTimeEnabled()) {
+                threads.setThreadCpuTimeEnabled(true);
+            }
+        } catch (UnsupportedOperationException ex) {
+            cpu = false;
+        } catch (SecurityException ex) {
+            cpu = false;
+        }
+        cpuTime = cpu;
+        Method m = null;
+        try {
+            Class<?> c = Class.forName("com.sun.management.ThreadMXBean");
+            if (c.isInstance(threads)) {
+                Method supported =
+                    c.getMethod("isThreadAllocatedMemorySupported");
+                if (Boolean.TRUE.equals(supported.invoke(threads))) {
+                    m = c.getMethod("getThreadAllocatedBytes", Long.TYPE);
+                }
+            }
+        } catch (Exception ex) {
+            // not a Sun/Oracle VM or one that can't measure allocation
+            m = null;
+        }
+        allocatedBytes = m;
+    }
+
+    /**
+     * Remembers when the build started.
+     * @param event ignored.
+     */
+    public void buildStarted(BuildEvent event) {
+        buildStart = event.getNanoTime();
+    }
+
+    /**
+     * Writes the recorded data.
+     * @param event An event with any relevant extra information.
+     *              Will not be <code>null</code>.
+     */
+    public void buildFinished(BuildEvent event) {
+        Project project = event.getProject();
+        String format = project.getProperty(FORMAT_PROPERTY);
+        if (format == null) {
+            format = FORMAT_TRACE;
+        }
+        boolean collapsed = FORMAT_COLLAPSED.equals(format);
+        if (!collapsed && !FORMAT_TRACE.equals(format)) {
+            throw new BuildException("Unknown profile format " + format);
+        }
+        String file = project.getProperty(FILE_PROPERTY);
+        if (file == null) {
+            file = collapsed ? "profile.collapsed" : "profile.json";
+        }
+        Writer out = null;
+        try {
+            out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(project.resolveFile(file)), "UTF-8"));
+            synchronized (frames) {
+                if (collapsed) {
+                    writeCollapsed(out);
+                } else {
+                    writeTrace(out);
+                }
+            }
+            out.flush();
+        } catch (IOException ex) {
+            throw new BuildException("Unable to write profile", ex);
+        } finally {
+            FileUtils.close(out);
+        }
+    }
+
+    /**
+     * Starts a frame for the target.
+     * @param event An event with any relevant extra information.
+     *              Will not be <code>null</code>.
+     */
+    public void targetStarted(BuildEvent event) {
+        Target target = event.getTarget();
+        start(target, target.getName(), "target",
+              target.getLocation().toString(), event, null);
+    }
+
+    /**
+     * Records the time taken by the target.
+     * @param event An event with any relevant extra information.
+     *              Will not be <code>null</code>.
+     */
+    public void targetFinished(BuildEvent event) {
+        finish(event.getTarget(), event);
+    }
+
+    /**
+     * Starts a frame for the task.
+     * @param event An event with any relevant extra information.
+     *              Will not be <code>null</code>.
+     */
+    public void taskStarted(BuildEvent event) {
+        Task task = event.getTask();
+        String name = task.getTaskName();
+        Target target = task.getOwningTarget();
+        Frame targetFrame = target == null ? null : running.get(target);
+        Frame parent = null;
+        if (targetFrame != null) {
+            synchronized (targetFrame.stack) {
+                parent = targetFrame.stack.empty()
+                    ? targetFrame : targetFrame.stack.peek();
+            }
+        }
+        start(task, name == null ? "" : name, "task",
+              task.getLocation().toString(), event, parent);
+    }
+
+    /**
+     * Records the time taken by the task.
+     * @param event An event with any relevant extra information.
+     *              Will not be <code>null</code>.
+     */
+    public void taskFinished(BuildEvent event) {
+        finish(event.getTask(), event);
+    }
+
+    /**
+     * Ignored.
+     * @param event ignored.
+     */
+    public void messageLogged(BuildEvent event) {
+    }
+
+    /**
+     * This listener doesn't need any messages.
+     * @return a level below Project.MSG_ERR.
+     */
+    public int getMessageOutputLevel() {
+        return Project.MSG_ERR - 1;
+    }
+
+    /**
+     * Starts a frame nested inside the innermost frame of the thread
+     * that fired the event.
+     * @param defaultParent parent to use if the current thread hasn't
+     * started anything, yet - like a thread of &lt;parallel&gt;.  This
+     * is the innermost frame of the thread running the owning target.
+     */
+    private void start(Object key, String name, String category,
+                       String location, BuildEvent event,
+                       Frame defaultParent) {
+        Thread t = getThread(event);
+        Project project = event.getProject();
+        Stack<Frame> stack = getStack(t);
+        Frame f = new Frame(name, category, location,
+                            project == null ? null : project.getName(),
+                            stack.empty() ? defaultParent : stack.peek(),
+                            t.getId(), stack, event.getNanoTime() - buildStart);
+        synchronized (threadNames) {
+            if (!threadNames.containsKey(Long.valueOf(t.getId()))) {
+                threadNames.put(Long.valueOf(t.getId()), t.getName());
+            }
+        }
+        if (t == Thread.currentThread()) {
+            f.cpuStart = cpuTime();
+            f.allocStart = allocatedBytes();
+        }
+        running.put(key, f);
+        stack.push(f);
+    }
+
+    /**
+     * Completes the frame started for the given target or task.
+     */
+    private void finish(Object key, BuildEvent event) {
+        Frame f = running.remove(key);
+        if (f == null) {
+            return;
+        }
+        f.duration = event.getNanoTime() - buildStart - f.start;
+        Thread t = getThread(event);
+        if (t == Thread.currentThread()) {
+            if (f.cpuStart >= 0) {
+                f.cpu = cpuTime() - f.cpuStart;
+            }
+            if (f.allocStart >= 0) {
+                f.alloc = allocatedBytes() - f.allocStart;
+            }
+        }
+        synchronized (f.stack) {
+            if (!f.stack.empty() && f.stack.peek() == f) {
+                f.stack.pop();
+            }
+            if (f.stack.empty() && threadStacks.get(t) == f.stack) {
+                threadStacks.remove(t);
+            }
+        }
+        if (f.parent != null && f.parent.threadId == f.threadId) {
+            f.parent.childTime += f.duration;
+        }
+        synchronized (frames) {
+            frames.add(f);
+        }
+    }
+
+    private Stack<Frame> getStack(Thread t) {
+        Stack<Frame> stack = threadStacks.get(t);
+        if (stack == null) {
+            stack = new Stack<Frame>();
+            threadStacks.put(t, stack);
+        }
+        return stack;
+    }
+
+    private static Thread getThread(BuildEvent event) {
+        Thread t = event.getThread();
+        return t == null ? Thread.currentThread() : t;
+    }
+
+    private long cpuTime() {
+        return cpuTime ? threads.getCurrentThreadCpuTime() : -1;
+    }
+
+    private long allocatedBytes() {
+        if (allocatedBytes == null) {
+            return -1;
+        }
+        try {
+            return ((Long) allocatedBytes.invoke(threads,
+                Long.valueOf(Thread.currentThread().getId()))).longValue();
+        } catch (Exception ex) {
+            return -1;
+        }
+    }
+
+    /**
+     * Writes one complete event per frame plus the names of the
+     * threads.
+     */
+    private void writeTrace(Writer out) throws IOException {
+        out.write("{\"traceEvents\":[");
+        boolean first = true;
+        synchronized (threadNames) {
+            for (Map.Entry<Long, String> e : threadNames.entrySet()) {
+                out.write(first ? "\n" : ",\n");
+                first = false;
+                out.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,"
+                          + "\"tid\":" + e.getKey() + ",\"args\":{\"name\":"
+                          + quote(e.getValue()) + "}}");
+            }
+        }
+        for (Frame f : frames) {
+            out.write(first ? "\n" : ",\n");
+            first = false;
+            out.write("{\"name\":" + quote(f.name)
+                      + ",\"cat\":" + quote(f.category)
+                      + ",\"ph\":\"X\",\"pid\":1,\"tid\":" + f.threadId
+                      + ",\"ts\":" + (f.start / NANOS_PER_MICRO)
+                      + ",\"dur\":" + (f.duration / NANOS_PER_MICRO)
+                      + ",\"args\":{");
+            out.write("\"location\":" + quote(f.location));
+            if (f.project != null) {
+                out.write(",\"project\":" + quote(f.project));
+            }
+            if (f.cpu >= 0) {
+                out.write(",\"cpu_us\":" + (f.cpu / NANOS_PER_MICRO));
+            }
+            if (f.alloc >= 0) {
+                out.write(",\"alloc_bytes\":" + f.alloc);
+            }
+            out.write("}}");
+        }
+        out.write("\n],\"displayTimeUnit\":\"ms\"}\n");
+    }
+
+    /**
+     * Writes the self time in milliseconds of each distinct stack of
+     * targets and tasks.
+     */
+    private void writeCollapsed(Writer out) throws IOException {
+        Map<String, Long> self = new LinkedHashMap<String, Long>();
+        for (Frame f : frames) {
+            long ms = Math.max(0, f.duration - f.childTime) / NANOS_PER_MILLI;
+            String path = f.path();
+            Long old = self.get(path);
+            self.put(path, Long.valueOf(old == null ? ms : old.longValue() + ms));
+        }
+        for (Map.Entry<String, Long> e : self.entrySet()) {
+            if (e.getValue().longValue() > 0) {
+                out.write(e.getKey() + " " + e.getValue() + "\n");
+            }
+        }
+    }
+
+    /**
+     * Creates a JSON string literal.
+     */
+    private static String quote(String s) {
+        StringBuffer sb = new StringBuffer(s.length() + 2);
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+            case '"':
+                sb.append("\\\"");
+                break;
+            case '\\':
+                sb.append("\\\\");
+                break;
+            case '\n':
+                sb.append("\\n");
+                break;
+            case '\r':
+                sb.append("\\r");
+                break;
+            case '\t':
+                sb.append("\\t");
+                break;
+            default:
+                if (c < ' ') {
+                    String hex = Integer.toHexString(c);
+                    sb.append("\\u");
+                    for (int j = hex.length(); j < 4; j++) {
+                        sb.append('0');
+                    }
+                    sb.append(hex);
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,581 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.tools.ant.listener;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.Stack;
+
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.BuildLogger;
+import org.apache.tools.ant.LevelAwareListener;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Target;
+import org.apache.tools.ant.Task;
+import org.apache.tools.ant.UnknownElement;
+import org.apache.tools.ant.util.DOMElementWriter;
+import org.apache.tools.ant.util.DateUtils;
+import org.apache.tools.ant.util.FileUtils;
+import org.apache.tools.ant.util.StringUtils;
+
+/**
+ * Writes an XML description of what happened during a build while
+ * the build is running.
+ *
+ * <p>Unlike {@link org.apache.tools.ant.XmlLogger XmlLogger} this
+ * logger doesn't keep the build in memory.  Every message is written
+ * when it is logged and every target or task when it has finished,
+ * all of them as children of the root element.  Targets and tasks
+ * get an id when they start, messages, targets and tasks refer to
+ * the element they belong to via a parent attribute, so the nesting
+ * can be reconstructed even if several threads log at the same
+ * time.</p>
+ *
+ * <p>Output is buffered and flushed after each target, after each
+ * warning or error and by a daemon thread if anything has been
+ * written since the last flush a second ago.  If the VM is shut
+ * down before the build has finished, the document is completed by
+ * a shutdown hook.</p>
+ *
+ * <p>The file name is taken from the property
+ * <code>StreamingXmlLogger.file</code>, the default is "log.xml".
+ * The file is opened once the first target starts, messages logged
+ * before are kept until then.</p>
+ *
+ * @since Ant 1.9.5
+ */
+public class StreamingXmlLogger implements BuildLogger, LevelAwareListener {
+
+    /** Name of the property holding the name of the log file. */
+    public static final String FILE_PROPERTY = "StreamingXmlLogger.file";
+
+    /** Name of the property holding the URI of a stylesheet. */
+    public static final String STYLESHEET_PROPERTY =
+        "ant.StreamingXmlLogger.stylesheet.uri";
+
+    private static final String DEFAULT_FILE = "log.xml";
+    private static final String INDENT = "\t";
+    private static final long FLUSH_INTERVAL = 1000;
+
+    private static final String BUILD_TAG = "build";
+    private static final String TARGET_TAG = "target";
+    private static final String TASK_TAG = "task";
+    private static final String MESSAGE_TAG = "message";
+    private static final String FINISHED_TAG = "finished";
+    private static final String STACKTRACE_TAG = "stacktrace";
+
+    private int msgOutputLevel = Project.MSG_DEBUG;
+    private PrintStream outStream;
+
+    private final DOMElementWriter domWriter = new DOMElementWriter();
+
+    /** Where the document goes, null until it has been opened. */
+    private Writer out;
+    /** Everything written before the document has been opened. */
+    private StringWriter pending = new StringWriter();
+    private boolean finished = false;
+    private long lastFlush;
+    /** Whether anything has been written since the last flush. */
+    private boolean unflushed = false;
+    private Thread shutdownHook;
+
+    private long buildStart;
+    private int lastId = 0;
+
+    /** Started tasks. */
+    private final Hashtable<Task, Started> tasks =
+        new Hashtable<Task, Started>();
+    /** Started targets. */
+    private final Hashtable<Target, Started> targets =
+        new Hashtable<Target, Started>();
+    /** Elements started by each thread that haven't finished, yet. */
+    private final Hashtable<Thread, Stack<Started>> threadStacks =
+        new Hashtable<Thread, Stack<Started>>();
+
+    /** A target or task that has started. */
+    private static class Started {
+        private final int id;
+        private final Started parent;
+        private final String name;
+        private final long startTime;
+
+        Started(int id, Started parent, String name, long startTime) {
+            this.id = id;
+            this.parent = parent;
+            this.name = name;
+            this.startTime = startTime;
+        }
+    }
+
+    /**
+     * Remembers the time the build started.
+     * @param event ignored.
+     */
+    public void buildStarted(BuildEvent event) {
+        buildStart = event.getTimestamp();
+    }
+
+    /**
+     * Writes the time taken and any error of the build and closes
+     * the document.
+     * @param event An event with any relevant extra information.
+     *              Will not be <code>null</code>.
+     */
+    public void buildFinished(BuildEvent event) {
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            try {
+                open(event.getProject());
+                StringBuffer sb = new StringBuffer();
+                sb.append(INDENT).append('<').append(FINISHED_TAG);
+                attribute(sb, "time", DateUtils.formatElapsedTime(
+                              event.getTimestamp() - buildStart));
+                Throwable t = event.getException();
+                if (t != null) {
+                    attribute(sb, "error", t.toString());
+                    sb.append(">").append(StringUtils.LINE_SEP);
+                    stackTrace(sb, t, INDENT + INDENT);
+                    sb.append(INDENT).append("</").append(FINISHED_TAG)
+                        .append('>');
+                } else {
+                    sb.append("/>");
+                }
+                sb.append(StringUtils.LINE_SEP);
+                write(sb.toString(), true);
+                close();
+            } catch (IOException ex) {
+                throw new BuildException("Unable to write log file", ex);
+            }
+        }
+        if (shutdownHook != null) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException ex) {
+                // VM is shutting down already
+            }
+            shutdownHook = null;
+        }
+    }
+
+    /**
+     * Assigns an id to the target.
+     * @param event An event with any relevant extra information.
+     *              Will not be <code>null</code>.
+     */
+    public void targetStarted(BuildEvent event) {
+        Target target = event.getTarget();
+        Started s = start(event, target.getName(), null);
+        targets.put(target, s);
+        try {
+            synchronized (this) {
+                open(event.getProject());
+            }
+        } catch (IOException ex) {
+            throw new BuildException("Unable to write log file", ex);
+        }
+    }
+
+    /**
+     * Writes the target.
+     * @param event An event with any relevant extra information.
+     *              Will not be <code>null</code>.
+     */
+    public void targetFinished(BuildEvent event) {
+        Started s = targets.remove(event.getTarget());
+        if (s != null) {
+            finish(s, event, TARGET_TAG, null, true);
+        }
+    }
+
+    /**
+     * Assigns an id to the task.
+     * @param event An event with any relevant extra information.
+     *              Will not be <code>null</code>.
+     */
+    public void taskStarted(BuildEvent event) {
+        Task task = event.getTask();
+        String name = task.getTaskName();
+        Target target = task.getOwningTarget();
+        tasks.put(task, start(event, name == null ? "" : name,
+                              target == null ? null : targets.get(target)));
+    }
+
+    /**
+     * Writes the task.
+     * @param event An event with any relevant extra information.
+     *              Will not be <code>null</code>.
+     */
+    public void taskFinished(BuildEvent event) {
+        Task task = event.getTask();
+        Started s = tasks.remove(task);
+        if (s != null) {
+            finish(s, event, TASK_TAG, task.getLocation().toString(), false);
+        }
+    }
+
+    /**
+     * Writes the message.
+     * @param event An event with any relevant extra information.
+     *              Will not be <code>null</code>.
+     */
+    public void messageLogged(BuildEvent event) {
+        int priority = event.getPriority();
+        if (priority > msgOutputLevel) {
+            return;
+        }
+        Started parent = null;
+        if (event.getTask() != null) {
+            parent = getTaskElement(event.getTask());
+        }
+        if (parent == null && event.getTarget() != null) {
+            parent = targets.get(event.getTarget());
+        }
+
+        StringBuffer sb = new StringBuffer();
+        sb.append(INDENT).append('<').append(MESSAGE_TAG);
+        attribute(sb, "priority", priorityName(priority));
+        if (parent != null) {
+            attribute(sb, "parent", String.valueOf(parent.id));
+        }
+        attribute(sb, "thread", getThread(event).getName());
+        sb.append("><![CDATA[").append(domWriter.encodedata(event.getMessage()))
+            .append("]]>");
+        Throwable t = event.getException();
+        if (Project.MSG_DEBUG <= msgOutputLevel && t != null) {
+            sb.append(StringUtils.LINE_SEP);
+            stackTrace(sb, t, INDENT + INDENT);
+            sb.append(INDENT);
+        }
+        sb.append("</").append(MESSAGE_TAG).append('>')
+            .append(StringUtils.LINE_SEP);
+        write(sb.toString(), priority <= Project.MSG_WARN);
+    }
+
+    // -------------------------------------------------- BuildLogger interface
+
+    /**
+     * Set the logging level when using this as a Logger
+     *
+     * @param level the logging level -
+     *        see {@link org.apache.tools.ant.Project#MSG_ERR Project}
+     *        class for level definitions
+     */
+    public void setMessageOutputLevel(int level) {
+        msgOutputLevel = level;
+    }
+
+    /**
+     * The logging level of this logger.
+     * @return the logging level.
+     */
+    public int getMessageOutputLevel() {
+        return msgOutputLevel;
+    }
+
+    /**
+     * Set the output stream to which logging output is sent when operating
+     * as a logger.
+     *
+     * @param output the output PrintStream.
+     */
+    public void setOutputPrintStream(PrintStream output) {
+        this.outStream = new PrintStream(output, true);
+    }
+
+    /**
+     * Ignore emacs mode, as it has no meaning in XML format
+     *
+     * @param emacsMode true if logger should produce emacs compatible
+     *        output
+     */
+    public void setEmacsMode(boolean emacsMode) {
+    }
+
+    /**
+     * Ignore error print stream. All output will be written to
+     * either the XML log file or the PrintStream provided to
+     * setOutputPrintStream
+     *
+     * @param err the stream we are going to ignore.
+     */
+    public void setErrorPrintStream(PrintStream err) {
+    }
+
+    // -------------------------------------------------- helpers
+
+    /**
+     * Assigns an id to a new target or task and pushes it onto the
+     * stack of the thread that fired the event.
+     * @param name name of the target or task
+     * @param defaultParent parent to use if the thread hasn't started
+     * anything, yet - like a thread of &lt;parallel&gt;.
+     */
+    private Started start(BuildEvent event, String name,
+                          Started defaultParent) {
+        Stack<Started> stack = getStack(getThread(event));
+        Started s;
+        synchronized (this) {
+            s = new Started(++lastId,
+                            stack.empty() ? defaultParent : stack.peek(),
+                            name, event.getTimestamp());
+        }
+        stack.push(s);
+        return s;
+    }
+
+    /**
+     * Pops a target or task from the stack of the thread that fired
+     * the event and writes it.
+     */
+    private void finish(Started s, BuildEvent event, String tag,
+                        String location, boolean flush) {
+        Thread thread = getThread(event);
+        Stack<Started> stack = getStack(thread);
+        if (!stack.empty() && stack.peek() == s) {
+            stack.pop();
+        }
+        if (stack.empty()) {
+            threadStacks.remove(thread);
+        }
+        StringBuffer sb = new StringBuffer();
+        sb.append(INDENT).append('<').append(tag);
+        attribute(sb, "id", String.valueOf(s.id));
+        if (s.parent != null) {
+            attribute(sb, "parent", String.valueOf(s.parent.id));
+        }
+        attribute(sb, "name", s.name);
+        if (location != null) {
+            attribute(sb, "location", location);
+        }
+        attribute(sb, "thread", thread.getName());
+        attribute(sb, "time", DateUtils.formatElapsedTime(
+                      event.getTimestamp() - s.startTime));
+        Throwable t = event.getException();
+        if (t != null) {
+            attribute(sb, "error", t.toString());
+        }
+        sb.append("/>").append(StringUtils.LINE_SEP);
+        write(sb.toString(), flush);
+    }
+
+    /**
+     * Returns the stack of started elements for the given thread.
+     */
+    private Stack<Started> getStack(Thread thread) {
+        Stack<Started> stack = threadStacks.get(thread);
+        if (stack == null) {
+            stack = new Stack<Started>();
+            threadStacks.put(thread, stack);
+        }
+        return stack;
+    }
+
+    private static Thread getThread(BuildEvent event) {
+        Thread t = event.getThread();
+        return t == null ? Thread.currentThread() : t;
+    }
+
+    /**
+     * Get the started element associated with a task.
+     *
+     * Where the task is not found directly, search for unknown elements which
+     * may be hiding the real task
+     */
+    private Started getTaskElement(Task task) {
+        Started s = tasks.get(task);
+        if (s != null) {
+            return s;
+        }
+        for (Enumeration<Task> e = tasks.keys(); e.hasMoreElements();) {
+            Task key = e.nextElement();
+            if (key instanceof UnknownElement
+                && ((UnknownElement) key).getTask() == task) {
+                return tasks.get(key);
+            }
+        }
+        return null;
+    }
+
+    private static String priorityName(int priority) {
+        switch (priority) {
+        case Project.MSG_ERR:
+            return "error";
+        case Project.MSG_WARN:
+            return "warn";
+        case Project.MSG_INFO:
+            return "info";
+        default:
+            return "debug";
+        }
+    }
+
+    private void attribute(StringBuffer sb, String name, String value) {
+        sb.append(' ').append(name).append("=\"")
+            .append(domWriter.encodeAttributeValue(value)).append('"');
+    }
+
+    private void stackTrace(StringBuffer sb, Throwable t, String indent) {
+        sb.append(indent).append('<').append(STACKTRACE_TAG)
+            .append("><![CDATA[")
+            .append(domWriter.encodedata(StringUtils.getStackTrace(t)))
+            .append("]]></").append(STACKTRACE_TAG).append('>')
+            .append(StringUtils.LINE_SEP);
+    }
+
+    /**
+     * Appends to the document, flushing it if asked to or if it
+     * hasn't been flushed for a while.
+     */
+    private synchronized void write(String s, boolean flush) {
+        if (finished) {
+            return;
+        }
+        try {
+            if (out == null) {
+                pending.write(s);
+                return;
+            }
+            out.write(s);
+            unflushed = true;
+            long now = System.currentTimeMillis();
+            if (flush || now - lastFlush >= FLUSH_INTERVAL) {
+                out.flush();
+                lastFlush = now;
+                unflushed = false;
+            }
+        } catch (IOException ex) {
+            throw new BuildException("Unable to write log file", ex);
+        }
+    }
+
+    /**
+     * Flushes the document if something has been written to it and
+     * it hasn't been flushed for a while, until the document has been
+     * completed.
+     */
+    private synchronized void flushPeriodically() {
+        try {
+            while (!finished) {
+                long now = System.currentTimeMillis();
+                long wait = lastFlush + FLUSH_INTERVAL - now;
+                if (wait > 0) {
+                    wait(wait);
+                    continue;
+                }
+                if (unflushed) {
+                    out.flush();
+                    unflushed = false;
+                }
+                lastFlush = now;
+            }
+        } catch (InterruptedException ex) {
+            // stop flushing
+        } catch (IOException ex) {
+            // write will report the problem
+        }
+    }
+
+    /**
+     * Opens the document if that hasn't happened, yet.
+     */
+    private void open(Project project) throws IOException {
+        if (out != null || finished) {
+            return;
+        }
+        OutputStream stream = outStream;
+        if (stream == null) {
+            String outFilename = project.getProperty(FILE_PROPERTY);
+            if (outFilename == null) {
+                outFilename = DEFAULT_FILE;
+            }
+            stream = new FileOutputStream(outFilename);
+        }
+        out = new BufferedWriter(new OutputStreamWriter(stream, "UTF8"));
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        out.write(StringUtils.LINE_SEP);
+        String xslUri = project.getProperty(STYLESHEET_PROPERTY);
+        if (xslUri != null && xslUri.length() > 0) {
+            out.write("<?xml-stylesheet type=\"text/xsl\" href=\""
+                      + domWriter.encodeAttributeValue(xslUri) + "\"?>");
+            out.write(StringUtils.LINE_SEP);
+        }
+        out.write("<" + BUILD_TAG + ">");
+        out.write(StringUtils.LINE_SEP);
+        out.write(pending.toString());
+        pending = null;
+        out.flush();
+        lastFlush = System.currentTimeMillis();
+
+        Thread flusher = new Thread("StreamingXmlLogger flush") {
+                public void run() {
+                    flushPeriodically();
+                }
+            };
+        flusher.setDaemon(true);
+        flusher.start();
+
+        shutdownHook = new Thread("StreamingXmlLogger shutdown") {
+                public void run() {
+                    abort();
+                }
+            };
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Completes the document if the VM shuts down before the build
+     * has finished.
+     */
+    private synchronized void abort() {
+        if (finished || out == null) {
+            return;
+        }
+        try {
+            out.write(INDENT + "<" + FINISHED_TAG + " aborted=\"true\"/>");
+            out.write(StringUtils.LINE_SEP);
+            close();
+        } catch (IOException ex) {
+            // nothing we could do about it
+        }
+    }
+
+    private void close() throws IOException {
+        finished = true;
+        notifyAll();
+        try {
+            out.write("</" + BUILD_TAG + ">");
+            out.write(StringUtils.LINE_SEP);
+            out.flush();
+        } finally {
+            if (outStream == null) {
+                FileUtils.close(out);
+            }
+        }
+    }
+}
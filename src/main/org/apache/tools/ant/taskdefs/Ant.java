@@ -38,6 +38,7 @@ import org.apache.tools.ant.Main;
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.ProjectComponent;
 import org.apache.tools.ant.ProjectHelper;
+import org.apache.tools.ant.PropertyHelper;
 import org.apache.tools.ant.Target;
 import org.apache.tools.ant.Task;
 import org.apache.tools.ant.types.PropertySet;
@@ -69,6 +70,13 @@ public class Ant extends Task {
 
     private static final FileUtils FILE_UTILS = FileUtils.getFileUtils();
 
+    /** Properties that get special treatment in execute(). */
+    private static final Set<String> SPECIAL_PROPERTIES = new HashSet<String>();
+    static {
+        SPECIAL_PROPERTIES.add(MagicNames.PROJECT_BASEDIR);
+        SPECIAL_PROPERTIES.add(MagicNames.ANT_FILE);
+    }
+
     /** the basedir where is executed the build file */
     private File dir = null;
 
@@ -117,6 +125,14 @@ public class Ant extends Task {
      */
     private boolean useNativeBasedir = false;
 
+    /**
+     * Listener the new project reports to instead of the listeners
+     * of the calling project.
+     *
+     * @since Ant 1.9.5
+     */
+    private BuildListener buildListener = null;
+
     /**
      * simple constructor
      */
@@ -152,6 +168,17 @@ public class Ant extends Task {
         inheritAll = value;
     }
 
+    /**
+     * Makes the new project report to the given listener rather than
+     * to the listeners of the calling project.
+     * @param listener the listener, null to use the listeners of the
+     * calling project.
+     * @since Ant 1.9.5
+     */
+    void setBuildListener(BuildListener listener) {
+        buildListener = listener;
+    }
+
     /**
      * If true, pass all references to the new Ant project.
      * Defaults to false.
@@ -193,9 +220,10 @@ public class Ant extends Task {
     private void initializeProject() {
         newProject.setInputHandler(getProject().getInputHandler());
 
-        Iterator<BuildListener> iter = getBuildListeners();
-        while (iter.hasNext()) {
-            newProject.addBuildListener((BuildListener) iter.next());
+        if (buildListener != null) {
+            newProject.addBuildListener(buildListener);
+        } else {
+            newProject.inheritBuildListeners(getProject());
         }
 
         if (output != null) {
@@ -230,7 +258,9 @@ public class Ant extends Task {
 
         } else {
             // set all properties from calling project
-            addAlmostAll(getProject().getProperties(), PropertyType.PLAIN);
+            PropertyHelper.getPropertyHelper(newProject)
+                .setNewProperties(PropertyHelper.getPropertyHelper(getProject()),
+                                  SPECIAL_PROPERTIES);
         }
 
         for (PropertySet ps : propertySets) {
@@ -521,6 +551,9 @@ public class Ant extends Task {
      * @throws BuildException if a reference does not have a refid.
      */
     private void addReferences() throws BuildException {
+        if (references.isEmpty() && !inheritRefs) {
+            return;
+        }
         @SuppressWarnings("unchecked")
         Hashtable<String, Object> thisReferences
             = (Hashtable<String, Object>) getProject().getReferences().clone();
@@ -625,8 +658,7 @@ public class Ant extends Task {
         Enumeration<?> e = props.keys();
         while (e.hasMoreElements()) {
             String key = e.nextElement().toString();
-            if (MagicNames.PROJECT_BASEDIR.equals(key)
-                || MagicNames.ANT_FILE.equals(key)) {
+            if (SPECIAL_PROPERTIES.contains(key)) {
                 // basedir and ant.file get special treatment in execute()
                 continue;
             }
@@ -753,13 +785,6 @@ public class Ant extends Task {
         return newProject;
     }
 
-    /**
-     * @since Ant 1.6.2
-     */
-    private Iterator<BuildListener> getBuildListeners() {
-        return getProject().getBuildListeners().iterator();
-    }
-
     /**
      * Helper class that implements the nested &lt;reference&gt;
      * element of &lt;ant&gt; and &lt;antcall&gt;.
@@ -26,6 +26,7 @@ import java.io.InputStream;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.util.FileUtils;
 import org.apache.tools.bzip2.CBZip2InputStream;
+import org.apache.tools.bzip2.ParallelBZip2InputStream;
 
 /**
  * Expands a file that has been compressed with the BZIP2
@@ -43,6 +44,22 @@ public class BUnzip2 extends Unpack {
 
     private static final String DEFAULT_EXTENSION = ".bz2";
 
+    private int threads = 1;
+
+    /**
+     * Number of threads used to expand blocks in parallel.
+     *
+     * <p>Defaults to 1.</p>
+     * @param threads the number of threads.
+     * @since Ant 1.9.5
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new BuildException("threads must be a positive number");
+        }
+        this.threads = threads;
+    }
+
     /**
      * Get the default extension.
      * @return the string ".bz2"
@@ -60,7 +77,7 @@ public class BUnzip2 extends Unpack {
                 + dest.getAbsolutePath());
 
             FileOutputStream out = null;
-            CBZip2InputStream zIn = null;
+            InputStream zIn = null;
             InputStream fis = null;
             BufferedInputStream bis = null;
             try {
@@ -75,7 +92,11 @@ public class BUnzip2 extends Unpack {
                 if (b != 'Z') {
                     throw new BuildException("Invalid bz2 file.", getLocation());
                 }
-                zIn = new CBZip2InputStream(bis, true);
+                if (threads > 1) {
+                    zIn = new ParallelBZip2InputStream(bis, threads, true);
+                } else {
+                    zIn = new CBZip2InputStream(bis, true);
+                }
                 byte[] buffer = new byte[BUFFER_SIZE];
                 int count = 0;
                 do {
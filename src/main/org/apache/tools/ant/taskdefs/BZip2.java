@@ -22,9 +22,11 @@ package org.apache.tools.ant.taskdefs;
 import java.io.BufferedOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.util.FileUtils;
 import org.apache.tools.bzip2.CBZip2OutputStream;
+import org.apache.tools.bzip2.ParallelBZip2OutputStream;
 
 /**
  * Compresses a file with the BZIP2 algorithm. Normally used to compress
@@ -36,17 +38,39 @@ import org.apache.tools.bzip2.CBZip2OutputStream;
  */
 
 public class BZip2 extends Pack {
+
+    private int threads = 1;
+
+    /**
+     * Number of threads used to compress blocks in parallel.
+     *
+     * <p>Defaults to 1.</p>
+     * @param threads the number of threads.
+     * @since Ant 1.9.5
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new BuildException("threads must be a positive number");
+        }
+        this.threads = threads;
+    }
+
     /**
      * Compress the zipFile.
      */
     protected void pack() {
-        CBZip2OutputStream zOut = null;
+        OutputStream zOut = null;
         try {
             BufferedOutputStream bos =
                 new BufferedOutputStream(new FileOutputStream(zipFile));
             bos.write('B');
             bos.write('Z');
-            zOut = new CBZip2OutputStream(bos);
+            if (threads > 1) {
+                zOut = new ParallelBZip2OutputStream(bos,
+                    CBZip2OutputStream.MAX_BLOCKSIZE, threads);
+            } else {
+                zOut = new CBZip2OutputStream(bos);
+            }
             zipResource(getSrcResource(), zOut);
         } catch (IOException ioe) {
             String msg = "Problem creating bzip2 " + ioe.getMessage();
@@ -21,12 +21,21 @@ package org.apache.tools.ant.taskdefs;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import org.apache.tools.ant.Task;
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.BuildException;
@@ -101,6 +110,20 @@ public class Copy extends Task {
     private long granularity = 0;
     private boolean force = false;
     private boolean quiet = false;
+    private int threads = 1;
+
+    /** Runs file operations if threads &gt; 1, created on demand. */
+    private ExecutorService operationPool = null;
+    /** File operations not reported yet, in the order of submission. */
+    private final LinkedList<Future<QueuedOperation>> pendingOperations =
+        new LinkedList<Future<QueuedOperation>>();
+    /** Destinations of the pending file operations. */
+    private final Set<String> pendingDestinations = new HashSet<String>();
+    /** Directories known to exist. */
+    private final Set<File> createdDirs = new HashSet<File>();
+    /** Messages logged by the operation running on a worker thread. */
+    private final ThreadLocal<List<BufferedMessage>> bufferedMessages =
+        new ThreadLocal<List<BufferedMessage>>();
 
     // used to store the single non-file resource to copy when the
     // tofile attribute has been used
@@ -253,6 +276,29 @@ public class Copy extends Task {
         return force;
     }
 
+    /**
+     * Number of threads used to copy files concurrently.
+     *
+     * <p>Defaults to 1.</p>
+     * @param threads the number of threads.
+     * @since Ant 1.9.5
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new BuildException("threads must be a positive number");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Number of threads used to copy files concurrently.
+     * @return the number of threads.
+     * @since Ant 1.9.5
+     */
+    public int getThreads() {
+        return threads;
+    }
+
     /**
      * Set whether files copied from directory trees will be "flattened"
      * into a single directory.  If there are multiple files with
@@ -593,6 +639,9 @@ public class Copy extends Task {
                 }
             }
         } finally {
+            // only does something if a subclass failed to wait for
+            // its operations
+            discardFileOperations();
             // clean up again, so this instance can be used a second
             // time
             singleResource = null;
@@ -865,51 +914,24 @@ public class Copy extends Task {
                 + " to " + destDir.getAbsolutePath());
 
             for (Map.Entry<String, String[]> e : fileCopyMap.entrySet()) {
-                String fromFile = e.getKey();
+                final String fromFile = e.getKey();
                 String[] toFiles = e.getValue();
 
                 for (int i = 0; i < toFiles.length; i++) {
-                    String toFile = toFiles[i];
+                    final String toFile = toFiles[i];
 
                     if (fromFile.equals(toFile)) {
                         log("Skipping self-copy of " + fromFile, verbosity);
                         continue;
                     }
-                    try {
-                        log("Copying " + fromFile + " to " + toFile, verbosity);
-
-                        FilterSetCollection executionFilters =
-                            new FilterSetCollection();
-                        if (filtering) {
-                            executionFilters
-                                .addFilterSet(getProject().getGlobalFilterSet());
-                        }
-                        for (FilterSet filterSet : filterSets) {
-                            executionFilters.addFilterSet(filterSet);
-                        }
-                        fileUtils.copyFile(new File(fromFile), new File(toFile),
-                                           executionFilters,
-                                           filterChains, forceOverwrite,
-                                           preserveLastModified,
-                                           /* append: */ false, inputEncoding,
-                                           outputEncoding, getProject(),
-                                           getForce());
-                    } catch (IOException ioe) {
-                        String msg = "Failed to copy " + fromFile + " to " + toFile
-                            + " due to " + getDueTo(ioe);
-                        File targetFile = new File(toFile);
-                        if (!(ioe instanceof
-                              ResourceUtils.ReadOnlyTargetFileException)
-                            && targetFile.exists() && !targetFile.delete()) {
-                            msg += " and I couldn't delete the corrupt " + toFile;
-                        }
-                        if (failonerror) {
-                            throw new BuildException(msg, ioe, getLocation());
-                        }
-                        log(msg, Project.MSG_ERR);
-                    }
+                    runFileOperation(new File(toFile), new Runnable() {
+                            public void run() {
+                                copySingleFile(fromFile, toFile);
+                            }
+                        });
                 }
             }
+            completeFileOperations();
         }
         if (includeEmpty) {
             int createCount = 0;
@@ -938,6 +960,44 @@ public class Copy extends Task {
         }
     }
 
+    private void copySingleFile(String fromFile, String toFile) {
+        try {
+            if (isLoggable(verbosity)) {
+                log("Copying " + fromFile + " to " + toFile, verbosity);
+            }
+
+            FilterSetCollection executionFilters =
+                new FilterSetCollection();
+            if (filtering) {
+                executionFilters
+                    .addFilterSet(getProject().getGlobalFilterSet());
+            }
+            for (FilterSet filterSet : filterSets) {
+                executionFilters.addFilterSet(filterSet);
+            }
+            fileUtils.copyFile(new File(fromFile), new File(toFile),
+                               executionFilters,
+                               filterChains, forceOverwrite,
+                               preserveLastModified,
+                               /* append: */ false, inputEncoding,
+                               outputEncoding, getProject(),
+                               getForce());
+        } catch (IOException ioe) {
+            String msg = "Failed to copy " + fromFile + " to " + toFile
+                + " due to " + getDueTo(ioe);
+            File targetFile = new File(toFile);
+            if (!(ioe instanceof
+                  ResourceUtils.ReadOnlyTargetFileException)
+                && targetFile.exists() && !targetFile.delete()) {
+                msg += " and I couldn't delete the corrupt " + toFile;
+            }
+            if (failonerror) {
+                throw new BuildException(msg, ioe, getLocation());
+            }
+            log(msg, Project.MSG_ERR);
+        }
+    }
+
     /**
      * Actually does the resource copies.
      * This is a good method for subclasses to override.
@@ -951,50 +1011,253 @@ public class Copy extends Task {
                 + " to " + destDir.getAbsolutePath());
 
             for (Map.Entry<Resource, String[]> e : map.entrySet()) {
-                Resource fromResource = e.getKey();
-                for (String toFile : e.getValue()) {
-                    try {
-                        log("Copying " + fromResource + " to " + toFile,
-                            verbosity);
+                final Resource fromResource = e.getKey();
+                for (final String toFile : e.getValue()) {
+                    runFileOperation(new FileResource(destDir, toFile).getFile(),
+                                     new Runnable() {
+                            public void run() {
+                                copySingleResource(fromResource, toFile);
+                            }
+                        });
+                }
+            }
+            completeFileOperations();
+        }
+    }
 
-                        FilterSetCollection executionFilters = new FilterSetCollection();
-                        if (filtering) {
-                            executionFilters
-                                .addFilterSet(getProject().getGlobalFilterSet());
-                        }
-                        for (FilterSet filterSet : filterSets) {
-                            executionFilters.addFilterSet(filterSet);
-                        }
-                        ResourceUtils.copyResource(fromResource,
-                                                   new FileResource(destDir,
-                                                                    toFile),
-                                                   executionFilters,
-                                                   filterChains,
-                                                   forceOverwrite,
-                                                   preserveLastModified,
-                                                   /* append: */ false,
-                                                   inputEncoding,
-                                                   outputEncoding,
-                                                   getProject(),
-                                                   getForce());
-                    } catch (IOException ioe) {
-                        String msg = "Failed to copy " + fromResource
-                            + " to " + toFile
-                            + " due to " + getDueTo(ioe);
-                        File targetFile = new File(toFile);
-                        if (!(ioe instanceof
-                              ResourceUtils.ReadOnlyTargetFileException)
-                            && targetFile.exists() && !targetFile.delete()) {
-                            msg += " and I couldn't delete the corrupt " + toFile;
-                        }
-                        if (failonerror) {
-                            throw new BuildException(msg, ioe, getLocation());
+    private void copySingleResource(Resource fromResource, String toFile) {
+        try {
+            log("Copying " + fromResource + " to " + toFile,
+                verbosity);
+
+            FilterSetCollection executionFilters = new FilterSetCollection();
+            if (filtering) {
+                executionFilters
+                    .addFilterSet(getProject().getGlobalFilterSet());
+            }
+            for (FilterSet filterSet : filterSets) {
+                executionFilters.addFilterSet(filterSet);
+            }
+            ResourceUtils.copyResource(fromResource,
+                                       new FileResource(destDir,
+                                                        toFile),
+                                       executionFilters,
+                                       filterChains,
+                                       forceOverwrite,
+                                       preserveLastModified,
+                                       /* append: */ false,
+                                       inputEncoding,
+                                       outputEncoding,
+                                       getProject(),
+                                       getForce());
+        } catch (IOException ioe) {
+            String msg = "Failed to copy " + fromResource
+                + " to " + toFile
+                + " due to " + getDueTo(ioe);
+            File targetFile = new File(toFile);
+            if (!(ioe instanceof
+                  ResourceUtils.ReadOnlyTargetFileException)
+                && targetFile.exists() && !targetFile.delete()) {
+                msg += " and I couldn't delete the corrupt " + toFile;
+            }
+            if (failonerror) {
+                throw new BuildException(msg, ioe, getLocation());
+            }
+            log(msg, Project.MSG_ERR);
+        }
+    }
+
+    /**
+     * Runs a single file operation.
+     *
+     * <p>If more than one thread has been configured the operation
+     * is handed to a pool of worker threads.  Messages this task
+     * logs while the operation runs and any exception the operation
+     * throws are reported on the task's own thread in the order the
+     * operations have been submitted, so the output doesn't depend
+     * on the order in which they complete.  The parent directory of
+     * the destination is created before the operation is submitted
+     * and operations writing to the same destination never run
+     * concurrently.</p>
+     *
+     * <p>Subclasses must invoke {@link #completeFileOperations}
+     * once they have submitted all operations.</p>
+     *
+     * @param dest the file written by the operation.
+     * @param op the operation.
+     * @since Ant 1.9.5
+     */
+    protected void runFileOperation(File dest, Runnable op) {
+        runFileOperation(new File[] {dest}, op);
+    }
+
+    /**
+     * Runs a single file operation that writes to several files.
+     *
+     * <p>Works like {@link #runFileOperation(File, Runnable)} for
+     * each of the destinations: their parent directories are created
+     * before the operation is submitted and the operation never runs
+     * concurrently with another one writing to any of them.</p>
+     *
+     * @param dests the files written by the operation.
+     * @param op the operation.
+     * @since Ant 1.9.5
+     */
+    protected void runFileOperation(File[] dests, Runnable op) {
+        if (threads < 2) {
+            op.run();
+            return;
+        }
+        try {
+            String[] keys = new String[dests.length];
+            for (int i = 0; i < dests.length; i++) {
+                keys[i] = dests[i].getAbsolutePath();
+                while (pendingDestinations.contains(keys[i])) {
+                    reportNextOperation();
+                }
+            }
+            for (int i = 0; i < dests.length; i++) {
+                createParentDir(dests[i]);
+            }
+            if (operationPool == null) {
+                operationPool = Executors.newFixedThreadPool(threads,
+                    new ThreadFactory() {
+                        private int count = 0;
+                        public synchronized Thread newThread(Runnable r) {
+                            Thread t = new Thread(r, "copy-worker-"
+                                                  + (++count));
+                            t.setDaemon(true);
+                            return t;
                         }
-                        log(msg, Project.MSG_ERR);
-                    }
+                    });
+            }
+            pendingDestinations.addAll(Arrays.asList(keys));
+            pendingOperations.add(operationPool
+                                  .submit(new QueuedOperation(keys, op)));
+            while (pendingOperations.size() > 2 * threads) {
+                reportNextOperation();
+            }
+        } catch (RuntimeException ex) {
+            discardFileOperations();
+            throw ex;
+        }
+    }
+
+    /**
+     * Waits for all operations submitted via {@link
+     * #runFileOperation} and reports their results.
+     * @since Ant 1.9.5
+     */
+    protected void completeFileOperations() {
+        try {
+            while (!pendingOperations.isEmpty()) {
+                reportNextOperation();
+            }
+        } finally {
+            discardFileOperations();
+        }
+    }
+
+    /**
+     * Cancels all operations that haven't started, waits for the
+     * running ones and forgets about their results.
+     */
+    private void discardFileOperations() {
+        for (Future<QueuedOperation> f : pendingOperations) {
+            f.cancel(false);
+        }
+        for (Future<QueuedOperation> f : pendingOperations) {
+            if (!f.isCancelled()) {
+                try {
+                    f.get();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException ex) {
+                    // already failing
                 }
             }
         }
+        pendingOperations.clear();
+        pendingDestinations.clear();
+        createdDirs.clear();
+        if (operationPool != null) {
+            operationPool.shutdown();
+            operationPool = null;
+        }
+    }
+
+    /**
+     * Replays the messages of the oldest operation and rethrows its
+     * exception, if any.
+     */
+    private void reportNextOperation() {
+        QueuedOperation q;
+        try {
+            q = pendingOperations.removeFirst().get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new BuildException("interrupted while waiting for files"
+                                     + " to be copied", ex, getLocation());
+        } catch (ExecutionException ex) {
+            throw new BuildException(ex.getCause(), getLocation());
+        }
+        pendingDestinations.removeAll(Arrays.asList(q.destinations));
+        for (BufferedMessage m : q.messages) {
+            if (m.throwable == null) {
+                super.log(m.message, m.level);
+            } else {
+                super.log(m.message, m.throwable, m.level);
+            }
+        }
+        if (q.failure != null) {
+            throw q.failure;
+        }
+    }
+
+    private void createParentDir(File dest) {
+        File parent = dest.getAbsoluteFile().getParentFile();
+        if (parent != null && !createdDirs.contains(parent)) {
+            // the operation reports a failure itself
+            if (parent.isDirectory() || parent.mkdirs()) {
+                createdDirs.add(parent);
+            }
+        }
+    }
+
+    /**
+     * Logs a message, messages logged by file operations running on
+     * worker threads are buffered until the operation is reported.
+     * @param msg the message.
+     * @param msgLevel the message priority.
+     * @since Ant 1.9.5
+     */
+    @Override
+    public void log(String msg, int msgLevel) {
+        List<BufferedMessage> buffer = bufferedMessages.get();
+        if (buffer != null) {
+            buffer.add(new BufferedMessage(msg, null, msgLevel));
+        } else {
+            super.log(msg, msgLevel);
+        }
+    }
+
+    /**
+     * Logs a message, messages logged by file operations running on
+     * worker threads are buffered until the operation is reported.
+     * @param msg the message.
+     * @param t the exception, may be null.
+     * @param msgLevel the message priority.
+     * @since Ant 1.9.5
+     */
+    @Override
+    public void log(String msg, Throwable t, int msgLevel) {
+        List<BufferedMessage> buffer = bufferedMessages.get();
+        if (buffer != null) {
+            buffer.add(new BufferedMessage(msg, t, msgLevel));
+        } else {
+            super.log(msg, t, msgLevel);
+        }
     }
 
     /**
@@ -1064,6 +1327,46 @@ public class Copy extends Task {
         return mapper;
     }
 
+    /**
+     * A file operation running on a worker thread.
+     */
+    private class QueuedOperation implements Callable<QueuedOperation> {
+        private final String[] destinations;
+        private final Runnable op;
+        private final List<BufferedMessage> messages =
+            new ArrayList<BufferedMessage>();
+        private RuntimeException failure;
+
+        QueuedOperation(String[] destinations, Runnable op) {
+            this.destinations = destinations;
+            this.op = op;
+        }
+
+        public QueuedOperation call() {
+            bufferedMessages.set(messages);
+            try {
+                op.run();
+            } catch (RuntimeException ex) {
+                failure = ex;
+            } finally {
+                bufferedMessages.remove();
+            }
+            return this;
+        }
+    }
+
+    private static class BufferedMessage {
+        private final String message;
+        private final Throwable throwable;
+        private final int level;
+
+        BufferedMessage(String message, Throwable throwable, int level) {
+            this.message = message;
+            this.throwable = throwable;
+            this.level = level;
+        }
+    }
+
     /**
      * Handle getMessage() for exceptions.
      * @param ex the exception to handle
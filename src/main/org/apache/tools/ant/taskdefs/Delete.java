@@ -692,7 +692,9 @@ public class Delete extends MatchingTask {
                         continue;
                     }
                     if (!(f.isDirectory()) || f.list().length == 0) {
-                        log("Deleting " + f, verbosity);
+                        if (isLoggable(verbosity)) {
+                            log("Deleting " + f, verbosity);
+                        }
                         if (!delete(f) && failonerror) {
                             handle("Unable to delete "
                                 + (f.isDirectory() ? "directory " : "file ") + f);
@@ -589,14 +589,26 @@ public class ExecTask extends Task {
      * @throws BuildException under unknown circumstances.
      */
     protected Execute prepareExec() throws BuildException {
+        if (redirectorElement != null) {
+            redirectorElement.configure(redirector);
+        }
+        return prepareExec(createHandler());
+    }
+
+    /**
+     * Create an Execute instance with the correct working directory
+     * set that uses the given stream handler.
+     *
+     * @param handler the stream handler.
+     * @return an instance of the Execute class.
+     * @since Ant 1.9.5
+     */
+    /*package*/ Execute prepareExec(ExecuteStreamHandler handler) {
         // default directory to the project's base directory
         if (dir == null) {
             dir = getProject().getBaseDir();
         }
-        if (redirectorElement != null) {
-            redirectorElement.configure(redirector);
-        }
-        Execute exe = new Execute(createHandler(), createWatchdog());
+        Execute exe = new Execute(handler, createWatchdog());
         exe.setAntRun(getProject());
         exe.setWorkingDirectory(dir);
         exe.setVMLauncher(vmLauncher);
@@ -622,35 +634,56 @@ public class ExecTask extends Task {
      * streams of the process.
      */
     protected final void runExecute(Execute exe) throws IOException {
-        int returnCode = -1; // assume the worst
-
         if (!spawn) {
-            returnCode = exe.execute();
-
-            //test for and handle a forced process death
-            if (exe.killedProcess()) {
-                String msg = "Timeout: killed the sub-process";
-                if (failOnError) {
-                    throw new BuildException(msg);
-                } else {
-                    log(msg, Project.MSG_WARN);
-                }
-            }
-            maybeSetResultPropertyValue(returnCode);
-            redirector.complete();
-            if (Execute.isFailure(returnCode)) {
-                if (failOnError) {
-                    throw new BuildException(getTaskType() + " returned: "
-                        + returnCode, getLocation());
-                } else {
-                    log("Result: " + returnCode, Project.MSG_ERR);
-                }
-            }
+            int returnCode = exe.execute();
+            handleResult(returnCode, exe.killedProcess());
         } else {
             exe.spawn();
         }
     }
 
+    /**
+     * Handles the outcome of a process that has finished.
+     *
+     * @param returnCode the exit code of the process.
+     * @param killedProcess whether the watchdog killed the process.
+     * @throws IOException if the redirector cannot be completed.
+     * @since Ant 1.9.5
+     */
+    /*package*/ void handleResult(int returnCode, boolean killedProcess)
+        throws IOException {
+        //test for and handle a forced process death
+        if (killedProcess) {
+            String msg = "Timeout: killed the sub-process";
+            if (failOnError) {
+                throw new BuildException(msg);
+            } else {
+                log(msg, Project.MSG_WARN);
+            }
+        }
+        maybeSetResultPropertyValue(returnCode);
+        redirector.complete();
+        if (Execute.isFailure(returnCode)) {
+            if (failOnError) {
+                throw new BuildException(getTaskType() + " returned: "
+                    + returnCode, getLocation());
+            } else {
+                log("Result: " + returnCode, Project.MSG_ERR);
+            }
+        }
+    }
+
+    /**
+     * Whether the processes' output is all this task exchanges with
+     * them, i.e. it doesn't spawn them and doesn't feed them any
+     * input or use a nested redirector.
+     * @since Ant 1.9.5
+     */
+    /*package*/ boolean onlyUsesOutput() {
+        return !spawn && input == null && inputString == null
+            && redirectorElement == null;
+    }
+
     /**
      * Run the command using the given Execute instance. This may be
      * overridden by subclasses.
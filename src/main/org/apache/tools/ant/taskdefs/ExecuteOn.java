@@ -18,10 +18,18 @@
 
 package org.apache.tools.ant.taskdefs;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.DirectoryScanner;
 import org.apache.tools.ant.Project;
@@ -77,6 +85,14 @@ public class ExecuteOn extends ExecTask {
     private boolean verbose = false;
     private boolean ignoreMissing = true;
     private boolean force = false;
+    private int threads = 1;
+
+    /** Runs the commands if threads &gt; 1, created on demand. */
+    private ExecutorService commandPool = null;
+    private final LinkedList<Future<QueuedCommand>> pendingCommands =
+        new LinkedList<Future<QueuedCommand>>();
+    /** Whether the redirector's streams must be created again. */
+    private boolean redirectorCompleted = false;
 
     /**
      * Has &lt;srcfile&gt; been specified before &lt;targetfile&gt;
@@ -195,6 +211,25 @@ public class ExecuteOn extends ExecTask {
         maxParallel = max;
     }
 
+    /**
+     * Number of commands that may run at the same time.
+     *
+     * <p>Defaults to 1.  The output of each command is collected and
+     * passed on once all commands started before it have been
+     * reported, so the output of different commands doesn't get
+     * mixed up.  Commands don't receive any input.  Ignored if spawn,
+     * input, inputstring or a nested redirector is used.</p>
+     *
+     * @param threads the number of concurrent commands.
+     * @since Ant 1.9.5
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new BuildException("threads must be a positive number");
+        }
+        this.threads = threads;
+    }
+
     /**
      * Set whether to send the source file name on the command line.
      *
@@ -397,6 +432,11 @@ public class ExecuteOn extends ExecTask {
                             Project.MSG_VERBOSE);
                         exe.setCommandline(command);
 
+                        if (runsConcurrently()) {
+                            submitCommand(command);
+                            haveExecuted = true;
+                            continue;
+                        }
                         if (redirectorElement != null) {
                             setupRedirector();
                             redirectorElement.configure(redirector, s[j]);
@@ -456,17 +496,22 @@ public class ExecuteOn extends ExecTask {
                             Project.MSG_VERBOSE);
                         exe.setCommandline(command);
 
-                        if (redirectorElement != null) {
-                            setupRedirector();
-                            redirectorElement.configure(redirector, name);
-                        }
-                        if (redirectorElement != null || haveExecuted) {
-                            // need to reset the stream handler to restart
-                            // reading of pipes;
-                            // go ahead and do it always w/ nested redirectors
-                            exe.setStreamHandler(redirector.createHandler());
+                        if (runsConcurrently()) {
+                            submitCommand(command);
+                        } else {
+                            if (redirectorElement != null) {
+                                setupRedirector();
+                                redirectorElement.configure(redirector, name);
+                            }
+                            if (redirectorElement != null || haveExecuted) {
+                                // need to reset the stream handler to restart
+                                // reading of pipes;
+                                // go ahead and do it always w/ nested
+                                // redirectors
+                                exe.setStreamHandler(redirector.createHandler());
+                            }
+                            runExecute(exe);
                         }
-                        runExecute(exe);
                         haveExecuted = true;
                         fileNames.removeAllElements();
                         baseDirs.removeAllElements();
@@ -477,6 +522,7 @@ public class ExecuteOn extends ExecTask {
                 runParallel(exe, fileNames, baseDirs);
                 haveExecuted = true;
             }
+            completeCommands();
             if (haveExecuted) {
                 log("Applied " + cmdl.getExecutable() + " to "
                     + totalFiles + " file"
@@ -488,6 +534,7 @@ public class ExecuteOn extends ExecTask {
         } catch (IOException e) {
             throw new BuildException("Execute failed: " + e, e, getLocation());
         } finally {
+            discardCommands();
             // close the output file if required
             logFlush();
             redirector.setAppendProperties(false);
@@ -724,17 +771,21 @@ public class ExecuteOn extends ExecTask {
                 String[] command = getCommandline(cs, cb);
                 log(Commandline.describeCommand(command), Project.MSG_VERBOSE);
                 exe.setCommandline(command);
-                if (redirectorElement != null) {
-                    setupRedirector();
-                    redirectorElement.configure(redirector, null);
-                }
-                if (redirectorElement != null || currentOffset > 0) {
-                    // need to reset the stream handler to restart
-                    // reading of pipes;
-                    // go ahead and do it always w/ nested redirectors
-                    exe.setStreamHandler(redirector.createHandler());
+                if (runsConcurrently()) {
+                    submitCommand(command);
+                } else {
+                    if (redirectorElement != null) {
+                        setupRedirector();
+                        redirectorElement.configure(redirector, null);
+                    }
+                    if (redirectorElement != null || currentOffset > 0) {
+                        // need to reset the stream handler to restart
+                        // reading of pipes;
+                        // go ahead and do it always w/ nested redirectors
+                        exe.setStreamHandler(redirector.createHandler());
+                    }
+                    runExecute(exe);
                 }
-                runExecute(exe);
 
                 stillToDo -= currentAmount;
                 currentOffset += currentAmount;
@@ -742,6 +793,125 @@ public class ExecuteOn extends ExecTask {
         }
     }
 
+    /**
+     * Whether commands are handed to a pool of threads.
+     */
+    private boolean runsConcurrently() {
+        return threads > 1 && onlyUsesOutput();
+    }
+
+    /**
+     * Hands a command to the pool of threads, waiting for older
+     * commands if too many are pending.
+     */
+    private void submitCommand(String[] command) throws IOException {
+        if (commandPool == null) {
+            commandPool = Executors.newFixedThreadPool(threads,
+                new ThreadFactory() {
+                    private int count = 0;
+                    public synchronized Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "apply-worker-"
+                                              + (++count));
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        }
+        QueuedCommand c = new QueuedCommand();
+        c.exe = prepareExec(new PumpStreamHandler(c.out, c.err));
+        c.exe.setCommandline(command);
+        pendingCommands.add(commandPool.submit(c));
+        while (pendingCommands.size() > 2 * threads) {
+            reportNextCommand();
+        }
+    }
+
+    /**
+     * Waits for all commands handed to the pool of threads and
+     * reports their results.
+     */
+    private void completeCommands() throws IOException {
+        while (!pendingCommands.isEmpty()) {
+            reportNextCommand();
+        }
+    }
+
+    /**
+     * Cancels all commands that haven't started, waits for the
+     * running ones and forgets about their results.
+     */
+    private void discardCommands() {
+        for (Future<QueuedCommand> f : pendingCommands) {
+            f.cancel(false);
+        }
+        for (Future<QueuedCommand> f : pendingCommands) {
+            if (!f.isCancelled()) {
+                try {
+                    f.get();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException ex) {
+                    // already failing
+                }
+            }
+        }
+        pendingCommands.clear();
+        if (commandPool != null) {
+            commandPool.shutdown();
+            commandPool = null;
+        }
+        redirectorCompleted = false;
+    }
+
+    /**
+     * Passes the output of the oldest command on to the redirector
+     * and handles its exit code just like a command that has run on
+     * the task's own thread.
+     */
+    private void reportNextCommand() throws IOException {
+        QueuedCommand c;
+        try {
+            c = pendingCommands.removeFirst().get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new BuildException("interrupted while waiting for "
+                                     + "commands", ex, getLocation());
+        } catch (ExecutionException ex) {
+            throw new BuildException(ex.getCause(), getLocation());
+        }
+        if (c.failure != null) {
+            throw c.failure;
+        }
+        if (redirectorCompleted) {
+            redirector.createStreams();
+        }
+        c.out.writeTo(redirector.getOutputStream());
+        c.err.writeTo(redirector.getErrorStream());
+        redirectorCompleted = true;
+        handleResult(c.returnCode, c.exe.killedProcess());
+    }
+
+    /**
+     * A command running on a worker thread.
+     */
+    private static class QueuedCommand implements Callable<QueuedCommand> {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+        private Execute exe;
+        private int returnCode;
+        private IOException failure;
+
+        public QueuedCommand call() {
+            try {
+                returnCode = exe.execute();
+            } catch (IOException ex) {
+                failure = ex;
+            }
+            return this;
+        }
+    }
+
     /**
      * Inserts target file names (which are already absolute paths)
      * into the list of arguments, taking prefix and postfix into
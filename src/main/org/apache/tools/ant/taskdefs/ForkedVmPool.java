@@ -0,0 +1,459 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.tools.ant.taskdefs;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.WeakHashMap;
+
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildListener;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.ProjectComponent;
+import org.apache.tools.ant.util.LoaderUtils;
+
+/**
+ * Keeps forked Java VMs alive so they can run more than one main
+ * class.
+ *
+ * <p>VMs are shared between all tasks that use the same VM command,
+ * working directory, environment and classpath.  A VM is discarded if
+ * it doesn't answer a ping, if it has run the configured maximum
+ * number of main classes, if a main class has left daemon threads
+ * running or if any file on its classpath has changed.
+ * Idle VMs are shut down once the build that started them has
+ * finished, VMs exit by themselves when Ant's VM goes away.</p>
+ *
+ * @since Ant 1.9.5
+ */
+final class ForkedVmPool {
+
+    /** How long to wait for a new VM to connect. */
+    private static final int START_TIMEOUT = 60000;
+    /** How long a VM may take to answer a ping. */
+    private static final int PING_TIMEOUT = 5000;
+    private static final int POLL_INTERVAL = 200;
+
+    /** Idle workers by VM configuration. */
+    private static final Map<String, LinkedList<Worker>> IDLE =
+        new HashMap<String, LinkedList<Worker>>();
+    /** Projects the pool listens to. */
+    private static final Map<Project, Boolean> PROJECTS =
+        new WeakHashMap<Project, Boolean>();
+
+    private ForkedVmPool() {
+    }
+
+    /**
+     * Returns an idle VM with the given configuration or starts a new
+     * one.
+     * @param owner the component asking, used for logging.
+     * @param vmCommand the java executable and arguments to the VM.
+     * @param dir the working directory.
+     * @param env the environment, may be null.
+     * @param classpath the classpath of the main classes.
+     * @return a worker that must be handed back with {@link #release}.
+     * @throws IOException if a new VM cannot be started.
+     */
+    static Worker acquire(ProjectComponent owner, List<String> vmCommand,
+                          File dir, String[] env, String[] classpath)
+        throws IOException {
+        StringBuffer sb = new StringBuffer();
+        appendAll(sb, vmCommand.toArray(new String[vmCommand.size()]));
+        sb.append(dir).append('\n');
+        appendAll(sb, env);
+        appendAll(sb, classpath);
+        String key = sb.toString();
+        String fingerprint = fingerprint(classpath);
+
+        while (true) {
+            Worker w = null;
+            List<Worker> stale = new ArrayList<Worker>();
+            synchronized (IDLE) {
+                LinkedList<Worker> idle = IDLE.get(key);
+                while (idle != null && !idle.isEmpty() && w == null) {
+                    Worker candidate = idle.removeFirst();
+                    if (fingerprint.equals(candidate.fingerprint)) {
+                        w = candidate;
+                    } else {
+                        stale.add(candidate);
+                    }
+                }
+            }
+            for (Worker s : stale) {
+                owner.log("Classpath has changed, discarding " + s,
+                          Project.MSG_VERBOSE);
+                s.close();
+            }
+            if (w == null) {
+                break;
+            }
+            if (w.ping()) {
+                owner.log("Reusing " + w, Project.MSG_VERBOSE);
+                return w;
+            }
+            owner.log(w + " doesn't respond, discarding it",
+                      Project.MSG_VERBOSE);
+            w.close();
+        }
+
+        Project project = owner.getProject();
+        synchronized (IDLE) {
+            if (!PROJECTS.containsKey(project)) {
+                PROJECTS.put(project, Boolean.TRUE);
+                project.addBuildListener(new ShutdownListener());
+            }
+        }
+        Worker w = new Worker(key, fingerprint, project);
+        w.start(owner, vmCommand, dir, env, classpath);
+        owner.log("Started " + w, Project.MSG_VERBOSE);
+        return w;
+    }
+
+    /**
+     * Hands back a worker obtained via {@link #acquire}.
+     * @param w the worker
+     * @param maxRuns the maximum number of main classes a VM may run,
+     * 0 means no limit.
+     */
+    static void release(Worker w, int maxRuns) {
+        if (!w.dead && !w.retired && (maxRuns <= 0 || w.runs < maxRuns)) {
+            synchronized (IDLE) {
+                LinkedList<Worker> idle = IDLE.get(w.key);
+                if (idle == null) {
+                    idle = new LinkedList<Worker>();
+                    IDLE.put(w.key, idle);
+                }
+                idle.addFirst(w);
+            }
+        } else {
+            w.close();
+        }
+    }
+
+    /**
+     * Shuts down all idle VMs started for the given project or all
+     * idle VMs if project is null.
+     */
+    static void shutdown(Project project) {
+        List<Worker> toClose = new ArrayList<Worker>();
+        synchronized (IDLE) {
+            for (Iterator<LinkedList<Worker>> i = IDLE.values().iterator();
+                 i.hasNext();) {
+                LinkedList<Worker> idle = i.next();
+                for (Iterator<Worker> j = idle.iterator(); j.hasNext();) {
+                    Worker w = j.next();
+                    if (project == null || w.project == project) {
+                        toClose.add(w);
+                        j.remove();
+                    }
+                }
+                if (idle.isEmpty()) {
+                    i.remove();
+                }
+            }
+            if (project != null) {
+                PROJECTS.remove(project);
+            } else {
+                PROJECTS.clear();
+            }
+        }
+        for (Worker w : toClose) {
+            w.close();
+        }
+    }
+
+    private static void appendAll(StringBuffer sb, String[] values) {
+        if (values != null) {
+            for (int i = 0; i < values.length; i++) {
+                sb.append(values[i]).append('\0');
+            }
+        }
+        sb.append('\n');
+    }
+
+    /**
+     * Summarizes the modification times of all files on the
+     * classpath.
+     */
+    private static String fingerprint(String[] classpath) {
+        StringBuffer sb = new StringBuffer();
+        for (int i = 0; i < classpath.length; i++) {
+            File f = new File(classpath[i]);
+            sb.append(f.isDirectory() ? latest(f) : f.lastModified())
+                .append(',').append(f.length()).append(';');
+        }
+        return sb.toString();
+    }
+
+    private static long latest(File dir) {
+        long latest = dir.lastModified();
+        File[] children = dir.listFiles();
+        if (children != null) {
+            for (int i = 0; i < children.length; i++) {
+                latest = Math.max(latest, children[i].isDirectory()
+                                  ? latest(children[i])
+                                  : children[i].lastModified());
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * A forked VM running {@link ForkedVmWorker}.
+     */
+    static final class Worker {
+        private final String key;
+        private final String fingerprint;
+        private final Project project;
+        private Process process;
+        private Socket socket;
+        private DataInputStream in;
+        private DataOutputStream out;
+        private int runs = 0;
+        private boolean dead = false;
+        /** Set once a main class has left threads behind. */
+        private boolean retired = false;
+
+        private Worker(String key, String fingerprint, Project project) {
+            this.key = key;
+            this.fingerprint = fingerprint;
+            this.project = project;
+        }
+
+        private void start(ProjectComponent owner, List<String> vmCommand,
+                           File dir, String[] env, String[] classpath)
+            throws IOException {
+            ServerSocket server =
+                new ServerSocket(0, 1, InetAddress.getByName(null));
+            try {
+                List<String> cmd = new ArrayList<String>(vmCommand);
+                cmd.add("-classpath");
+                cmd.add(LoaderUtils.getClassSource(ForkedVmWorker.class)
+                        .getAbsolutePath());
+                cmd.add(ForkedVmWorker.class.getName());
+                cmd.add(String.valueOf(server.getLocalPort()));
+                process = Execute.launch(owner.getProject(),
+                                         cmd.toArray(new String[cmd.size()]),
+                                         env, dir, true);
+                process.getOutputStream().close();
+                // the VM's own messages, the main classes' output is
+                // sent over the socket
+                OutputStream log = new LogOutputStream(owner, Project.MSG_VERBOSE);
+                startPumper(new StreamPumper(process.getInputStream(), log));
+                startPumper(new StreamPumper(process.getErrorStream(), log));
+
+                server.setSoTimeout(POLL_INTERVAL);
+                long deadline = System.currentTimeMillis() + START_TIMEOUT;
+                while (socket == null) {
+                    try {
+                        socket = server.accept();
+                    } catch (SocketTimeoutException ex) {
+                        if (hasExited() || System.currentTimeMillis() > deadline) {
+                            close();
+                            throw new IOException("forked VM failed to start");
+                        }
+                    }
+                }
+            } finally {
+                server.close();
+            }
+            socket.setTcpNoDelay(true);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeByte(ForkedVmWorker.CLASSPATH);
+            out.writeInt(classpath.length);
+            for (int i = 0; i < classpath.length; i++) {
+                ForkedVmWorker.writeString(out, classpath[i]);
+            }
+            out.flush();
+        }
+
+        private static void startPumper(StreamPumper p) {
+            Thread t = new Thread(p, "forked-vm-pumper");
+            t.setDaemon(true);
+            t.start();
+        }
+
+        private boolean hasExited() {
+            try {
+                process.exitValue();
+                return true;
+            } catch (IllegalThreadStateException ex) {
+                return false;
+            }
+        }
+
+        /**
+         * Whether the VM is still alive and answers in time.  Output
+         * left over from previous runs is discarded.
+         */
+        private boolean ping() {
+            if (dead || hasExited()) {
+                return false;
+            }
+            try {
+                socket.setSoTimeout(PING_TIMEOUT);
+                out.writeByte(ForkedVmWorker.PING);
+                out.flush();
+                while (true) {
+                    int type = in.readUnsignedByte();
+                    if (type == ForkedVmWorker.PONG) {
+                        socket.setSoTimeout(0);
+                        return true;
+                    }
+                    if (type != ForkedVmWorker.STDOUT
+                        && type != ForkedVmWorker.STDERR) {
+                        return false;
+                    }
+                    in.skipBytes(in.readInt());
+                }
+            } catch (IOException ex) {
+                return false;
+            }
+        }
+
+        /**
+         * Runs a main class and waits for it to return.
+         * @return the exit code, which is the VM's exit code if the
+         * main class has terminated the VM.
+         */
+        int run(String classname, String[] args, Properties props,
+                OutputStream stdout, OutputStream stderr,
+                ExecuteWatchdog watchdog) throws IOException {
+            runs++;
+            if (watchdog != null) {
+                watchdog.start(process);
+            }
+            try {
+                out.writeByte(ForkedVmWorker.RUN);
+                ForkedVmWorker.writeString(out, classname);
+                out.writeInt(args.length);
+                for (int i = 0; i < args.length; i++) {
+                    ForkedVmWorker.writeString(out, args[i]);
+                }
+                out.writeInt(props.size());
+                for (Map.Entry<Object, Object> e : props.entrySet()) {
+                    ForkedVmWorker.writeString(out, (String) e.getKey());
+                    ForkedVmWorker.writeString(out, (String) e.getValue());
+                }
+                out.flush();
+                byte[] buffer = new byte[0];
+                while (true) {
+                    int type = in.readUnsignedByte();
+                    if (type == ForkedVmWorker.EXIT) {
+                        return in.readInt();
+                    }
+                    if (type == ForkedVmWorker.RETIRE) {
+                        retired = true;
+                        continue;
+                    }
+                    int len = in.readInt();
+                    if (buffer.length < len) {
+                        buffer = new byte[len];
+                    }
+                    in.readFully(buffer, 0, len);
+                    (type == ForkedVmWorker.STDERR ? stderr : stdout)
+                        .write(buffer, 0, len);
+                }
+            } catch (InterruptedIOException ex) {
+                close();
+                throw ex;
+            } catch (IOException ex) {
+                // the main class has exited the VM or it has been
+                // killed by the watchdog
+                closeSocket();
+                try {
+                    return process.waitFor();
+                } catch (InterruptedException ie) {
+                    throw new InterruptedIOException("interrupted while"
+                                                     + " waiting for forked VM");
+                }
+            } finally {
+                if (watchdog != null) {
+                    watchdog.stop();
+                }
+            }
+        }
+
+        /**
+         * Terminates the VM.
+         */
+        void close() {
+            closeSocket();
+            if (process != null && !hasExited()) {
+                process.destroy();
+            }
+        }
+
+        private void closeSocket() {
+            dead = true;
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (IOException ex) {
+                    // ignore
+                }
+            }
+        }
+
+        public String toString() {
+            return "forked VM " + Integer.toHexString(System.identityHashCode(this))
+                + " (" + runs + " runs)";
+        }
+    }
+
+    /**
+     * Shuts down the idle VMs of a project once its build has finished.
+     */
+    private static class ShutdownListener implements BuildListener {
+        public void buildFinished(BuildEvent event) {
+            shutdown(event.getProject());
+        }
+        public void buildStarted(BuildEvent event) {
+        }
+        public void targetStarted(BuildEvent event) {
+        }
+        public void targetFinished(BuildEvent event) {
+        }
+        public void taskStarted(BuildEvent event) {
+        }
+        public void taskFinished(BuildEvent event) {
+        }
+        public void messageLogged(BuildEvent event) {
+        }
+    }
+}
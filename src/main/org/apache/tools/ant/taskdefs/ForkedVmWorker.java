@@ -0,0 +1,298 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.tools.ant.taskdefs;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Main class of the VMs kept alive by {@link ForkedVmPool}.
+ *
+ * <p>Connects back to the port given as its only argument, receives
+ * the classpath once and then runs one main class after the other
+ * until the connection is closed.  Each main class is loaded by a
+ * class loader of its own, so static state doesn't leak from one run
+ * into the next.  Output of the main classes is sent back over the
+ * same connection.</p>
+ *
+ * <p>Like the java launcher a run only completes once all non-daemon
+ * threads started by the main class have finished.  If daemon
+ * threads are left behind, the VM asks not to be reused, so they
+ * can't interfere with later runs.</p>
+ *
+ * <p>This class runs on a classpath that holds nothing but Ant's own
+ * classes, it must not use any of them.</p>
+ *
+ * @since Ant 1.9.5
+ */
+public final class ForkedVmWorker {
+
+    // commands sent by ForkedVmPool
+    static final int CLASSPATH = 'C';
+    static final int RUN = 'R';
+    static final int PING = 'P';
+    static final int QUIT = 'Q';
+
+    // frames sent back
+    static final int STDOUT = 'O';
+    static final int STDERR = 'E';
+    static final int EXIT = 'X';
+    static final int PONG = 'P';
+    static final int RETIRE = 'T';
+
+    private static final String ENCODING = "UTF-8";
+
+    private final DataOutputStream out;
+    private URL[] classpath = new URL[0];
+    /** Whether the last run has left threads behind. */
+    private boolean threadsLeft = false;
+
+    private ForkedVmWorker(DataOutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Command line entry point.
+     * @param args the port to connect to.
+     * @throws IOException if the connection fails.
+     */
+    public static void main(String[] args) throws IOException {
+        Socket s = new Socket(InetAddress.getByName(null),
+                              Integer.parseInt(args[0]));
+        s.setTcpNoDelay(true);
+        DataInputStream in =
+            new DataInputStream(new BufferedInputStream(s.getInputStream()));
+        ForkedVmWorker worker = new ForkedVmWorker(new DataOutputStream(
+            new BufferedOutputStream(s.getOutputStream())));
+        System.setIn(new ByteArrayInputStream(new byte[0]));
+        System.setOut(new PrintStream(worker.new FrameOutputStream(STDOUT), true));
+        System.setErr(new PrintStream(worker.new FrameOutputStream(STDERR), true));
+        try {
+            worker.serve(in);
+        } catch (EOFException ex) {
+            // Ant has gone away
+        }
+        // don't wait for threads the main classes may have started
+        Runtime.getRuntime().halt(0);
+    }
+
+    private void serve(DataInputStream in) throws IOException {
+        while (true) {
+            int command = in.readUnsignedByte();
+            if (command == QUIT) {
+                return;
+            } else if (command == PING) {
+                synchronized (out) {
+                    out.writeByte(PONG);
+                    out.flush();
+                }
+            } else if (command == CLASSPATH) {
+                URL[] urls = new URL[in.readInt()];
+                for (int i = 0; i < urls.length; i++) {
+                    urls[i] = new File(readString(in)).toURI().toURL();
+                }
+                classpath = urls;
+            } else if (command == RUN) {
+                String classname = readString(in);
+                String[] args = new String[in.readInt()];
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = readString(in);
+                }
+                Properties props = new Properties();
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    props.setProperty(readString(in), readString(in));
+                }
+                int rc = run(classname, args, props);
+                synchronized (out) {
+                    if (threadsLeft) {
+                        out.writeByte(RETIRE);
+                    }
+                    out.writeByte(EXIT);
+                    out.writeInt(rc);
+                    out.flush();
+                }
+            } else {
+                throw new IOException("unknown command " + command);
+            }
+        }
+    }
+
+    /**
+     * Runs the main method the way the java launcher would, using a
+     * new class loader, and waits for the non-daemon threads it has
+     * started.
+     * @return the exit code the launcher would have used.
+     */
+    private int run(String classname, String[] args, Properties props) {
+        Set<Thread> before = liveThreads();
+        // hide this class and Ant from the main classes
+        URLClassLoader loader = new URLClassLoader(classpath, ClassLoader
+                                                   .getSystemClassLoader()
+                                                   .getParent());
+        Properties saved = (Properties) System.getProperties().clone();
+        System.getProperties().putAll(props);
+        Thread current = Thread.currentThread();
+        ClassLoader savedLoader = current.getContextClassLoader();
+        current.setContextClassLoader(loader);
+        try {
+            int rc = invokeMain(loader, classname, args);
+            threadsLeft = !joinStartedThreads(before);
+            return rc;
+        } finally {
+            System.out.flush();
+            System.err.flush();
+            current.setContextClassLoader(savedLoader);
+            System.setProperties(saved);
+            close(loader);
+        }
+    }
+
+    private static int invokeMain(ClassLoader loader, String classname,
+                                  String[] args) {
+        try {
+            Class<?> c = Class.forName(classname, true, loader);
+            Method main = c.getMethod("main", String[].class);
+            if (!Modifier.isStatic(main.getModifiers())) {
+                throw new NoSuchMethodException("main method of " + classname
+                                                + " is not static");
+            }
+            main.setAccessible(true);
+            main.invoke(null, new Object[] {args});
+            return 0;
+        } catch (InvocationTargetException ex) {
+            System.err.print("Exception in thread \"main\" ");
+            ex.getTargetException().printStackTrace();
+            return 1;
+        } catch (Throwable t) {
+            System.err.println("Error: could not run " + classname + ": " + t);
+            return 1;
+        }
+    }
+
+    private static Set<Thread> liveThreads() {
+        return new HashSet<Thread>(Thread.getAllStackTraces().keySet());
+    }
+
+    /**
+     * Waits for all non-daemon threads that have been started since
+     * the given threads were alive.
+     * @return false if daemon threads started since then are still
+     * alive.
+     */
+    private static boolean joinStartedThreads(Set<Thread> before) {
+        Thread current = Thread.currentThread();
+        while (true) {
+            Thread nonDaemon = null;
+            boolean daemonsLeft = false;
+            for (Thread t : liveThreads()) {
+                if (t == current || before.contains(t) || !t.isAlive()) {
+                    continue;
+                }
+                if (t.isDaemon()) {
+                    daemonsLeft = true;
+                } else {
+                    nonDaemon = t;
+                    break;
+                }
+            }
+            if (nonDaemon == null) {
+                return !daemonsLeft;
+            }
+            try {
+                nonDaemon.join();
+            } catch (InterruptedException ex) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Releases the jars opened by the class loader on VMs where
+     * URLClassLoader is Closeable.
+     */
+    private static void close(ClassLoader loader) {
+        if (loader instanceof Closeable) {
+            try {
+                ((Closeable) loader).close();
+            } catch (IOException ex) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * Writes a string of arbitrary length, unlike writeUTF.
+     */
+    static void writeString(DataOutputStream out, String s)
+        throws IOException {
+        byte[] b = s.getBytes(ENCODING);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        byte[] b = new byte[in.readInt()];
+        in.readFully(b);
+        return new String(b, ENCODING);
+    }
+
+    /**
+     * Sends everything written to it as a frame of the given type.
+     */
+    private class FrameOutputStream extends OutputStream {
+        private final int type;
+
+        private FrameOutputStream(int type) {
+            this.type = type;
+        }
+
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        public void write(byte[] b, int off, int len) throws IOException {
+            synchronized (out) {
+                out.writeByte(type);
+                out.writeInt(len);
+                out.write(b, off, len);
+                out.flush();
+            }
+        }
+    }
+}
@@ -618,6 +618,17 @@ public class Jar extends Zip {
         }
     }
 
+    /**
+     * A new manifest is written each time and the index list needs
+     * to know all entries of the archive, so a jar is always
+     * rewritten.
+     * @return false
+     * @since Ant 1.9.5
+     */
+    protected boolean canUpdateInPlace() {
+        return false;
+    }
+
     /**
      * Create the index list to speed up classloading.
      * This is a JDK 1.3+ specific feature and is enabled by default. See
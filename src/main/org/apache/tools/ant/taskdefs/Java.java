@@ -22,6 +22,10 @@ import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
 import java.util.Vector;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.ExitException;
@@ -76,6 +80,10 @@ public class Java extends Task {
     private boolean spawn = false;
     private boolean incompatibleWithSpawn = false;
 
+    private boolean cloneVm = false;
+    private boolean reuseVm = false;
+    private int maxVmRuns = 0;
+
     private static final String TIMEOUT_MESSAGE =
         "Timeout: killed the sub-process";
 
@@ -210,7 +218,9 @@ public class Java extends Task {
     protected int executeJava(CommandlineJava commandLine) {
         try {
             if (fork) {
-                if (!spawn) {
+                if (canReuseVm(commandLine)) {
+                    return runInPooledVm(commandLine);
+                } else if (!spawn) {
                     return fork(commandLine.getCommandline());
                 } else {
                     spawn(commandLine.getCommandline());
@@ -361,9 +371,38 @@ public class Java extends Task {
      * @since Ant 1.7
      */
     public void setCloneVm(boolean cloneVm) {
+        this.cloneVm = cloneVm;
         getCommandLine().setCloneVm(cloneVm);
     }
 
+    /**
+     * If set, the forked VM is kept alive after the class has
+     * finished and is used again by later tasks that use the same VM
+     * configuration and classpath.
+     *
+     * <p>Doesn't have any effect unless fork is true.  VMs are not
+     * reused if an executable jar, a bootclasspath, cloned VM
+     * properties, input or a nested redirector is used.</p>
+     * @param reuseVm if true reuse forked VMs.
+     * @since Ant 1.9.5
+     */
+    public void setReuseVm(boolean reuseVm) {
+        this.reuseVm = reuseVm;
+    }
+
+    /**
+     * The maximum number of classes a reused VM may run before it
+     * gets replaced by a fresh one; 0 - the default - means no limit.
+     * @param maxVmRuns maximum number of runs per VM.
+     * @since Ant 1.9.5
+     */
+    public void setMaxVmRuns(int maxVmRuns) {
+        if (maxVmRuns < 0) {
+            throw new BuildException("maxvmruns must not be negative");
+        }
+        this.maxVmRuns = maxVmRuns;
+    }
+
     /**
      * Add a command-line argument.
      *
@@ -799,6 +838,87 @@ public class Java extends Task {
         }
     }
 
+    /**
+     * Whether the command can be run in a reused VM.
+     * @param command CommandlineJava.
+     */
+    private boolean canReuseVm(CommandlineJava command) {
+        if (!reuseVm || spawn || command.getJar() != null
+            || input != null || inputString != null
+            || redirectorElement != null || Os.isFamily("openvms")
+            || cloneVm
+            || "true".equals(System.getProperty("ant.build.clonevm"))) {
+            return false;
+        }
+        String[] line = command.getCommandline();
+        for (int i = 0; i < line.length; i++) {
+            if (line[i].startsWith("-Xbootclasspath")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Executes the given classname with the given arguments in a
+     * forked VM that may have been used before.
+     * @param command CommandlineJava.
+     */
+    private int runInPooledVm(CommandlineJava command) throws BuildException {
+        List<String> vmCommand = new ArrayList<String>(Arrays.asList(
+            command.getVmCommand().getCommandline()));
+        if (command.getAssertions() != null) {
+            command.getAssertions().applyAssertions(vmCommand);
+        }
+        Path classpath = command.getClasspath();
+        String[] cp = classpath == null ? new String[0]
+            : classpath.concatSystemClasspath("ignore").list();
+
+        Properties props = new Properties();
+        String[] definitions = command.getSystemProperties().getVariables();
+        if (definitions != null) {
+            for (int i = 0; i < definitions.length; i++) {
+                String def = definitions[i].substring(2);
+                int eq = def.indexOf('=');
+                if (eq < 0) {
+                    props.setProperty(def, "");
+                } else {
+                    props.setProperty(def.substring(0, eq),
+                                      def.substring(eq + 1));
+                }
+            }
+        }
+
+        // let Execute work out the working directory and environment
+        Execute exe = new Execute();
+        setupWorkingDir(exe);
+        setupEnvironment(exe);
+
+        try {
+            ForkedVmPool.Worker w =
+                ForkedVmPool.acquire(this, vmCommand, dir,
+                                     exe.getEnvironment(), cp);
+            ExecuteWatchdog watchdog = createWatchdog();
+            int rc;
+            redirector.createStreams();
+            try {
+                rc = w.run(command.getClassname(),
+                           command.getJavaCommand().getArguments(), props,
+                           redirector.getOutputStream(),
+                           redirector.getErrorStream(), watchdog);
+            } finally {
+                ForkedVmPool.release(w, maxVmRuns);
+            }
+            redirector.complete();
+            if (watchdog != null && watchdog.killedProcess()) {
+                throw new BuildException(TIMEOUT_MESSAGE);
+            }
+            return rc;
+        } catch (IOException e) {
+            throw new BuildException(e, getLocation());
+        }
+    }
+
     /**
      * Executes the given classname with the given arguments in a separate VM.
      * @param command String[] of command-line arguments.
@@ -81,6 +81,22 @@ public class LogOutputStream extends LineOrientedOutputStream {
         }
     }
 
+    /**
+     * Discards the line without decoding it if nobody is interested
+     * in messages of this stream's level.
+     *
+     * @param line the line to log.
+     * @throws IOException if there is an error.
+     * @since Ant 1.9.5
+     */
+    protected void processLine(byte[] line) throws IOException {
+        // subclasses may want to see all lines
+        if (getClass() == LogOutputStream.class && !pc.isLoggable(level)) {
+            return;
+        }
+        super.processLine(line);
+    }
+
     /**
      * Logs a line to the log system of ant.
      *
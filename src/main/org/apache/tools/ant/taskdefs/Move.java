@@ -135,33 +135,22 @@ public class Move extends Copy {
                     + " to " + destDir.getAbsolutePath());
 
             for (Iterator fromFiles = fileCopyMap.keySet().iterator(); fromFiles.hasNext();) {
-                String fromFile = (String) fromFiles.next();
+                final String fromFile = (String) fromFiles.next();
                 File f = new File(fromFile);
-                boolean selfMove = false;
                 if (f.exists()) { //Is this file still available to be moved?
-                    String[] toFiles = (String[]) fileCopyMap.get(fromFile);
+                    final String[] toFiles = (String[]) fileCopyMap.get(fromFile);
+                    File[] dests = new File[toFiles.length];
                     for (int i = 0; i < toFiles.length; i++) {
-                        String toFile = (String) toFiles[i];
-
-                        if (fromFile.equals(toFile)) {
-                            log("Skipping self-move of " + fromFile, verbosity);
-                            selfMove = true;
-
-                            // if this is the last time through the loop then
-                            // move will not occur, but that's what we want
-                            continue;
-                        }
-                        File d = new File(toFile);
-                        if ((i + 1) == toFiles.length && !selfMove) {
-                            // Only try to move if this is the last mapped file
-                            // and one of the mappings isn't to itself
-                            moveFile(f, d, filtering, forceOverwrite);
-                        } else {
-                            copyFile(f, d, filtering, forceOverwrite);
-                        }
+                        dests[i] = new File(toFiles[i]);
                     }
+                    runFileOperation(dests, new Runnable() {
+                            public void run() {
+                                moveSingleFile(fromFile, toFiles);
+                            }
+                        });
                 }
             }
+            completeFileOperations();
         }
 
         if (includeEmpty) {
@@ -203,6 +192,35 @@ public class Move extends Copy {
         }
     }
 
+    /**
+     * Moves fromFile to the last of its mapped destinations and
+     * copies it to all others.
+     */
+    private void moveSingleFile(String fromFile, String[] toFiles) {
+        File f = new File(fromFile);
+        boolean selfMove = false;
+        for (int i = 0; i < toFiles.length; i++) {
+            String toFile = (String) toFiles[i];
+
+            if (fromFile.equals(toFile)) {
+                log("Skipping self-move of " + fromFile, verbosity);
+                selfMove = true;
+
+                // if this is the last time through the loop then
+                // move will not occur, but that's what we want
+                continue;
+            }
+            File d = new File(toFile);
+            if ((i + 1) == toFiles.length && !selfMove) {
+                // Only try to move if this is the last mapped file
+                // and one of the mappings isn't to itself
+                moveFile(f, d, filtering, forceOverwrite);
+            } else {
+                copyFile(f, d, filtering, forceOverwrite);
+            }
+        }
+    }
+
     /**
      * Try to move the file via a rename, but if this fails or filtering
      * is enabled, copy the file then delete the sourceFile.
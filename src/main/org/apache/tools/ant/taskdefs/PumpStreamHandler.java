@@ -21,6 +21,11 @@ package org.apache.tools.ant.taskdefs;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Copies standard output and error of subprocesses to standard output and
@@ -39,6 +44,25 @@ public class PumpStreamHandler implements ExecuteStreamHandler {
     private InputStream input;
     private final boolean nonBlockingRead;
 
+    private boolean useSharedPumpers = false;
+    private StreamPumper sharedOutputPumper;
+    private StreamPumper sharedErrorPumper;
+
+    /** Buffer size used by shared pumpers. */
+    private static final int SHARED_BUFFER_SIZE = 8 * 1024;
+    /** How long idle shared pumper threads are kept, in seconds. */
+    private static final long SHARED_KEEP_ALIVE = 60;
+
+    private static ExecutorService sharedPumpers;
+
+    private static final ThreadLocal<byte[]> SHARED_BUFFER =
+        new ThreadLocal<byte[]>() {
+            @Override
+            protected byte[] initialValue() {
+                return new byte[SHARED_BUFFER_SIZE];
+            }
+        };
+
     /**
      * Construct a new <code>PumpStreamHandler</code>.
      * @param out the output <code>OutputStream</code>.
@@ -90,6 +114,26 @@ public class PumpStreamHandler implements ExecuteStreamHandler {
         this(System.out, System.err);
     }
 
+    /**
+     * Whether the standard output and error of the process should be
+     * copied by threads taken from a pool shared by all handlers
+     * rather than by threads of their own.
+     *
+     * <p>Shared pumpers use blocking reads with a larger buffer
+     * instead of polling the streams, so output arrives as soon as
+     * it has been written and {@link #stop stop} returns as soon as
+     * the process has closed its streams.  Input is always pumped
+     * by a thread of its own.</p>
+     *
+     * <p>Must be called before the streams of the process are
+     * set.</p>
+     * @param b whether to use shared pumpers.
+     * @since Ant 1.9.5
+     */
+    public void setUseSharedPumpers(boolean b) {
+        useSharedPumpers = b;
+    }
+
     /**
      * Set the <code>InputStream</code> from which to read the
      * standard output of the process.
@@ -131,8 +175,8 @@ public class PumpStreamHandler implements ExecuteStreamHandler {
      * Start the <code>Thread</code>s.
      */
     public void start() {
-        outputThread.start();
-        errorThread.start();
+        sharedOutputPumper = startPump(outputThread);
+        sharedErrorPumper = startPump(errorThread);
         if (inputThread != null) {
             inputThread.start();
         }
@@ -154,12 +198,72 @@ public class PumpStreamHandler implements ExecuteStreamHandler {
         } catch (IOException e) {
             // ignore
         }
-        finish(outputThread);
-        finish(errorThread);
+        finish(outputThread, sharedOutputPumper);
+        finish(errorThread, sharedErrorPumper);
     }
 
     private static final long JOIN_TIMEOUT = 200;
 
+    /**
+     * Starts the thread or hands its pumper to the shared pool.
+     * @return the pumper if it has been handed to the pool.
+     */
+    private StreamPumper startPump(Thread t) {
+        // subclasses of ThreadWithPumper may do more than just pump
+        if (useSharedPumpers && t.getClass() == ThreadWithPumper.class) {
+            final StreamPumper s = ((ThreadWithPumper) t).getPumper();
+            getSharedPumpers().execute(new Runnable() {
+                    public void run() {
+                        s.run(SHARED_BUFFER.get());
+                    }
+                });
+            return s;
+        }
+        t.start();
+        return null;
+    }
+
+    private void finish(Thread t, StreamPumper shared) {
+        if (shared == null) {
+            finish(t);
+            return;
+        }
+        try {
+            if (!shared.waitFor(JOIN_TIMEOUT)) {
+                // some other process still holds the stream open,
+                // copy what is there and leave the rest alone
+                shared.stop();
+                if (!shared.waitFor(JOIN_TIMEOUT)) {
+                    // still blocked reading, make sure whatever it
+                    // reads later doesn't end up in our output
+                    // stream that may be used by somebody else by then
+                    shared.detach();
+                }
+            }
+        } catch (InterruptedException e) {
+            // ignore
+        }
+    }
+
+    private static synchronized ExecutorService getSharedPumpers() {
+        if (sharedPumpers == null) {
+            sharedPumpers =
+                new ThreadPoolExecutor(0, Integer.MAX_VALUE,
+                                       SHARED_KEEP_ALIVE, TimeUnit.SECONDS,
+                                       new SynchronousQueue<Runnable>(),
+                                       new ThreadFactory() {
+                    private int count = 0;
+                    public synchronized Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "stream-pumper-"
+                                              + (++count));
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        }
+        return sharedPumpers;
+    }
+
     /**
      * Waits for a thread to finish while trying to make it finish
      * quicker by stopping the pumper (if the thread is a {@link
@@ -255,7 +359,7 @@ public class PumpStreamHandler implements ExecuteStreamHandler {
      */
     protected Thread createPump(InputStream is, OutputStream os,
                                 boolean closeWhenExhausted) {
-        return createPump(is, os, closeWhenExhausted, true);
+        return createPump(is, os, closeWhenExhausted, !useSharedPumpers);
     }
 
     /**
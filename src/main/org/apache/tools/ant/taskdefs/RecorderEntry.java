@@ -24,8 +24,10 @@ import org.apache.tools.ant.BuildEvent;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.BuildLogger;
 import org.apache.tools.ant.DefaultLogger;
+import org.apache.tools.ant.LevelAwareListener;
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.SubBuildListener;
+import org.apache.tools.ant.util.ReflectUtil;
 import org.apache.tools.ant.util.StringUtils;
 
 /**
@@ -34,7 +36,8 @@ import org.apache.tools.ant.util.StringUtils;
  *
  * @since Ant 1.4
  */
-public class RecorderEntry implements BuildLogger, SubBuildListener {
+public class RecorderEntry
+    implements BuildLogger, LevelAwareListener, SubBuildListener {
 
     //////////////////////////////////////////////////////////////////////
     // ATTRIBUTES
@@ -53,6 +56,13 @@ public class RecorderEntry implements BuildLogger, SubBuildListener {
     private boolean emacsMode = false;
     /** project instance the recorder is associated with */
     private Project project;
+    /**
+     * Whether messageLogged ignores messages above the log level,
+     * false for subclasses that override it.
+     */
+    private final boolean ignoresVerboseMessages =
+        ReflectUtil.getDeclaringClass(getClass(), "messageLogged",
+                                      BuildEvent.class) == RecorderEntry.class;
 
     //////////////////////////////////////////////////////////////////////
     // CONSTRUCTORS / INITIALIZERS
@@ -238,6 +248,16 @@ public class RecorderEntry implements BuildLogger, SubBuildListener {
         }
     }
 
+    /**
+     * The logging level of this recorder, Project.MSG_DEBUG if a
+     * subclass overrides {@link #messageLogged messageLogged}.
+     * @return the logging level.
+     * @since Ant 1.9.5
+     */
+    public int getMessageOutputLevel() {
+        return ignoresVerboseMessages ? loglevel : Project.MSG_DEBUG;
+    }
+
     /**
      * @see BuildLogger#setOutputPrintStream(PrintStream)
      */
@@ -32,6 +32,7 @@ import java.io.ByteArrayOutputStream;
 import java.util.Arrays;
 import java.util.Vector;
 
+import org.apache.tools.ant.MagicNames;
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.ProjectComponent;
 import org.apache.tools.ant.Task;
@@ -775,8 +776,13 @@ public class Redirector {
     public ExecuteStreamHandler createHandler() throws BuildException {
         createStreams();
         boolean nonBlockingRead = input == null && inputString == null;
-        return new PumpStreamHandler(getOutputStream(), getErrorStream(),
-                getInputStream(), nonBlockingRead);
+        PumpStreamHandler handler =
+            new PumpStreamHandler(getOutputStream(), getErrorStream(),
+                                  getInputStream(), nonBlockingRead);
+        Project p = managingTask.getProject();
+        handler.setUseSharedPumpers(p != null && Project.toBoolean(
+            p.getProperty(MagicNames.SHARED_STREAM_PUMPERS)));
+        return handler;
     }
 
     /**
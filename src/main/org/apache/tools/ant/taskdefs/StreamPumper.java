@@ -41,6 +41,9 @@ public class StreamPumper implements Runnable {
     private int bufferSize = SMALL_BUFFER_SIZE;
     private boolean started = false;
     private final boolean useAvailable;
+    /** Guards writes to os against {@link #detach detach}. */
+    private final Object writeLock = new Object();
+    private boolean detached = false;
 
     /**
      * Create a new StreamPumper.
@@ -112,12 +115,24 @@ public class StreamPumper implements Runnable {
      * Terminates as soon as the input stream is closed or an error occurs.
      */
     public void run() {
+        run(null);
+    }
+
+    /**
+     * Copies data from the input stream to the output stream using
+     * the given buffer if it is at least as big as the configured
+     * buffer size.
+     * @param buffer a buffer to reuse, may be null.
+     * @since Ant 1.9.5
+     */
+    /*package*/ void run(byte[] buffer) {
         synchronized (this) {
             started = true;
         }
         finished = false;
 
-        final byte[] buf = new byte[bufferSize];
+        final byte[] buf = buffer != null && buffer.length >= bufferSize
+            ? buffer : new byte[bufferSize];
 
         int length;
         try {
@@ -132,10 +147,7 @@ public class StreamPumper implements Runnable {
                 if (length <= 0 || Thread.interrupted()) {
                     break;
                 }
-                os.write(buf, 0, length);
-                if (autoflush) {
-                    os.flush();
-                }
+                write(buf, length, autoflush);
                 if (finish) {
                     break;
                 }
@@ -150,10 +162,10 @@ public class StreamPumper implements Runnable {
                     if (length <= 0) {
                         break;
                     }
-                    os.write(buf, 0, length);
+                    write(buf, length, false);
                 }
             }
-            os.flush();
+            write(buf, 0, true);
         } catch (InterruptedException ie) {
             // likely PumpStreamHandler trying to stop us
         } catch (Exception e) {
@@ -191,6 +203,25 @@ public class StreamPumper implements Runnable {
         }
     }
 
+    /**
+     * This method blocks until the StreamPumper finishes or the
+     * timeout has expired.
+     * @param timeout the maximum time to wait in milliseconds.
+     * @return whether the StreamPumper has finished.
+     * @throws InterruptedException if interrupted.
+     * @since Ant 1.9.5
+     */
+    /*package*/ synchronized boolean waitFor(long timeout)
+        throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        long left = timeout;
+        while (!isFinished() && left > 0) {
+            wait(left);
+            left = deadline - System.currentTimeMillis();
+        }
+        return isFinished();
+    }
+
     /**
      * Set the size in bytes of the read buffer.
      * @param bufferSize the buffer size to use.
@@ -231,6 +262,37 @@ public class StreamPumper implements Runnable {
         notifyAll();
     }
 
+    /**
+     * Makes the pumper drop all data it reads from now on rather than
+     * writing it to the output stream.
+     *
+     * <p>Used when the pumper can't be stopped because it is blocked
+     * reading from a stream that is still open, the output stream
+     * may already be used for something else once the read
+     * returns.</p>
+     * @since Ant 1.9.5
+     */
+    /*package*/ void detach() {
+        synchronized (writeLock) {
+            detached = true;
+        }
+    }
+
+    private void write(byte[] buf, int length, boolean flush)
+        throws IOException {
+        synchronized (writeLock) {
+            if (detached) {
+                return;
+            }
+            if (length > 0) {
+                os.write(buf, 0, length);
+            }
+            if (flush) {
+                os.flush();
+            }
+        }
+    }
+
     private static final long POLL_INTERVAL = 100;
 
     private void waitForInput(InputStream is)
@@ -18,12 +18,28 @@
 package org.apache.tools.ant.taskdefs;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.StringTokenizer;
 import java.util.Vector;
 import java.util.Enumeration;
 
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildListener;
+import org.apache.tools.ant.LevelAwareListener;
 import org.apache.tools.ant.Main;
+import org.apache.tools.ant.SubBuildListener;
 import org.apache.tools.ant.Task;
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.BuildException;
@@ -37,6 +53,7 @@ import org.apache.tools.ant.types.Reference;
 import org.apache.tools.ant.types.ResourceCollection;
 
 import org.apache.tools.ant.taskdefs.Ant.TargetElement;
+import org.apache.tools.ant.util.FileUtils;
 
 
 /**
@@ -74,6 +91,20 @@ public class SubAnt extends Task {
     private boolean inheritRefs = false;
     private boolean failOnError = true;
     private String output  = null;
+    private int threads = 1;
+    private File dependencyFile = null;
+    private String dependencyPrefix = null;
+
+    /** Collects the events of the sub-build run by the current thread. */
+    private final ThreadLocal<BufferingListener> currentBuffer =
+        new ThreadLocal<BufferingListener>();
+    /** Makes sure the output of sub-builds doesn't get mixed up. */
+    private final Object outputLock = new Object();
+    /** Sub-build whose events are passed on as they happen. */
+    private BufferingListener liveOutput = null;
+    /** Sub-builds waiting for their turn to pass on their events. */
+    private final List<BufferingListener> waitingOutput =
+        new LinkedList<BufferingListener>();
 
     private Vector properties = new Vector();
     private Vector references = new Vector();
@@ -198,75 +229,192 @@ public class SubAnt extends Task {
             subTarget = getOwningTarget().getName();
         }
 */
+        List<SubBuild> subBuilds = createSubBuilds(filenames);
+        if (threads > 1 && count > 1) {
+            new ParallelRun(subBuilds).execute();
+            return;
+        }
         BuildException buildException = null;
-        for (int i = 0; i < count; ++i) {
-            File file = null;
-            String subdirPath = null;
-            Throwable thrownException = null;
-            try {
-                File directory = null;
-                file = new File(filenames[i]);
-                if (file.isDirectory()) {
-                    if (verbose) {
-                        subdirPath = file.getPath();
-                        log("Entering directory: " + subdirPath + "\n", Project.MSG_INFO);
-                    }
-                    if (genericantfile != null) {
-                        directory = file;
-                        file = genericantfile;
-                    } else {
-                        file = new File(file, antfile);
-                    }
+        for (SubBuild subBuild : subBuilds) {
+            BuildException failure = execute(subBuild.filename);
+            // only the first build exception is reported
+            if (buildException == null) {
+                buildException = failure;
+            }
+        }
+        // check if one of the builds failed in keep going mode
+        if (buildException != null) {
+            throw buildException;
+        }
+    }
+
+    /**
+     * Runs a single sub-build.
+     *
+     * @param filename the build file or directory of the sub-build.
+     * @return the exception the sub-build failed with in keep going
+     * mode, null if it succeeded.
+     * @throws RuntimeException if the sub-build failed and the project
+     * isn't in keep going mode.
+     */
+    private BuildException execute(String filename) {
+        File file = null;
+        String subdirPath = null;
+        Throwable thrownException = null;
+        try {
+            File directory = null;
+            file = new File(filename);
+            if (file.isDirectory()) {
+                if (verbose) {
+                    subdirPath = file.getPath();
+                    log("Entering directory: " + subdirPath + "\n", Project.MSG_INFO);
+                }
+                if (genericantfile != null) {
+                    directory = file;
+                    file = genericantfile;
+                } else {
+                    file = new File(file, antfile);
                 }
-                execute(file, directory);
+            }
+            execute(file, directory);
+            if (verbose && subdirPath != null) {
+                log("Leaving directory: " + subdirPath + "\n", Project.MSG_INFO);
+            }
+        } catch (RuntimeException ex) {
+            if (!(getProject().isKeepGoingMode())) {
                 if (verbose && subdirPath != null) {
                     log("Leaving directory: " + subdirPath + "\n", Project.MSG_INFO);
                 }
-            } catch (RuntimeException ex) {
-                if (!(getProject().isKeepGoingMode())) {
-                    if (verbose && subdirPath != null) {
-                        log("Leaving directory: " + subdirPath + "\n", Project.MSG_INFO);
-                    }
-                    throw ex; // throw further
+                throw ex; // throw further
+            }
+            thrownException = ex;
+        } catch (Throwable ex) {
+            if (!(getProject().isKeepGoingMode())) {
+                if (verbose && subdirPath != null) {
+                    log("Leaving directory: " + subdirPath + "\n", Project.MSG_INFO);
                 }
-                thrownException = ex;
-            } catch (Throwable ex) {
-                if (!(getProject().isKeepGoingMode())) {
-                    if (verbose && subdirPath != null) {
-                        log("Leaving directory: " + subdirPath + "\n", Project.MSG_INFO);
-                    }
-                    throw new BuildException(ex);
+                throw new BuildException(ex);
+            }
+            thrownException = ex;
+        }
+        if (thrownException == null) {
+            return null;
+        }
+        BuildException buildException = null;
+        if (thrownException instanceof BuildException) {
+            log("File '" + file
+                + "' failed with message '"
+                + thrownException.getMessage() + "'.", Project.MSG_ERR);
+            buildException = (BuildException) thrownException;
+        } else {
+            log("Target '" + file
+                + "' failed with message '"
+                + thrownException.getMessage() + "'.", Project.MSG_ERR);
+            thrownException.printStackTrace(System.err);
+            buildException = new BuildException(thrownException);
+        }
+        if (verbose && subdirPath != null) {
+            log("Leaving directory: " + subdirPath + "\n", Project.MSG_INFO);
+        }
+        return buildException;
+    }
+
+    /**
+     * Creates the sub-builds for the elements of the build path and
+     * sorts them so that each sub-build comes after the ones it
+     * depends on.
+     */
+    private List<SubBuild> createSubBuilds(String[] filenames) {
+        List<SubBuild> subBuilds = new ArrayList<SubBuild>(filenames.length);
+        Map<String, List<SubBuild>> byName = new HashMap<String, List<SubBuild>>();
+        for (int i = 0; i < filenames.length; i++) {
+            SubBuild subBuild = new SubBuild(filenames[i]);
+            subBuilds.add(subBuild);
+            List<SubBuild> named = byName.get(subBuild.name);
+            if (named == null) {
+                named = new ArrayList<SubBuild>();
+                byName.put(subBuild.name, named);
+            }
+            named.add(subBuild);
+        }
+        if (dependencyFile == null && dependencyPrefix == null) {
+            return subBuilds;
+        }
+
+        Properties dependencies = new Properties();
+        if (dependencyFile != null) {
+            InputStream in = null;
+            try {
+                in = new FileInputStream(dependencyFile);
+                dependencies.load(in);
+            } catch (IOException ex) {
+                throw new BuildException("Failed to read " + dependencyFile,
+                                         ex, getLocation());
+            } finally {
+                FileUtils.close(in);
+            }
+        }
+        for (SubBuild subBuild : subBuilds) {
+            String list = dependencies.getProperty(subBuild.name);
+            if (list == null && dependencyPrefix != null) {
+                list = getProject().getProperty(dependencyPrefix + subBuild.name);
+            }
+            if (list == null) {
+                continue;
+            }
+            StringTokenizer st = new StringTokenizer(list, ", \t\n\r\f");
+            while (st.hasMoreTokens()) {
+                List<SubBuild> named = byName.get(st.nextToken());
+                if (named != null) {
+                    subBuild.dependencies.addAll(named);
+                    subBuild.dependencies.remove(subBuild);
                 }
-                thrownException = ex;
             }
-            if (thrownException != null) {
-                if (thrownException instanceof BuildException) {
-                    log("File '" + file
-                        + "' failed with message '"
-                        + thrownException.getMessage() + "'.", Project.MSG_ERR);
-                    // only the first build exception is reported
-                    if (buildException == null) {
-                        buildException = (BuildException) thrownException;
-                    }
-                } else {
-                    log("Target '" + file
-                        + "' failed with message '"
-                        + thrownException.getMessage() + "'.", Project.MSG_ERR);
-                    thrownException.printStackTrace(System.err);
-                    if (buildException == null) {
-                        buildException =
-                            new BuildException(thrownException);
-                    }
+        }
+
+        // keep the order of the build path where possible
+        List<SubBuild> sorted = new ArrayList<SubBuild>(subBuilds.size());
+        Set<SubBuild> placed = new HashSet<SubBuild>();
+        List<SubBuild> remaining = new LinkedList<SubBuild>(subBuilds);
+        while (!remaining.isEmpty()) {
+            SubBuild next = null;
+            for (SubBuild subBuild : remaining) {
+                if (placed.containsAll(subBuild.dependencies)) {
+                    next = subBuild;
+                    break;
                 }
-                if (verbose && subdirPath != null) {
-                    log("Leaving directory: " + subdirPath + "\n", Project.MSG_INFO);
+            }
+            if (next == null) {
+                StringBuilder sb = new StringBuilder();
+                for (SubBuild subBuild : remaining) {
+                    sb.append(sb.length() == 0 ? "" : ", ").append(subBuild.name);
                 }
+                throw new BuildException("Circular dependency between the"
+                                         + " sub-builds " + sb, getLocation());
             }
+            remaining.remove(next);
+            placed.add(next);
+            sorted.add(next);
         }
-        // check if one of the builds failed in keep going mode
-        if (buildException != null) {
-            throw buildException;
+        return sorted;
+    }
+
+    /**
+     * Logs a message, sends it to the output of the current sub-build
+     * if sub-builds run in parallel.
+     *
+     * @param msg the message.
+     * @param msgLevel the log level of the message.
+     */
+    public void log(String msg, int msgLevel) {
+        BufferingListener buffer = currentBuffer.get();
+        if (buffer == null) {
+            super.log(msg, msgLevel);
+            return;
         }
+        BuildEvent event = new BuildEvent(this);
+        event.setMessage(msg, msgLevel);
+        buffer.messageLogged(event);
     }
 
     /**
@@ -290,20 +438,27 @@ public class SubAnt extends Task {
             return;
         }
 
-        ant = createAntTask(directory);
+        Ant antTask = createAntTask(directory);
+        BufferingListener buffer = currentBuffer.get();
+        if (buffer == null) {
+            ant = antTask;
+        } else {
+            antTask.setBuildListener(buffer);
+            getProject().registerThreadTask(Thread.currentThread(), antTask);
+        }
         String antfilename = file.getAbsolutePath();
-        ant.setAntfile(antfilename);
+        antTask.setAntfile(antfilename);
         final int size = targets.size();
         for (int i = 0; i < size; i++) {
             TargetElement targetElement = (TargetElement) targets.get(i);
-            ant.addConfiguredTarget(targetElement);
+            antTask.addConfiguredTarget(targetElement);
         }
 
         try {
             if (verbose) {
                 log("Executing: " + antfilename, Project.MSG_INFO);
             }
-            ant.execute();
+            antTask.execute();
         } catch (BuildException e) {
             if (failOnError || isHardError(e)) {
                 throw e;
@@ -320,7 +475,11 @@ public class SubAnt extends Task {
                 + e.toString(),
                 Project.MSG_WARN);
         } finally {
-            ant = null;
+            if (buffer == null) {
+                ant = null;
+            } else {
+                getProject().registerThreadTask(Thread.currentThread(), null);
+            }
         }
     }
     /** whether we should even try to continue after this error */
@@ -404,6 +563,56 @@ public class SubAnt extends Task {
         this.verbose = on;
     }
 
+    /**
+     * Number of sub-builds to run at the same time.  The default is
+     * 1, which runs the sub-builds one after the other.
+     *
+     * <p>When running more than one sub-build at a time the output
+     * of each sub-build is held back until it has finished.</p>
+     *
+     * @param threads the number of sub-builds to run in parallel.
+     * @since Ant 1.9.5
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new BuildException("threads must be a positive number");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * A properties file that lists the sub-builds each sub-build
+     * depends on.
+     *
+     * <p>Keys and values are the names of the sub-builds - the name of
+     * the directory on the build path or the name of the directory
+     * containing the build file.  Each value is a comma or space
+     * separated list of sub-builds that have to be run before the
+     * one named by the key.</p>
+     *
+     * @param file the file holding the dependencies.
+     * @since Ant 1.9.5
+     */
+    public void setDependencyFile(File file) {
+        dependencyFile = file;
+    }
+
+    /**
+     * Prefix of properties that list the sub-builds each sub-build
+     * depends on.
+     *
+     * <p>The property named prefix followed by the name of a
+     * sub-build holds a comma or space separated list of the
+     * sub-builds that have to be run before it.  Only used for
+     * sub-builds that are not listed in the dependency file.</p>
+     *
+     * @param prefix the prefix of the property names.
+     * @since Ant 1.9.5
+     */
+    public void setDependencyPrefix(String prefix) {
+        dependencyPrefix = prefix;
+    }
+
     /**
      * Corresponds to <code>&lt;ant&gt;</code>'s
      * <code>output</code> attribute.
@@ -635,4 +844,331 @@ public class SubAnt extends Task {
         }
     }
 
+
+    /**
+     * An element of the build path and the sub-builds that need to
+     * be run before it.
+     */
+    private static final class SubBuild {
+        private final String filename;
+        private final String name;
+        private final Set<SubBuild> dependencies = new HashSet<SubBuild>();
+        private boolean finished;
+        private BuildException failure;
+
+        private SubBuild(String filename) {
+            this.filename = filename;
+            File file = new File(filename);
+            if (!file.isDirectory() && file.getParentFile() != null) {
+                file = file.getParentFile();
+            }
+            name = file.getName();
+        }
+    }
+
+    /**
+     * Runs sub-builds in parallel, starting each one as soon as all
+     * sub-builds it depends on have finished successfully.
+     */
+    private class ParallelRun {
+        private final List<SubBuild> subBuilds;
+        private final List<SubBuild> pending;
+        private final Object lock = new Object();
+        private int running = 0;
+        private RuntimeException fatal = null;
+
+        private ParallelRun(List<SubBuild> subBuilds) {
+            this.subBuilds = subBuilds;
+            pending = new LinkedList<SubBuild>(subBuilds);
+        }
+
+        private void execute() {
+            synchronized (lock) {
+                while (true) {
+                    if (fatal == null) {
+                        startReadySubBuilds();
+                    }
+                    if (running == 0) {
+                        break;
+                    }
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException ex) {
+                        // keep waiting for the running sub-builds
+                    }
+                }
+            }
+            if (fatal != null) {
+                throw fatal;
+            }
+            // like in sequential mode report the first failure
+            for (SubBuild subBuild : subBuilds) {
+                if (subBuild.failure != null) {
+                    throw subBuild.failure;
+                }
+            }
+        }
+
+        private void startReadySubBuilds() {
+            Iterator<SubBuild> iter = pending.iterator();
+            while (iter.hasNext() && running < threads) {
+                SubBuild subBuild = iter.next();
+                SubBuild failed = null;
+                boolean ready = true;
+                for (SubBuild dependency : subBuild.dependencies) {
+                    if (!dependency.finished) {
+                        ready = false;
+                    } else if (dependency.failure != null) {
+                        failed = dependency;
+                    }
+                }
+                if (failed != null) {
+                    iter.remove();
+                    skip(subBuild, failed);
+                } else if (ready) {
+                    iter.remove();
+                    running++;
+                    start(subBuild);
+                }
+            }
+        }
+
+        /**
+         * Marks a sub-build that depends on a failed one as failed
+         * without running it.
+         */
+        private void skip(SubBuild subBuild, SubBuild failed) {
+            String msg = "Skipping " + subBuild.filename + " since "
+                + failed.filename + " failed.";
+            subBuild.finished = true;
+            subBuild.failure = new BuildException(msg, getLocation());
+            BufferingListener buffer = new BufferingListener();
+            buffer.open();
+            BuildEvent event = new BuildEvent(SubAnt.this);
+            event.setMessage(msg, Project.MSG_ERR);
+            buffer.messageLogged(event);
+            buffer.close();
+        }
+
+        private void start(final SubBuild subBuild) {
+            final BufferingListener buffer = new BufferingListener();
+            buffer.open();
+            ThreadGroup group = new ThreadGroup("subant " + subBuild.name);
+            Thread t = new Thread(group, new Runnable() {
+                    public void run() {
+                        currentBuffer.set(buffer);
+                        BuildException failure = null;
+                        RuntimeException error = null;
+                        try {
+                            failure = SubAnt.this.execute(subBuild.filename);
+                        } catch (RuntimeException ex) {
+                            error = ex;
+                        } catch (Error ex) {
+                            error = new BuildException(ex);
+                        } finally {
+                            currentBuffer.set(null);
+                            buffer.close();
+                            finished(subBuild, failure, error);
+                        }
+                    }
+                }, "subant " + subBuild.name);
+            t.start();
+        }
+
+        private void finished(SubBuild subBuild, BuildException failure,
+                              RuntimeException error) {
+            synchronized (lock) {
+                subBuild.finished = true;
+                subBuild.failure = failure;
+                if (error != null) {
+                    subBuild.failure = error instanceof BuildException
+                        ? (BuildException) error : new BuildException(error);
+                    if (fatal == null) {
+                        fatal = error;
+                    }
+                }
+                running--;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Passes the events of a sub-build on to the listeners of this
+     * project.
+     *
+     * <p>Only one sub-build at a time passes on its events as they
+     * happen, the events of the others are held back until it is
+     * their turn, so the output of each sub-build appears in one
+     * piece.  Sub-builds get their turn in the order they have been
+     * started.  Events keep the thread and time they have been fired
+     * at.</p>
+     */
+    private class BufferingListener
+        implements LevelAwareListener, SubBuildListener {
+        private static final int BUILD_STARTED = 0;
+        private static final int BUILD_FINISHED = 1;
+        private static final int TARGET_STARTED = 2;
+        private static final int TARGET_FINISHED = 3;
+        private static final int TASK_STARTED = 4;
+        private static final int TASK_FINISHED = 5;
+        private static final int MESSAGE_LOGGED = 6;
+        private static final int SUB_BUILD_STARTED = 7;
+        private static final int SUB_BUILD_FINISHED = 8;
+
+        private final List<Integer> types = new ArrayList<Integer>();
+        private final List<BuildEvent> events = new ArrayList<BuildEvent>();
+        private final List<BuildListener> listeners;
+        private final int level;
+        private boolean closed = false;
+
+        private BufferingListener() {
+            listeners = getProject().getBuildListeners();
+            int l = Project.MSG_ERR - 1;
+            for (BuildListener listener : listeners) {
+                if (!(listener instanceof LevelAwareListener)) {
+                    l = Project.MSG_DEBUG;
+                    break;
+                }
+                l = Math.max(l, ((LevelAwareListener) listener)
+                             .getMessageOutputLevel());
+            }
+            level = l;
+        }
+
+        public int getMessageOutputLevel() {
+            return level;
+        }
+
+        /**
+         * Waits for its turn behind the sub-builds started before.
+         */
+        private void open() {
+            synchronized (outputLock) {
+                if (liveOutput == null) {
+                    liveOutput = this;
+                } else {
+                    waitingOutput.add(this);
+                }
+            }
+        }
+
+        /**
+         * Passes on the events held back if it is this sub-build's
+         * turn, gives the turn to the next sub-build if it has been
+         * this one's.
+         */
+        private void close() {
+            synchronized (outputLock) {
+                closed = true;
+                if (liveOutput != this) {
+                    return;
+                }
+                liveOutput = null;
+                while (liveOutput == null && !waitingOutput.isEmpty()) {
+                    BufferingListener next = waitingOutput.remove(0);
+                    next.flush();
+                    if (!next.closed) {
+                        liveOutput = next;
+                    }
+                }
+            }
+        }
+
+        private void add(int type, BuildEvent event) {
+            synchronized (outputLock) {
+                if (liveOutput == this) {
+                    deliver(type, event);
+                } else {
+                    types.add(type);
+                    events.add(event);
+                }
+            }
+        }
+
+        /**
+         * Sends the events held back to the listeners of the project.
+         */
+        private void flush() {
+            for (int i = 0; i < events.size(); i++) {
+                deliver(types.get(i), events.get(i));
+            }
+            types.clear();
+            events.clear();
+        }
+
+        private void deliver(int type, BuildEvent event) {
+            for (BuildListener l : listeners) {
+                deliver(l, type, event);
+            }
+        }
+
+        private void deliver(BuildListener l, int type, BuildEvent event) {
+            switch (type) {
+            case BUILD_STARTED:
+                l.buildStarted(event);
+                break;
+            case BUILD_FINISHED:
+                l.buildFinished(event);
+                break;
+            case TARGET_STARTED:
+                l.targetStarted(event);
+                break;
+            case TARGET_FINISHED:
+                l.targetFinished(event);
+                break;
+            case TASK_STARTED:
+                l.taskStarted(event);
+                break;
+            case TASK_FINISHED:
+                l.taskFinished(event);
+                break;
+            case MESSAGE_LOGGED:
+                l.messageLogged(event);
+                break;
+            case SUB_BUILD_STARTED:
+                if (l instanceof SubBuildListener) {
+                    ((SubBuildListener) l).subBuildStarted(event);
+                }
+                break;
+            case SUB_BUILD_FINISHED:
+                if (l instanceof SubBuildListener) {
+                    ((SubBuildListener) l).subBuildFinished(event);
+                }
+                break;
+            default:
+                break;
+            }
+        }
+
+        public void buildStarted(BuildEvent event) {
+            add(BUILD_STARTED, event);
+        }
+        public void buildFinished(BuildEvent event) {
+            add(BUILD_FINISHED, event);
+        }
+        public void targetStarted(BuildEvent event) {
+            add(TARGET_STARTED, event);
+        }
+        public void targetFinished(BuildEvent event) {
+            add(TARGET_FINISHED, event);
+        }
+        public void taskStarted(BuildEvent event) {
+            add(TASK_STARTED, event);
+        }
+        public void taskFinished(BuildEvent event) {
+            add(TASK_FINISHED, event);
+        }
+        public void messageLogged(BuildEvent event) {
+            if (event.getPriority() <= level) {
+                add(MESSAGE_LOGGED, event);
+            }
+        }
+        public void subBuildStarted(BuildEvent event) {
+            add(SUB_BUILD_STARTED, event);
+        }
+        public void subBuildFinished(BuildEvent event) {
+            add(SUB_BUILD_FINISHED, event);
+        }
+    }
 } // END class SubAnt
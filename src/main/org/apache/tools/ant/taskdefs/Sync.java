@@ -421,6 +421,17 @@ public class Sync extends Task {
         myCopy.setGranularity(granularity);
     }
 
+    /**
+     * Number of threads used to copy files concurrently.
+     *
+     * <p>Defaults to 1.</p>
+     * @param threads the number of threads.
+     * @since Ant 1.9.5
+     */
+    public void setThreads(int threads) {
+        myCopy.setThreads(threads);
+    }
+
     /**
      * A container for patterns and selectors that can be used to
      * specify files that should be kept in the target even if they
@@ -48,6 +48,7 @@ import org.apache.tools.ant.util.MergingMapper;
 import org.apache.tools.ant.util.ResourceUtils;
 import org.apache.tools.ant.util.SourceFileScanner;
 import org.apache.tools.bzip2.CBZip2OutputStream;
+import org.apache.tools.bzip2.ParallelBZip2OutputStream;
 import org.apache.tools.tar.TarConstants;
 import org.apache.tools.tar.TarEntry;
 import org.apache.tools.tar.TarOutputStream;
@@ -116,6 +117,8 @@ public class Tar extends MatchingTask {
 
     private TarCompressionMethod compression = new TarCompressionMethod();
 
+    private int threads = 1;
+
     /**
      * Add a new fileset with the option to specify permissions
      * @return the tar fileset to be used as the nested element.
@@ -222,6 +225,20 @@ public class Tar extends MatchingTask {
         this.compression = mode;
     }
 
+    /**
+     * Number of threads used to compress the archive in parallel.
+     *
+     * <p>Only used for bzip2 compression, defaults to 1.</p>
+     * @param threads the number of threads.
+     * @since Ant 1.9.5
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new BuildException("threads must be a positive number");
+        }
+        this.threads = threads;
+    }
+
     /**
      * do the business
      * @throws BuildException on error
@@ -294,7 +311,7 @@ public class Tar extends MatchingTask {
                 tOut = new TarOutputStream(
                     compression.compress(
                         new BufferedOutputStream(
-                            new FileOutputStream(tarFile))));
+                            new FileOutputStream(tarFile)), threads));
                 tOut.setDebug(true);
                 if (longFileMode.isTruncateMode()) {
                     tOut.setLongFileMode(TarOutputStream.LONGFILE_TRUNCATE);
@@ -953,10 +970,12 @@ public class Tar extends MatchingTask {
          *     corresponding compression method
          *
          *  @param ostream output stream
+         *  @param threads number of threads used for bzip2 compression
          *  @return output stream with on-the-fly compression
          *  @exception IOException thrown if file is not writable
          */
-        private OutputStream compress(final OutputStream ostream)
+        private OutputStream compress(final OutputStream ostream,
+                                      final int threads)
             throws IOException {
             final String v = getValue();
             if (GZIP.equals(v)) {
@@ -965,6 +984,10 @@ public class Tar extends MatchingTask {
                 if (BZIP2.equals(v)) {
                     ostream.write('B');
                     ostream.write('Z');
+                    if (threads > 1) {
+                        return new ParallelBZip2OutputStream(ostream,
+                            CBZip2OutputStream.MAX_BLOCKSIZE, threads);
+                    }
                     return new CBZip2OutputStream(ostream);
                 }
             }
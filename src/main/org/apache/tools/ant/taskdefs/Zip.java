@@ -163,6 +163,12 @@ public class Zip extends MatchingTask {
      */
     private boolean addingNewFiles = false;
 
+    /**
+     * Whether entries are added to the existing archive instead of
+     * rewriting it.
+     */
+    private boolean appending = false;
+
     /**
      * Encoding to use for filenames, defaults to the platform's
      * default encoding.
@@ -229,6 +235,13 @@ public class Zip extends MatchingTask {
      */
     private Zip64ModeAttribute zip64Mode = Zip64ModeAttribute.AS_NEEDED;
 
+    /**
+     * Number of threads compressing entries.
+     *
+     * @since Ant 1.9.5
+     */
+    private int threads = 1;
+
     /**
      * This is the name/location of where to
      * create the .zip file.
@@ -577,6 +590,30 @@ public class Zip extends MatchingTask {
         return zip64Mode;
     }
 
+    /**
+     * Number of threads used to compress entries in parallel.
+     *
+     * <p>The archive created is the same as the one created by a
+     * single thread.  Default is 1.</p>
+     * @param threads the number of threads.
+     * @since Ant 1.9.5
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new BuildException("threads must be a positive number");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Number of threads used to compress entries in parallel.
+     * @return the number of threads.
+     * @since Ant 1.9.5
+     */
+    public int getThreads() {
+        return threads;
+    }
+
     /**
      * validate and build
      * @throws BuildException on error
@@ -658,7 +695,9 @@ public class Zip extends MatchingTask {
             }
             Resource[][] addThem = state.getResourcesToAdd();
 
-            if (doUpdate) {
+            appending = doUpdate && !skipWriting && canUpdateInPlace()
+                && canAppend(fss, addThem);
+            if (doUpdate && !appending) {
                 renamedFile = renameFile();
             }
 
@@ -671,7 +710,7 @@ public class Zip extends MatchingTask {
             ZipOutputStream zOut = null;
             try {
                 if (!skipWriting) {
-                    zOut = new ZipOutputStream(zipFile);
+                    zOut = new ZipOutputStream(zipFile, appending);
 
                     zOut.setEncoding(encoding);
                     zOut.setUseLanguageEncodingFlag(useLanguageEncodingFlag);
@@ -682,6 +721,7 @@ public class Zip extends MatchingTask {
                         ? ZipOutputStream.DEFLATED : ZipOutputStream.STORED);
                     zOut.setLevel(level);
                     zOut.setUseZip64(zip64Mode.getMode());
+                    zOut.setThreads(threads);
                 }
                 initZipOutputStream(zOut);
 
@@ -692,7 +732,7 @@ public class Zip extends MatchingTask {
                     }
                 }
 
-                if (doUpdate) {
+                if (doUpdate && !appending) {
                     addingNewFiles = false;
                     ZipFileSet oldFiles = new ZipFileSet();
                     oldFiles.setProject(getProject());
@@ -734,7 +774,7 @@ public class Zip extends MatchingTask {
 
                 // If we've been successful on an update, delete the
                 // temporary file
-                if (doUpdate) {
+                if (renamedFile != null) {
                     if (!renamedFile.delete()) {
                         log ("Warning: unable to delete temporary file "
                             + renamedFile.getName(), Project.MSG_WARN);
@@ -790,12 +830,85 @@ public class Zip extends MatchingTask {
         return renamedFile;
     }
 
+    /**
+     * Whether an archive can be updated by adding entries to the
+     * existing file rather than rewriting it.
+     *
+     * <p>Subclasses that need to see all entries of the archive
+     * while writing it must return false.</p>
+     *
+     * @return true in this implementation.
+     * @since Ant 1.9.5
+     */
+    protected boolean canUpdateInPlace() {
+        return true;
+    }
+
+    /**
+     * Whether the new entries can be added to the existing archive
+     * rather than rewriting it.
+     *
+     * <p>Only possible if none of the existing entries gets replaced
+     * - the old local headers would remain inside the archive and
+     * tools reading it as a stream would see both versions.  If the
+     * archive can be appended to, its directory entries are recorded
+     * as already added so they don't get added a second time.</p>
+     */
+    private boolean canAppend(ResourceCollection[] rcs,
+                              Resource[][] addThem) {
+        ZipFile zf = null;
+        try {
+            zf = new ZipFile(zipFile, encoding);
+            for (int i = 0; i < rcs.length; i++) {
+                String prefix = "";
+                String fullpath = "";
+                if (rcs[i] instanceof ArchiveFileSet) {
+                    ArchiveFileSet afs = (ArchiveFileSet) rcs[i];
+                    prefix = afs.getPrefix(getProject());
+                    fullpath = afs.getFullpath(getProject());
+                    if (prefix.length() > 0 && !prefix.endsWith("/")
+                        && !prefix.endsWith("\\")) {
+                        prefix += "/";
+                    }
+                }
+                for (int j = 0; j < addThem[i].length; j++) {
+                    String name = fullpath.length() > 0 ? fullpath
+                        : prefix + addThem[i][j].getName();
+                    ZipEntry old =
+                        zf.getEntry(name.replace(File.separatorChar, '/'));
+                    if (old != null && !old.isDirectory()) {
+                        return false;
+                    }
+                }
+            }
+            for (Enumeration<ZipEntry> e = zf.getEntries();
+                 e.hasMoreElements();) {
+                ZipEntry ze = e.nextElement();
+                if (ze.isDirectory()) {
+                    addedDirs.put(ze.getName(), ze.getName());
+                }
+            }
+            return true;
+        } catch (IOException ex) {
+            log("Can't read " + zipFile + ", rewriting it: " + ex,
+                Project.MSG_VERBOSE);
+            return false;
+        } finally {
+            ZipFile.closeQuietly(zf);
+        }
+    }
+
     /** Close zout */
     private void closeZout(ZipOutputStream zOut, boolean success)
         throws IOException {
         if (zOut == null) {
             return;
         }
+        if (!success && appending) {
+            // leave the original archive intact
+            zOut.cancel();
+            return;
+        }
         try {
             zOut.close();
         } catch (IOException ex) {
@@ -1053,7 +1166,10 @@ public class Zip extends MatchingTask {
                 }
                 InputStream is = null;
                 try {
-                    is = zf.getInputStream(ze);
+                    // entries are copied as they are unless they
+                    // need to be compressed with a specific level
+                    is = new ArchiveEntryStream(zf, ze, !addingNewFiles
+                        || level == ZipOutputStream.DEFAULT_COMPRESSION);
                     zipFile(is, zOut, prefix + name, ze.getTime(),
                             fromArchive, mode, ze.getExtraFields(true));
                 } finally {
@@ -1842,6 +1958,13 @@ public class Zip extends MatchingTask {
                 ze.setExtraFields(extra);
             }
 
+            if (in instanceof ArchiveEntryStream
+                && ((ArchiveEntryStream) in).canCopyRaw(doCompress)) {
+                ((ArchiveEntryStream) in).copyRaw(ze, zOut);
+                addedFiles.addElement(vPath);
+                return;
+            }
+
             zOut.putNextEntry(ze);
 
             byte[] buffer = new byte[BUFFER_SIZE];
@@ -1975,6 +2098,7 @@ public class Zip extends MatchingTask {
         addedFiles.removeAllElements();
         entries.clear();
         addingNewFiles = false;
+        appending = false;
         doUpdate = savedDoUpdate;
         Enumeration<ZipFileSet> e = filesetsFromGroupfilesets.elements();
         while (e.hasMoreElements()) {
@@ -2263,4 +2387,74 @@ public class Zip extends MatchingTask {
         }
 
     }
- }
+
+    /**
+     * Reads an entry of an archive, the entry is only uncompressed if
+     * the stream is actually read, so its data can be copied as is
+     * instead.
+     */
+    private static final class ArchiveEntryStream extends InputStream {
+        private final ZipFile zf;
+        private final ZipEntry entry;
+        private final boolean allowRaw;
+        private InputStream in;
+
+        ArchiveEntryStream(ZipFile zf, ZipEntry entry, boolean allowRaw) {
+            this.zf = zf;
+            this.entry = entry;
+            this.allowRaw = allowRaw;
+        }
+
+        /**
+         * Whether the compressed data can be copied to an archive
+         * that compresses its entries if asked to.
+         */
+        boolean canCopyRaw(boolean compress) {
+            return allowRaw && compress && in == null
+                && entry.getMethod() == ZipEntry.DEFLATED
+                && zf.canReadEntryData(entry);
+        }
+
+        /**
+         * Adds the entry's compressed data using the name and
+         * attributes of the given entry.
+         */
+        void copyRaw(ZipEntry ze, ZipOutputStream zOut) throws IOException {
+            zOut.addRawEntry(ze, zf, entry);
+        }
+
+        private InputStream open() throws IOException {
+            if (in == null) {
+                in = zf.getInputStream(entry);
+            }
+            return in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return open().read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return open().read(b, off, len);
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            return open().skip(n);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return open().available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (in != null) {
+                in.close();
+            }
+        }
+    }
+}
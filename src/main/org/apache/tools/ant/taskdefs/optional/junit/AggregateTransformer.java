@@ -237,7 +237,11 @@ public class AggregateTransformer {
         xsltTask.setIn(((XMLResultAggregator) task).getDestinationFile());
         File outputFile = null;
         if (format.equals(FRAMES)) {
-            String tempFileProperty = getClass().getName() + String.valueOf(counter++);
+            String tempFileProperty;
+            // reports may run concurrently
+            synchronized (AggregateTransformer.class) {
+                tempFileProperty = getClass().getName() + String.valueOf(counter++);
+            }
             File tmp = FILE_UTILS.resolveFile(project.getBaseDir(), project
                     .getProperty("java.io.tmpdir"));
             tempFileTask.setDestDir(tmp);
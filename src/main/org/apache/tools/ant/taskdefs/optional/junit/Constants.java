@@ -40,4 +40,6 @@ public class Constants {
     static final String SKIP_NON_TESTS = "skipNonTests=";
     /** @since Ant 1.9.4 */
     static final String THREADID="threadid=";
+    /** @since Ant 1.9.5 */
+    static final String TESTQUEUE = "testqueue=";
 }
@@ -33,6 +33,8 @@ import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Hashtable;
@@ -59,8 +61,13 @@ import org.apache.tools.ant.types.Path;
 import org.apache.tools.ant.types.Permissions;
 import org.apache.tools.ant.types.PropertySet;
 import org.apache.tools.ant.util.FileUtils;
+import org.apache.tools.ant.util.JAXPUtils;
 import org.apache.tools.ant.util.LoaderUtils;
 import org.apache.tools.ant.util.SplitClassLoader;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
 
 /**
  * Runs JUnit tests.
@@ -181,6 +188,9 @@ public class JUnitTask extends Task {
     private boolean filterTrace = true;
     private boolean fork        = false;
     private int     threads     = 1;
+
+    private boolean workQueue = false;
+    private File historyDir = null;
     private String  failureProperty;
     private String  errorProperty;
 
@@ -339,6 +349,38 @@ public class JUnitTask extends Task {
         }
     }
 
+    /**
+     * Whether the tests that share a forked VM should be pulled from
+     * a shared queue.
+     *
+     * <p>Only has an effect if <code>threads</code> is bigger than
+     * one and forkMode is either perBatch or once.  Instead of running
+     * a single VM per batch, as many VMs as there are threads are
+     * started and each of them asks for the next test whenever it has
+     * finished the previous one.</p>
+     *
+     * @param b boolean
+     * @since Ant 1.9.5
+     */
+    public void setWorkQueue(boolean b) {
+        workQueue = b;
+    }
+
+    /**
+     * Directory holding the XML results of a previous run.
+     *
+     * <p>If set, the tests that are pulled from a shared queue are
+     * sorted by the times recorded in the results so the longest
+     * running tests start first.  Tests without a result are started
+     * before all others.</p>
+     *
+     * @param dir the directory
+     * @since Ant 1.9.5
+     */
+    public void setHistoryDir(File dir) {
+        historyDir = dir;
+    }
+
     /**
      * If true, print one-line statistics for each test, or "withOutAndErr"
      * to also show standard output and error.
@@ -789,7 +831,10 @@ public class JUnitTask extends Task {
                                          "JUnitTestRunner",
                                          "JUnitVersionHelper",
                                          "OutErrSummaryJUnitResultFormatter",
+                                         "OutputSpool",
                                          "PlainJUnitResultFormatter",
+                                         "SpooledOutputFormatter",
+                                         "StreamingXMLJUnitResultFormatter",
                                          "SummaryJUnitResultFormatter",
                                          "TearDownOnVmCrash",
                                          "XMLJUnitResultFormatter",
@@ -837,13 +882,173 @@ public class JUnitTask extends Task {
         }
 
         try {
-            /* prior to parallel the code in 'oneJunitThread' used to be here. */
-            runTestsInThreads(testLists, threads);
+            if (workQueue && fork && this.threads > 1 && !forkPerTest) {
+                runTestsFromQueues(testLists);
+            } else {
+                /* prior to parallel the code in 'oneJunitThread' used to be here. */
+                runTestsInThreads(testLists, threads);
+            }
         } finally {
             cleanup();
         }
     }
 
+    /*
+     * Runs each list of tests that share the same VM configuration
+     * in several VMs at once, each VM pulling the next test from a
+     * TestQueue when it is ready.
+     */
+    private void runTestsFromQueues(List testLists) {
+        Iterator iter = testLists.iterator();
+        while (iter.hasNext()) {
+            List l = (List) iter.next();
+            JUnitTest first = (JUnitTest) l.get(0);
+            if (l.size() == 1 || !first.getFork()) {
+                Iterator tests = l.iterator();
+                while (tests.hasNext()) {
+                    execute((JUnitTest) tests.next(), 0);
+                }
+            } else {
+                executeFromQueue(l);
+            }
+        }
+    }
+
+    private void executeFromQueue(List testList) {
+        List specs = new ArrayList();
+        log("Queueing tests:", Project.MSG_VERBOSE);
+        Iterator iter = sortByHistory(testList).iterator();
+        while (iter.hasNext()) {
+            String spec = getTestSpec((JUnitTest) iter.next());
+            log(spec, Project.MSG_VERBOSE);
+            specs.add(spec);
+        }
+        final TestQueue queue = new TestQueue(specs);
+        final int port;
+        try {
+            port = queue.start();
+        } catch (IOException e) {
+            throw new BuildException("Unable to create test queue", e,
+                                     getLocation());
+        }
+
+        // the last test of the list is used to report crashes just
+        // like execute(List) does
+        final JUnitTest last = (JUnitTest) testList.get(testList.size() - 1);
+        final int numThreads = Math.min(threads, testList.size());
+        final BuildException[] failures = new BuildException[numThreads];
+        Thread[] vms = new Thread[numThreads];
+        try {
+            for (int i = 0; i < numThreads; i++) {
+                final int id = i + 1;
+                vms[i] = new Thread(new Runnable() {
+                        public void run() {
+                            try {
+                                JUnitTest test = (JUnitTest) last.clone();
+                                test.setThread(id);
+                                log("Starting test VM " + id, Project.MSG_VERBOSE);
+                                TestResultHolder result =
+                                    executeAsForked(test, createWatchdog(), null, port);
+                                actOnTestResult(result, test, "Tests");
+                            } catch (BuildException e) {
+                                /* don't start any new tests */
+                                failures[id - 1] = e;
+                                queue.stop();
+                            }
+                        }
+                    });
+                vms[i].start();
+            }
+            for (int i = 0; i < numThreads; i++) {
+                boolean interrupted;
+                do {
+                    interrupted = false;
+                    try {
+                        vms[i].join();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                } while (interrupted);
+            }
+        } finally {
+            queue.close();
+        }
+        for (int i = 0; i < numThreads; i++) {
+            if (failures[i] != null) {
+                throw failures[i];
+            }
+        }
+    }
+
+    /*
+     * Sorts the tests by the time they took according to the results
+     * found in historyDir, longest first.  Tests without a result
+     * come first and keep their order.
+     */
+    private List sortByHistory(List testList) {
+        if (historyDir == null) {
+            return testList;
+        }
+        final Map times = new HashMap();
+        Iterator iter = testList.iterator();
+        while (iter.hasNext()) {
+            JUnitTest test = (JUnitTest) iter.next();
+            String base = test.getOutfile() != null ? test.getOutfile()
+                : "TEST-" + test.getName();
+            times.put(test, new Double(readTime(new File(historyDir, base + ".xml"))));
+        }
+        List sorted = new ArrayList(testList);
+        Collections.sort(sorted, new Comparator() {
+                public int compare(Object o1, Object o2) {
+                    double t1 = ((Double) times.get(o1)).doubleValue();
+                    double t2 = ((Double) times.get(o2)).doubleValue();
+                    if (t1 < 0 || t2 < 0) {
+                        // unknown sorts first
+                        return t1 < 0 ? (t2 < 0 ? 0 : -1) : 1;
+                    }
+                    return Double.compare(t2, t1);
+                }
+            });
+        return sorted;
+    }
+
+    /*
+     * Reads the time attribute of the root element of an XML result
+     * without parsing the rest of the file.
+     * @return -1 if the file doesn't exist or can't be parsed
+     */
+    private double readTime(File result) {
+        if (!result.isFile()) {
+            return -1;
+        }
+        final String[] time = new String[1];
+        try {
+            XMLReader reader = JAXPUtils.getXMLReader();
+            reader.setContentHandler(new DefaultHandler() {
+                    public void startElement(String uri, String localName,
+                                             String qName, Attributes atts)
+                        throws SAXException {
+                        time[0] = atts.getValue(XMLConstants.ATTR_TIME);
+                        // not interested in anything else
+                        throw new SAXException("root element has been read");
+                    }
+                });
+            reader.parse(JAXPUtils.getSystemId(result));
+        } catch (SAXException e) {
+            // expected
+        } catch (IOException e) {
+            log("Unable to read " + result + ": " + e, Project.MSG_VERBOSE);
+        }
+        if (time[0] != null) {
+            try {
+                return Double.parseDouble(time[0]);
+            } catch (NumberFormatException e) {
+                // treat as unknown
+            }
+        }
+        return -1;
+    }
+
     /*
      * When the list of tests is established, an array of threads is created to pick the
      * tests off the list one at a time and execute them until the list is empty.  Tests are
@@ -1072,23 +1277,7 @@ public class JUnitTask extends Task {
             while (iter.hasNext()) {
                 test = (JUnitTest) iter.next();
                 test.setThread(thread);
-                printDual(writer, logWriter, test.getName());
-                if (test.getMethods() != null) {
-                    printDual(writer, logWriter, ":" + test.getMethodsString().replace(',', '+'));
-                }
-                if (test.getTodir() == null) {
-                    printDual(writer, logWriter,
-                              "," + getProject().resolveFile("."));
-                } else {
-                    printDual(writer, logWriter, "," + test.getTodir());
-                }
-
-                if (test.getOutfile() == null) {
-                    printlnDual(writer, logWriter,
-                                "," + "TEST-" + test.getName());
-                } else {
-                    printlnDual(writer, logWriter, "," + test.getOutfile());
-                }
+                printlnDual(writer, logWriter, getTestSpec(test));
             }
             writer.flush();
             writer.close();
@@ -1122,6 +1311,22 @@ public class JUnitTask extends Task {
         execute(testList, 0);
     }
 
+    /**
+     * The line describing a test in the file or queue read by a
+     * forked runner that runs multiple tests.
+     */
+    private String getTestSpec(JUnitTest test) {
+        StringBuffer sb = new StringBuffer(test.getName());
+        if (test.getMethods() != null) {
+            sb.append(':').append(test.getMethodsString().replace(',', '+'));
+        }
+        sb.append(',').append(test.getTodir() == null
+                              ? getProject().resolveFile(".") : test.getTodir());
+        sb.append(',').append(test.getOutfile() == null
+                              ? "TEST-" + test.getName() : test.getOutfile());
+        return sb.toString();
+    }
+
     /**
      * Execute a testcase by forking a new JVM. The command will block
      * until it finishes. To know if the process was destroyed or not
@@ -1141,6 +1346,20 @@ public class JUnitTask extends Task {
                                              ExecuteWatchdog watchdog,
                                              File casesFile)
         throws BuildException {
+        return executeAsForked(test, watchdog, casesFile, -1);
+    }
+
+    /**
+     * Execute a testcase by forking a new JVM.
+     * @param queuePort port of the {@link TestQueue} the VM should
+     * pull tests from, -1 if there is none.
+     * @see #executeAsForked(JUnitTest, ExecuteWatchdog, File)
+     */
+    private TestResultHolder executeAsForked(JUnitTest test,
+                                             ExecuteWatchdog watchdog,
+                                             File casesFile,
+                                             int queuePort)
+        throws BuildException {
 
         if (perm != null) {
             log("Permissions ignored when running in forked mode!",
@@ -1153,7 +1372,11 @@ public class JUnitTask extends Task {
         } catch (CloneNotSupportedException e) {
             throw new BuildException("This shouldn't happen", e, getLocation());
         }
-        if (casesFile == null) {
+        if (queuePort >= 0) {
+            log("Running tests from a shared queue in the same VM",
+                Project.MSG_VERBOSE);
+            cmd.createArgument().setValue(Constants.TESTQUEUE + queuePort);
+        } else if (casesFile == null) {
             cmd.createArgument().setValue(test.getName());
             if (test.getMethods() != null) {
                 cmd.createArgument().setValue(Constants.METHOD_NAMES + test.getMethodsString());
@@ -1281,7 +1504,7 @@ public class JUnitTask extends Task {
             boolean crash = (watchdog != null && watchdog.killedProcess())
                 || !Constants.TERMINATED_SUCCESSFULLY.equals(vmCrashString);
 
-            if (casesFile != null && crash) {
+            if ((casesFile != null || queuePort >= 0) && crash) {
                 test = createDummyTestForBatchTest(test);
             }
 
@@ -2257,12 +2480,6 @@ public class JUnitTask extends Task {
         return t;
     }
 
-    private static void printDual(BufferedWriter w, PrintStream s, String text)
-        throws IOException {
-        w.write(String.valueOf(text));
-        s.print(text);
-    }
-
     private static void printlnDual(BufferedWriter w, PrintStream s, String text)
         throws IOException {
         w.write(String.valueOf(text));
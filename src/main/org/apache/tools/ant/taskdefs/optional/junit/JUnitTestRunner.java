@@ -20,17 +20,22 @@ package org.apache.tools.ant.taskdefs.optional.junit;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintStream;
+import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.net.InetAddress;
+import java.net.Socket;
 import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.Properties;
@@ -317,8 +322,7 @@ public class JUnitTestRunner implements TestListener, JUnitTaskMirror.JUnitTestR
         return new PrintStream(new TeeOutputStream(ps1, ps2));
     }
 
-    private void setupIOStreams(ByteArrayOutputStream o,
-                                ByteArrayOutputStream e) {
+    private void setupIOStreams(OutputStream o, OutputStream e) {
         systemOut = new PrintStream(o);
         systemError = new PrintStream(e);
 
@@ -360,8 +364,8 @@ public class JUnitTestRunner implements TestListener, JUnitTaskMirror.JUnitTestR
             res.addListener(wrapListener((TestListener) formatters.elementAt(i)));
         }
 
-        ByteArrayOutputStream errStrm = new ByteArrayOutputStream();
-        ByteArrayOutputStream outStrm = new ByteArrayOutputStream();
+        OutputSpool errStrm = new OutputSpool();
+        OutputSpool outStrm = new OutputSpool();
 
         setupIOStreams(outStrm, errStrm);
 
@@ -558,19 +562,10 @@ public class JUnitTestRunner implements TestListener, JUnitTaskMirror.JUnitTestR
             systemOut.close();
             systemOut = null;
             if (startTestSuiteSuccess) {
-                String out, err;
-                try {
-                    out = new String(outStrm.toByteArray());
-                } catch (OutOfMemoryError ex) {
-                    out = "out of memory on output stream";
-                }
-                try {
-                    err = new String(errStrm.toByteArray());
-                } catch (OutOfMemoryError ex) {
-                    err = "out of memory on error stream";
-                }
-                sendOutAndErr(out, err);
+                sendOutAndErr(outStrm, errStrm);
             }
+            outStrm.delete();
+            errStrm.delete();
         }
         fireEndTestSuite();
 
@@ -815,17 +810,60 @@ public class JUnitTestRunner implements TestListener, JUnitTaskMirror.JUnitTestR
         }
     }
 
-    private void sendOutAndErr(String out, String err) {
+    private void sendOutAndErr(OutputSpool outStrm, OutputSpool errStrm) {
+        String out = null, err = null;
         final int size = formatters.size();
         for (int i = 0; i < size; i++) {
             JUnitResultFormatter formatter =
                 ((JUnitResultFormatter) formatters.elementAt(i));
 
+            if (formatter instanceof SpooledOutputFormatter) {
+                SpooledOutputFormatter s = (SpooledOutputFormatter) formatter;
+                Reader r = openReader(outStrm);
+                if (r != null) {
+                    try {
+                        s.setSystemOutput(r);
+                    } finally {
+                        FileUtils.close(r);
+                    }
+                }
+                r = openReader(errStrm);
+                if (r != null) {
+                    try {
+                        s.setSystemError(r);
+                    } finally {
+                        FileUtils.close(r);
+                    }
+                }
+                continue;
+            }
+            if (out == null) {
+                try {
+                    out = outStrm.toString();
+                } catch (OutOfMemoryError ex) {
+                    out = "out of memory on output stream";
+                }
+                try {
+                    err = errStrm.toString();
+                } catch (OutOfMemoryError ex) {
+                    err = "out of memory on error stream";
+                }
+            }
             formatter.setSystemOutput(out);
             formatter.setSystemError(err);
         }
     }
 
+    private static Reader openReader(OutputSpool spool) {
+        try {
+            return spool.openReader();
+        } catch (IOException ex) {
+            return new StringReader("unable to read output: " + ex.getMessage());
+        } catch (OutOfMemoryError ex) {
+            return null;
+        }
+    }
+
     private void fireStartTestSuite() {
         final int size = formatters.size();
         for (int i = 0; i < size; i++) {
@@ -906,9 +944,13 @@ public class JUnitTestRunner implements TestListener, JUnitTaskMirror.JUnitTestR
             System.exit(ERRORS);
         }
 
+        int queuePort = -1;
         if (args[0].startsWith(Constants.TESTSFILE)) {
             multipleTests = true;
             args[0] = args[0].substring(Constants.TESTSFILE.length());
+        } else if (args[0].startsWith(Constants.TESTQUEUE)) {
+            multipleTests = true;
+            queuePort = Integer.parseInt(args[0].substring(Constants.TESTQUEUE.length()));
         }
 
         for (int i = 1; i < args.length; i++) {
@@ -969,16 +1011,28 @@ public class JUnitTestRunner implements TestListener, JUnitTaskMirror.JUnitTestR
 
         int returnCode = SUCCESS;
         if (multipleTests) {
+            Socket queue = null;
             try {
-                java.io.BufferedReader reader =
-                    new java.io.BufferedReader(new java.io.FileReader(args[0]));
+                java.io.BufferedReader reader;
+                Writer requests = null;
+                if (queuePort >= 0) {
+                    queue = new Socket(InetAddress.getByName(null), queuePort);
+                    reader = new java.io.BufferedReader(
+                        new InputStreamReader(queue.getInputStream(),
+                                              TestQueue.ENCODING));
+                    requests = new OutputStreamWriter(queue.getOutputStream(),
+                                                      TestQueue.ENCODING);
+                } else {
+                    reader =
+                        new java.io.BufferedReader(new java.io.FileReader(args[0]));
+                }
                 String testCaseName;
                 String[] testMethodNames;
                 int code = 0;
                 boolean errorOccurred = false;
                 boolean failureOccurred = false;
                 String line = null;
-                while ((line = reader.readLine()) != null) {
+                while ((line = nextTest(reader, requests)) != null) {
                     StringTokenizer st = new StringTokenizer(line, ",");
                     String testListSpec = st.nextToken();
                     int colonIndex = testListSpec.indexOf(':');
@@ -1021,6 +1075,10 @@ public class JUnitTestRunner implements TestListener, JUnitTaskMirror.JUnitTestR
                 }
             } catch (IOException e) {
                 e.printStackTrace();
+            } finally {
+                if (queue != null) {
+                    queue.close();
+                }
             }
         } else {
             JUnitTest t = new JUnitTest(args[0]);
@@ -1036,6 +1094,23 @@ public class JUnitTestRunner implements TestListener, JUnitTaskMirror.JUnitTestR
         System.exit(returnCode);
     }
 
+    /**
+     * Reads the next line of the tests file or asks the task for the
+     * next test if the tests are served by a {@link TestQueue}.
+     * @return null if there are no more tests
+     */
+    private static String nextTest(BufferedReader reader, Writer requests)
+        throws IOException {
+        if (requests == null) {
+            return reader.readLine();
+        }
+        requests.write(TestQueue.NEXT);
+        requests.write('\n');
+        requests.flush();
+        String line = reader.readLine();
+        return line == null || line.length() == 0 ? null : line;
+    }
+
     private static Vector fromCmdLine = new Vector();
 
     private static void transferFormatters(JUnitTestRunner runner,
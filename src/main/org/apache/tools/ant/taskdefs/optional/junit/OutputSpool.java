@@ -0,0 +1,130 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.tools.ant.taskdefs.optional.junit;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+
+import org.apache.tools.ant.util.FileUtils;
+
+/**
+ * Collects what the tests write to System.out or System.err.
+ *
+ * <p>Data is kept in memory until it exceeds a threshold and moved
+ * to a temporary file after that.</p>
+ *
+ * @since Ant 1.9.5
+ */
+class OutputSpool extends OutputStream {
+
+    private static final int THRESHOLD = 1024 * 1024;
+
+    private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+    private File file;
+    private OutputStream fileOut;
+
+    @Override
+    public synchronized void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int offset, int length)
+        throws IOException {
+        if (fileOut == null && memory == null) {
+            throw new IOException("spool has been deleted");
+        }
+        if (fileOut == null && memory.size() + length > THRESHOLD) {
+            file = FileUtils.getFileUtils()
+                .createTempFile("junit", ".out", null, true, true);
+            fileOut = new BufferedOutputStream(new FileOutputStream(file));
+            memory.writeTo(fileOut);
+            memory = null;
+        }
+        if (fileOut != null) {
+            fileOut.write(b, offset, length);
+        } else {
+            memory.write(b, offset, length);
+        }
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        if (fileOut != null) {
+            fileOut.flush();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (fileOut != null) {
+            fileOut.close();
+        }
+    }
+
+    /**
+     * The data collected decoded using the platform's default
+     * encoding, must only be invoked after the spool has been closed.
+     */
+    @Override
+    public String toString() {
+        if (file == null) {
+            return new String(memory.toByteArray());
+        }
+        Reader r = null;
+        try {
+            r = openReader();
+            return FileUtils.safeReadFully(r);
+        } catch (IOException ex) {
+            return "unable to read " + file + ": " + ex.getMessage();
+        } finally {
+            FileUtils.close(r);
+        }
+    }
+
+    /**
+     * Reads the data collected using the platform's default encoding,
+     * must only be invoked after the spool has been closed.
+     */
+    Reader openReader() throws IOException {
+        InputStream in = file != null ? new FileInputStream(file)
+            : new ByteArrayInputStream(memory.toByteArray());
+        return new InputStreamReader(in);
+    }
+
+    /**
+     * Releases the memory or temporary file held.
+     */
+    void delete() {
+        FileUtils.close(this);
+        memory = null;
+        if (file != null && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+}
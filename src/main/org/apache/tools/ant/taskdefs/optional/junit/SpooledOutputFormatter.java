@@ -0,0 +1,50 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.tools.ant.taskdefs.optional.junit;
+
+import java.io.Reader;
+
+/**
+ * Formatters implementing this interface receive what the tests have
+ * written to System.out and System.err as a Reader rather than a
+ * String.
+ *
+ * <p>{@link JUnitTestRunner} collects the output in temporary files
+ * once it gets big, formatters implementing this interface can
+ * process it without ever holding all of it in memory.  The reader
+ * is only valid during the method call.  The String based methods
+ * of {@link JUnitResultFormatter} are not invoked for formatters
+ * implementing this interface.</p>
+ *
+ * @since Ant 1.9.5
+ */
+public interface SpooledOutputFormatter extends JUnitResultFormatter {
+
+    /**
+     * This is what the test has written to System.out
+     * @param out the output of the test.
+     */
+    void setSystemOutput(Reader out);
+
+    /**
+     * This is what the test has written to System.err
+     * @param err the output of the test.
+     */
+    void setSystemError(Reader err);
+}
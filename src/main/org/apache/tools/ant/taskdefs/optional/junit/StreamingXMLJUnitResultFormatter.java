@@ -0,0 +1,460 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.tools.ant.taskdefs.optional.junit;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import junit.framework.AssertionFailedError;
+import junit.framework.Test;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.util.DOMElementWriter;
+import org.apache.tools.ant.util.DateUtils;
+import org.apache.tools.ant.util.FileUtils;
+import org.apache.tools.ant.util.StringUtils;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Prints XML output of the test to a specified Writer without
+ * holding the whole testsuite in memory.
+ *
+ * <p>Creates the same document as {@link XMLJUnitResultFormatter}
+ * but writes each testcase to a temporary file as soon as it is
+ * complete and receives the output of the tests via {@link
+ * SpooledOutputFormatter}.  The temporary file gets copied to the
+ * real destination once the testsuite has finished.</p>
+ *
+ * @see FormatterElement
+ * @since Ant 1.9.5
+ */
+public class StreamingXMLJUnitResultFormatter
+    implements SpooledOutputFormatter, XMLConstants, IgnoredTestListener {
+
+    private static final double ONE_SECOND = 1000.0;
+
+    /** constant for unnnamed testsuites/cases */
+    private static final String UNKNOWN = "unknown";
+
+    private static final String INDENT = "  ";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static DocumentBuilder getDocumentBuilder() {
+        try {
+            return DocumentBuilderFactory.newInstance().newDocumentBuilder();
+        } catch (Exception exc) {
+            throw new ExceptionInInitializerError(exc);
+        }
+    }
+
+    private final DOMElementWriter domWriter = new DOMElementWriter();
+
+    /**
+     * The XML document used to create the elements.
+     */
+    private Document doc;
+    /**
+     * The wrapper for the whole testsuite, never holds any children.
+     */
+    private Element rootElement;
+    /**
+     * The properties of the testsuite.
+     */
+    private Element propsElement;
+    /**
+     * Element for the tests that have not been written, yet.
+     *
+     * <p>Tests are keyed by caseName(className) just like {@link
+     * XMLJUnitResultFormatter} does.</p>
+     */
+    private Map<String, Element> testElements =
+        new LinkedHashMap<String, Element>();
+    /**
+     * Tests that failed, were skipped or ignored and have not been
+     * written, yet.
+     */
+    private Set<String> reportedTests = new HashSet<String>();
+    /**
+     * Timing helper.
+     */
+    private Hashtable<String, Long> testStarts = new Hashtable<String, Long>();
+    /**
+     * Temporary file holding the children of the testsuite element.
+     */
+    private File bodyFile;
+    private Writer body;
+    /**
+     * Where to write the log to.
+     */
+    private OutputStream out;
+
+    /** No arg constructor. */
+    public StreamingXMLJUnitResultFormatter() {
+    }
+
+    /** {@inheritDoc}. */
+    public void setOutput(OutputStream out) {
+        this.out = out;
+    }
+
+    /** {@inheritDoc}. */
+    public void setSystemOutput(String out) {
+        setSystemOutput(new StringReader(out));
+    }
+
+    /** {@inheritDoc}. */
+    public void setSystemError(String out) {
+        setSystemError(new StringReader(out));
+    }
+
+    /** {@inheritDoc}. */
+    public void setSystemOutput(Reader out) {
+        formatOutput(SYSTEM_OUT, out);
+    }
+
+    /** {@inheritDoc}. */
+    public void setSystemError(Reader out) {
+        formatOutput(SYSTEM_ERR, out);
+    }
+
+    /**
+     * The whole testsuite started.
+     * @param suite the testsuite.
+     */
+    public void startTestSuite(JUnitTest suite) {
+        doc = getDocumentBuilder().newDocument();
+        rootElement = doc.createElement(TESTSUITE);
+        String n = suite.getName();
+        rootElement.setAttribute(ATTR_NAME, n == null ? UNKNOWN : n);
+
+        //add the timestamp
+        final String timestamp = DateUtils.format(new Date(),
+                DateUtils.ISO8601_DATETIME_PATTERN);
+        rootElement.setAttribute(TIMESTAMP, timestamp);
+        //and the hostname.
+        rootElement.setAttribute(HOSTNAME, getHostname());
+
+        // Output properties
+        propsElement = doc.createElement(PROPERTIES);
+        Properties props = suite.getProperties();
+        if (props != null) {
+            Enumeration<?> e = props.propertyNames();
+            while (e.hasMoreElements()) {
+                String name = (String) e.nextElement();
+                Element propElement = doc.createElement(PROPERTY);
+                propElement.setAttribute(ATTR_NAME, name);
+                propElement.setAttribute(ATTR_VALUE, props.getProperty(name));
+                propsElement.appendChild(propElement);
+            }
+        }
+
+        try {
+            bodyFile = FileUtils.getFileUtils()
+                .createTempFile("junit", ".xml", null, true, true);
+            body = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(bodyFile), "UTF8"));
+        } catch (IOException exc) {
+            throw new BuildException("Unable to create temporary file", exc);
+        }
+    }
+
+    /**
+     * get the local hostname
+     * @return the name of the local host, or "localhost" if we cannot work it out
+     */
+    private String getHostname()  {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "localhost";
+        }
+    }
+
+    /**
+     * The whole testsuite ended.
+     * @param suite the testsuite.
+     * @throws BuildException on error.
+     */
+    public void endTestSuite(JUnitTest suite) throws BuildException {
+        rootElement.setAttribute(ATTR_TESTS, "" + suite.runCount());
+        rootElement.setAttribute(ATTR_FAILURES, "" + suite.failureCount());
+        rootElement.setAttribute(ATTR_ERRORS, "" + suite.errorCount());
+        rootElement.setAttribute(ATTR_SKIPPED, "" + suite.skipCount());
+        rootElement.setAttribute(
+            ATTR_TIME, "" + (suite.getRunTime() / ONE_SECOND));
+        Writer wri = null;
+        InputStream in = null;
+        try {
+            writePendingTests();
+            body.close();
+            if (out != null) {
+                wri = new BufferedWriter(new OutputStreamWriter(out, "UTF8"));
+                wri.write("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n");
+                domWriter.openElement(rootElement, wri, 0, INDENT, true);
+                wri.write(StringUtils.LINE_SEP);
+                domWriter.write(propsElement, wri, 1, INDENT);
+                wri.flush();
+                in = new FileInputStream(bodyFile);
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+                domWriter.closeElement(rootElement, wri, 0, INDENT, true);
+            }
+        } catch (IOException exc) {
+            throw new BuildException("Unable to write log file", exc);
+        } finally {
+            FileUtils.close(in);
+            if (wri != null) {
+                try {
+                    wri.flush();
+                } catch (IOException ex) {
+                    // ignore
+                }
+            }
+            if (out != System.out && out != System.err) {
+                FileUtils.close(wri);
+            }
+            FileUtils.close(body);
+            FileUtils.delete(bodyFile);
+        }
+    }
+
+    /**
+     * Interface TestListener.
+     *
+     * <p>A new Test is started.
+     * @param t the test.
+     */
+    public void startTest(Test t) {
+        testStarts.put(createDescription(t), System.currentTimeMillis());
+    }
+
+    private static String createDescription(Test test) throws BuildException {
+        return JUnitVersionHelper.getTestCaseName(test) + "("
+            + JUnitVersionHelper.getTestCaseClassName(test) + ")";
+    }
+
+    /**
+     * Interface TestListener.
+     *
+     * <p>A Test is finished.
+     * @param test the test.
+     */
+    public void endTest(Test test) {
+        String testDescription = createDescription(test);
+
+        // Fix for bug #5637 - if a junit.extensions.TestSetup is
+        // used and throws an exception during setUp then startTest
+        // would never have been called
+        if (!testStarts.containsKey(testDescription)) {
+            startTest(test);
+        }
+        Element currentTest = testElements.get(testDescription);
+        if (currentTest == null || !reportedTests.contains(testDescription)) {
+            // all other tests are complete once a new one shows up
+            writePendingTests();
+            currentTest = doc.createElement(TESTCASE);
+            String n = JUnitVersionHelper.getTestCaseName(test);
+            currentTest.setAttribute(ATTR_NAME,
+                                     n == null ? UNKNOWN : n);
+            // a TestSuite can contain Tests from multiple classes,
+            // even tests with the same name - disambiguate them.
+            currentTest.setAttribute(ATTR_CLASSNAME,
+                    JUnitVersionHelper.getTestCaseClassName(test));
+            testElements.put(testDescription, currentTest);
+        }
+
+        Long l = testStarts.get(testDescription);
+        currentTest.setAttribute(ATTR_TIME,
+            "" + ((System.currentTimeMillis() - l) / ONE_SECOND));
+    }
+
+    /**
+     * Interface TestListener for JUnit &lt;= 3.4.
+     *
+     * <p>A Test failed.
+     * @param test the test.
+     * @param t the exception.
+     */
+    public void addFailure(Test test, Throwable t) {
+        formatError(FAILURE, test, t);
+    }
+
+    /**
+     * Interface TestListener for JUnit &gt; 3.4.
+     *
+     * <p>A Test failed.
+     * @param test the test.
+     * @param t the assertion.
+     */
+    public void addFailure(Test test, AssertionFailedError t) {
+        addFailure(test, (Throwable) t);
+    }
+
+    /**
+     * Interface TestListener.
+     *
+     * <p>An error occurred while running the test.
+     * @param test the test.
+     * @param t the error.
+     */
+    public void addError(Test test, Throwable t) {
+        formatError(ERROR, test, t);
+    }
+
+    private void formatError(String type, Test test, Throwable t) {
+        Element nested = doc.createElement(type);
+        String message = t.getMessage();
+        if (message != null && message.length() > 0) {
+            nested.setAttribute(ATTR_MESSAGE, t.getMessage());
+        }
+        nested.setAttribute(ATTR_TYPE, t.getClass().getName());
+
+        String strace = JUnitTestRunner.getFilteredTrace(t);
+        nested.appendChild(doc.createTextNode(strace));
+        addToTest(test, nested);
+    }
+
+    private void formatOutput(String type, Reader output) {
+        Element nested = doc.createElement(type);
+        try {
+            writePendingTests();
+            domWriter.openElement(nested, body, 1, INDENT, true);
+            body.write("<![CDATA[");
+            char[] buffer = new char[BUFFER_SIZE];
+            int kept = 0;
+            int read;
+            while ((read = output.read(buffer, kept, buffer.length - kept))
+                   != -1) {
+                int len = kept + read;
+                // hold back trailing brackets so a "]]>" spanning two
+                // reads still gets encoded
+                int end = len;
+                while (end > 0 && len - end < 2 && buffer[end - 1] == ']') {
+                    end--;
+                }
+                domWriter.encodedata(body, new String(buffer, 0, end));
+                kept = len - end;
+                System.arraycopy(buffer, end, buffer, 0, kept);
+            }
+            domWriter.encodedata(body, new String(buffer, 0, kept));
+            body.write("]]>");
+            domWriter.closeElement(nested, body, 1, INDENT, false);
+        } catch (IOException exc) {
+            throw new BuildException("Unable to write log file", exc);
+        }
+    }
+
+    /**
+     * Interface IgnoredTestListener.
+     *
+     * <p>A Test has been ignored.
+     * @param test the test.
+     */
+    public void testIgnored(Test test) {
+        formatSkip(test, JUnitVersionHelper.getIgnoreMessage(test));
+    }
+
+    /**
+     * Adds a skipped element to the test or testsuite.
+     * @param test the test, may be null.
+     * @param message the reason the test has been skipped.
+     */
+    public void formatSkip(Test test, String message) {
+        Element nested = doc.createElement("skipped");
+
+        if (message != null) {
+            nested.setAttribute("message", message);
+        }
+        addToTest(test, nested);
+    }
+
+    /**
+     * Interface IgnoredTestListener.
+     *
+     * <p>An assumption of a Test has failed.
+     * @param test the test.
+     * @param failure the failed assumption.
+     */
+    public void testAssumptionFailure(Test test, Throwable failure) {
+        formatSkip(test, failure.getMessage());
+    }
+
+    /**
+     * Appends the element to the test's element or writes it as a
+     * child of the testsuite if there is no test.
+     */
+    private void addToTest(Test test, Element nested) {
+        if (test != null) {
+            endTest(test);
+            String testDescription = createDescription(test);
+            reportedTests.add(testDescription);
+            testElements.get(testDescription).appendChild(nested);
+        } else {
+            writePendingTests();
+            try {
+                domWriter.write(nested, body, 1, INDENT);
+            } catch (IOException exc) {
+                throw new BuildException("Unable to write log file", exc);
+            }
+        }
+    }
+
+    /**
+     * Writes all tests that have not been written, yet, and forgets
+     * about them.
+     */
+    private void writePendingTests() {
+        try {
+            for (Map.Entry<String, Element> e : testElements.entrySet()) {
+                domWriter.write(e.getValue(), body, 1, INDENT);
+                reportedTests.remove(e.getKey());
+                testStarts.remove(e.getKey());
+            }
+        } catch (IOException exc) {
+            throw new BuildException("Unable to write log file", exc);
+        }
+        testElements.clear();
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.tools.ant.taskdefs.optional.junit;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Hands out the tests of a batch to forked {@link JUnitTestRunner}s
+ * one at a time.
+ *
+ * <p>Listens on a local port, each runner connects to it and sends a
+ * line whenever it wants to run another test.  The answer is a line
+ * in the format of the tests file or an empty line once all tests
+ * have been handed out.</p>
+ *
+ * @since Ant 1.9.5
+ */
+class TestQueue {
+
+    /** Sent by the runner to request the next test. */
+    static final String NEXT = "next";
+
+    /** Encoding used on both sides of the connection. */
+    static final String ENCODING = "UTF-8";
+
+    private final LinkedList<String> tests;
+    private ServerSocket server;
+    private boolean stopped = false;
+
+    /**
+     * @param tests the tests to run, each in the format of a line of
+     * the tests file.
+     */
+    TestQueue(List<String> tests) {
+        this.tests = new LinkedList<String>(tests);
+    }
+
+    /**
+     * Starts listening for runners.
+     * @return the port runners should connect to.
+     * @throws IOException if the server socket cannot be created.
+     */
+    int start() throws IOException {
+        server = new ServerSocket(0, 0, InetAddress.getByName(null));
+        Thread t = new Thread(new Runnable() {
+                public void run() {
+                    acceptConnections();
+                }
+            }, "junit-test-queue");
+        t.setDaemon(true);
+        t.start();
+        return server.getLocalPort();
+    }
+
+    /**
+     * Don't hand out any further tests.
+     */
+    synchronized void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Stops listening for runners.
+     */
+    void close() {
+        stop();
+        if (server != null) {
+            try {
+                server.close();
+            } catch (IOException ex) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * The next test or null if there is none or the queue has been
+     * stopped.
+     */
+    synchronized String next() {
+        return stopped ? null : tests.poll();
+    }
+
+    private void acceptConnections() {
+        while (!server.isClosed()) {
+            final Socket s;
+            try {
+                s = server.accept();
+            } catch (IOException ex) {
+                // closed
+                return;
+            }
+            Thread t = new Thread(new Runnable() {
+                    public void run() {
+                        serve(s);
+                    }
+                }, "junit-test-queue-client");
+            t.setDaemon(true);
+            t.start();
+        }
+    }
+
+    private void serve(Socket s) {
+        try {
+            BufferedReader in =
+                new BufferedReader(new InputStreamReader(s.getInputStream(),
+                                                         ENCODING));
+            Writer out = new OutputStreamWriter(s.getOutputStream(), ENCODING);
+            while (in.readLine() != null) {
+                String test = next();
+                out.write(test == null ? "" : test);
+                out.write('\n');
+                out.flush();
+            }
+        } catch (IOException ex) {
+            // runner has gone away, most likely it has crashed which
+            // will be reported by JUnitTask
+        } finally {
+            try {
+                s.close();
+            } catch (IOException ex) {
+                // ignore
+            }
+        }
+    }
+}
@@ -25,7 +25,14 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.util.Enumeration;
+import java.util.LinkedList;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import org.apache.tools.ant.BuildException;
@@ -38,6 +45,7 @@ import org.apache.tools.ant.util.FileUtils;
 import org.apache.tools.ant.util.StringUtils;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 import org.xml.sax.SAXException;
 
 
@@ -95,6 +103,10 @@ public class XMLResultAggregator extends Task implements XMLConstants {
         = " is empty.\nThis can be caused by the test JVM exiting unexpectedly";
     // CheckStyle:VisibilityModifier ON
 
+    private boolean streaming = false;
+
+    private int threads = 1;
+
     /**
      * Generate a report based on the document created by the merge.
      * @return the report
@@ -126,6 +138,35 @@ public class XMLResultAggregator extends Task implements XMLConstants {
         toDir = value;
     }
 
+    /**
+     * Whether to write the aggregated document suite by suite rather
+     * than building it in memory.
+     *
+     * <p>Defaults to false.  Nested reports don't get a DOM tree
+     * via {@link AggregateTransformer#setXmlDocument} if this is
+     * true, they read the aggregated file instead.</p>
+     * @param b boolean
+     * @since Ant 1.9.5
+     */
+    public void setStreaming(boolean b) {
+        streaming = b;
+    }
+
+    /**
+     * Number of threads used to parse the result files and to run
+     * the nested reports.
+     *
+     * <p>Defaults to 1.</p>
+     * @param threads the number of threads.
+     * @since Ant 1.9.5
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new BuildException("threads must be a positive number");
+        }
+        this.threads = threads;
+    }
+
     /**
      * Add a new fileset containing the XML results to aggregate
      * @param    fs      the new fileset of xml results.
@@ -141,24 +182,62 @@ public class XMLResultAggregator extends Task implements XMLConstants {
      *          the document.
      */
     public void execute() throws BuildException {
-        Element rootElement = createDocument();
         File destFile = getDestinationFile();
-        // write the document
-        try {
-            writeDOMTree(rootElement.getOwnerDocument(), destFile);
-        } catch (IOException e) {
-            throw new BuildException("Unable to write test aggregate to '" + destFile + "'", e);
+        Document doc = null;
+        if (streaming) {
+            writeTestSuites(destFile);
+        } else {
+            Element rootElement = createDocument();
+            doc = rootElement.getOwnerDocument();
+            // write the document
+            try {
+                writeDOMTree(doc, destFile);
+            } catch (IOException e) {
+                throw new BuildException("Unable to write test aggregate to '" + destFile + "'", e);
+            }
         }
         // apply transformation
+        if (threads > 1 && transformers.size() > 1) {
+            transformConcurrently(doc);
+            return;
+        }
         Enumeration e = transformers.elements();
         while (e.hasMoreElements()) {
             AggregateTransformer transformer =
                 (AggregateTransformer) e.nextElement();
-            transformer.setXmlDocument(rootElement.getOwnerDocument());
+            transformer.setXmlDocument(doc);
             transformer.transform();
         }
     }
 
+    /**
+     * Runs all nested reports at the same time, failures are reported
+     * in the order the reports have been specified.
+     */
+    private void transformConcurrently(Document doc) {
+        ExecutorService pool = createPool();
+        LinkedList<Future<Object>> pending = new LinkedList<Future<Object>>();
+        try {
+            Enumeration e = transformers.elements();
+            while (e.hasMoreElements()) {
+                final AggregateTransformer transformer =
+                    (AggregateTransformer) e.nextElement();
+                transformer.setXmlDocument(doc);
+                pending.add(pool.submit(new Callable<Object>() {
+                        public Object call() {
+                            transformer.transform();
+                            return null;
+                        }
+                    }));
+            }
+            while (!pending.isEmpty()) {
+                getResult(pending.removeFirst());
+            }
+        } finally {
+            discard(pool, pending);
+        }
+    }
+
     /**
      * Get the full destination file where to write the result. It is made of
      * the <tt>todir</tt> and <tt>tofile</tt> attributes.
@@ -202,6 +281,57 @@ public class XMLResultAggregator extends Task implements XMLConstants {
         return files;
     }
 
+    /**
+     * Writes the aggregated document to a file without keeping more
+     * than a few testsuites in memory.
+     * @param file the file to write the document to.
+     */
+    private void writeTestSuites(final File file) {
+        OutputStream os = null;
+        try {
+            os = new FileOutputStream(file);
+            final PrintWriter wri = new PrintWriter(new OutputStreamWriter(new BufferedOutputStream(os), "UTF8"));
+            wri.write("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n");
+            DocumentBuilder builder = getDocumentBuilder();
+            // never holds more than the testsuite currently written
+            final Element rootElement =
+                builder.newDocument().createElement(TESTSUITES);
+            final DOMElementWriter domWriter = new DOMElementWriter();
+
+            generatedId = 0;
+            parseFiles(builder, new TestSuiteConsumer() {
+                    public void add(Element testsuite) {
+                        try {
+                            if (generatedId == 0) {
+                                domWriter.openElement(rootElement, wri, 0, "  ", true);
+                                wri.write(StringUtils.LINE_SEP);
+                            }
+                            addTestSuite(rootElement, testsuite);
+                            Node copy = rootElement.getLastChild();
+                            domWriter.write((Element) copy, wri, 1, "  ");
+                            rootElement.removeChild(copy);
+                        } catch (IOException e) {
+                            throw new BuildException("Unable to write test aggregate to '" + file + "'", e);
+                        }
+                    }
+                });
+            if (generatedId == 0) {
+                domWriter.openElement(rootElement, wri, 0, "  ", false);
+            } else {
+                domWriter.closeElement(rootElement, wri, 0, "  ", true);
+            }
+            wri.flush();
+            // writers do not throw exceptions, so check for them.
+            if (wri.checkError()) {
+                throw new IOException("Error while writing DOM content");
+            }
+        } catch (IOException e) {
+            throw new BuildException("Unable to write test aggregate to '" + file + "'", e);
+        } finally {
+            FileUtils.close(os);
+        }
+    }
+
     //----- from now, the methods are all related to DOM tree manipulation
 
     /**
@@ -236,51 +366,181 @@ public class XMLResultAggregator extends Task implements XMLConstants {
         // create the dom tree
         DocumentBuilder builder = getDocumentBuilder();
         Document doc = builder.newDocument();
-        Element rootElement = doc.createElement(TESTSUITES);
+        final Element rootElement = doc.createElement(TESTSUITES);
         doc.appendChild(rootElement);
 
         generatedId = 0;
 
         // get all files and add them to the document
+        parseFiles(builder, new TestSuiteConsumer() {
+                public void add(Element testsuite) {
+                    addTestSuite(rootElement, testsuite);
+                }
+            });
+        return rootElement;
+    }
+
+    /**
+     * Receives the testsuites in the order of {@link #getFiles}.
+     */
+    private interface TestSuiteConsumer {
+        void add(Element testsuite);
+    }
+
+    /**
+     * A result file that has been parsed.
+     */
+    private static class ParsedFile {
+        private final File file;
+        private Element root;
+        private Exception error;
+
+        private ParsedFile(File file) {
+            this.file = file;
+        }
+    }
+
+    /**
+     * Parses all files, on several threads if requested, and passes
+     * the testsuites to the consumer in the original order.
+     */
+    private void parseFiles(DocumentBuilder builder,
+                            TestSuiteConsumer consumer) {
         File[] files = getFiles();
-        for (int i = 0; i < files.length; i++) {
-            File file = files[i];
-            try {
+        if (threads < 2 || files.length < 2) {
+            for (int i = 0; i < files.length; i++) {
+                log("Parsing file: '" + files[i] + "'", Project.MSG_VERBOSE);
+                addParsedFile(parse(files[i], builder), consumer);
+            }
+            return;
+        }
+        final ThreadLocal<DocumentBuilder> builders =
+            new ThreadLocal<DocumentBuilder>() {
+                protected DocumentBuilder initialValue() {
+                    return getDocumentBuilder();
+                }
+            };
+        ExecutorService pool = createPool();
+        LinkedList<Future<ParsedFile>> pending =
+            new LinkedList<Future<ParsedFile>>();
+        try {
+            for (int i = 0; i < files.length; i++) {
+                final File file = files[i];
                 log("Parsing file: '" + file + "'", Project.MSG_VERBOSE);
-                if (file.length() > 0) {
-                    Document testsuiteDoc
-                            = builder.parse(
-                                FileUtils.getFileUtils().toURI(files[i].getAbsolutePath()));
-                    Element elem = testsuiteDoc.getDocumentElement();
-                    // make sure that this is REALLY a testsuite.
-                    if (TESTSUITE.equals(elem.getNodeName())) {
-                        addTestSuite(rootElement, elem);
-                        generatedId++;
-                    } else {
-                        //wrong root element name
-                        // issue a warning.
-                        log("the file " + file
-                                + WARNING_INVALID_ROOT_ELEMENT,
-                                Project.MSG_WARN);
-                    }
-                } else {
-                    log("the file " + file
-                            + WARNING_EMPTY_FILE,
-                            Project.MSG_WARN);
+                pending.add(pool.submit(new Callable<ParsedFile>() {
+                        public ParsedFile call() {
+                            return parse(file, builders.get());
+                        }
+                    }));
+                // only keep a few documents in memory
+                while (pending.size() > 2 * threads) {
+                    addParsedFile(getResult(pending.removeFirst()), consumer);
                 }
+            }
+            while (!pending.isEmpty()) {
+                addParsedFile(getResult(pending.removeFirst()), consumer);
+            }
+        } finally {
+            discard(pool, pending);
+        }
+    }
+
+    private static ParsedFile parse(File file, DocumentBuilder builder) {
+        ParsedFile p = new ParsedFile(file);
+        if (file.length() > 0) {
+            try {
+                p.root = builder.parse(FileUtils.getFileUtils()
+                                       .toURI(file.getAbsolutePath()))
+                    .getDocumentElement();
             } catch (SAXException e) {
-                // a testcase might have failed and write a zero-length document,
-                // It has already failed, but hey.... mm. just put a warning
-                log("The file " + file + WARNING_IS_POSSIBLY_CORRUPTED, Project.MSG_WARN);
-                log(StringUtils.getStackTrace(e), Project.MSG_DEBUG);
+                p.error = e;
             } catch (IOException e) {
-                log("Error while accessing file " + file + ": "
-                    + e.getMessage(), Project.MSG_ERR);
-                log("Error while accessing file " + file + ": "
-                    + e.getMessage(), e, Project.MSG_VERBOSE);
+                p.error = e;
+            }
+        }
+        return p;
+    }
+
+    private void addParsedFile(ParsedFile p, TestSuiteConsumer consumer) {
+        File file = p.file;
+        if (p.error instanceof SAXException) {
+            // a testcase might have failed and write a zero-length document,
+            // It has already failed, but hey.... mm. just put a warning
+            log("The file " + file + WARNING_IS_POSSIBLY_CORRUPTED, Project.MSG_WARN);
+            log(StringUtils.getStackTrace(p.error), Project.MSG_DEBUG);
+        } else if (p.error != null) {
+            log("Error while accessing file " + file + ": "
+                + p.error.getMessage(), Project.MSG_ERR);
+            log("Error while accessing file " + file + ": "
+                + p.error.getMessage(), p.error, Project.MSG_VERBOSE);
+        } else if (p.root == null) {
+            log("the file " + file
+                    + WARNING_EMPTY_FILE,
+                    Project.MSG_WARN);
+        } else if (TESTSUITE.equals(p.root.getNodeName())) {
+            // make sure that this is REALLY a testsuite.
+            consumer.add(p.root);
+            generatedId++;
+        } else {
+            //wrong root element name
+            // issue a warning.
+            log("the file " + file
+                    + WARNING_INVALID_ROOT_ELEMENT,
+                    Project.MSG_WARN);
+        }
+    }
+
+    private ExecutorService createPool() {
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                private int count = 0;
+                public synchronized Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "junitreport-worker-" + (++count));
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+    }
+
+    private static <T> T getResult(Future<T> f) {
+        try {
+            return f.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new BuildException("interrupted", ex);
+        } catch (ExecutionException ex) {
+            Throwable t = ex.getCause();
+            if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            }
+            if (t instanceof Error) {
+                throw (Error) t;
+            }
+            throw new BuildException(t);
+        }
+    }
+
+    /**
+     * Cancels everything that hasn't started, yet, and waits for the
+     * running tasks.
+     */
+    private static void discard(ExecutorService pool,
+                                LinkedList<? extends Future<?>> pending) {
+        for (Future<?> f : pending) {
+            f.cancel(false);
+        }
+        pool.shutdown();
+        for (Future<?> f : pending) {
+            if (!f.isCancelled()) {
+                try {
+                    f.get();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException ex) {
+                    // already failing
+                }
             }
         }
-        return rootElement;
     }
 
     /**
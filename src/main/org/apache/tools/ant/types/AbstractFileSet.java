@@ -28,6 +28,7 @@ import org.apache.tools.ant.Project;
 import org.apache.tools.ant.FileScanner;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.DirectoryScanner;
+import org.apache.tools.ant.MagicNames;
 import org.apache.tools.ant.types.selectors.OrSelector;
 import org.apache.tools.ant.types.selectors.AndSelector;
 import org.apache.tools.ant.types.selectors.NotSelector;
@@ -51,6 +52,7 @@ import org.apache.tools.ant.types.selectors.ContainsRegexpSelector;
 import org.apache.tools.ant.types.selectors.ReadableSelector;
 import org.apache.tools.ant.types.selectors.WritableSelector;
 import org.apache.tools.ant.types.selectors.modifiedselector.ModifiedSelector;
+import org.apache.tools.ant.util.DirectoryListingCache;
 
 /**
  * Class that holds an implicit patternset and supports nested
@@ -72,6 +74,8 @@ public abstract class AbstractFileSet extends DataType
     private boolean followSymlinks = true;
     private boolean errorOnMissingDir = true;
     private int maxLevelsOfSymlinks = DirectoryScanner.MAX_LEVELS_OF_SYMLINKS;
+    private int threads = 0;
+    private File scanCache = null;
 
     /* cached DirectoryScanner instance for our own Project only */
     private DirectoryScanner directoryScanner = null;
@@ -98,6 +102,8 @@ public abstract class AbstractFileSet extends DataType
         this.followSymlinks = fileset.followSymlinks;
         this.errorOnMissingDir = fileset.errorOnMissingDir;
         this.maxLevelsOfSymlinks = fileset.maxLevelsOfSymlinks;
+        this.threads = fileset.threads;
+        this.scanCache = fileset.scanCache;
         setProject(fileset.getProject());
     }
 
@@ -434,6 +440,62 @@ public abstract class AbstractFileSet extends DataType
         return maxLevelsOfSymlinks;
     }
 
+    /**
+     * The number of threads used to scan the directory tree.
+     *
+     * <p>If not set the value of the ant.fileset.threads property
+     * is used, if that isn't set either the tree is scanned on the
+     * calling thread.</p>
+     *
+     * @param threads the number of threads to use.
+     * @since Ant 1.9.5
+     */
+    public synchronized void setThreads(int threads) {
+        if (isReference()) {
+            throw tooManyAttributes();
+        }
+        this.threads = threads;
+        directoryScanner = null;
+    }
+
+    /**
+     * The number of threads used to scan the directory tree, 0 if the
+     * default is used.
+     *
+     * @since Ant 1.9.5
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * A file used to keep directory listings between scans and
+     * builds.
+     *
+     * <p>If not set the value of the ant.fileset.scancache property
+     * is used, if that isn't set either no cache is used.</p>
+     *
+     * @param scanCache the file holding the cache.
+     * @since Ant 1.9.5
+     */
+    public synchronized void setScanCache(File scanCache) {
+        if (isReference()) {
+            throw tooManyAttributes();
+        }
+        this.scanCache = scanCache;
+        directoryScanner = null;
+    }
+
+    /**
+     * A file used to keep directory listings between scans and
+     * builds, null if the default is used.
+     *
+     * @since Ant 1.9.5
+     */
+    public File getScanCache() {
+        return scanCache;
+    }
+
     /**
      * Sets whether an error is thrown if a directory does not exist.
      *
@@ -494,6 +556,8 @@ public abstract class AbstractFileSet extends DataType
                 ds.setFollowSymlinks(followSymlinks);
                 ds.setErrorOnMissingDir(errorOnMissingDir);
                 ds.setMaxLevelsOfSymlinks(maxLevelsOfSymlinks);
+                ds.setThreads(getThreads(p));
+                ds.setListingCache(getListingCache(p));
                 directoryScanner = (p == getProject()) ? ds : directoryScanner;
             }
         }
@@ -501,6 +565,42 @@ public abstract class AbstractFileSet extends DataType
         return ds;
     }
 
+    /**
+     * The number of threads to scan with, falling back to the
+     * ant.fileset.threads property.
+     */
+    private int getThreads(Project p) {
+        if (threads > 0) {
+            return threads;
+        }
+        String value = p == null ? null : p.getProperty(MagicNames.FILESET_THREADS);
+        if (value == null) {
+            return 1;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new BuildException("Invalid value for "
+                                     + MagicNames.FILESET_THREADS + ": "
+                                     + value);
+        }
+    }
+
+    /**
+     * The listing cache to scan with, falling back to the
+     * ant.fileset.scancache property.
+     */
+    private DirectoryListingCache getListingCache(Project p) {
+        File f = scanCache;
+        if (f == null && p != null) {
+            String value = p.getProperty(MagicNames.FILESET_SCANCACHE);
+            if (value != null) {
+                f = p.resolveFile(value);
+            }
+        }
+        return f == null ? null : DirectoryListingCache.getCache(f, p);
+    }
+
     /**
      * Set up the specified directory scanner against this
      * AbstractFileSet's Project.
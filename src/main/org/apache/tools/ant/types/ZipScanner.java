@@ -25,6 +25,7 @@ import java.util.Map;
 import java.util.zip.ZipException;
 
 import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.taskdefs.condition.Os;
 import org.apache.tools.ant.types.resources.ZipResource;
 import org.apache.tools.ant.types.resources.FileProvider;
 import org.apache.tools.zip.ZipEntry;
@@ -35,6 +36,13 @@ import org.apache.tools.zip.ZipFile;
  */
 public class ZipScanner extends ArchiveScanner {
 
+    /**
+     * Whether to map archives into memory while reading their
+     * central directory, not done on Windows where a mapped file
+     * cannot be deleted until the mapping has been garbage collected.
+     */
+    private static final boolean MAP_ARCHIVES = !Os.isFamily("windows");
+
     /**
      * Fills the file and directory maps with resources read from the
      * archive.
@@ -68,7 +76,7 @@ public class ZipScanner extends ArchiveScanner {
 
         try {
             try {
-                zf = new ZipFile(srcFile, encoding);
+                zf = new ZipFile(srcFile, encoding, true, MAP_ARCHIVES);
             } catch (ZipException ex) {
                 throw new BuildException("Problem reading " + srcFile, ex);
             } catch (IOException ex) {
@@ -0,0 +1,347 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.tools.ant.types.selectors;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * All include and exclude patterns of a scan compiled into a single
+ * trie over path segments.
+ *
+ * <p>Patterns sharing a common prefix share the nodes for it, a
+ * <code>**</code> token becomes a node that loops on any segment.
+ * Matching a path walks the trie once, keeping track of all nodes
+ * that match the segments seen so far, instead of matching the path
+ * against every single pattern.</p>
+ *
+ * <p>The results are the same as the ones of {@link
+ * TokenizedPattern#matchPath TokenizedPattern.matchPath} and {@link
+ * TokenizedPattern#matchStartOf TokenizedPattern.matchStartOf} as
+ * used by {@link org.apache.tools.ant.DirectoryScanner
+ * DirectoryScanner}.  Patterns without wildcards are only used to
+ * determine whether a directory could hold included files, the
+ * scanner matches them using string comparison.</p>
+ *
+ * <p>Instances are immutable and can be shared between threads and
+ * scans, use {@link #compile compile} to obtain one.</p>
+ *
+ * @since Ant 1.9.5
+ */
+public final class PatternTrie {
+
+    /** The path matches a wildcard include pattern. */
+    public static final int INCLUDED = 1;
+    /** The path matches a wildcard exclude pattern. */
+    public static final int EXCLUDED = 2;
+    /** The path is a directory that may contain included files. */
+    public static final int COULD_HOLD_INCLUDED = 4;
+    /** All contents of the path are excluded. */
+    public static final int CONTENTS_EXCLUDED = 8;
+
+    /** Number of compiled pattern sets kept by {@link #compile}. */
+    private static final int CACHE_SIZE = 32;
+
+    private static final Map<List<Object>, PatternTrie> CACHE =
+        new LinkedHashMap<List<Object>, PatternTrie>(CACHE_SIZE, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, PatternTrie> e) {
+                return size() > CACHE_SIZE;
+            }
+        };
+
+    private final boolean caseSensitive;
+    private final Node root = new Node(false);
+    /** String form of all wildcard excludes. */
+    private final Set<String> excludeStrings = new HashSet<String>();
+
+    /**
+     * Returns the compiled form of the given patterns, reusing a
+     * previously compiled instance for the same patterns if possible.
+     *
+     * @param includes the include patterns, must not be null.
+     * @param excludes the exclude patterns, must not be null.
+     * @param caseSensitive whether to match case sensitively.
+     * @return the compiled patterns.
+     */
+    public static PatternTrie compile(String[] includes, String[] excludes,
+                                      boolean caseSensitive) {
+        List<Object> key = new ArrayList<Object>(3);
+        key.add(Arrays.asList(includes));
+        key.add(Arrays.asList(excludes));
+        key.add(Boolean.valueOf(caseSensitive));
+        synchronized (CACHE) {
+            PatternTrie t = CACHE.get(key);
+            if (t == null) {
+                t = new PatternTrie(includes, excludes, caseSensitive);
+                // the arrays are owned by the caller
+                key.set(0, new ArrayList<String>(Arrays.asList(includes)));
+                key.set(1, new ArrayList<String>(Arrays.asList(excludes)));
+                CACHE.put(key, t);
+            }
+            return t;
+        }
+    }
+
+    /**
+     * Compiles the given patterns.
+     *
+     * @param includes the include patterns, must not be null.
+     * @param excludes the exclude patterns, must not be null.
+     * @param caseSensitive whether to match case sensitively.
+     */
+    public PatternTrie(String[] includes, String[] excludes,
+                       boolean caseSensitive) {
+        this.caseSensitive = caseSensitive;
+        for (int i = 0; i < includes.length; i++) {
+            add(includes[i], true);
+        }
+        for (int i = 0; i < excludes.length; i++) {
+            add(excludes[i], false);
+        }
+    }
+
+    private void add(String pattern, boolean include) {
+        boolean wildcards = SelectorUtils.hasWildcards(pattern);
+        if (!include) {
+            if (!wildcards) {
+                // only needed for isIncluded/isExcluded which use
+                // string comparison for those
+                return;
+            }
+            excludeStrings.add(pattern);
+        }
+        String[] tokens = SelectorUtils.tokenizePathAsArray(pattern);
+        Node n = root;
+        for (int i = 0; i < tokens.length; i++) {
+            if (include) {
+                n.includeBelow = true;
+            }
+            if (SelectorUtils.DEEP_TREE_MATCH.equals(tokens[i])) {
+                if (n.deep == null) {
+                    n.deep = new Node(true);
+                }
+                if (include) {
+                    n.includeDeep = true;
+                } else if (i == tokens.length - 1) {
+                    n.excludeContents = true;
+                }
+                n = n.deep;
+            } else {
+                n = n.child(tokens[i], caseSensitive);
+            }
+        }
+        if (wildcards) {
+            if (include) {
+                n.includeEnd = true;
+            } else {
+                n.excludeEnd = true;
+            }
+        }
+    }
+
+    /**
+     * Matches the path against all patterns at once.
+     *
+     * @param path the path to match.
+     * @return a combination of {@link #INCLUDED}, {@link #EXCLUDED},
+     * {@link #COULD_HOLD_INCLUDED} and {@link #CONTENTS_EXCLUDED}.
+     */
+    public int match(TokenizedPath path) {
+        String[] segments = path.getTokens();
+        // nodes matching all segments so far
+        List<Node> current = new ArrayList<Node>();
+        addClosure(current, root);
+        // nodes matching all segments so far without crossing a **
+        List<Node> prefix = new ArrayList<Node>();
+        prefix.add(root);
+        boolean couldHold = false;
+        for (int i = 0; i < segments.length
+                 && (!current.isEmpty() || !couldHold && !prefix.isEmpty());
+             i++) {
+            String segment = segments[i];
+            String key = caseSensitive ? segment : fold(segment);
+            List<Node> next = new ArrayList<Node>();
+            for (Node n : current) {
+                if (n.isDeep) {
+                    addClosure(next, n);
+                }
+                n.step(segment, key, caseSensitive, next, true);
+            }
+            current = next;
+            if (!couldHold) {
+                List<Node> nextPrefix = new ArrayList<Node>();
+                for (Node n : prefix) {
+                    if (n.includeDeep) {
+                        // the pattern reaches ** before the path is
+                        // exhausted
+                        couldHold = true;
+                        break;
+                    }
+                    n.step(segment, key, caseSensitive, nextPrefix, false);
+                }
+                prefix = nextPrefix;
+            }
+        }
+        if (!couldHold) {
+            for (Node n : prefix) {
+                if (n.includeBelow) {
+                    couldHold = true;
+                    break;
+                }
+            }
+        }
+        int result = 0;
+        for (Node n : current) {
+            if (n.includeEnd) {
+                result |= INCLUDED;
+            }
+            if (n.excludeEnd) {
+                result |= EXCLUDED;
+            }
+            if (n.excludeContents) {
+                result |= CONTENTS_EXCLUDED;
+            }
+        }
+        if (couldHold && !excludeStrings.isEmpty()
+            && excludeStrings.contains(path.toString() + File.separatorChar
+                                       + SelectorUtils.DEEP_TREE_MATCH)) {
+            // an exclude of path/** is more powerful than any include
+            couldHold = false;
+        }
+        if (couldHold) {
+            result |= COULD_HOLD_INCLUDED;
+        }
+        return result;
+    }
+
+    /**
+     * Adds the node and all nodes that match no segment at all after
+     * it - i.e. <code>**</code> tokens.
+     */
+    private static void addClosure(List<Node> nodes, Node n) {
+        while (n != null && !nodes.contains(n)) {
+            nodes.add(n);
+            n = n.deep;
+        }
+    }
+
+    /**
+     * The key used for segments when matching case insensitively,
+     * consistent with {@link SelectorUtils#match(String, String,
+     * boolean)}.
+     */
+    private static String fold(String s) {
+        char[] c = s.toCharArray();
+        for (int i = 0; i < c.length; i++) {
+            c[i] = Character.toUpperCase(c[i]);
+        }
+        return new String(c);
+    }
+
+    private static class Node {
+        /** Is this node the target of a ** token? */
+        private final boolean isDeep;
+        /** children for tokens without wildcards. */
+        private Map<String, Node> literals;
+        /** tokens with wildcards other than ** and their children. */
+        private List<String> wildcardTokens;
+        private List<Node> wildcardChildren;
+        /** child for a ** token. */
+        private Node deep;
+
+        /** A wildcard include pattern ends here. */
+        private boolean includeEnd;
+        /** A wildcard exclude pattern ends here. */
+        private boolean excludeEnd;
+        /** Any include pattern continues after this node. */
+        private boolean includeBelow;
+        /** Any include pattern continues with ** after this node. */
+        private boolean includeDeep;
+        /** An exclude pattern ends with a ** following this node. */
+        private boolean excludeContents;
+
+        Node(boolean isDeep) {
+            this.isDeep = isDeep;
+        }
+
+        Node child(String token, boolean caseSensitive) {
+            if (SelectorUtils.hasWildcards(token)) {
+                if (wildcardTokens == null) {
+                    wildcardTokens = new ArrayList<String>();
+                    wildcardChildren = new ArrayList<Node>();
+                }
+                int idx = wildcardTokens.indexOf(token);
+                if (idx >= 0) {
+                    return wildcardChildren.get(idx);
+                }
+                Node n = new Node(false);
+                wildcardTokens.add(token);
+                wildcardChildren.add(n);
+                return n;
+            }
+            if (literals == null) {
+                literals = new HashMap<String, Node>();
+            }
+            String key = caseSensitive ? token : fold(token);
+            Node n = literals.get(key);
+            if (n == null) {
+                n = new Node(false);
+                literals.put(key, n);
+            }
+            return n;
+        }
+
+        /**
+         * Adds all children matching the segment, optionally
+         * including the nodes reachable from them via ** tokens.
+         */
+        void step(String segment, String key, boolean caseSensitive,
+                  List<Node> result, boolean closure) {
+            if (literals != null) {
+                Node n = literals.get(key);
+                if (n != null) {
+                    add(result, n, closure);
+                }
+            }
+            if (wildcardTokens != null) {
+                for (int i = 0; i < wildcardTokens.size(); i++) {
+                    if (SelectorUtils.match(wildcardTokens.get(i), segment,
+                                            caseSensitive)) {
+                        add(result, wildcardChildren.get(i), closure);
+                    }
+                }
+            }
+        }
+
+        private static void add(List<Node> result, Node n, boolean closure) {
+            if (closure) {
+                addClosure(result, n);
+            } else if (!result.contains(n)) {
+                result.add(n);
+            }
+        }
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.tools.ant.util;
+
+import java.io.File;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringTokenizer;
+import java.util.WeakHashMap;
+
+import org.apache.tools.ant.AntClassLoader;
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.MagicNames;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.SubBuildListener;
+import org.apache.tools.ant.types.Path;
+
+/**
+ * Process wide cache of parent-first class loaders.
+ *
+ * <p>Loaders are keyed by their parent loader and the normalized
+ * elements of their classpath and are shared by all projects asking
+ * for the same classpath.  Each project holds a reference to the
+ * loaders it has acquired until its build (or subbuild) has finished
+ * or the project has been garbage collected, the last project to
+ * release a loader cleans it up.</p>
+ *
+ * <p>Only classpaths that consist of jars exclusively are cached as
+ * the content of a directory can't be verified cheaply.  Jars that
+ * have been modified since the loader has been created cause a new
+ * loader to be created.  Projects that override {@link
+ * Project#createClassLoader(Path)} don't use shared loaders.</p>
+ *
+ * @since Ant 1.9.5
+ */
+public final class ClassLoaderCache {
+
+    private static final FileUtils FILE_UTILS = FileUtils.getFileUtils();
+
+    /** Shared loaders by key. */
+    private static final Map<Key, Entry> CACHE = new HashMap<Key, Entry>();
+    /** Loaders held by each project. */
+    private static final Map<Project, Releaser> HOLDERS =
+        new WeakHashMap<Project, Releaser>();
+    /** Releasers of projects that have been garbage collected. */
+    private static final ReferenceQueue<Project> COLLECTED =
+        new ReferenceQueue<Project>();
+
+    private ClassLoaderCache() {
+    }
+
+    /**
+     * Returns a shared parent-first loader for the given path.
+     *
+     * <p>The loader is released automatically once the project's
+     * build has finished.</p>
+     *
+     * @param project the project asking for the loader.
+     * @param path the classpath, may be null.
+     * @return the loader or null if the path is not suitable for a
+     * shared loader, sharing has been disabled or the project creates
+     * class loaders of its own.
+     */
+    public static AntClassLoader acquire(Project project, Path path) {
+        String share = project.getProperty(MagicNames.SHARE_CLASSLOADERS);
+        if (share != null && !Project.toBoolean(share)) {
+            return null;
+        }
+        if (ReflectUtil.getDeclaringClass(project.getClass(),
+                                          "createClassLoader", Path.class)
+            != Project.class) {
+            return null;
+        }
+        String[] elements = path == null ? new String[0]
+            : path.concatSystemClasspath("ignore").list();
+        List<File> files = new ArrayList<File>(elements.length);
+        for (int i = 0; i < elements.length; i++) {
+            File f = FILE_UTILS.normalize(project.resolveFile(elements[i])
+                                          .getAbsolutePath());
+            if (!f.isFile()) {
+                return null;
+            }
+            files.add(f);
+        }
+        Key key = new Key(project.getClass().getClassLoader(), files);
+
+        synchronized (CACHE) {
+            releaseCollected();
+            Entry e = CACHE.get(key);
+            if (e != null && !e.isUpToDate()) {
+                CACHE.remove(key);
+                e = null;
+            }
+            if (e == null) {
+                e = createEntry(key);
+                if (e == null) {
+                    return null;
+                }
+                CACHE.put(key, e);
+            }
+            Releaser r = HOLDERS.get(project);
+            if (r == null) {
+                r = new Releaser(project);
+                HOLDERS.put(project, r);
+                project.addBuildListener(r);
+            }
+            e.refs++;
+            r.held.add(e);
+            return e.loader;
+        }
+    }
+
+    /**
+     * Creates the loader for a key, returns null if its classpath
+     * contains anything but jars - like directories added via
+     * Class-Path manifest entries.
+     */
+    private static Entry createEntry(Key key) {
+        AntClassLoader loader =
+            AntClassLoader.newAntClassLoader(key.parent, null, null, true);
+        try {
+            for (File f : key.files) {
+                loader.addPathElement(f.getAbsolutePath());
+            }
+        } catch (BuildException ex) {
+            loader.cleanup();
+            return null;
+        }
+        List<File> components = new ArrayList<File>();
+        StringTokenizer st =
+            new StringTokenizer(loader.getClasspath(), File.pathSeparator);
+        while (st.hasMoreTokens()) {
+            File f = new File(st.nextToken());
+            if (!f.isFile()) {
+                loader.cleanup();
+                return null;
+            }
+            components.add(f);
+        }
+        return new Entry(key, loader, components);
+    }
+
+    /**
+     * Releases the loaders held by projects that have been garbage
+     * collected without finishing their build.
+     */
+    private static void releaseCollected() {
+        Reference<? extends Project> r;
+        while ((r = COLLECTED.poll()) != null) {
+            ((Releaser) r).releaseHeld();
+        }
+    }
+
+    /**
+     * Drops one reference to the entry, cleans up the loader when the
+     * last one is gone.
+     */
+    private static void release(Entry e) {
+        if (--e.refs > 0) {
+            return;
+        }
+        if (CACHE.get(e.key) == e) {
+            CACHE.remove(e.key);
+        }
+        e.loader.cleanup();
+    }
+
+    /**
+     * Parent loader and classpath of a shared loader.
+     */
+    private static final class Key {
+        private final ClassLoader parent;
+        private final List<File> files;
+
+        private Key(ClassLoader parent, List<File> files) {
+            this.parent = parent;
+            this.files = files;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return parent == other.parent && files.equals(other.files);
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(parent) * 31 + files.hashCode();
+        }
+    }
+
+    /**
+     * A shared loader and the timestamps of the jars it reads from.
+     */
+    private static final class Entry {
+        private final Key key;
+        private final AntClassLoader loader;
+        private final List<File> components;
+        private final long[] fingerprint;
+        private int refs;
+
+        private Entry(Key key, AntClassLoader loader, List<File> components) {
+            this.key = key;
+            this.loader = loader;
+            this.components = components;
+            fingerprint = fingerprint(components);
+        }
+
+        private boolean isUpToDate() {
+            return Arrays.equals(fingerprint,
+                                           fingerprint(components));
+        }
+
+        private static long[] fingerprint(List<File> files) {
+            long[] f = new long[files.size() * 2];
+            int i = 0;
+            for (File file : files) {
+                f[i++] = file.lastModified();
+                f[i++] = file.length();
+            }
+            return f;
+        }
+    }
+
+    /**
+     * Releases the loaders held by a project once its build has
+     * finished or the project has been garbage collected.
+     *
+     * <p>Only holds a weak reference to the project so the project
+     * can be collected even though this is the value of its entry in
+     * HOLDERS.</p>
+     */
+    private static final class Releaser extends WeakReference<Project>
+        implements SubBuildListener {
+        private final List<Entry> held = new ArrayList<Entry>();
+
+        private Releaser(Project project) {
+            super(project, COLLECTED);
+        }
+
+        private void releaseAll() {
+            Project project = get();
+            if (project != null) {
+                project.removeBuildListener(this);
+            }
+            synchronized (CACHE) {
+                if (project != null) {
+                    HOLDERS.remove(project);
+                }
+                releaseHeld();
+            }
+        }
+
+        /** Must be called while holding the lock on CACHE. */
+        private void releaseHeld() {
+            for (Entry e : held) {
+                release(e);
+            }
+            held.clear();
+        }
+
+        public void buildFinished(BuildEvent event) {
+            releaseAll();
+        }
+        public void subBuildFinished(BuildEvent event) {
+            if (event.getProject() == get()) {
+                releaseAll();
+            }
+        }
+        public void buildStarted(BuildEvent event) {
+        }
+        public void subBuildStarted(BuildEvent event) {
+        }
+        public void targetStarted(BuildEvent event) {
+        }
+        public void targetFinished(BuildEvent event) {
+        }
+        public void taskStarted(BuildEvent event) {
+        }
+        public void taskFinished(BuildEvent event) {
+        }
+        public void messageLogged(BuildEvent event) {
+        }
+    }
+}
@@ -157,6 +157,11 @@ public class ClasspathUtils {
      * 'ant.reuse.loader' this will try to reuse the previously
      * created loader with that id, and of course store it there upon
      * creation.</p>
+     *
+     * <p>Unless reverseLoader is true, loaders for classpaths that
+     * only consist of jars are taken from the process wide {@link
+     * ClassLoaderCache} and shared with other tasks and projects
+     * using the same classpath.</p>
      * @param p             Ant Project where the handled components are living in.
      * @param path          Path object to be used as classpath for this classloader
      * @param loaderId      identification for this Loader,
@@ -180,7 +185,12 @@ public class ClasspathUtils {
             cl = (ClassLoader) reusedLoader;
         }
         if (cl == null) {
-            cl = getUniqueClassLoaderForPath(p, path, reverseLoader);
+            if (!reverseLoader) {
+                cl = ClassLoaderCache.acquire(p, path);
+            }
+            if (cl == null) {
+                cl = getUniqueClassLoaderForPath(p, path, reverseLoader);
+            }
             if (loaderId != null && reuseLoader) {
                 p.addReference(loaderId, cl);
             }
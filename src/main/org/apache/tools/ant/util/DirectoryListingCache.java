@@ -0,0 +1,366 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.tools.ant.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.SubBuildListener;
+
+/**
+ * Persistent cache of directory listings used by {@link
+ * org.apache.tools.ant.DirectoryScanner DirectoryScanner}.
+ *
+ * <p>For each directory the cache stores its modification time, the
+ * names it contains and which of those names are not directories.
+ * As long as a directory's modification time doesn't change its
+ * listing is taken from the cache and its files are known without
+ * touching the file system, so scanning an unchanged tree only needs
+ * to check the modification time of each directory.</p>
+ *
+ * <p>The listings don't depend on the patterns or selectors of the
+ * scan, so a single cache can be shared by all filesets of a build.
+ * Selectors are always evaluated as they usually depend on the
+ * contents or timestamps of files which aren't reflected by the
+ * timestamp of the directory.</p>
+ *
+ * <p>Directories that have been modified too recently to tell a later
+ * modification apart given the file system's timestamp granularity
+ * are never cached.</p>
+ *
+ * <p>The cache writes itself back to disk when the build (or
+ * subbuild) it has been registered with has finished.</p>
+ *
+ * @since Ant 1.9.5
+ */
+public class DirectoryListingCache implements SubBuildListener {
+
+    private static final FileUtils FILE_UTILS = FileUtils.getFileUtils();
+
+    /** Identifies the file format. */
+    private static final int MAGIC = 0x414e5444; // "ANTD"
+    private static final int VERSION = 1;
+
+    /** Caches by absolute name of their file. */
+    private static final Map<String, DirectoryListingCache> CACHES =
+        new HashMap<String, DirectoryListingCache>();
+
+    private final File file;
+    private final Map<String, Entry> entries =
+        new ConcurrentHashMap<String, Entry>();
+    private volatile boolean dirty = false;
+
+    /**
+     * Returns the cache stored in the given file, loading it if it
+     * hasn't been used by this VM before.
+     * @param file the file holding the cache, it doesn't need to exist.
+     * @return the cache.
+     */
+    public static DirectoryListingCache getCache(File file) {
+        String key = file.getAbsolutePath();
+        synchronized (CACHES) {
+            DirectoryListingCache c = CACHES.get(key);
+            if (c == null) {
+                c = new DirectoryListingCache(file.getAbsoluteFile());
+                CACHES.put(key, c);
+            }
+            return c;
+        }
+    }
+
+    /**
+     * Returns the cache stored in the given file and makes sure it is
+     * saved when the project's build has finished.
+     * @param file the file holding the cache, it doesn't need to exist.
+     * @param project the project to register with, may be null.
+     * @return the cache.
+     */
+    public static DirectoryListingCache getCache(File file, Project project) {
+        DirectoryListingCache c = getCache(file);
+        if (project != null) {
+            synchronized (c) {
+                if (!project.getBuildListeners().contains(c)) {
+                    project.addBuildListener(c);
+                }
+            }
+        }
+        return c;
+    }
+
+    // package private for tests
+    DirectoryListingCache(File file) {
+        this.file = file;
+        load();
+    }
+
+    /**
+     * Starts using the cache for a single scan.
+     *
+     * <p>A session trusts a directory's knowledge about which of its
+     * names are files only after it has checked the directory's
+     * timestamp itself, so a new session must be used for each scan.</p>
+     * @return a new session.
+     */
+    public Session newSession() {
+        return new Session();
+    }
+
+    /**
+     * The file holding the cache.
+     * @return the file.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Writes the cache to disk if it has been modified.
+     * @throws IOException on error.
+     */
+    public synchronized void save() throws IOException {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        File dir = file.getParentFile();
+        if (dir != null) {
+            dir.mkdirs();
+        }
+        File tmp = FILE_UTILS.createTempFile("dircache", ".tmp", dir, true,
+                                             false);
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(
+                                           new FileOutputStream(tmp)));
+            Map<String, Entry> snapshot = new HashMap<String, Entry>(entries);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(snapshot.size());
+            for (Iterator<Map.Entry<String, Entry>> i =
+                     snapshot.entrySet().iterator(); i.hasNext();) {
+                Map.Entry<String, Entry> e = i.next();
+                e.getValue().write(e.getKey(), out);
+            }
+            out.close();
+            out = null;
+            FILE_UTILS.rename(tmp, file);
+        } catch (IOException ex) {
+            dirty = true;
+            throw ex;
+        } finally {
+            FileUtils.close(out);
+            tmp.delete();
+        }
+    }
+
+    /**
+     * Reads the cache file, an unreadable or incompatible file is
+     * treated as an empty cache.
+     */
+    private void load() {
+        if (!file.isFile()) {
+            return;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(
+                                         new FileInputStream(file)));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return;
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                String path = in.readUTF();
+                entries.put(path, Entry.read(in));
+            }
+        } catch (IOException ex) {
+            entries.clear();
+        } finally {
+            FileUtils.close(in);
+        }
+    }
+
+    /**
+     * Saves the cache.
+     * @param event the build event, ignored.
+     */
+    public void buildFinished(BuildEvent event) {
+        saveAndLog(event.getProject());
+    }
+
+    /**
+     * Saves the cache.
+     * @param event the build event, ignored.
+     */
+    public void subBuildFinished(BuildEvent event) {
+        saveAndLog(event.getProject());
+    }
+
+    private void saveAndLog(Project project) {
+        try {
+            save();
+        } catch (IOException ex) {
+            if (project != null) {
+                project.log("Failed to save directory listing cache "
+                            + file + ": " + ex, Project.MSG_WARN);
+            }
+        }
+    }
+
+    /** Empty. {@inheritDoc} */
+    public void buildStarted(BuildEvent event) {
+    }
+
+    /** Empty. {@inheritDoc} */
+    public void subBuildStarted(BuildEvent event) {
+    }
+
+    /** Empty. {@inheritDoc} */
+    public void targetStarted(BuildEvent event) {
+    }
+
+    /** Empty. {@inheritDoc} */
+    public void targetFinished(BuildEvent event) {
+    }
+
+    /** Empty. {@inheritDoc} */
+    public void taskStarted(BuildEvent event) {
+    }
+
+    /** Empty. {@inheritDoc} */
+    public void taskFinished(BuildEvent event) {
+    }
+
+    /** Empty. {@inheritDoc} */
+    public void messageLogged(BuildEvent event) {
+    }
+
+    /**
+     * The cached state of a single directory.
+     */
+    private static class Entry {
+        private final long lastModified;
+        private final String[] names;
+        /** names that are known not to be directories. */
+        private final Set<String> files;
+
+        Entry(long lastModified, String[] names, Set<String> files) {
+            this.lastModified = lastModified;
+            this.names = names;
+            this.files = Collections.synchronizedSet(files);
+        }
+
+        void write(String path, DataOutputStream out) throws IOException {
+            out.writeUTF(path);
+            out.writeLong(lastModified);
+            out.writeInt(names.length);
+            for (int i = 0; i < names.length; i++) {
+                out.writeUTF(names[i]);
+                out.writeBoolean(files.contains(names[i]));
+            }
+        }
+
+        static Entry read(DataInputStream in) throws IOException {
+            long lastModified = in.readLong();
+            String[] names = new String[in.readInt()];
+            Set<String> files = new HashSet<String>();
+            for (int i = 0; i < names.length; i++) {
+                names[i] = in.readUTF();
+                if (in.readBoolean()) {
+                    files.add(names[i]);
+                }
+            }
+            return new Entry(lastModified, names, files);
+        }
+    }
+
+    /**
+     * Lists directories for a single scan.
+     *
+     * <p>Instances are safe for use by several threads.</p>
+     */
+    public class Session {
+        /** entries whose timestamp has been checked by this session. */
+        private final Map<String, Entry> verified =
+            new ConcurrentHashMap<String, Entry>();
+        private final long newest =
+            System.currentTimeMillis() - FILE_UTILS.getFileTimestampGranularity();
+
+        private Session() {
+        }
+
+        /**
+         * Lists the given file like <code>File.list()</code> does.
+         * @param dir the file to list.
+         * @return the names inside the directory or null if the file
+         * is not a directory or cannot be read.
+         */
+        public String[] list(File dir) {
+            File abs = dir.getAbsoluteFile();
+            String path = abs.getPath();
+            String parentPath = abs.getParent();
+            Entry parent = parentPath == null ? null : verified.get(parentPath);
+            if (parent != null && parent.files.contains(abs.getName())) {
+                return null;
+            }
+            long lastModified = dir.lastModified();
+            Entry e = entries.get(path);
+            if (e != null && lastModified != 0
+                && e.lastModified == lastModified) {
+                verified.put(path, e);
+                return e.names;
+            }
+            String[] names = dir.list();
+            if (names == null) {
+                if (parent != null) {
+                    parent.files.add(abs.getName());
+                    dirty = true;
+                }
+                if (e != null) {
+                    entries.remove(path);
+                    dirty = true;
+                }
+                return null;
+            }
+            if (lastModified != 0 && lastModified < newest) {
+                e = new Entry(lastModified, names, new HashSet<String>());
+                entries.put(path, e);
+                verified.put(path, e);
+                dirty = true;
+            } else if (e != null) {
+                entries.remove(path);
+                dirty = true;
+            }
+            return names;
+        }
+    }
+}
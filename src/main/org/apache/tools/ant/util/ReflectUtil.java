@@ -208,4 +208,25 @@ public class ReflectUtil {
             throw toBuildException(t);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * The class that declares the public method a given class uses,
+     * can be used to find out whether a subclass overrides a method.
+     * @param c the class to check
+     * @param methodName the name of the method
+     * @param parameterTypes the parameter types of the method
+     * @return the class declaring the method or null if c has no
+     * such public method.
+     * @since Ant 1.9.5
+     */
+    public static Class<?> getDeclaringClass(Class<?> c, String methodName,
+                                             Class<?>... parameterTypes) {
+        try {
+            return c.getMethod(methodName, parameterTypes).getDeclaringClass();
+        } catch (NoSuchMethodException ex) {
+            return null;
+        } catch (SecurityException ex) {
+            return null;
+        }
+    }
+}
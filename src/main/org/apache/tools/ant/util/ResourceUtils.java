@@ -190,6 +190,7 @@ public class ResourceUtils {
         source = Union.getInstance(source);
 
         Union result = new Union();
+        boolean verbose = logTo.isLoggable(Project.MSG_VERBOSE);
         for (Resource sr : source) {
             String srName = sr.getName();
             srName = srName == null
@@ -223,17 +224,21 @@ public class ResourceUtils {
             r.add(targetColl);
             if (r.size() > 0) {
                 result.add(sr);
-                Resource t = r.iterator().next();
-                logTo.log(sr.getName() + " added as " + t.getName()
-                    + (t.isExists() ? " is outdated." : " doesn\'t exist."),
-                    Project.MSG_VERBOSE);
+                if (verbose) {
+                    Resource t = r.iterator().next();
+                    logTo.log(sr.getName() + " added as " + t.getName()
+                        + (t.isExists() ? " is outdated." : " doesn\'t exist."),
+                        Project.MSG_VERBOSE);
+                }
                 continue;
             }
             //log uptodateness of all targets:
-            logTo.log(sr.getName()
-                  + " omitted as " + targetColl.toString()
-                  + (targetColl.size() == 1 ? " is" : " are ")
-                  + " up to date.", Project.MSG_VERBOSE);
+            if (verbose) {
+                logTo.log(sr.getName()
+                      + " omitted as " + targetColl.toString()
+                      + (targetColl.size() == 1 ? " is" : " are ")
+                      + " up to date.", Project.MSG_VERBOSE);
+            }
         }
         return result;
     }
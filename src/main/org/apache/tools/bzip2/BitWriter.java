@@ -0,0 +1,101 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.tools.bzip2;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes bits to an OutputStream, most significant bit first, the way
+ * bzip2 streams are laid out.
+ *
+ * @since Ant 1.9.5
+ */
+class BitWriter {
+
+    private final OutputStream out;
+    private long buffer = 0;
+    private int live = 0;
+
+    BitWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes the n least significant bits of value.
+     * @param n number of bits, at most 32.
+     * @param value the bits to write.
+     */
+    void write(int n, int value) throws IOException {
+        buffer = (buffer << n) | (value & ((1L << n) - 1));
+        live += n;
+        while (live >= 8) {
+            out.write((int) (buffer >>> (live - 8)));
+            live -= 8;
+        }
+    }
+
+    /**
+     * Writes count bits of src starting at bit position from.
+     */
+    void write(byte[] src, long from, long count) throws IOException {
+        if (live == 0 && (from & 7) == 0) {
+            int bytes = (int) (count >>> 3);
+            out.write(src, (int) (from >>> 3), bytes);
+            from += bytes * 8L;
+            count -= bytes * 8L;
+        }
+        while (count >= 8) {
+            write(8, readBits(src, from, 8));
+            from += 8;
+            count -= 8;
+        }
+        if (count > 0) {
+            write((int) count, readBits(src, from, (int) count));
+        }
+    }
+
+    /**
+     * Pads the output to a full byte with zero bits.
+     */
+    void finish() throws IOException {
+        if (live > 0) {
+            write(8 - live, 0);
+        }
+    }
+
+    /**
+     * Reads n bits of src starting at bit position from.
+     * @param n number of bits, at most 32.
+     */
+    static int readBits(byte[] src, long from, int n) {
+        int result = 0;
+        while (n > 0) {
+            int index = (int) (from >>> 3);
+            int offset = (int) (from & 7);
+            int take = Math.min(n, 8 - offset);
+            int bits = ((src[index] & 0xff) >>> (8 - offset - take))
+                & ((1 << take) - 1);
+            result = (result << take) | bits;
+            from += take;
+            n -= take;
+        }
+        return result;
+    }
+}
@@ -557,6 +557,22 @@ public class CBZip2OutputStream extends OutputStream
 
     private OutputStream out;
 
+    /**
+     * Whether only the compressed blocks are written, without stream
+     * header and trailer.
+     */
+    private final boolean blocksOnly;
+
+    /**
+     * Number of non-empty blocks written so far.
+     */
+    private int blockCount = 0;
+
+    /**
+     * Number of padding bits written by bsFinishedWithStream.
+     */
+    private int paddingBits = 0;
+
     /**
      * Chooses a blocksize based on the given length of the data to compress.
      *
@@ -622,6 +638,25 @@ public class CBZip2OutputStream extends OutputStream
      */
     public CBZip2OutputStream(final OutputStream out, final int blockSize)
         throws IOException {
+        this(out, blockSize, false);
+    }
+
+    /**
+     * Constructs a new <tt>CBZip2OutputStream</tt> that optionally
+     * writes nothing but the compressed blocks.
+     *
+     * <p>Without the stream header and the end of stream marker the
+     * output is only useful as part of a larger stream, this is used
+     * by {@link ParallelBZip2OutputStream}.</p>
+     *
+     * @param out the destination stream.
+     * @param blockSize the blockSize as 100k units.
+     * @param blocksOnly whether to omit the stream header and trailer.
+     * @since Ant 1.9.5
+     */
+    CBZip2OutputStream(final OutputStream out, final int blockSize,
+                       final boolean blocksOnly)
+        throws IOException {
         super();
 
         if (blockSize < 1) {
@@ -635,6 +670,7 @@ public class CBZip2OutputStream extends OutputStream
 
         this.blockSize100k = blockSize;
         this.out = out;
+        this.blocksOnly = blocksOnly;
 
         /* 20 is just a paranoia constant */
         this.allowableBlockSize = (this.blockSize100k * BZip2Constants.baseBlockSize) - 20;
@@ -736,7 +772,11 @@ public class CBZip2OutputStream extends OutputStream
                 }
                 this.currentChar = -1;
                 endBlock();
-                endCompression();
+                if (blocksOnly) {
+                    bsFinishedWithStream();
+                } else {
+                    endCompression();
+                }
             } finally {
                 this.out = null;
                 this.data = null;
@@ -774,8 +814,10 @@ public class CBZip2OutputStream extends OutputStream
          * Write `magic' bytes h indicating file-format == huffmanised, followed
          * by a digit indicating blockSize100k.
          */
-        bsPutUByte('h');
-        bsPutUByte('0' + this.blockSize100k);
+        if (!blocksOnly) {
+            bsPutUByte('h');
+            bsPutUByte('0' + this.blockSize100k);
+        }
 
         this.combinedCRC = 0;
         initBlock();
@@ -802,6 +844,7 @@ public class CBZip2OutputStream extends OutputStream
         if (this.last == -1) {
             return;
         }
+        this.blockCount++;
 
         /* sort the block and establish posn of original string */
         blockSort();
@@ -859,6 +902,31 @@ public class CBZip2OutputStream extends OutputStream
         return this.blockSize100k;
     }
 
+    /**
+     * The combined CRC of all blocks written so far.
+     * @since Ant 1.9.5
+     */
+    int getCombinedCRC() {
+        return this.combinedCRC;
+    }
+
+    /**
+     * The number of non-empty blocks written so far.
+     * @since Ant 1.9.5
+     */
+    int getBlockCount() {
+        return this.blockCount;
+    }
+
+    /**
+     * The number of bits used to pad the output to a full byte once
+     * the stream has been finished.
+     * @since Ant 1.9.5
+     */
+    int getPaddingBits() {
+        return this.paddingBits;
+    }
+
     @Override
     public void write(final byte[] buf, int offs, final int len)
         throws IOException {
@@ -923,6 +991,7 @@ public class CBZip2OutputStream extends OutputStream
     }
 
     private void bsFinishedWithStream() throws IOException {
+        this.paddingBits = (8 - (this.bsLive & 7)) & 7;
         while (this.bsLive > 0) {
             int ch = this.bsBuff >> 24;
             this.out.write(ch); // write 8-bit
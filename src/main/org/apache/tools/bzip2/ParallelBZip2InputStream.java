@@ -0,0 +1,537 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.tools.bzip2;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * An input stream that decompresses from the BZip2 format using
+ * several threads.
+ *
+ * <p>The compressed input is scanned for the 48 bit markers that
+ * start each block and end each stream.  Every block found that way
+ * is decompressed independently by a pool of threads while the
+ * results are returned in their original order.  As the markers are
+ * not byte aligned and could - in theory - appear inside of the
+ * compressed data as well, a block that fails to decompress is
+ * retried together with the block that follows it.</p>
+ *
+ * <p>Block and stream CRCs are verified, a mismatch results in an
+ * IOException.</p>
+ *
+ * <p><b>Attention: </b>Like for {@link CBZip2InputStream} the caller
+ * is responsible to read the two BZip2 magic bytes <tt>"BZ"</tt> from
+ * the specified stream prior to calling the constructor.  Unlike
+ * {@link CBZip2InputStream} this class reads ahead, the position of
+ * the underlying stream is undefined after the end of the bzip2
+ * stream has been reached.</p>
+ *
+ * <p>Instances of this class are not threadsafe.</p>
+ *
+ * @since Ant 1.9.5
+ */
+public class ParallelBZip2InputStream extends InputStream {
+
+    private static final long BLOCK_MAGIC = 0x314159265359L;
+    private static final long EOS_MAGIC = 0x177245385090L;
+    private static final long MASK48 = (1L << 48) - 1;
+    private static final long MASK56 = (1L << 56) - 1;
+    /** bits of a marker followed by a CRC. */
+    private static final int MARKER_AND_CRC = 48 + 32;
+
+    /**
+     * How many following blocks are merged with a block that failed
+     * to decompress before giving up.
+     */
+    private static final int MAX_MERGED = 2;
+
+    private InputStream in;
+    private final boolean decompressConcatenated;
+    private final int maxPending;
+    private final ExecutorService decompressors;
+    private final LinkedList<Part> pending = new LinkedList<Part>();
+
+    // state of the scanner
+    private byte[] buf = new byte[1 << 20];
+    private int bufLength = 0;
+    /** bit position in buf where scanning continues. */
+    private long pos = 0;
+    /** bit position in buf of the block currently scanned, -1 if none. */
+    private long blockStart = -1;
+    private boolean markerIsEos;
+    private boolean firstStream = true;
+    private boolean inStream = false;
+    private boolean inputDone = false;
+    private int level;
+    /** combined CRC of the block headers of the current stream. */
+    private int headerCRC = 0;
+
+    // state of the consumer
+    private byte[] current;
+    private int currentPos = 0;
+    /** combined CRC of the blocks returned from the current stream. */
+    private int combinedCRC = 0;
+
+    /**
+     * Constructs a new stream that decompresses concatenated streams.
+     *
+     * @param in the InputStream from which this object should be
+     * created of.
+     * @param threads the number of threads decompressing blocks.
+     *
+     * @throws IOException if the stream content is malformed or an
+     * I/O error occurs.
+     * @throws IllegalArgumentException if <code>threads &lt; 1</code>.
+     */
+    public ParallelBZip2InputStream(InputStream in, int threads)
+        throws IOException {
+        this(in, threads, true);
+    }
+
+    /**
+     * Constructs a new stream.
+     *
+     * @param in the InputStream from which this object should be
+     * created of.
+     * @param threads the number of threads decompressing blocks.
+     * @param decompressConcatenated whether to read further bzip2
+     * streams following the first one.
+     *
+     * @throws IOException if the stream content is malformed or an
+     * I/O error occurs.
+     * @throws IllegalArgumentException if <code>threads &lt; 1</code>.
+     */
+    public ParallelBZip2InputStream(InputStream in, int threads,
+                                    boolean decompressConcatenated)
+        throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads(" + threads
+                                               + ") < 1");
+        }
+        this.in = in;
+        this.decompressConcatenated = decompressConcatenated;
+        this.maxPending = 2 * threads;
+        decompressors = Executors.newFixedThreadPool(threads,
+            new ThreadFactory() {
+                private int count = 0;
+                public synchronized Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "bzip2-decompressor-"
+                                          + (++count));
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        try {
+            if (!startStream()) {
+                throw new IOException("Empty InputStream");
+            }
+        } catch (IOException ex) {
+            decompressors.shutdownNow();
+            throw ex;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (in == null) {
+            throw new IOException("stream closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        while (current == null || currentPos == current.length) {
+            if (!nextBlock()) {
+                return -1;
+            }
+        }
+        int count = Math.min(len, current.length - currentPos);
+        System.arraycopy(current, currentPos, b, off, count);
+        currentPos += count;
+        return count;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException {
+        if (in != null) {
+            try {
+                for (Part p : pending) {
+                    if (p.result != null) {
+                        p.result.cancel(true);
+                    }
+                }
+                pending.clear();
+                decompressors.shutdownNow();
+                in.close();
+            } finally {
+                in = null;
+                buf = null;
+                current = null;
+            }
+        }
+    }
+
+    /**
+     * Makes the next decompressed block the current one.
+     * @return false if the end of the input has been reached.
+     */
+    private boolean nextBlock() throws IOException {
+        while (true) {
+            readAhead();
+            if (pending.isEmpty()) {
+                current = null;
+                return false;
+            }
+            Part p = pending.removeFirst();
+            if (p.endOfStream) {
+                if (p.crc != combinedCRC) {
+                    throw new IOException("BZip2 CRC error");
+                }
+                combinedCRC = 0;
+                continue;
+            }
+            current = getDecompressed(p);
+            currentPos = 0;
+            combinedCRC = ((combinedCRC << 1) | (combinedCRC >>> 31)) ^ p.crc;
+            return true;
+        }
+    }
+
+    private byte[] getDecompressed(Part p) throws IOException {
+        IOException failure;
+        try {
+            return p.result.get();
+        } catch (InterruptedException ex) {
+            throw new InterruptedIOException("interrupted while waiting"
+                                             + " for decompressed data");
+        } catch (ExecutionException ex) {
+            failure = asIOException(ex.getCause());
+        }
+        // maybe the block has been split at something that only
+        // looked like a block marker
+        List<Part> merged = new ArrayList<Part>();
+        merged.add(p);
+        for (int i = 0; i < MAX_MERGED; i++) {
+            readAhead();
+            if (pending.isEmpty() || pending.getFirst().endOfStream) {
+                break;
+            }
+            Part next = pending.removeFirst();
+            next.result.cancel(true);
+            merged.add(next);
+            try {
+                return decompress(merged);
+            } catch (IOException ex) {
+                // try again with one more block
+            }
+        }
+        throw failure;
+    }
+
+    /**
+     * Scans the input for further blocks until enough are pending.
+     */
+    private void readAhead() throws IOException {
+        while (!inputDone && pending.size() < maxPending) {
+            if (!inStream && !startStream()) {
+                inputDone = true;
+            } else {
+                scanNext();
+            }
+        }
+    }
+
+    /**
+     * Reads the header of a stream starting at the current position.
+     * @return false if the input has been exhausted.
+     */
+    private boolean startStream() throws IOException {
+        compact();
+        int start = (int) (pos >>> 3);
+        if (!ensure(start + 1)) {
+            return false;
+        }
+        String error = firstStream ? "Stream is not in the BZip2 format"
+            : "Garbage after a valid BZip2 stream";
+        if (!firstStream) {
+            if (!ensure(start + 2) || buf[start] != 'B'
+                || buf[start + 1] != 'Z') {
+                throw new IOException(error);
+            }
+            start += 2;
+        }
+        if (!ensure(start + 2) || buf[start] != 'h'
+            || buf[start + 1] < '1' || buf[start + 1] > '9') {
+            throw new IOException(error);
+        }
+        level = buf[start + 1] - '0';
+        pos = (start + 2) * 8L;
+        blockStart = -1;
+        headerCRC = 0;
+        firstStream = false;
+        inStream = true;
+        return true;
+    }
+
+    /**
+     * Finds the next block or end of stream marker and schedules the
+     * block that ends there.
+     */
+    private void scanNext() throws IOException {
+        compact();
+        long m = findMarker(pos);
+        if (m < 0) {
+            throw new IOException("unexpected end of stream");
+        }
+        if (blockStart < 0 && m != pos) {
+            throw new IOException("bad block header");
+        }
+        if (!markerIsEos) {
+            if (blockStart >= 0) {
+                addBlock(blockStart, m);
+            }
+            blockStart = m;
+            pos = m + 48;
+            return;
+        }
+        long end = m + MARKER_AND_CRC;
+        if (!ensure((int) ((end + 7) >>> 3))) {
+            throw new IOException("unexpected end of stream");
+        }
+        int stored = BitWriter.readBits(buf, m + 48, 32);
+        int expected = headerCRC;
+        if (blockStart >= 0) {
+            expected = ((expected << 1) | (expected >>> 31))
+                ^ BitWriter.readBits(buf, blockStart + 48, 32);
+        }
+        end = (end + 7) & ~7L;
+        if (stored != expected && !isEndOfStream(end)) {
+            // not a real marker, keep looking
+            pos = m + 1;
+            return;
+        }
+        if (blockStart >= 0) {
+            addBlock(blockStart, m);
+        }
+        Part p = new Part();
+        p.endOfStream = true;
+        p.crc = stored;
+        pending.add(p);
+        blockStart = -1;
+        pos = end;
+        inStream = false;
+        if (!decompressConcatenated) {
+            inputDone = true;
+        }
+    }
+
+    /**
+     * Whether the byte position of the given bit position is the
+     * end of the input or the start of another bzip2 stream.
+     */
+    private boolean isEndOfStream(long bitPos) throws IOException {
+        int i = (int) (bitPos >>> 3);
+        if (!ensure(i + 1)) {
+            return true;
+        }
+        return ensure(i + 4) && buf[i] == 'B' && buf[i + 1] == 'Z'
+            && buf[i + 2] == 'h' && buf[i + 3] >= '1' && buf[i + 3] <= '9';
+    }
+
+    /**
+     * Schedules decompression of the block between the given bit
+     * positions.
+     */
+    private void addBlock(long start, long end) {
+        final Part p = new Part();
+        p.level = level;
+        p.crc = BitWriter.readBits(buf, start + 48, 32);
+        int first = (int) (start >>> 3);
+        p.data = new byte[(int) ((end + 7) >>> 3) - first];
+        System.arraycopy(buf, first, p.data, 0, p.data.length);
+        p.offset = (int) (start & 7);
+        p.bits = end - start;
+        headerCRC = ((headerCRC << 1) | (headerCRC >>> 31)) ^ p.crc;
+        p.result = decompressors.submit(new Callable<byte[]>() {
+                public byte[] call() throws IOException {
+                    List<Part> l = new ArrayList<Part>(1);
+                    l.add(p);
+                    return decompress(l);
+                }
+            });
+        pending.add(p);
+    }
+
+    /**
+     * Returns the bit position of the next block or end of stream
+     * marker at or after the given position, -1 if the input ends
+     * before.
+     */
+    private long findMarker(long from) throws IOException {
+        int i = (int) (from >>> 3);
+        if (!ensure(i + 7)) {
+            return -1;
+        }
+        long window = 0;
+        for (int j = 0; j < 7; j++) {
+            window = (window << 8) | (buf[i + j] & 0xff);
+        }
+        while (true) {
+            for (int s = 0; s < 8; s++) {
+                long v = (window >>> (8 - s)) & MASK48;
+                if (v == BLOCK_MAGIC || v == EOS_MAGIC) {
+                    long p = ((long) i << 3) + s;
+                    if (p >= from) {
+                        markerIsEos = v == EOS_MAGIC;
+                        return p;
+                    }
+                }
+            }
+            i++;
+            if (!ensure(i + 7)) {
+                return -1;
+            }
+            window = ((window << 8) | (buf[i + 6] & 0xff)) & MASK56;
+        }
+    }
+
+    /**
+     * Drops the bytes before the current block or scan position.
+     */
+    private void compact() {
+        long keep = blockStart >= 0 ? blockStart : pos;
+        int drop = (int) (keep >>> 3);
+        if (drop > 0) {
+            System.arraycopy(buf, drop, buf, 0, bufLength - drop);
+            bufLength -= drop;
+            pos -= drop * 8L;
+            if (blockStart >= 0) {
+                blockStart -= drop * 8L;
+            }
+        }
+    }
+
+    /**
+     * Reads from the input until buf holds at least the given number
+     * of bytes.
+     * @return false if the input ends before.
+     */
+    private boolean ensure(int length) throws IOException {
+        while (bufLength < length) {
+            if (bufLength == buf.length) {
+                byte[] b = new byte[2 * buf.length];
+                System.arraycopy(buf, 0, b, 0, bufLength);
+                buf = b;
+            }
+            int count = in.read(buf, bufLength, buf.length - bufLength);
+            if (count < 0) {
+                return false;
+            }
+            bufLength += count;
+        }
+        return true;
+    }
+
+    /**
+     * Decompresses the given parts as a single block.
+     */
+    private static byte[] decompress(List<Part> parts) throws IOException {
+        Part first = parts.get(0);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        BitWriter w = new BitWriter(stream);
+        w.write(8, 'h');
+        w.write(8, '0' + first.level);
+        for (Part p : parts) {
+            w.write(p.data, p.offset, p.bits);
+        }
+        w.write(24, (int) (EOS_MAGIC >>> 24));
+        w.write(24, (int) EOS_MAGIC);
+        w.write(32, first.crc);
+        w.finish();
+
+        ByteArrayOutputStream result =
+            new ByteArrayOutputStream(first.level * BZip2Constants.baseBlockSize);
+        CRC crc = new CRC();
+        try {
+            CBZip2InputStream bz = new CBZip2InputStream(
+                new ByteArrayInputStream(stream.toByteArray()), false);
+            byte[] b = new byte[8192];
+            int count;
+            while ((count = bz.read(b, 0, b.length)) != -1) {
+                result.write(b, 0, count);
+                for (int i = 0; i < count; i++) {
+                    crc.updateCRC(b[i] & 0xff);
+                }
+            }
+            bz.close();
+        } catch (RuntimeException ex) {
+            // corrupt data may lead to all kinds of index errors
+            throw asIOException(ex);
+        }
+        if (crc.getFinalCRC() != first.crc) {
+            throw new IOException("BZip2 CRC error");
+        }
+        return result.toByteArray();
+    }
+
+    private static IOException asIOException(Throwable t) {
+        if (t instanceof IOException) {
+            return (IOException) t;
+        }
+        IOException ex = new IOException(String.valueOf(t.getMessage()));
+        ex.initCause(t);
+        return ex;
+    }
+
+    /**
+     * A block or the end of a stream.
+     */
+    private static class Part {
+        private boolean endOfStream;
+        /** block CRC or combined CRC for the end of a stream. */
+        private int crc;
+        private int level;
+        private byte[] data;
+        /** bit offset of the block inside data. */
+        private int offset;
+        private long bits;
+        private Future<byte[]> result;
+    }
+}
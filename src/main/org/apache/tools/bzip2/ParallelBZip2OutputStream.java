@@ -0,0 +1,250 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.tools.bzip2;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * An output stream that compresses into the BZip2 format using
+ * several threads.
+ *
+ * <p>The uncompressed data is split into chunks of the size of a
+ * bzip2 block which are compressed independently of each other.  The
+ * compressed blocks are stitched together - at the bit level - in
+ * their original order, so the result is a single ordinary bzip2
+ * stream that can be read by {@link CBZip2InputStream} or any other
+ * bzip2 implementation.</p>
+ *
+ * <p>At most twice as many chunks as there are threads are held in
+ * memory at any time.</p>
+ *
+ * <p><b>Attention: </b>Like for {@link CBZip2OutputStream} the caller
+ * is responsible to write the two BZip2 magic bytes <tt>"BZ"</tt> to
+ * the specified stream prior to calling the constructor.</p>
+ *
+ * <p>Instances of this class are not threadsafe.</p>
+ *
+ * @since Ant 1.9.5
+ */
+public class ParallelBZip2OutputStream extends OutputStream {
+
+    private final OutputStream out;
+    private final BitWriter bits;
+    private final int blockSize100k;
+    private final int maxPending;
+    private final ExecutorService compressors;
+    private final LinkedList<Future<CompressedChunk>> pending =
+        new LinkedList<Future<CompressedChunk>>();
+
+    private final int chunkSize;
+    private byte[] chunk;
+    private int chunkLength = 0;
+    private int combinedCRC = 0;
+    private boolean finished = false;
+
+    /**
+     * Constructs a new stream.
+     *
+     * @param out the destination stream.
+     * @param blockSize the blockSize as 100k units.
+     * @param threads the number of threads compressing blocks.
+     *
+     * @throws IOException if an I/O error occurs in the specified
+     * stream.
+     * @throws IllegalArgumentException if <code>(blockSize &lt; 1) ||
+     * (blockSize &gt; 9) || (threads &lt; 1)</code>.
+     */
+    public ParallelBZip2OutputStream(OutputStream out, int blockSize,
+                                     int threads) throws IOException {
+        if (blockSize < CBZip2OutputStream.MIN_BLOCKSIZE
+            || blockSize > CBZip2OutputStream.MAX_BLOCKSIZE) {
+            throw new IllegalArgumentException("blockSize(" + blockSize
+                                               + ") must be between 1 and 9");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads(" + threads
+                                               + ") < 1");
+        }
+        this.out = out;
+        this.blockSize100k = blockSize;
+        this.maxPending = 2 * threads;
+        // the same limit CBZip2OutputStream uses for a single block,
+        // run length encoding may still make a chunk span two blocks
+        this.chunkSize = blockSize * BZip2Constants.baseBlockSize - 20;
+        this.chunk = new byte[chunkSize];
+        this.bits = new BitWriter(out);
+        bits.write(8, 'h');
+        bits.write(8, '0' + blockSize);
+        compressors = Executors.newFixedThreadPool(threads,
+            new ThreadFactory() {
+                private int count = 0;
+                public synchronized Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "bzip2-compressor-" + (++count));
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void write(byte[] b, int offset, int length) throws IOException {
+        if (finished) {
+            throw new IOException("closed");
+        }
+        while (length > 0) {
+            int count = Math.min(length, chunkSize - chunkLength);
+            System.arraycopy(b, offset, chunk, chunkLength, count);
+            chunkLength += count;
+            offset += count;
+            length -= count;
+            if (chunkLength == chunkSize) {
+                submitChunk();
+            }
+        }
+    }
+
+    /**
+     * Compresses all remaining data and writes the end of stream
+     * marker without closing the underlying stream.
+     * @throws IOException on error.
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        try {
+            if (chunkLength > 0) {
+                submitChunk();
+            }
+            while (!pending.isEmpty()) {
+                writeNextChunk();
+            }
+            bits.write(24, 0x177245);
+            bits.write(24, 0x385090);
+            bits.write(32, combinedCRC);
+            bits.finish();
+        } finally {
+            chunk = null;
+            for (Future<CompressedChunk> f : pending) {
+                f.cancel(true);
+            }
+            pending.clear();
+            compressors.shutdown();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void submitChunk() throws IOException {
+        final byte[] data = chunk;
+        final int length = chunkLength;
+        pending.add(compressors.submit(new Callable<CompressedChunk>() {
+                public CompressedChunk call() throws IOException {
+                    return compress(data, length);
+                }
+            }));
+        chunk = new byte[chunkSize];
+        chunkLength = 0;
+        while (pending.size() >= maxPending) {
+            writeNextChunk();
+        }
+    }
+
+    private CompressedChunk compress(byte[] data, int length)
+        throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(length / 2);
+        CBZip2OutputStream c =
+            new CBZip2OutputStream(bos, blockSize100k, true);
+        c.write(data, 0, length);
+        c.finish();
+        return new CompressedChunk(bos.toByteArray(),
+                                   bos.size() * 8L - c.getPaddingBits(),
+                                   c.getCombinedCRC(), c.getBlockCount());
+    }
+
+    private void writeNextChunk() throws IOException {
+        CompressedChunk c;
+        try {
+            c = pending.removeFirst().get();
+        } catch (InterruptedException ex) {
+            throw new InterruptedIOException("interrupted while waiting"
+                                             + " for compressed data");
+        } catch (ExecutionException ex) {
+            Throwable t = ex.getCause();
+            if (t instanceof IOException) {
+                throw (IOException) t;
+            }
+            IOException ioe = new IOException(t.getMessage());
+            ioe.initCause(t);
+            throw ioe;
+        }
+        bits.write(c.data, 0, c.bitLength);
+        // the combined CRC is rotated by one bit per block
+        int k = c.blocks & 31;
+        combinedCRC = ((combinedCRC << k) | (combinedCRC >>> (32 - k)))
+            ^ c.combinedCRC;
+    }
+
+    private static class CompressedChunk {
+        private final byte[] data;
+        private final long bitLength;
+        private final int combinedCRC;
+        private final int blocks;
+
+        CompressedChunk(byte[] data, long bitLength, int combinedCRC,
+                        int blocks) {
+            this.data = data;
+            this.bitLength = bitLength;
+            this.combinedCRC = combinedCRC;
+            this.blocks = blocks;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.tools.zip;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Holds the data of a single entry while it waits to be written to
+ * the archive.
+ *
+ * <p>Data is kept in memory until it exceeds a threshold and moved
+ * to a temporary file after that.</p>
+ *
+ * @since Ant 1.9.5
+ */
+class EntryBuffer extends OutputStream {
+
+    private final int threshold;
+    private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+    private File file;
+    private OutputStream fileOut;
+    private long size = 0;
+
+    /**
+     * @param threshold number of bytes to keep in memory before
+     * switching to a temporary file.
+     */
+    EntryBuffer(int threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int offset, int length) throws IOException {
+        if (fileOut == null && memory.size() + length > threshold) {
+            file = File.createTempFile("zip", ".tmp");
+            fileOut = new BufferedOutputStream(new FileOutputStream(file));
+            memory.writeTo(fileOut);
+            memory = null;
+        }
+        if (fileOut != null) {
+            fileOut.write(b, offset, length);
+        } else {
+            memory.write(b, offset, length);
+        }
+        size += length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (fileOut != null) {
+            fileOut.close();
+        }
+    }
+
+    /**
+     * Number of bytes written so far.
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * Reads the data written, must only be invoked after the buffer
+     * has been closed.
+     */
+    InputStream getInputStream() throws IOException {
+        if (file != null) {
+            return new FileInputStream(file);
+        }
+        return new ByteArrayInputStream(memory.toByteArray());
+    }
+
+    /**
+     * Releases the memory or temporary file held.
+     */
+    void delete() {
+        try {
+            close();
+        } catch (IOException ex) {
+            // ignore, the file is going to be deleted anyway
+        }
+        memory = null;
+        if (file != null && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+}
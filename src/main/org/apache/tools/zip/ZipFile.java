@@ -23,15 +23,17 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
 import java.util.zip.ZipException;
@@ -73,7 +75,8 @@ import static org.apache.tools.zip.ZipConstants.ZIP64_MAGIC_SHORT;
  *
  */
 public class ZipFile {
-    private static final int HASH_SIZE = 509;
+    private static final int HASH_SHIFT = 16;
+    private static final int SHORT_MASK = 0xFFFF;
     static final int NIBLET_MASK = 0x0f;
     static final int BYTE_SHIFT = 8;
     private static final int POS_0 = 0;
@@ -85,18 +88,17 @@ public class ZipFile {
      * List of entries in the order they appear inside the central
      * directory.
      */
-    private final List<ZipEntry> entries = new LinkedList<ZipEntry>();
+    private final ArrayList<ZipEntry> entries = new ArrayList<ZipEntry>();
 
     /**
-     * Maps String to list of ZipEntrys, name -> actual entries.
+     * Open addressing hash table that maps names to the first entry
+     * of that name, holds the entry's index into {@link #entries}
+     * plus one, zero marks an empty slot.
+     *
+     * <p>Further entries of the same name are linked from the first
+     * one.</p>
      */
-    private final Map<String, LinkedList<ZipEntry>> nameMap =
-        new HashMap<String, LinkedList<ZipEntry>>(HASH_SIZE);
-
-    private static final class OffsetEntry {
-        private long headerOffset = -1;
-        private long dataOffset = -1;
-    }
+    private int[] nameTable;
 
     /**
      * The encoding to use for filenames and the file comment.
@@ -132,6 +134,35 @@ public class ZipFile {
      */
     private boolean closed;
 
+    /**
+     * Offset of the first central directory record.
+     */
+    private long centralDirectoryStart;
+
+    /**
+     * Offset right behind the last central directory record.
+     */
+    private long centralDirectoryEnd;
+
+    /**
+     * Offset of the structure following the central directory,
+     * i.e. the (Zip64) end of central directory record.
+     */
+    private long centralDirectoryLimit;
+
+    /**
+     * Whether to map the archive into memory while reading the
+     * central directory.
+     */
+    private final boolean useMemoryMapping;
+
+    /**
+     * The whole archive mapped into memory while the constructor
+     * runs if memory mapping has been requested and the archive is
+     * small enough to be mapped at once.
+     */
+    private ByteBuffer mappedArchive;
+
     // cached buffers
     private final byte[] DWORD_BUF = new byte[DWORD];
     private final byte[] WORD_BUF = new byte[WORD];
@@ -204,18 +235,57 @@ public class ZipFile {
      */
     public ZipFile(File f, String encoding, boolean useUnicodeExtraFields)
         throws IOException {
+        this(f, encoding, useUnicodeExtraFields, false);
+    }
+
+    /**
+     * Opens the given file for reading, assuming the specified
+     * encoding for file names and optionally mapping the archive
+     * into memory while reading its central directory.
+     *
+     * <p>Memory mapping speeds up opening archives with many entries
+     * considerably.  The mapping is released once it has been
+     * garbage collected, on some platforms - most notably Windows -
+     * the file cannot be deleted or overwritten until this has
+     * happened.</p>
+     *
+     * @param f the archive.
+     * @param encoding the encoding to use for file names, use null
+     * for the platform's default encoding
+     * @param useUnicodeExtraFields whether to use InfoZIP Unicode
+     * Extra Fields (if present) to set the file names.
+     * @param useMemoryMapping whether to map the archive into memory
+     * while reading the central directory.
+     *
+     * @throws IOException if an error occurs while reading the file.
+     * @since Ant 1.9.5
+     */
+    public ZipFile(File f, String encoding, boolean useUnicodeExtraFields,
+                   boolean useMemoryMapping)
+        throws IOException {
         this.archiveName = f.getAbsolutePath();
         this.encoding = encoding;
         this.zipEncoding = ZipEncodingHelper.getZipEncoding(encoding);
         this.useUnicodeExtraFields = useUnicodeExtraFields;
+        this.useMemoryMapping = useMemoryMapping;
         archive = new RandomAccessFile(f, "r");
         boolean success = false;
         try {
-            Map<ZipEntry, NameAndComment> entriesWithoutUTF8Flag =
-                populateFromCentralDirectory();
-            resolveLocalFileHeaderData(entriesWithoutUTF8Flag);
+            if (useMemoryMapping && archive.length() <= Integer.MAX_VALUE) {
+                mappedArchive = archive.getChannel()
+                    .map(FileChannel.MapMode.READ_ONLY, 0, archive.length())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            }
+            populateFromCentralDirectory();
+            resolveLocalFileHeaderData();
+            buildNameTable();
             success = true;
+        } catch (BufferUnderflowException ex) {
+            throw new EOFException();
+        } catch (IndexOutOfBoundsException ex) {
+            throw new EOFException();
         } finally {
+            mappedArchive = null;
             if (!success) {
                 try {
                     closed = true;
@@ -305,8 +375,7 @@ public class ZipFile {
      * {@code null} if not present.
      */
     public ZipEntry getEntry(String name) {
-        LinkedList<ZipEntry> entriesOfThatName = nameMap.get(name);
-        return entriesOfThatName != null ? entriesOfThatName.getFirst() : null;
+        return lookup(name);
     }
 
     /**
@@ -319,9 +388,7 @@ public class ZipFile {
      * @since 1.9.2
      */
     public Iterable<ZipEntry> getEntries(String name) {
-        List<ZipEntry> entriesOfThatName = nameMap.get(name);
-        return entriesOfThatName != null ? entriesOfThatName
-            : Collections.<ZipEntry>emptyList();
+        return listEntries(name);
     }
 
     /**
@@ -334,12 +401,20 @@ public class ZipFile {
      * @since 1.9.2
      */
     public Iterable<ZipEntry> getEntriesInPhysicalOrder(String name) {
-        ZipEntry[] entriesOfThatName = new ZipEntry[0];
-        if (nameMap.containsKey(name)) {
-            entriesOfThatName = nameMap.get(name).toArray(entriesOfThatName);
-            Arrays.sort(entriesOfThatName, OFFSET_COMPARATOR);
+        List<ZipEntry> entriesOfThatName = listEntries(name);
+        Collections.sort(entriesOfThatName, OFFSET_COMPARATOR);
+        return entriesOfThatName;
+    }
+
+    /**
+     * All entries of the given name in central directory order.
+     */
+    private List<ZipEntry> listEntries(String name) {
+        List<ZipEntry> entriesOfThatName = new ArrayList<ZipEntry>(1);
+        for (Entry e = lookup(name); e != null; e = e.nextOfSameName) {
+            entriesOfThatName.add(e);
         }
-        return Arrays.asList(entriesOfThatName);
+        return entriesOfThatName;
     }
 
     /**
@@ -366,9 +441,8 @@ public class ZipFile {
             return null;
         }
         // cast valididty is checked just above
-        OffsetEntry offsetEntry = ((Entry) ze).getOffsetEntry();
         ZipUtil.checkRequestedFeatures(ze);
-        long start = offsetEntry.dataOffset;
+        long start = ((Entry) ze).dataOffset;
         BoundedInputStream bis =
             new BoundedInputStream(start, ze.getCompressedSize());
         switch (ze.getMethod()) {
@@ -390,6 +464,38 @@ public class ZipFile {
         }
     }
 
+    /**
+     * Returns an InputStream for reading the data of the given entry
+     * as it is stored inside the archive, i.e. without uncompressing
+     * it.
+     *
+     * @param ze the entry to get the stream for.
+     * @return a stream to read the raw entry data from or null if
+     * the entry doesn't belong to this archive.
+     * @since Ant 1.9.5
+     */
+    public InputStream getRawInputStream(ZipEntry ze) {
+        if (!(ze instanceof Entry)) {
+            return null;
+        }
+        return new BoundedInputStream(((Entry) ze).dataOffset,
+                                      ze.getCompressedSize());
+    }
+
+    /**
+     * Offset of the first central directory record.
+     */
+    long getCentralDirectoryStart() {
+        return centralDirectoryStart;
+    }
+
+    /**
+     * Offset right behind the last central directory record.
+     */
+    long getCentralDirectoryEnd() {
+        return centralDirectoryEnd;
+    }
+
     /**
      * Ensures that the close method of this zipfile is called when
      * there are no more references to it.
@@ -441,18 +547,16 @@ public class ZipFile {
      * the central directory alone, but not the data that requires the
      * local file header or additional data to be read.</p>
      *
-     * @return a map of zipentries that didn't have the language
-     * encoding flag set when read.
+     * <p>The whole central directory is read (or mapped) at once and
+     * parsed from memory.</p>
      */
-    private Map<ZipEntry, NameAndComment> populateFromCentralDirectory()
+    private void populateFromCentralDirectory()
         throws IOException {
-        HashMap<ZipEntry, NameAndComment> noUTF8Flag =
-            new HashMap<ZipEntry, NameAndComment>();
-
         positionAtCentralDirectory();
+        centralDirectoryStart = archive.getFilePointer();
+        ByteBuffer cd = readCentralDirectory();
 
-        archive.readFully(WORD_BUF);
-        long sig = ZipLong.getValue(WORD_BUF);
+        long sig = readSignature(cd);
 
         if (sig != CFH_SIG && startsWithLocalFileHeader()) {
             throw new IOException("central directory is empty, can't expand"
@@ -460,29 +564,64 @@ public class ZipFile {
         }
 
         while (sig == CFH_SIG) {
-            readCentralDirectoryEntry(noUTF8Flag);
-            archive.readFully(WORD_BUF);
-            sig = ZipLong.getValue(WORD_BUF);
+            readCentralDirectoryEntry(cd);
+            sig = readSignature(cd);
         }
-        return noUTF8Flag;
+        centralDirectoryEnd = centralDirectoryStart + cd.position()
+            - (sig == -1 ? 0 : WORD);
+        entries.trimToSize();
+    }
+
+    /**
+     * Reads the bytes between the start of the central directory and
+     * the structure following it.
+     */
+    private ByteBuffer readCentralDirectory() throws IOException {
+        long length = centralDirectoryLimit - centralDirectoryStart;
+        if (length < 0 || length > Integer.MAX_VALUE) {
+            throw new ZipException("archive's central directory is corrupt.");
+        }
+        if (mappedArchive != null) {
+            ByteBuffer cd = mappedArchive.duplicate();
+            cd.position((int) centralDirectoryStart);
+            cd.limit((int) centralDirectoryLimit);
+            return cd.slice();
+        }
+        if (useMemoryMapping) {
+            return archive.getChannel()
+                .map(FileChannel.MapMode.READ_ONLY, centralDirectoryStart,
+                     length);
+        }
+        byte[] cd = new byte[(int) length];
+        archive.readFully(cd);
+        return ByteBuffer.wrap(cd);
+    }
+
+    /**
+     * Reads the next signature of the central directory, returns -1
+     * if the end of the central directory has been reached.
+     */
+    private long readSignature(ByteBuffer cd) {
+        if (cd.remaining() < WORD) {
+            return -1;
+        }
+        cd.get(WORD_BUF);
+        return ZipLong.getValue(WORD_BUF);
     }
 
     /**
      * Reads an individual entry of the central directory, creats an
-     * ZipEntry from it and adds it to the global maps.
+     * ZipEntry from it and adds it to the global list.
      *
-     * @param noUTF8Flag map used to collect entries that don't have
-     * their UTF-8 flag set and whose name will be set by data read
-     * from the local file header later.  The current entry may be
-     * added to this map.
+     * <p>Entries that don't have their UTF-8 flag set remember their
+     * raw name and comment as their name may be set by data read
+     * from the local file header later.</p>
      */
-    private void
-        readCentralDirectoryEntry(Map<ZipEntry, NameAndComment> noUTF8Flag)
+    private void readCentralDirectoryEntry(ByteBuffer cd)
         throws IOException {
-        archive.readFully(CFH_BUF);
+        cd.get(CFH_BUF);
         int off = 0;
-        OffsetEntry offset = new OffsetEntry();
-        Entry ze = new Entry(offset);
+        Entry ze = new Entry();
 
         int versionMadeBy = ZipShort.getValue(CFH_BUF, off);
         off += SHORT;
@@ -533,26 +672,26 @@ public class ZipFile {
         off += WORD;
 
         byte[] fileName = new byte[fileNameLen];
-        archive.readFully(fileName);
+        cd.get(fileName);
         ze.setName(entryEncoding.decode(fileName), fileName);
 
         // LFH offset,
-        offset.headerOffset = ZipLong.getValue(CFH_BUF, off);
+        ze.headerOffset = ZipLong.getValue(CFH_BUF, off);
         // data offset will be filled later
         entries.add(ze);
 
         byte[] cdExtraData = new byte[extraLen];
-        archive.readFully(cdExtraData);
+        cd.get(cdExtraData);
         ze.setCentralDirectoryExtra(cdExtraData);
 
-        setSizesAndOffsetFromZip64Extra(ze, offset, diskStart);
+        setSizesAndOffsetFromZip64Extra(ze, diskStart);
 
         byte[] comment = new byte[commentLen];
-        archive.readFully(comment);
+        cd.get(comment);
         ze.setComment(entryEncoding.decode(comment));
 
         if (!hasUTF8Flag && useUnicodeExtraFields) {
-            noUTF8Flag.put(ze, new NameAndComment(fileName, comment));
+            ze.nameAndComment = new NameAndComment(fileName, comment);
         }
     }
 
@@ -568,9 +707,7 @@ public class ZipFile {
      * even if they are never used - and here a field with only one
      * size would be invalid.</p>
      */
-    private void setSizesAndOffsetFromZip64Extra(ZipEntry ze,
-                                                 OffsetEntry offset,
-                                                 int diskStart)
+    private void setSizesAndOffsetFromZip64Extra(Entry ze, int diskStart)
         throws IOException {
         Zip64ExtendedInformationExtraField z64 =
             (Zip64ExtendedInformationExtraField)
@@ -579,7 +716,7 @@ public class ZipFile {
             boolean hasUncompressedSize = ze.getSize() == ZIP64_MAGIC;
             boolean hasCompressedSize = ze.getCompressedSize() == ZIP64_MAGIC;
             boolean hasRelativeHeaderOffset =
-                offset.headerOffset == ZIP64_MAGIC;
+                ze.headerOffset == ZIP64_MAGIC;
             z64.reparseCentralDirectoryData(hasUncompressedSize,
                                             hasCompressedSize,
                                             hasRelativeHeaderOffset,
@@ -598,7 +735,7 @@ public class ZipFile {
             }
 
             if (hasRelativeHeaderOffset) {
-                offset.headerOffset =
+                ze.headerOffset =
                     z64.getRelativeHeaderOffset().getLongValue();
             }
         }
@@ -735,7 +872,8 @@ public class ZipFile {
         skipBytes(ZIP64_EOCDL_LOCATOR_OFFSET
                   - WORD /* signature has already been read */);
         archive.readFully(DWORD_BUF);
-        archive.seek(ZipEightByteInteger.getLongValue(DWORD_BUF));
+        centralDirectoryLimit = ZipEightByteInteger.getLongValue(DWORD_BUF);
+        archive.seek(centralDirectoryLimit);
         archive.readFully(WORD_BUF);
         if (!Arrays.equals(WORD_BUF, ZipOutputStream.ZIP64_EOCD_SIG)) {
             throw new ZipException("archive's ZIP64 end of central "
@@ -754,6 +892,7 @@ public class ZipFile {
      */
     private void positionAtCentralDirectory32()
         throws IOException {
+        centralDirectoryLimit = archive.getFilePointer();
         skipBytes(CFD_LOCATOR_OFFSET);
         archive.readFully(WORD_BUF);
         archive.seek(ZipLong.getValue(WORD_BUF));
@@ -849,49 +988,102 @@ public class ZipFile {
      * <p>Also records the offsets for the data to read from the
      * entries.</p>
      */
-    private void resolveLocalFileHeaderData(Map<ZipEntry, NameAndComment>
-                                            entriesWithoutUTF8Flag)
+    private void resolveLocalFileHeaderData()
         throws IOException {
         for (Iterator<ZipEntry> it = entries.iterator(); it.hasNext(); ) {
             // entries is filled in populateFromCentralDirectory and
             // never modified
             Entry ze = (Entry) it.next();
-            OffsetEntry offsetEntry = ze.getOffsetEntry();
-            long offset = offsetEntry.headerOffset;
-            archive.seek(offset + LFH_OFFSET_FOR_FILENAME_LENGTH);
-            archive.readFully(SHORT_BUF);
-            int fileNameLen = ZipShort.getValue(SHORT_BUF);
-            archive.readFully(SHORT_BUF);
-            int extraFieldLen = ZipShort.getValue(SHORT_BUF);
-            int lenToSkip = fileNameLen;
-            while (lenToSkip > 0) {
-                int skipped = archive.skipBytes(lenToSkip);
-                if (skipped <= 0) {
-                    throw new IOException("failed to skip file name in"
-                                          + " local file header");
+            long offset = ze.headerOffset;
+            int fileNameLen;
+            byte[] localExtraData;
+            if (mappedArchive != null) {
+                int pos = (int) (offset + LFH_OFFSET_FOR_FILENAME_LENGTH);
+                fileNameLen = mappedArchive.getShort(pos) & SHORT_MASK;
+                localExtraData =
+                    new byte[mappedArchive.getShort(pos + SHORT) & SHORT_MASK];
+                ByteBuffer extra = mappedArchive.duplicate();
+                extra.position(pos + SHORT + SHORT + fileNameLen);
+                extra.get(localExtraData);
+            } else {
+                archive.seek(offset + LFH_OFFSET_FOR_FILENAME_LENGTH);
+                archive.readFully(SHORT_BUF);
+                fileNameLen = ZipShort.getValue(SHORT_BUF);
+                archive.readFully(SHORT_BUF);
+                int extraFieldLen = ZipShort.getValue(SHORT_BUF);
+                int lenToSkip = fileNameLen;
+                while (lenToSkip > 0) {
+                    int skipped = archive.skipBytes(lenToSkip);
+                    if (skipped <= 0) {
+                        throw new IOException("failed to skip file name in"
+                                              + " local file header");
+                    }
+                    lenToSkip -= skipped;
                 }
-                lenToSkip -= skipped;
+                localExtraData = new byte[extraFieldLen];
+                archive.readFully(localExtraData);
             }
-            byte[] localExtraData = new byte[extraFieldLen];
-            archive.readFully(localExtraData);
             ze.setExtra(localExtraData);
-            offsetEntry.dataOffset = offset + LFH_OFFSET_FOR_FILENAME_LENGTH
-                + SHORT + SHORT + fileNameLen + extraFieldLen;
-
-            if (entriesWithoutUTF8Flag.containsKey(ze)) {
-                NameAndComment nc = entriesWithoutUTF8Flag.get(ze);
-                ZipUtil.setNameAndCommentFromExtraFields(ze, nc.name,
-                                                         nc.comment);
+            ze.dataOffset = offset + LFH_OFFSET_FOR_FILENAME_LENGTH
+                + SHORT + SHORT + fileNameLen + localExtraData.length;
+
+            if (ze.nameAndComment != null) {
+                ZipUtil.setNameAndCommentFromExtraFields(ze,
+                                                         ze.nameAndComment.name,
+                                                         ze.nameAndComment.comment);
+                ze.nameAndComment = null;
             }
+        }
+    }
 
+    /**
+     * Fills the table used to look up entries by name.
+     */
+    private void buildNameTable() {
+        int size = 2;
+        while (size < 2 * entries.size()) {
+            size <<= 1;
+        }
+        nameTable = new int[size];
+        for (int i = 0; i < entries.size(); i++) {
+            Entry ze = (Entry) entries.get(i);
             String name = ze.getName();
-            LinkedList<ZipEntry> entriesOfThatName = nameMap.get(name);
-            if (entriesOfThatName == null) {
-                entriesOfThatName = new LinkedList<ZipEntry>();
-                nameMap.put(name, entriesOfThatName);
+            int slot = hash(name) & (size - 1);
+            while (nameTable[slot] != 0) {
+                Entry first = (Entry) entries.get(nameTable[slot] - 1);
+                if (first.getName().equals(name)) {
+                    while (first.nextOfSameName != null) {
+                        first = first.nextOfSameName;
+                    }
+                    first.nextOfSameName = ze;
+                    break;
+                }
+                slot = (slot + 1) & (size - 1);
+            }
+            if (nameTable[slot] == 0) {
+                nameTable[slot] = i + 1;
+            }
+        }
+    }
+
+    /**
+     * Looks up the first entry of the given name.
+     */
+    private Entry lookup(String name) {
+        int mask = nameTable.length - 1;
+        for (int slot = hash(name) & mask; nameTable[slot] != 0;
+             slot = (slot + 1) & mask) {
+            Entry ze = (Entry) entries.get(nameTable[slot] - 1);
+            if (ze.getName().equals(name)) {
+                return ze;
             }
-            entriesOfThatName.addLast(ze);
         }
+        return null;
+    }
+
+    private static int hash(String name) {
+        int h = name.hashCode();
+        return h ^ (h >>> HASH_SHIFT);
     }
 
     /**
@@ -1005,8 +1197,7 @@ public class ZipFile {
             if (ent2 == null) {
                 return -1;
             }
-            long val = (ent1.getOffsetEntry().headerOffset
-                        - ent2.getOffsetEntry().headerOffset);
+            long val = (ent1.headerOffset - ent2.headerOffset);
             return val == 0 ? 0 : val < 0 ? -1 : +1;
         }
     };
@@ -1016,20 +1207,22 @@ public class ZipFile {
      */
     private static class Entry extends ZipEntry {
 
-        private final OffsetEntry offsetEntry;
+        private long headerOffset = -1;
+        private long dataOffset = -1;
 
-        Entry(OffsetEntry offset) {
-            this.offsetEntry = offset;
-        }
+        /** Next entry with the same name in central directory order. */
+        private Entry nextOfSameName;
 
-        OffsetEntry getOffsetEntry() {
-            return offsetEntry;
-        }
+        /**
+         * Raw name and comment while the local file header has not
+         * been read, only set for entries without UTF-8 flag.
+         */
+        private NameAndComment nameAndComment;
 
         @Override
         public int hashCode() {
             return 3 * super.hashCode()
-                + (int) (offsetEntry.headerOffset % Integer.MAX_VALUE);
+                + (int) (headerOffset % Integer.MAX_VALUE);
         }
 
         @Override
@@ -1037,10 +1230,8 @@ public class ZipFile {
             if (super.equals(other)) {
                 // super.equals would return false if other were not an Entry
                 Entry otherEntry = (Entry) other;
-                return offsetEntry.headerOffset
-                        == otherEntry.offsetEntry.headerOffset
-                    && offsetEntry.dataOffset
-                        == otherEntry.offsetEntry.dataOffset;
+                return headerOffset == otherEntry.headerOffset
+                    && dataOffset == otherEntry.dataOffset;
             }
             return false;
         }
@@ -22,14 +22,26 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
 import java.util.zip.CRC32;
 import java.util.zip.Deflater;
 import java.util.zip.ZipException;
@@ -68,6 +80,9 @@ import static org.apache.tools.zip.ZipConstants.ZIP64_MIN_VERSION;
  * control is provided via {@link #setUseZip64}.  If the stream can not
  * user RandomAccessFile and you try to write a ZipEntry of
  * unknown size then Zip64 extensions will be disabled by default.</p>
+ *
+ * <p>Entries can be compressed by several threads in parallel, see
+ * {@link #setThreads setThreads}.</p>
  */
 public class ZipOutputStream extends FilterOutputStream {
 
@@ -287,6 +302,81 @@ public class ZipOutputStream extends FilterOutputStream {
 
     private Zip64Mode zip64Mode = Zip64Mode.AsNeeded;
 
+    /**
+     * When adding to an existing archive: everything following the
+     * last entry of the original archive.
+     */
+    private byte[] appendTail;
+
+    /**
+     * When adding to an existing archive: offset of the original
+     * archive's central directory.
+     */
+    private long appendStart;
+
+    /**
+     * When adding to an existing archive: length of the original
+     * archive's central directory.
+     */
+    private int appendedDirectoryLength;
+
+    /**
+     * When adding to an existing archive: number of entries of the
+     * original archive that are kept.
+     */
+    private int appendedEntries = 0;
+
+    /**
+     * Number of bytes of an entry kept in memory while it waits to
+     * be written in parallel mode.
+     */
+    private static final int PARALLEL_BUFFER_THRESHOLD = 1024 * 1024;
+
+    /**
+     * Number of threads compressing entries, 1 means entries are
+     * compressed by the thread writing them.
+     */
+    private int threads = 1;
+
+    /**
+     * Threads compressing entries in parallel mode, created lazily.
+     */
+    private ExecutorService compressors;
+
+    /**
+     * Deflaters used by the compressor threads.
+     */
+    private final List<Deflater> deflaters =
+        Collections.synchronizedList(new ArrayList<Deflater>());
+
+    private final ThreadLocal<Deflater> threadDeflater =
+        new ThreadLocal<Deflater>() {
+            @Override
+            protected Deflater initialValue() {
+                Deflater d = new Deflater(DEFAULT_COMPRESSION, true);
+                deflaters.add(d);
+                return d;
+            }
+        };
+
+    /**
+     * Whether buffered entries are currently written in parallel
+     * mode.
+     */
+    private boolean writingPending = false;
+
+    /**
+     * The entry that is currently being buffered in parallel mode.
+     */
+    private PendingEntry buffering;
+
+    /**
+     * Entries that have been closed but not written yet in parallel
+     * mode, in the order they have been added.
+     */
+    private final LinkedList<PendingEntry> pending =
+        new LinkedList<PendingEntry>();
+
     /**
      * Creates a new ZIP OutputStream filtering the underlying stream.
      * @param out the outputstream to zip
@@ -305,7 +395,56 @@ public class ZipOutputStream extends FilterOutputStream {
      * @throws IOException on error
      */
     public ZipOutputStream(File file) throws IOException {
+        this(file, false);
+    }
+
+    /**
+     * Creates a new ZIP OutputStream writing to a File, optionally
+     * adding entries to an existing archive.
+     *
+     * <p>When adding to an archive the existing entries are kept as
+     * they are.  New entries overwrite the archive's central
+     * directory and {@link #finish finish} writes a new central
+     * directory listing old and new entries, so the cost only
+     * depends on the size of the new entries.  An existing entry
+     * with the same name as a new one is dropped from the central
+     * directory, its data remains unused inside the archive.  If the stream is {@link #cancel cancelled} instead of
+     * finished the archive is restored to its original state.</p>
+     *
+     * @param file the file to zip to
+     * @param append whether to add entries to the existing archive
+     * rather than to overwrite it.
+     * @throws IOException on error, in particular if the file cannot
+     * be read as an archive when appending.
+     * @since Ant 1.9.5
+     */
+    public ZipOutputStream(File file, boolean append) throws IOException {
         super(null);
+        if (append) {
+            long start;
+            long end;
+            ZipFile existing = new ZipFile(file);
+            try {
+                start = existing.getCentralDirectoryStart();
+                end = existing.getCentralDirectoryEnd();
+            } finally {
+                ZipFile.closeQuietly(existing);
+            }
+            raf = new RandomAccessFile(file, "rw");
+            try {
+                appendTail = new byte[(int) (raf.length() - start)];
+                raf.seek(start);
+                raf.readFully(appendTail);
+                raf.seek(start);
+            } catch (IOException e) {
+                raf.close();
+                throw e;
+            }
+            appendStart = start;
+            appendedDirectoryLength = (int) (end - start);
+            written = start;
+            return;
+        }
         RandomAccessFile _raf = null;
         try {
             _raf = new RandomAccessFile(file, "rw");
@@ -443,6 +582,33 @@ public class ZipOutputStream extends FilterOutputStream {
         zip64Mode = mode;
     }
 
+    /**
+     * Sets the number of threads used to compress entries.
+     *
+     * <p>With more than one thread the data of each entry is
+     * buffered - in memory or in a temporary file for big entries -
+     * when it is closed and {@link #DEFLATED DEFLATED} entries are
+     * compressed by a pool of threads.  Entries are still written in
+     * the order they have been added and the archive is identical to
+     * the one written by a single thread.  As a consequence errors
+     * caused by an entry may only be reported by a later invocation
+     * of {@link #closeEntry closeEntry} or {@link #finish
+     * finish}.</p>
+     *
+     * <p>Must be invoked before the first entry is added.  The
+     * default is 1.</p>
+     *
+     * @param threads the number of threads.
+     * @since Ant 1.9.5
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid number of threads: "
+                                               + threads);
+        }
+        this.threads = threads;
+    }
+
     /**
      * {@inheritDoc}
      * @throws Zip64RequiredException if the archive's size exceeds 4
@@ -454,17 +620,33 @@ public class ZipOutputStream extends FilterOutputStream {
             throw new IOException("This archive has already been finished");
         }
 
+        if (isBuffering()) {
+            if (buffering != null) {
+                closeEntry();
+            }
+            writePending(0);
+            shutdownCompressors();
+        }
+
         if (entry != null) {
             closeEntry();
         }
 
         cdOffset = written;
+        if (appendTail != null) {
+            writeAppendedCentralDirectory();
+        }
         for (ZipEntry ze : entries) {
             writeCentralFileHeader(ze);
         }
         cdLength = written - cdOffset;
         writeZip64CentralDirectory();
         writeCentralDirectoryEnd();
+        if (appendTail != null) {
+            // the new archive may be shorter than the original one
+            raf.setLength(raf.getFilePointer());
+            appendTail = null;
+        }
         offsets.clear();
         entries.clear();
         def.end();
@@ -485,6 +667,11 @@ public class ZipOutputStream extends FilterOutputStream {
             throw new IOException("Stream has already been finished");
         }
 
+        if (isBuffering()) {
+            closeBufferedEntry();
+            return;
+        }
+
         if (entry == null) {
             throw new IOException("No current entry to close");
         }
@@ -493,11 +680,15 @@ public class ZipOutputStream extends FilterOutputStream {
             write(EMPTY, 0, 0);
         }
 
-        flushDeflater();
-
+        final long realCrc;
+        if (entry.precompressed) {
+            realCrc = entry.crc;
+        } else {
+            flushDeflater();
+            realCrc = crc.getValue();
+        }
         final Zip64Mode effectiveMode = getEffectiveZip64Mode(entry.entry);
         long bytesWritten = written - entry.dataStart;
-        long realCrc = crc.getValue();
         crc.reset();
 
         final boolean actuallyNeedsZip64 =
@@ -523,6 +714,262 @@ public class ZipOutputStream extends FilterOutputStream {
         }
     }
 
+    /**
+     * Adds an entry whose data has already been compressed, for
+     * example as read by {@link ZipFile#getRawInputStream
+     * ZipFile.getRawInputStream}.
+     *
+     * <p>The data is written as is, without uncompressing or
+     * compressing it again.  The compression method, CRC, size and
+     * compressed size of the entry must be set.</p>
+     *
+     * @param archiveEntry the entry to add.
+     * @param rawData the entry's data as stored inside an archive.
+     * The caller is responsible for closing the stream.
+     * @throws IOException on error
+     * @since Ant 1.9.5
+     */
+    public void addRawEntry(ZipEntry archiveEntry, InputStream rawData)
+        throws IOException {
+        if (finished) {
+            throw new IOException("Stream has already been finished");
+        }
+        byte[] b = new byte[DEFLATER_BLOCK_SIZE];
+        int count;
+        if (archiveEntry.getMethod() != DEFLATED) {
+            putNextEntry(archiveEntry);
+            while ((count = rawData.read(b)) != -1) {
+                write(b, 0, count);
+            }
+            closeEntry();
+            return;
+        }
+        if (archiveEntry.getCrc() == -1 || archiveEntry.getSize() == -1
+            || archiveEntry.getCompressedSize() == -1) {
+            throw new ZipException("crc and sizes are required for raw entry "
+                                   + archiveEntry.getName());
+        }
+        if (isBuffering()) {
+            if (buffering != null) {
+                closeEntry();
+            }
+            PendingEntry p = new PendingEntry(archiveEntry, level);
+            pending.add(p);
+            while ((count = rawData.read(b)) != -1) {
+                p.data.write(b, 0, count);
+            }
+            p.data.close();
+            p.size = archiveEntry.getSize();
+            p.crc = archiveEntry.getCrc();
+            p.result = completed(p);
+            writePending(2 * threads);
+            return;
+        }
+        if (entry != null) {
+            closeEntry();
+        }
+        writePrecompressed(archiveEntry, rawData, archiveEntry.getSize(),
+                           archiveEntry.getCrc());
+    }
+
+    /**
+     * Adds an entry of another archive without uncompressing and
+     * compressing its data again.
+     *
+     * <p>Method, CRC and sizes of the new entry are taken from the
+     * source entry, all other attributes - including the name - are
+     * those of <code>archiveEntry</code>.</p>
+     *
+     * @param archiveEntry the entry to add.
+     * @param source the archive to copy from.
+     * @param sourceEntry the entry of the source archive to copy.
+     * @throws IOException on error, in particular if the source
+     * entry's data cannot be read.
+     * @since Ant 1.9.5
+     */
+    public void addRawEntry(ZipEntry archiveEntry, ZipFile source,
+                            ZipEntry sourceEntry)
+        throws IOException {
+        if (!source.canReadEntryData(sourceEntry)) {
+            throw new ZipException("can't copy the data of "
+                                   + sourceEntry.getName());
+        }
+        InputStream raw = source.getRawInputStream(sourceEntry);
+        if (raw == null) {
+            throw new ZipException(sourceEntry.getName()
+                                   + " doesn't belong to the archive");
+        }
+        archiveEntry.setMethod(sourceEntry.getMethod());
+        archiveEntry.setCrc(sourceEntry.getCrc());
+        archiveEntry.setSize(sourceEntry.getSize());
+        archiveEntry.setCompressedSize(sourceEntry.getCompressedSize());
+        try {
+            addRawEntry(archiveEntry, raw);
+        } finally {
+            raw.close();
+        }
+    }
+
+    /**
+     * Hands the entry that has been buffered in parallel mode to the
+     * compressor threads and writes all entries that are ready.
+     */
+    private void closeBufferedEntry() throws IOException {
+        if (buffering == null) {
+            throw new IOException("No current entry to close");
+        }
+        final PendingEntry p = buffering;
+        buffering = null;
+        p.data.close();
+        pending.add(p);
+        if (p.entry.getMethod() == DEFLATED) {
+            p.result = getCompressors().submit(new Callable<PendingEntry>() {
+                    public PendingEntry call() throws IOException {
+                        p.compress(threadDeflater.get());
+                        return p;
+                    }
+                });
+        } else {
+            // nothing to compress, only keep the order
+            p.result = completed(p);
+        }
+        writePending(2 * threads);
+    }
+
+    /**
+     * Writes entries that have been compressed in parallel mode
+     * until no more than the given number of entries is pending and
+     * the next entry isn't ready.
+     */
+    private void writePending(int maxPending) throws IOException {
+        while (!pending.isEmpty()
+               && (pending.size() > maxPending
+                   || pending.getFirst().result.isDone())) {
+            PendingEntry p = pending.removeFirst();
+            try {
+                p.result.get();
+                writePendingEntry(p);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while compressing "
+                                      + p.entry.getName());
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof IOException) {
+                    throw (IOException) ex.getCause();
+                }
+                IOException e = new IOException("failed to compress "
+                                                + p.entry.getName());
+                e.initCause(ex.getCause());
+                throw e;
+            } finally {
+                p.discard();
+            }
+        }
+    }
+
+    /**
+     * Writes an entry buffered in parallel mode, compressed data is
+     * copied as is.
+     */
+    private void writePendingEntry(PendingEntry p) throws IOException {
+        InputStream in = p.data.getInputStream();
+        try {
+            if (p.entry.getMethod() == DEFLATED) {
+                writePrecompressed(p.entry, in, p.size, p.crc);
+            } else {
+                writingPending = true;
+                try {
+                    putNextEntry(p.entry);
+                    byte[] b = new byte[DEFLATER_BLOCK_SIZE];
+                    int count;
+                    while ((count = in.read(b)) != -1) {
+                        write(b, 0, count);
+                    }
+                    closeEntry();
+                } finally {
+                    writingPending = false;
+                }
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Writes a DEFLATED entry whose data has already been compressed.
+     */
+    private void writePrecompressed(ZipEntry ze, InputStream in, long size,
+                                    long crc)
+        throws IOException {
+        writingPending = true;
+        try {
+            putNextEntry(ze);
+            entry.precompressed = true;
+            entry.hasWritten = true;
+            entry.bytesRead = size;
+            entry.crc = crc;
+            byte[] b = new byte[DEFLATER_BLOCK_SIZE];
+            int count;
+            while ((count = in.read(b)) != -1) {
+                writeOut(b, 0, count);
+                written += count;
+            }
+            closeEntry();
+        } finally {
+            writingPending = false;
+        }
+    }
+
+    /**
+     * A future that is done already.
+     */
+    private static Future<PendingEntry> completed(PendingEntry p) {
+        FutureTask<PendingEntry> f =
+            new FutureTask<PendingEntry>(new Runnable() {
+                    public void run() {
+                    }
+                }, p);
+        f.run();
+        return f;
+    }
+
+    /**
+     * Whether entries are buffered in order to compress them in
+     * parallel.
+     */
+    private boolean isBuffering() {
+        return threads > 1 && !writingPending;
+    }
+
+    private synchronized ExecutorService getCompressors() {
+        if (compressors == null) {
+            compressors = Executors.newFixedThreadPool(threads,
+                new ThreadFactory() {
+                    private int count = 0;
+                    public synchronized Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "zip-compressor-"
+                                              + (++count));
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        }
+        return compressors;
+    }
+
+    private synchronized void shutdownCompressors() {
+        if (compressors != null) {
+            compressors.shutdownNow();
+            compressors = null;
+        }
+        synchronized (deflaters) {
+            for (Deflater d : deflaters) {
+                d.end();
+            }
+            deflaters.clear();
+        }
+    }
+
     /**
      * Ensures the current entry's size and CRC information is set to
      * the values just written, verifies it isn't too big in the
@@ -635,6 +1082,15 @@ public class ZipOutputStream extends FilterOutputStream {
             throw new IOException("Stream has already been finished");
         }
 
+        if (isBuffering()) {
+            if (buffering != null) {
+                closeEntry();
+            }
+            setDefaults(archiveEntry);
+            buffering = new PendingEntry(archiveEntry, level);
+            return;
+        }
+
         if (entry != null) {
             closeEntry();
         }
@@ -794,6 +1250,11 @@ public class ZipOutputStream extends FilterOutputStream {
      */
     @Override
     public void write(byte[] b, int offset, int length) throws IOException {
+        if (isBuffering()) {
+            ZipUtil.checkRequestedFeatures(buffering.entry);
+            buffering.data.write(b, offset, length);
+            return;
+        }
         ZipUtil.checkRequestedFeatures(entry.entry);
         entry.hasWritten = true;
         if (entry.entry.getMethod() == DEFLATED) {
@@ -1217,7 +1678,7 @@ public class ZipOutputStream extends FilterOutputStream {
         writeOut(ZERO);
 
         // number of entries
-        int numberOfEntries = entries.size();
+        int numberOfEntries = entries.size() + appendedEntries;
         if (numberOfEntries > ZIP64_MAGIC_SHORT
             && zip64Mode == Zip64Mode.Never) {
             throw new Zip64RequiredException(Zip64RequiredException
@@ -1292,6 +1753,46 @@ public class ZipOutputStream extends FilterOutputStream {
 
     private static final byte[] ONE = ZipLong.getBytes(1L);
 
+    /** Offset of the general purpose flag inside a central file header. */
+    private static final int CFH_GPB_OFFSET = 8;
+    /** Offset of the name length inside a central file header. */
+    private static final int CFH_NAME_OFFSET = 28;
+    /** Length of a central file header without variable parts. */
+    private static final int CFH_HEADER_LENGTH = 46;
+
+    /**
+     * Copies the central directory records of the original archive
+     * that have not been replaced by a new entry.
+     */
+    private void writeAppendedCentralDirectory() throws IOException {
+        Set<String> names = new HashSet<String>();
+        for (ZipEntry ze : entries) {
+            names.add(ze.getName());
+        }
+        appendedEntries = 0;
+        int off = 0;
+        while (off < appendedDirectoryLength) {
+            int nameLength = ZipShort.getValue(appendTail, off + CFH_NAME_OFFSET);
+            int length = CFH_HEADER_LENGTH + nameLength
+                + ZipShort.getValue(appendTail, off + CFH_NAME_OFFSET + SHORT)
+                + ZipShort.getValue(appendTail,
+                                    off + CFH_NAME_OFFSET + 2 * SHORT);
+            boolean utf8 = (ZipShort.getValue(appendTail, off + CFH_GPB_OFFSET)
+                            & GeneralPurposeBit.UFT8_NAMES_FLAG) != 0;
+            byte[] name = new byte[nameLength];
+            System.arraycopy(appendTail, off + CFH_HEADER_LENGTH, name, 0,
+                             nameLength);
+            ZipEncoding enc =
+                utf8 ? ZipEncodingHelper.UTF8_ZIP_ENCODING : zipEncoding;
+            if (!names.contains(enc.decode(name))) {
+                writeOut(appendTail, off, length);
+                written += length;
+                appendedEntries++;
+            }
+            off += length;
+        }
+    }
+
     /**
      * Writes the &quot;ZIP64 End of central dir record&quot; and
      * &quot;ZIP64 End of central dir locator&quot;.
@@ -1304,7 +1805,7 @@ public class ZipOutputStream extends FilterOutputStream {
 
         if (!hasUsedZip64
             && (cdOffset >= ZIP64_MAGIC || cdLength >= ZIP64_MAGIC
-                || entries.size() >= ZIP64_MAGIC_SHORT)) {
+                || entries.size() + appendedEntries >= ZIP64_MAGIC_SHORT)) {
             // actually "will use"
             hasUsedZip64 = true;
         }
@@ -1338,7 +1839,8 @@ public class ZipOutputStream extends FilterOutputStream {
         writeOut(LZERO);
 
         // number of entries
-        byte[] num = ZipEightByteInteger.getBytes(entries.size());
+        byte[] num = ZipEightByteInteger.getBytes(entries.size()
+                                                  + appendedEntries);
         writeOut(num);
         writeOut(num);
 
@@ -1499,6 +2001,24 @@ public class ZipOutputStream extends FilterOutputStream {
         return getEntryEncoding(ze).encode(ze.getName());
     }
 
+    /**
+     * Closes the underlying stream/file without finishing the
+     * archive.
+     *
+     * <p>If entries have been added to an existing archive, the
+     * archive is restored to its original state, otherwise the
+     * result will likely be a corrupt archive.</p>
+     *
+     * @throws IOException on error
+     * @since Ant 1.9.5
+     */
+    public void cancel() throws IOException {
+        if (!finished) {
+            finished = true;
+            destroy();
+        }
+    }
+
     /**
      * Closes the underlying stream/file without finishing the
      * archive, the result will likely be a corrupt archive.
@@ -1507,6 +2027,22 @@ public class ZipOutputStream extends FilterOutputStream {
      * corrupt archives so they can clean up any temporary files.</p>
      */
     void destroy() throws IOException {
+        if (appendTail != null) {
+            // restore the original archive
+            raf.seek(appendStart);
+            raf.write(appendTail);
+            raf.setLength(appendStart + appendTail.length);
+            appendTail = null;
+        }
+        if (buffering != null) {
+            buffering.discard();
+            buffering = null;
+        }
+        for (PendingEntry p : pending) {
+            p.discard();
+        }
+        pending.clear();
+        shutdownCompressors();
         if (raf != null) {
             raf.close();
         }
@@ -1547,6 +2083,89 @@ public class ZipOutputStream extends FilterOutputStream {
         }
     }
 
+    /**
+     * An entry waiting to be written in parallel mode.
+     */
+    private static final class PendingEntry {
+        private final ZipEntry entry;
+        /** compression level at the time the entry has been added. */
+        private final int level;
+        /** the entry's data, compressed once compress has finished. */
+        private EntryBuffer data =
+            new EntryBuffer(PARALLEL_BUFFER_THRESHOLD);
+        /** uncompressed size. */
+        private long size;
+        private long crc;
+        private Future<PendingEntry> result;
+        private boolean discarded = false;
+
+        private PendingEntry(ZipEntry entry, int level) {
+            this.entry = entry;
+            this.level = level;
+        }
+
+        /**
+         * Replaces the data by its compressed form and calculates
+         * the CRC.
+         */
+        private void compress(Deflater def) throws IOException {
+            EntryBuffer in;
+            synchronized (this) {
+                if (discarded) {
+                    return;
+                }
+                in = data;
+            }
+            EntryBuffer out = new EntryBuffer(PARALLEL_BUFFER_THRESHOLD);
+            CRC32 sum = new CRC32();
+            byte[] inBuf = new byte[DEFLATER_BLOCK_SIZE];
+            byte[] outBuf = new byte[DEFLATER_BLOCK_SIZE];
+            def.reset();
+            def.setLevel(level);
+            InputStream is = in.getInputStream();
+            try {
+                int count;
+                while ((count = is.read(inBuf)) != -1) {
+                    sum.update(inBuf, 0, count);
+                    def.setInput(inBuf, 0, count);
+                    while (!def.needsInput()) {
+                        int len = def.deflate(outBuf, 0, outBuf.length);
+                        out.write(outBuf, 0, len);
+                    }
+                }
+                def.finish();
+                while (!def.finished()) {
+                    int len = def.deflate(outBuf, 0, outBuf.length);
+                    out.write(outBuf, 0, len);
+                }
+                out.close();
+            } catch (IOException ex) {
+                out.delete();
+                throw ex;
+            } finally {
+                is.close();
+            }
+            synchronized (this) {
+                in.delete();
+                if (discarded) {
+                    out.delete();
+                } else {
+                    size = in.size();
+                    crc = sum.getValue();
+                    data = out;
+                }
+            }
+        }
+
+        /**
+         * Releases the memory or temporary files held.
+         */
+        private synchronized void discard() {
+            discarded = true;
+            data.delete();
+        }
+    }
+
     /**
      * Structure collecting information for the entry that is
      * currently being written.
@@ -1577,6 +2196,15 @@ public class ZipOutputStream extends FilterOutputStream {
          * Whether current entry was the first one using ZIP64 features.
          */
         private boolean causedUseOfZip64 = false;
+        /**
+         * Whether the entry's data has been compressed by a
+         * compressor thread and is written as is.
+         */
+        private boolean precompressed;
+        /**
+         * The CRC of a precompressed entry.
+         */
+        private long crc;
         /**
          * Whether write() has been called at all.
          *
@@ -20,10 +20,12 @@ package org.apache.tools.ant;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.File;
+import java.io.InputStream;
 import java.io.PrintStream;
 import java.net.URL;
 
@@ -119,6 +121,34 @@ public class AntClassLoaderTest {
         }
     }
 
+    @Test
+    public void testPackageIndex() throws Exception {
+        buildRule.executeTarget("preparePackageIndexTest");
+        Path myPath = new Path(buildRule.getProject());
+        myPath.setLocation(new File(buildRule.getProject().getProperty("ext.jar")));
+        File dir = new File(buildRule.getProject().getProperty("index.dir"));
+        myPath.setLocation(dir);
+        buildRule.getProject().setUserProperty("build.sysclasspath","ignore");
+        loader = buildRule.getProject().createClassLoader(myPath);
+        assertNull(loader.getResource("org/example/foo.txt"));
+
+        // directories are searched even after the index has been built
+        FileUtils.getFileUtils()
+            .createNewFile(new File(dir, "org/example/bar.txt"));
+        assertNotNull(loader.getResource("org/example/bar.txt"));
+
+        // adding to the path invalidates the index
+        loader.addPathElement(buildRule.getProject().getProperty("index.jar"));
+        URL url = loader.getResource("org/example/foo.txt");
+        assertNotNull(url);
+        assertTrue(url.toString(), url.toString().endsWith("index.jar!/org/example/foo.txt"));
+        InputStream is = loader.getResourceAsStream("org/example/foo.txt");
+        assertNotNull(is);
+        is.close();
+        assertNotNull(loader.getResource("org/example/"));
+        assertNull(loader.getResource("org/example/baz.txt"));
+    }
+
     @Test
     public void testGetPackage() throws Exception {
         buildRule.executeTarget("prepareGetPackageTest");
@@ -33,6 +33,7 @@ import java.util.Set;
 import java.util.TreeSet;
 
 import org.apache.tools.ant.taskdefs.condition.Os;
+import org.apache.tools.ant.types.selectors.FileSelector;
 import org.apache.tools.ant.types.selectors.TokenizedPath;
 import org.junit.Before;
 import org.junit.Rule;
@@ -585,4 +586,74 @@ public class DirectoryScannerTest {
         TokenizedPath p = new TokenizedPath(f.getAbsolutePath());
         assertTrue(ds.contentsExcluded(p));
     }
+
+    @Test
+    public void testParallelScanMatchesSerialScan() {
+        buildRule.getProject().executeTarget("extended-setup");
+        File base = new File(buildRule.getProject().getProperty("output"));
+        String[][] includes = {null, {"alpha/"}, {"**/*.xml"},
+                               {"alpha/beta/**", "delta/delta.xml"}};
+        String[][] excludes = {null, {"**/gamma/**"}, {"delta/**"}};
+        FileSelector noBeta = new FileSelector() {
+                public boolean isSelected(File basedir, String filename,
+                                          File file) {
+                    return !filename.endsWith("beta.xml");
+                }
+            };
+        for (int i = 0; i < includes.length; i++) {
+            for (int j = 0; j < excludes.length; j++) {
+                assertSameScan(base, includes[i], excludes[j], null, true);
+                assertSameScan(base, includes[i], excludes[j],
+                               new FileSelector[] {noBeta}, true);
+            }
+        }
+    }
+
+    @Test
+    public void testParallelScanMatchesSerialScanWithSymlinks() {
+        assumeTrue("Current system does not support Symlinks", supportsSymlinks);
+        buildRule.getProject().executeTarget("symlink-setup");
+        File base = new File(buildRule.getProject().getProperty("output"));
+        assertSameScan(base, null, null, null, false);
+        assertSameScan(base, new String[] {"alpha/beta/gamma/"}, null, null,
+                       false);
+        assertSameScan(base, null, null, null, true);
+    }
+
+    private void assertSameScan(File base, String[] includes,
+                                String[] excludes, FileSelector[] selectors,
+                                boolean followSymlinks) {
+        DirectoryScanner serial = new DirectoryScanner();
+        DirectoryScanner parallel = new DirectoryScanner();
+        parallel.setThreads(4);
+        DirectoryScanner[] scanners = {serial, parallel};
+        for (int i = 0; i < scanners.length; i++) {
+            scanners[i].setBasedir(base);
+            scanners[i].setIncludes(includes);
+            scanners[i].setExcludes(excludes);
+            scanners[i].setSelectors(selectors);
+            scanners[i].setFollowSymlinks(followSymlinks);
+            scanners[i].scan();
+        }
+        assertEquals(Arrays.asList(serial.getIncludedFiles()),
+                     Arrays.asList(parallel.getIncludedFiles()));
+        assertEquals(Arrays.asList(serial.getIncludedDirectories()),
+                     Arrays.asList(parallel.getIncludedDirectories()));
+        assertEquals(Arrays.asList(serial.getNotFollowedSymlinks()),
+                     Arrays.asList(parallel.getNotFollowedSymlinks()));
+        assertEquals(serial.isEverythingIncluded(),
+                     parallel.isEverythingIncluded());
+        assertEquals(Arrays.asList(serial.getNotIncludedFiles()),
+                     Arrays.asList(parallel.getNotIncludedFiles()));
+        assertEquals(Arrays.asList(serial.getNotIncludedDirectories()),
+                     Arrays.asList(parallel.getNotIncludedDirectories()));
+        assertEquals(Arrays.asList(serial.getExcludedFiles()),
+                     Arrays.asList(parallel.getExcludedFiles()));
+        assertEquals(Arrays.asList(serial.getExcludedDirectories()),
+                     Arrays.asList(parallel.getExcludedDirectories()));
+        assertEquals(Arrays.asList(serial.getDeselectedFiles()),
+                     Arrays.asList(parallel.getDeselectedFiles()));
+        assertEquals(Arrays.asList(serial.getDeselectedDirectories()),
+                     Arrays.asList(parallel.getDeselectedDirectories()));
+    }
 }
@@ -22,6 +22,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
 import java.util.Vector;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -36,6 +38,8 @@ public class ExecutorTest implements BuildListener  {
         = "org.apache.tools.ant.helper.SingleCheckExecutor";
     private static final String IGNORE_DEPS
         = "org.apache.tools.ant.helper.IgnoreDependenciesExecutor";
+    private static final String PARALLEL
+        = "org.apache.tools.ant.helper.ParallelExecutor";
     
     private static final Vector<String> TARGET_NAMES;
     static {
@@ -50,7 +54,7 @@ public class ExecutorTest implements BuildListener  {
     private int targetCount;
 
     /* BuildListener stuff */
-    public void targetStarted(BuildEvent event) {
+    public synchronized void targetStarted(BuildEvent event) {
         targetCount++;
     }
     public void buildStarted(BuildEvent event) {}
@@ -103,6 +107,38 @@ public class ExecutorTest implements BuildListener  {
         assertEquals(2, targetCount);
     }
 
+    @Test
+    public void testParallelExecutor() {
+        Project p = getProject(PARALLEL);
+        p.setNewProperty("ant.executor.threads", "2");
+        p.executeTargets(TARGET_NAMES);
+        assertEquals(3, targetCount);
+    }
+
+    @Test
+    public void testParallelExecutorOverlapsIndependentTargets() {
+        Project p = getProject(PARALLEL);
+        p.setNewProperty("ant.executor.threads", "2");
+        // each target waits for the other one to start, a serial
+        // executor would run into the timeout
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        Vector<String> names = new Vector<String>();
+        for (String name : new String[] {"x", "y"}) {
+            Target t = new Target();
+            t.setName(name);
+            t.setProject(p);
+            Task task = new AwaitTask(barrier);
+            task.setProject(p);
+            task.setOwningTarget(t);
+            task.setTaskName("await");
+            t.addTask(task);
+            p.addTarget(t);
+            names.add(name);
+        }
+        p.executeTargets(names);
+        assertEquals(2, targetCount);
+    }
+
     @Test
     public void testDefaultFailure() {
         try {
@@ -125,6 +161,19 @@ public class ExecutorTest implements BuildListener  {
         }
     }
 
+    @Test
+    public void testParallelFailure() {
+        try {
+            Project p = getProject(PARALLEL, true);
+            p.setNewProperty("ant.executor.threads", "2");
+            p.executeTargets(TARGET_NAMES);
+            fail("should fail");
+        } catch (BuildException e) {
+            assertEquals("failfoo", e.getMessage());
+            assertEquals(1, targetCount);
+        }
+    }
+
     @Test
     public void testIgnoreDependenciesFailure() {
         //no foo failure; foo is never executed as dependencies are ignored!
@@ -167,5 +216,35 @@ public class ExecutorTest implements BuildListener  {
         }
     }
 
-}
+    @Test
+    public void testKeepGoingParallel() {
+        try {
+            Project p = getProject(PARALLEL, true, true);
+            p.setNewProperty("ant.executor.threads", "2");
+            p.executeTargets(TARGET_NAMES);
+            fail("should fail");
+        } catch (BuildException e) {
+            assertEquals("failfoo", e.getMessage());
+            assertEquals(1, targetCount);
+        }
+    }
+
+    /**
+     * Waits until as many tasks as the barrier has parties are running.
+     */
+    public static class AwaitTask extends Task {
+        private final CyclicBarrier barrier;
+
+        public AwaitTask(CyclicBarrier barrier) {
+            this.barrier = barrier;
+        }
 
+        public void execute() {
+            try {
+                barrier.await(10, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new BuildException("targets didn't overlap", e);
+            }
+        }
+    }
+}
@@ -24,6 +24,8 @@ import org.apache.tools.ant.input.PropertyFileInputHandler;
 import org.apache.tools.ant.taskdefs.condition.Os;
 
 import java.io.File;
+import java.io.PrintStream;
+import java.util.Collections;
 
 import org.apache.tools.ant.types.FileSet;
 import org.apache.tools.ant.types.Path;
@@ -34,6 +36,7 @@ import org.junit.Test;
 
 import static org.apache.tools.ant.AntAssert.assertContains;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
@@ -308,6 +311,133 @@ public class ProjectTest {
         // be content if no exception has been thrown
     }
 
+    @Test
+    public void testIsLoggableHonorsListenerLevels() {
+        Project project = new Project();
+        assertFalse(project.isLoggable(Project.MSG_ERR));
+
+        final StringBuffer printed = new StringBuffer();
+        DefaultLogger logger = new DefaultLogger() {
+            protected void printMessage(String message, PrintStream stream,
+                                        int priority) {
+                printed.append(message.trim()).append('|');
+            }
+        };
+        logger.setMessageOutputLevel(Project.MSG_INFO);
+        logger.setOutputPrintStream(System.out);
+        logger.setErrorPrintStream(System.err);
+        project.addBuildListener(logger);
+        assertTrue(project.isLoggable(Project.MSG_INFO));
+        assertFalse(project.isLoggable(Project.MSG_VERBOSE));
+        project.log("info", Project.MSG_INFO);
+        project.log("verbose", Project.MSG_VERBOSE);
+        assertEquals("info|", printed.toString());
+
+        logger.setMessageOutputLevel(Project.MSG_VERBOSE);
+        assertTrue(project.isLoggable(Project.MSG_VERBOSE));
+        assertFalse(project.isLoggable(Project.MSG_DEBUG));
+
+        // listeners that don't tell see everything
+        project.addBuildListener(new BuildListenerAdapter());
+        assertTrue(project.isLoggable(Project.MSG_DEBUG));
+    }
+
+    @Test
+    public void testLoggersOverridingMessageLoggedSeeEverything() {
+        Project project = new Project();
+        final StringBuffer logged = new StringBuffer();
+        DefaultLogger logger = new DefaultLogger() {
+            public void messageLogged(BuildEvent event) {
+                logged.append(event.getMessage()).append('|');
+            }
+        };
+        logger.setMessageOutputLevel(Project.MSG_INFO);
+        project.addBuildListener(logger);
+        assertTrue(project.isLoggable(Project.MSG_DEBUG));
+        project.log("info", Project.MSG_INFO);
+        project.log("verbose", Project.MSG_VERBOSE);
+        assertEquals("info|verbose|", logged.toString());
+
+        XmlLogger xml = new XmlLogger() {
+            public void messageLogged(BuildEvent event) {
+            }
+        };
+        xml.setMessageOutputLevel(Project.MSG_INFO);
+        assertEquals(Project.MSG_DEBUG, xml.getMessageOutputLevel());
+        assertEquals(Project.MSG_INFO,
+                     new NoBannerLogger() {
+                         {
+                             setMessageOutputLevel(Project.MSG_INFO);
+                         }
+                     }.getMessageOutputLevel());
+    }
+
+    @Test
+    public void testInheritBuildListeners() {
+        BuildListener l1 = new BuildListenerAdapter();
+        BuildListener l2 = new BuildListenerAdapter();
+        p.addBuildListener(l1);
+        Project child = p.createSubProject();
+        child.inheritBuildListeners(p);
+        assertEquals(p.getBuildListeners(), child.getBuildListeners());
+
+        // adding to the child must not affect the parent
+        child.addBuildListener(l2);
+        assertEquals(2, child.getBuildListeners().size());
+        assertFalse(p.getBuildListeners().contains(l2));
+
+        // listeners already present are not added twice
+        p.addBuildListener(l2);
+        child.inheritBuildListeners(p);
+        assertEquals(2, child.getBuildListeners().size());
+    }
+
+    @Test
+    public void testSetNewProperties() {
+        p.setProperty("a", "parent");
+        p.setProperty("b", "parent");
+        p.setProperty("c", "parent");
+        Project child = p.createSubProject();
+        child.setUserProperty("a", "child");
+        PropertyHelper.getPropertyHelper(child)
+            .setNewProperties(PropertyHelper.getPropertyHelper(p),
+                              Collections.singleton("c"));
+        assertEquals("child", child.getProperty("a"));
+        assertEquals("parent", child.getProperty("b"));
+        assertNull(child.getProperty("c"));
+        child.setProperty("b", "changed");
+        assertEquals("parent", p.getProperty("b"));
+    }
+
+    @Test
+    public void testChildPropertiesDontLeakWithSharedListeners() {
+        p.addBuildListener(new BuildListenerAdapter());
+        p.setProperty("a", "parent");
+        Project child = p.createSubProject();
+        child.inheritBuildListeners(p);
+        PropertyHelper.getPropertyHelper(child)
+            .setNewProperties(PropertyHelper.getPropertyHelper(p),
+                              Collections.<String>emptySet());
+        child.setProperty("a", "child");
+        child.setNewProperty("b", "child");
+        child.setUserProperty("c", "child");
+        assertEquals("child", child.getProperty("a"));
+        assertEquals("parent", p.getProperty("a"));
+        assertNull(p.getProperty("b"));
+        assertNull(p.getProperty("c"));
+        assertEquals(p.getBuildListeners(), child.getBuildListeners());
+    }
+
+    private static class BuildListenerAdapter implements BuildListener {
+        public void buildStarted(BuildEvent event) { }
+        public void buildFinished(BuildEvent event) { }
+        public void targetStarted(BuildEvent event) { }
+        public void targetFinished(BuildEvent event) { }
+        public void taskStarted(BuildEvent event) { }
+        public void taskFinished(BuildEvent event) { }
+        public void messageLogged(BuildEvent event) { }
+    }
+
     private class DummyTaskPrivate extends Task {
         public DummyTaskPrivate() {}
         public void execute() {}
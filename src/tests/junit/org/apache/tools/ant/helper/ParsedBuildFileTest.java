@@ -0,0 +1,130 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.tools.ant.helper;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+import org.apache.tools.ant.MagicNames;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.ProjectHelper;
+import org.apache.tools.ant.Target;
+import org.apache.tools.ant.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ParsedBuildFileTest {
+
+    private static final FileUtils FILE_UTILS = FileUtils.getFileUtils();
+
+    private File buildFile;
+    private String uri;
+
+    @Before
+    public void setUp() throws IOException {
+        ParsedBuildFile.clear();
+        buildFile = FILE_UTILS.createTempFile("parsed", ".xml", null, true, true);
+        uri = FILE_UTILS.toURI(buildFile.getAbsolutePath());
+    }
+
+    @After
+    public void tearDown() {
+        ParsedBuildFile.clear();
+    }
+
+    @Test
+    public void testReplayConfiguresProject() throws IOException {
+        write("<project name='p' default='a'>\n"
+              + "  <property name='foo' value='bar'/>\n"
+              + "  <target name='a' depends='b'>\n"
+              + "    <property name='baz' value='${foo}'/>\n"
+              + "  </target>\n"
+              + "  <target name='b'/>\n"
+              + "</project>\n");
+        Project p1 = configure(null);
+        assertNotNull(ParsedBuildFile.get(uri));
+        Project p2 = configure(null);
+        assertEquals("p", p2.getName());
+        assertEquals("a", p2.getDefaultTarget());
+        assertEquals("bar", p2.getProperty("foo"));
+        Target a1 = (Target) p1.getTargets().get("a");
+        Target a2 = (Target) p2.getTargets().get("a");
+        assertEquals(a1.getLocation().getLineNumber(),
+                     a2.getLocation().getLineNumber());
+        assertEquals(a1.getLocation().getFileName(),
+                     a2.getLocation().getFileName());
+        assertTrue(a2.getDependencies().hasMoreElements());
+        p2.executeTarget("a");
+        assertEquals("bar", p2.getProperty("baz"));
+    }
+
+    @Test
+    public void testModifiedFileIsParsedAgain() throws IOException {
+        write("<project><target name='a'/></project>");
+        configure(null);
+        write("<project><target name='bb'/></project>");
+        Project p = configure(null);
+        assertNotNull(p.getTargets().get("bb"));
+        assertNull(p.getTargets().get("a"));
+    }
+
+    @Test
+    public void testRecentlyModifiedFileIsNotCached() throws IOException {
+        write("<project/>");
+        buildFile.setLastModified(System.currentTimeMillis());
+        configure(null);
+        assertNull(ParsedBuildFile.get(uri));
+    }
+
+    @Test
+    public void testCacheCanBeDisabled() throws IOException {
+        write("<project/>");
+        configure("false");
+        assertNull(ParsedBuildFile.get(uri));
+    }
+
+    private void write(String content) throws IOException {
+        long old = buildFile.lastModified();
+        Writer w = new FileWriter(buildFile);
+        try {
+            w.write(content);
+        } finally {
+            w.close();
+        }
+        buildFile.setLastModified(old - 10000);
+    }
+
+    private Project configure(String cache) {
+        Project p = new Project();
+        p.init();
+        if (cache != null) {
+            p.setUserProperty(MagicNames.PARSER_CACHE, cache);
+        }
+        ProjectHelper.configureProject(p, buildFile);
+        return p;
+    }
+}
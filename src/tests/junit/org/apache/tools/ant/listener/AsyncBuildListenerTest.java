@@ -0,0 +1,274 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.tools.ant.listener;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.BuildListener;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Target;
+import org.apache.tools.ant.Task;
+import org.apache.tools.ant.XmlLogger;
+import org.apache.tools.ant.taskdefs.Echo;
+import org.apache.tools.ant.taskdefs.Parallel;
+import org.apache.tools.ant.taskdefs.Sequential;
+import org.apache.tools.ant.taskdefs.Sleep;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AsyncBuildListenerTest {
+
+    @Test
+    public void testDeliversInOrderBeforeBuildFinishedReturns() {
+        RecordingListener recorder = new RecordingListener();
+        recorder.delay = 1;
+        Project p = new Project();
+        p.addBuildListener(new AsyncBuildListener(recorder, 4, false));
+        p.fireBuildStarted();
+        for (int i = 0; i < 20; i++) {
+            p.log("message " + i);
+        }
+        p.fireBuildFinished(null);
+        List<String> events = recorder.getEvents();
+        assertEquals(22, events.size());
+        assertEquals("buildStarted", events.get(0));
+        for (int i = 0; i < 20; i++) {
+            assertEquals("message " + i, events.get(i + 1));
+        }
+        assertEquals("buildFinished", events.get(21));
+        assertTrue(recorder.threadName.startsWith("build-listener-"));
+    }
+
+    @Test
+    public void testDropsDebugMessagesIfQueueIsFull() throws Exception {
+        RecordingListener recorder = new RecordingListener();
+        recorder.block = new CountDownLatch(1);
+        Project p = new Project();
+        p.addBuildListener(new AsyncBuildListener(recorder, 2, true));
+        p.fireBuildStarted();
+        for (int i = 0; i < 10; i++) {
+            p.log("debug " + i, Project.MSG_DEBUG);
+        }
+        recorder.block.countDown();
+        p.log("info", Project.MSG_INFO);
+        p.fireBuildFinished(null);
+        List<String> events = recorder.getEvents();
+        assertTrue(events.toString(), events.size() < 13);
+        assertEquals("buildFinished", events.get(events.size() - 1));
+        assertTrue(events.toString(),
+                   events.get(events.size() - 2)
+                   .endsWith("verbose or debug messages have been dropped"));
+        assertTrue(events.contains("info"));
+    }
+
+    @Test
+    public void testRethrowsExceptionAtBuildFinished() {
+        final BuildException boom = new BuildException("boom");
+        RecordingListener recorder = new RecordingListener() {
+            public void messageLogged(BuildEvent event) {
+                throw boom;
+            }
+        };
+        Project p = new Project();
+        p.addBuildListener(new AsyncBuildListener(recorder));
+        p.fireBuildStarted();
+        p.log("message");
+        try {
+            p.fireBuildFinished(null);
+            fail("expected an exception");
+        } catch (BuildException ex) {
+            assertSame(boom, ex);
+        }
+        assertEquals("buildFinished",
+                     recorder.getEvents().get(recorder.getEvents().size() - 1));
+    }
+
+    @Test
+    public void testCanBeReusedAfterBuildFinished() {
+        RecordingListener recorder = new RecordingListener();
+        AsyncBuildListener async = new AsyncBuildListener(recorder);
+        for (int i = 0; i < 3; i++) {
+            Project p = new Project();
+            p.addBuildListener(async);
+            p.fireBuildStarted();
+            p.log("build " + i);
+            p.fireBuildFinished(null);
+        }
+        assertEquals(9, recorder.getEvents().size());
+        assertEquals("build 2", recorder.getEvents().get(7));
+    }
+
+    @Test
+    public void testXmlLoggerSeesThreadsOfParallel() throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        XmlLogger logger = new XmlLogger();
+        logger.setMessageOutputLevel(Project.MSG_INFO);
+        logger.setOutputPrintStream(new PrintStream(bos));
+        Project p = new Project();
+        p.init();
+        p.setProperty("ant.XmlLogger.stylesheet.uri", "");
+        p.addBuildListener(new AsyncBuildLogger(logger));
+
+        Target t = new Target();
+        t.setName("test");
+        t.setProject(p);
+        p.addTarget(t);
+        Parallel parallel = new Parallel();
+        init(parallel, p, t, "parallel");
+        for (int i = 0; i < 2; i++) {
+            Sequential seq = new Sequential();
+            init(seq, p, t, "sequential");
+            Sleep sleep = new Sleep();
+            init(sleep, p, t, "sleep");
+            sleep.setMilliseconds(100 * (i + 1));
+            seq.addTask(sleep);
+            Echo echo = new Echo();
+            init(echo, p, t, "echo");
+            echo.setMessage("message " + i);
+            seq.addTask(echo);
+            parallel.addTask(seq);
+        }
+        t.addTask(parallel);
+
+        p.fireBuildStarted();
+        p.executeTarget("test");
+        p.fireBuildFinished(null);
+
+        // XmlLogger throws a RuntimeException if a task finishes that
+        // isn't the innermost element of its thread
+        Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+            .parse(new ByteArrayInputStream(bos.toByteArray()));
+        NodeList tasks = doc.getDocumentElement().getElementsByTagName("task");
+        assertEquals(7, tasks.getLength());
+        int echos = 0;
+        for (int i = 0; i < tasks.getLength(); i++) {
+            Element task = (Element) tasks.item(i);
+            if ("echo".equals(task.getAttribute("name"))) {
+                echos++;
+                assertEquals(1, task.getElementsByTagName("message")
+                             .getLength());
+            }
+        }
+        assertEquals(2, echos);
+    }
+
+    @Test
+    public void testEventsKeepThreadAndTime() throws Exception {
+        final List<BuildEvent> events = new ArrayList<BuildEvent>();
+        RecordingListener recorder = new RecordingListener() {
+            public void messageLogged(BuildEvent event) {
+                events.add(event);
+            }
+        };
+        recorder.block = new CountDownLatch(1);
+        final Project p = new Project();
+        p.addBuildListener(new AsyncBuildListener(recorder));
+        p.fireBuildStarted();
+        long before = System.currentTimeMillis();
+        Thread logging = new Thread("logging-thread") {
+                public void run() {
+                    p.log("message");
+                }
+            };
+        logging.start();
+        logging.join();
+        Thread.sleep(50);
+        long released = System.currentTimeMillis();
+        recorder.block.countDown();
+        p.fireBuildFinished(null);
+        assertEquals(1, events.size());
+        assertSame(logging, events.get(0).getThread());
+        assertTrue(events.get(0).getTimestamp() >= before);
+        assertTrue(events.get(0).getTimestamp() < released);
+    }
+
+    private static void init(Task task, Project p, Target t, String name) {
+        task.setProject(p);
+        task.setOwningTarget(t);
+        task.setTaskName(name);
+        task.init();
+    }
+
+    private static class RecordingListener implements BuildListener {
+        private final List<String> events = new ArrayList<String>();
+        private volatile CountDownLatch block;
+        private volatile long delay;
+        private volatile String threadName;
+
+        public void buildStarted(BuildEvent event) {
+            record("buildStarted");
+        }
+
+        public void buildFinished(BuildEvent event) {
+            record("buildFinished");
+        }
+
+        public void targetStarted(BuildEvent event) {
+        }
+
+        public void targetFinished(BuildEvent event) {
+        }
+
+        public void taskStarted(BuildEvent event) {
+        }
+
+        public void taskFinished(BuildEvent event) {
+        }
+
+        public void messageLogged(BuildEvent event) {
+            record(event.getMessage());
+        }
+
+        private void record(String event) {
+            threadName = Thread.currentThread().getName();
+            try {
+                if (block != null) {
+                    block.await();
+                }
+                Thread.sleep(delay);
+            } catch (InterruptedException ex) {
+                // ignore
+            }
+            synchronized (events) {
+                events.add(event);
+            }
+        }
+
+        List<String> getEvents() {
+            synchronized (events) {
+                return new ArrayList<String>(events);
+            }
+        }
+    }
+}
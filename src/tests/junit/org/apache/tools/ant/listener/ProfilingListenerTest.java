@@ -0,0 +1,128 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.tools.ant.listener;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Target;
+import org.apache.tools.ant.Task;
+import org.apache.tools.ant.taskdefs.Echo;
+import org.apache.tools.ant.taskdefs.Parallel;
+import org.apache.tools.ant.taskdefs.Sleep;
+import org.apache.tools.ant.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ProfilingListenerTest {
+
+    private File output;
+
+    @Before
+    public void setUp() throws Exception {
+        output = File.createTempFile("profile", ".out");
+    }
+
+    @After
+    public void tearDown() {
+        output.delete();
+    }
+
+    @Test
+    public void testTrace() throws Exception {
+        String trace = run(ProfilingListener.FORMAT_TRACE);
+        assertTrue(trace, trace.startsWith("{\"traceEvents\":["));
+        assertTrue(trace, trace.trim().endsWith("}"));
+        assertTrue(trace, trace.indexOf("\"name\":\"test\",\"cat\":\"target\"") > -1);
+        assertTrue(trace, trace.indexOf("\"name\":\"parallel\",\"cat\":\"task\"") > -1);
+        assertTrue(trace, trace.indexOf("\"name\":\"a \\\"quoted\\\" echo\"") > -1);
+        assertTrue(trace, trace.indexOf("\"ph\":\"M\"") > -1);
+    }
+
+    @Test
+    public void testCollapsed() throws Exception {
+        String collapsed = run(ProfilingListener.FORMAT_COLLAPSED);
+        Map<String, Long> stacks = new HashMap<String, Long>();
+        for (String line : collapsed.split("\n")) {
+            int space = line.lastIndexOf(' ');
+            stacks.put(line.substring(0, space),
+                       Long.valueOf(line.substring(space + 1)));
+        }
+        // tasks of <parallel> run in threads of their own but are
+        // nested inside of it
+        Long sleep = stacks.get("test;parallel;sleep");
+        assertTrue(collapsed, sleep != null && sleep.longValue() >= 50);
+    }
+
+    private String run(String format) throws Exception {
+        Project p = new Project();
+        p.init();
+        p.setProperty(ProfilingListener.FILE_PROPERTY, output.getAbsolutePath());
+        p.setProperty(ProfilingListener.FORMAT_PROPERTY, format);
+        p.addBuildListener(new ProfilingListener());
+
+        Target t = new Target();
+        t.setName("test");
+        t.setProject(p);
+        p.addTarget(t);
+        Parallel parallel = new Parallel();
+        init(parallel, p, t, "parallel");
+        Sleep sleep = new Sleep();
+        init(sleep, p, t, "sleep");
+        sleep.setMilliseconds(60);
+        parallel.addTask(sleep);
+        Echo e = new Echo();
+        init(e, p, t, "a \"quoted\" echo");
+        e.setMessage("hello");
+        parallel.addTask(e);
+        t.addTask(parallel);
+
+        p.fireBuildStarted();
+        BuildException failure = null;
+        try {
+            p.executeTarget("test");
+        } catch (BuildException ex) {
+            failure = ex;
+        }
+        p.fireBuildFinished(failure);
+
+        InputStreamReader r =
+            new InputStreamReader(new FileInputStream(output), "UTF-8");
+        try {
+            return FileUtils.readFully(r);
+        } finally {
+            FileUtils.close(r);
+        }
+    }
+
+    private static void init(Task task, Project p, Target t, String name) {
+        task.setProject(p);
+        task.setOwningTarget(t);
+        task.setTaskName(name);
+        task.init();
+    }
+}
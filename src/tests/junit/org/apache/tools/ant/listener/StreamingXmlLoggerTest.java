@@ -0,0 +1,154 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.tools.ant.listener;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Target;
+import org.apache.tools.ant.Task;
+import org.apache.tools.ant.taskdefs.Echo;
+import org.apache.tools.ant.taskdefs.Parallel;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class StreamingXmlLoggerTest {
+
+    @Test
+    public void testWritesFlatDocument() throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        Project p = new Project();
+        p.init();
+        StreamingXmlLogger logger = new StreamingXmlLogger();
+        logger.setMessageOutputLevel(Project.MSG_INFO);
+        logger.setOutputPrintStream(new PrintStream(bos));
+        p.addBuildListener(logger);
+
+        Target t = new Target();
+        t.setName("test");
+        t.setProject(p);
+        p.addTarget(t);
+        Parallel parallel = new Parallel();
+        init(parallel, p, t, "parallel");
+        for (int i = 0; i < 3; i++) {
+            Echo e = new Echo();
+            init(e, p, t, "echo");
+            e.setMessage("message " + i + " ]]> & <");
+            parallel.addTask(e);
+        }
+        t.addTask(parallel);
+
+        p.fireBuildStarted();
+        p.log("before targets", Project.MSG_INFO);
+        BuildException failure = null;
+        try {
+            p.executeTarget("test");
+        } catch (BuildException ex) {
+            failure = ex;
+        }
+        p.fireBuildFinished(failure);
+
+        Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+            .parse(new ByteArrayInputStream(bos.toByteArray()));
+        Element root = doc.getDocumentElement();
+        assertEquals("build", root.getTagName());
+
+        Map<String, Element> byId = new HashMap<String, Element>();
+        NodeList targets = root.getElementsByTagName("target");
+        assertEquals(1, targets.getLength());
+        Element target = (Element) targets.item(0);
+        assertEquals("test", target.getAttribute("name"));
+        byId.put(target.getAttribute("id"), target);
+        NodeList tasks = root.getElementsByTagName("task");
+        assertEquals(4, tasks.getLength());
+        for (int i = 0; i < tasks.getLength(); i++) {
+            Element task = (Element) tasks.item(i);
+            byId.put(task.getAttribute("id"), task);
+            assertEquals(target.getAttribute("id"), task.getAttribute("parent"));
+        }
+
+        NodeList messages = root.getElementsByTagName("message");
+        assertEquals("before targets",
+                     ((Element) messages.item(0)).getTextContent());
+        int echoed = 0;
+        for (int i = 1; i < messages.getLength(); i++) {
+            Element m = (Element) messages.item(i);
+            Element parent = byId.get(m.getAttribute("parent"));
+            assertNotNull(parent);
+            if ("echo".equals(parent.getAttribute("name"))) {
+                assertTrue(m.getTextContent(),
+                           m.getTextContent().endsWith(" ]]> & <"));
+                echoed++;
+            }
+        }
+        assertEquals(3, echoed);
+
+        NodeList finished = root.getElementsByTagName("finished");
+        assertEquals(1, finished.getLength());
+        assertTrue(((Element) finished.item(0)).hasAttribute("time"));
+    }
+
+    @Test
+    public void testFlushesWithoutFurtherWrites() throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        Project p = new Project();
+        p.init();
+        StreamingXmlLogger logger = new StreamingXmlLogger();
+        logger.setMessageOutputLevel(Project.MSG_INFO);
+        logger.setOutputPrintStream(new PrintStream(bos));
+        p.addBuildListener(logger);
+
+        Target t = new Target();
+        t.setName("test");
+        t.setProject(p);
+        p.fireBuildStarted();
+        logger.targetStarted(new BuildEvent(t));
+        p.log("buffered", Project.MSG_INFO);
+        assertFalse(bos.toString().contains("buffered"));
+        for (int i = 0; i < 50 && !bos.toString().contains("buffered"); i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(bos.toString().contains("buffered"));
+        logger.targetFinished(new BuildEvent(t));
+        p.fireBuildFinished(null);
+        assertTrue(bos.toString().trim().endsWith("</build>"));
+    }
+
+    private static void init(Task task, Project p, Target t, String name) {
+        task.setProject(p);
+        task.setOwningTarget(t);
+        task.setTaskName(name);
+        task.init();
+    }
+}
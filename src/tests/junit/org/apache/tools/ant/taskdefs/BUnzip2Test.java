@@ -53,6 +53,11 @@ public class BUnzip2Test {
         testRealTest("realTestWithResource");
     }
 
+    @Test
+    public void testRealTestParallel() throws java.io.IOException {
+        testRealTest("realTestParallel");
+    }
+
     private void testRealTest(String target) throws java.io.IOException {
         buildRule.executeTarget(target);
         assertEquals("File content mismatch after bunzip2",
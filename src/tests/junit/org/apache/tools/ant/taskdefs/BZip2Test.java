@@ -55,7 +55,16 @@ public class BZip2Test {
 
     @Test
     public void testRealTest() throws IOException {
-        buildRule.executeTarget("realTest");
+        testRealTest("realTest");
+    }
+
+    @Test
+    public void testRealTestParallel() throws IOException {
+        testRealTest("realTestParallel");
+    }
+
+    private void testRealTest(String target) throws IOException {
+        buildRule.executeTarget(target);
 
         // doesn't work: Depending on the compression engine used,
         // compressed bytes may differ. False errors would be
@@ -29,6 +29,7 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.IOException;
 
 import static org.apache.tools.ant.AntAssert.assertContains;
@@ -271,6 +272,65 @@ public class CopyTest {
         buildRule.executeTarget("testResourcePlainWithFilter");
     }
 
+    @Test
+    public void testThreads() throws IOException {
+        File src = createThreadsSources(60);
+        runThreads("seq", 1, true);
+        String sequentialLog = buildRule.getLog();
+        runThreads("par", 4, true);
+        assertEquals(sequentialLog.replace("seq", "par"), buildRule.getLog());
+        File dest = new File(src.getParentFile(), "par");
+        for (int i = 0; i < 60; i++) {
+            assertEquals("Apache Ant Project " + i,
+                         FileUtilities.getFileContents(new File(dest, "d" + (i % 5)
+                                                                + "/f" + i + ".txt")));
+        }
+    }
+
+    @Test
+    public void testThreadsReportFailuresInOrder() throws IOException {
+        File src = createThreadsSources(20);
+        // a file where a directory should be created
+        File blocked = new File(src.getParentFile(), "par/d2");
+        assertTrue(blocked.getParentFile().mkdirs());
+        assertTrue(blocked.createNewFile());
+        runThreads("par", 4, false);
+        String log = buildRule.getLog();
+        int failure = log.indexOf("Failed to copy");
+        assertTrue(log, failure > log.indexOf("d2" + File.separator + "f12.txt"));
+        assertTrue(log, failure < log.indexOf("d3" + File.separator + "f13.txt"));
+        try {
+            runThreads("par", 4, true);
+            fail("expected a failure");
+        } catch (BuildException ex) {
+            assertContains("Failed to copy", ex.getMessage());
+        }
+    }
+
+    private File createThreadsSources(int count) throws IOException {
+        File src = new File(buildRule.getProject().getProperty("output"),
+                            "threads/src");
+        for (int i = 0; i < count; i++) {
+            File f = new File(src, "d" + (i % 5) + "/f" + i + ".txt");
+            f.getParentFile().mkdirs();
+            FileWriter w = new FileWriter(f);
+            try {
+                w.write("@TITLE@ " + i);
+            } finally {
+                w.close();
+            }
+        }
+        return src;
+    }
+
+    private void runThreads(String dest, int threads, boolean failOnError) {
+        buildRule.getProject().setProperty("dest", dest);
+        buildRule.getProject().setProperty("threads", String.valueOf(threads));
+        buildRule.getProject().setProperty("failonerror",
+                                           String.valueOf(failOnError));
+        buildRule.executeTarget("testThreads");
+    }
+
     @Ignore("Previously ignored due to naming convention")
     @Test
     public void testOnlineResources() {
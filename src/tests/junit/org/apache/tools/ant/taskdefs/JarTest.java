@@ -20,12 +20,17 @@ package org.apache.tools.ant.taskdefs;
 
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarInputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -257,6 +262,29 @@ public class JarTest {
         assertTrue(jarXml.exists());
     }
 
+    @Test
+    public void testUpdateReplacesManifest() throws IOException {
+        buildRule.executeTarget("testUpdateReplacesManifest");
+        // read the archive as a stream, that's where old local
+        // headers left inside the archive would show up
+        JarInputStream in = new JarInputStream(new FileInputStream(
+            new File(getOutputDir(), tempJar)));
+        try {
+            assertEquals("two", in.getManifest().getMainAttributes()
+                         .getValue("X-Ver"));
+            Set<String> names = new HashSet<String>();
+            JarEntry e;
+            while ((e = in.getNextJarEntry()) != null) {
+                assertTrue(e.getName() + " appears twice",
+                           names.add(e.getName()));
+            }
+            assertTrue(names.contains("jar.xml"));
+            assertTrue(names.contains("zip.xml"));
+        } finally {
+            in.close();
+        }
+    }
+
     // bugzilla report 10262
     @Test
     public void testNoDuplicateIndex() throws IOException {
@@ -31,6 +31,7 @@ import java.io.PipedOutputStream;
 
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.BuildFileRule;
+import org.apache.tools.ant.Project;
 import org.apache.tools.ant.input.DefaultInputHandler;
 import org.apache.tools.ant.util.FileUtils;
 import org.apache.tools.ant.util.TeeOutputStream;
@@ -359,6 +360,35 @@ public class JavaTest {
         buildRule.executeTarget("flushedInput");
     }
 
+    @Test
+    public void testReuseVm() {
+        try {
+            buildRule.executeTarget("testReuseVm");
+        } finally {
+            ForkedVmPool.shutdown(null);
+        }
+        Project p = buildRule.getProject();
+        String vm1 = p.getProperty("vm1");
+        assertTrue(vm1, vm1.startsWith("first:"));
+        assertEquals(vm1.substring("first:".length()), p.getProperty("vm2"));
+        // static state doesn't survive from one run to the next
+        assertEquals("1", p.getProperty("count1"));
+        assertEquals("1", p.getProperty("count2"));
+        assertEquals(p.getProperty("vm2"), p.getProperty("vm2b"));
+        // like a real fork the run waits for non-daemon threads
+        assertEquals("main late", p.getProperty("nondaemon"));
+        assertEquals(p.getProperty("vm2"), p.getProperty("vm2c"));
+        // daemon threads left behind get the VM retired
+        assertEquals("main", p.getProperty("daemon"));
+        assertTrue(!p.getProperty("vm2").equals(p.getProperty("vm2d")));
+        assertEquals("2", p.getProperty("exitcode"));
+        assertEquals("1", p.getProperty("exitcode2"));
+        assertContains("Exception raised inside called program",
+                       p.getProperty("err"));
+        // the VM has been replaced after System.exit
+        assertTrue(!p.getProperty("vm2").equals(p.getProperty("vm3")));
+    }
+
     /**
      * entry point class with no dependencies other
      * than normal JRE runtime
@@ -393,6 +423,52 @@ public class JavaTest {
         }
     }
 
+    /**
+     * prints the name of the running VM, prefixed by the system
+     * property vmname.prefix
+     */
+    public static class VmNamePoint {
+        public static void main(String[] argv) {
+            System.out.print(System.getProperty("vmname.prefix", "")
+                + java.lang.management.ManagementFactory.getRuntimeMXBean()
+                  .getName());
+        }
+    }
+
+    /**
+     * prints how often its main method has been invoked by the
+     * class loader that loaded it
+     */
+    public static class StaticCounterPoint {
+        private static int count = 0;
+
+        public static void main(String[] argv) {
+            System.out.print(++count);
+        }
+    }
+
+    /**
+     * starts a thread that prints something after main has returned,
+     * argv[0] = "daemon" makes it a daemon thread (optional)
+     */
+    public static class ThreadStartingPoint {
+        public static void main(String[] argv) {
+            Thread t = new Thread() {
+                    public void run() {
+                        try {
+                            Thread.sleep(300);
+                        } catch (InterruptedException ex) {
+                            return;
+                        }
+                        System.out.print(" late");
+                    }
+                };
+            t.setDaemon(argv.length > 0 && "daemon".equals(argv[0]));
+            t.start();
+            System.out.print("main");
+        }
+    }
+
     /**
      * entry point class with no dependencies other
      * than normal JRE runtime
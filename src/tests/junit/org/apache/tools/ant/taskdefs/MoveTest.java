@@ -25,7 +25,9 @@ import org.junit.Rule;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.util.Arrays;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -54,6 +56,50 @@ public class MoveTest {
         assertEquals(FileUtilities.getFileContents(check), FileUtilities.getFileContents(tmp));
     }
 
+    @Test
+    public void testThreads() throws IOException {
+        buildRule.executeTarget("testThreads");
+        File threads = new File(buildRule.getProject().getProperty("output"), "threads");
+        File check  = new File(buildRule.getProject().getBaseDir(), "expected/copy.filterset.filtered");
+        String[] moved = {"a/1.txt", "a/2.txt", "b/3.txt", "b/4.txt"};
+        for (int i = 0; i < moved.length; i++) {
+            assertEquals(FileUtilities.getFileContents(check),
+                         FileUtilities.getFileContents(new File(threads, "dest/" + moved[i])));
+            assertTrue(!new File(threads, "src/" + moved[i]).exists());
+        }
+    }
+
+    @Test
+    public void testThreadsSharedDestination() throws IOException {
+        File threads = new File(buildRule.getProject().getProperty("output"), "threads");
+        File src = new File(threads, "src");
+        src.mkdirs();
+        String[] contents = new String[20];
+        for (int i = 0; i < contents.length; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int j = 0; j < 10000 * (i + 1); j++) {
+                sb.append((char) ('a' + i));
+            }
+            contents[i] = sb.toString();
+            FileWriter w = new FileWriter(new File(src, i + ".txt"));
+            try {
+                w.write(contents[i]);
+            } finally {
+                w.close();
+            }
+        }
+        buildRule.executeTarget("testThreadsSharedDestination");
+        for (int i = 0; i < contents.length; i++) {
+            assertEquals(contents[i], FileUtilities.getFileContents(
+                             new File(threads, "dest/" + i + ".txt")));
+            assertTrue(!new File(src, i + ".txt").exists());
+        }
+        // all sources have been copied to merged.txt one after the other
+        String merged = FileUtilities.getFileContents(
+            new File(threads, "dest/shared/merged.txt"));
+        assertTrue(Arrays.asList(contents).contains(merged));
+    }
+
     @Test
     public void testFilterChain() throws IOException {
         buildRule.executeTarget("testFilterChain");
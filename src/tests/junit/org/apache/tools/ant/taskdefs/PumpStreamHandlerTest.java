@@ -0,0 +1,100 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.tools.ant.taskdefs;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class PumpStreamHandlerTest {
+
+    @Test
+    public void testSharedPumpersCopyEverything() throws Exception {
+        byte[] data = new byte[100000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        for (int run = 0; run < 3; run++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ByteArrayOutputStream err = new ByteArrayOutputStream();
+            PumpStreamHandler h = new PumpStreamHandler(out, err);
+            h.setUseSharedPumpers(true);
+            h.setProcessInputStream(new ByteArrayOutputStream());
+            h.setProcessOutputStream(new ByteArrayInputStream(data));
+            h.setProcessErrorStream(new ByteArrayInputStream("err".getBytes()));
+            h.start();
+            h.stop();
+            assertEquals(data.length, out.size());
+            assertEquals(data[data.length - 1],
+                         out.toByteArray()[data.length - 1]);
+            assertEquals("err", err.toString());
+        }
+    }
+
+    @Test
+    public void testSharedPumpersDeliverOutputWhileRunning() throws Exception {
+        PipedOutputStream process = new PipedOutputStream();
+        PipedInputStream in = new PipedInputStream(process);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PumpStreamHandler h = new PumpStreamHandler(out, out);
+        h.setUseSharedPumpers(true);
+        h.setProcessOutputStream(in);
+        h.setProcessErrorStream(new ByteArrayInputStream(new byte[0]));
+        h.start();
+        process.write("foo".getBytes());
+        process.flush();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (out.size() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("foo", out.toString());
+        process.write("bar".getBytes());
+        process.close();
+        h.stop();
+        assertEquals("foobar", out.toString());
+    }
+
+    @Test
+    public void testSharedPumpersDropOutputAfterStop() throws Exception {
+        PipedOutputStream process = new PipedOutputStream();
+        PipedInputStream in = new PipedInputStream(process);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PumpStreamHandler h = new PumpStreamHandler(out, out);
+        h.setUseSharedPumpers(true);
+        h.setProcessOutputStream(in);
+        h.setProcessErrorStream(new ByteArrayInputStream(new byte[0]));
+        h.start();
+        // the stream stays open, like one inherited by a grandchild
+        h.stop();
+        process.write("late".getBytes());
+        process.flush();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (in.available() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        process.close();
+        assertEquals("", out.toString());
+    }
+}
@@ -19,6 +19,8 @@
 package org.apache.tools.ant.taskdefs;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 import junit.framework.AssertionFailedError;
 
@@ -26,12 +28,15 @@ import org.apache.tools.ant.BuildEvent;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.BuildFileRule;
 import org.apache.tools.ant.BuildListener;
+import org.apache.tools.ant.Project;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 
 import static org.apache.tools.ant.AntAssert.assertContains;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 
@@ -110,6 +115,73 @@ public class SubAntTest {
         }
     }
 
+    @Test
+    public void testParallelSkipsDependents() {
+        Project p = buildRule.getProject();
+        p.setKeepGoingMode(true);
+        EventRecorder recorder = new EventRecorder();
+        p.addBuildListener(recorder);
+        try {
+            buildRule.executeTarget("testParallelSkipsDependents");
+            fail("BuildException expected: b fails");
+        } catch (BuildException ex) {
+            assertContains("b failed", ex.getMessage());
+        }
+        String log = buildRule.getLog();
+        assertContains("building a", log);
+        assertContains("building d", log);
+        assertFalse(log, log.indexOf("building c") >= 0);
+
+        // c has been reported as skipped
+        boolean skipped = false;
+        for (Recorded r : recorder.events) {
+            if ("message".equals(r.type) && r.event.getMessage() != null
+                && r.event.getMessage().startsWith("Skipping ")
+                && r.event.getMessage().indexOf("c since") >= 0) {
+                assertEquals(Project.MSG_ERR, r.event.getPriority());
+                skipped = true;
+            }
+        }
+        assertTrue("c should have been skipped", skipped);
+
+        // the events of each sub-build arrive in one piece
+        List<String> seen = new ArrayList<String>();
+        String current = null;
+        for (Recorded r : recorder.events) {
+            Project sub = r.event.getProject();
+            if (sub == p) {
+                continue;
+            }
+            String name = sub.getName();
+            if (!name.equals(current)) {
+                assertFalse(name + " interrupted in " + seen,
+                            seen.contains(name));
+                seen.add(name);
+                current = name;
+            }
+        }
+        assertEquals("[a, b, d]", seen.toString());
+
+        // the events keep the time they have happened at and a, which
+        // has been started first, is passed on while it runs
+        for (Recorded r : recorder.events) {
+            if (!"taskFinished".equals(r.type)
+                || !"sleep".equals(r.event.getTask().getTaskName())) {
+                continue;
+            }
+            Recorded started = recorder.find("taskStarted", r.event.getTask());
+            long time = r.event.getTimestamp() - started.event.getTimestamp();
+            String name = r.event.getProject().getName();
+            if ("a".equals(name)) {
+                assertTrue("sleep of a took " + time, time >= 250);
+                assertTrue("sleep of a has been passed on late",
+                           started.received < r.event.getTimestamp());
+            } else if ("d".equals(name)) {
+                assertTrue("sleep of d took " + time, time >= 80);
+            }
+        }
+    }
+
     protected void testBaseDirs(String target, String[] dirs) {
         SubAntTest.BasedirChecker bc = new SubAntTest.BasedirChecker(dirs);
         buildRule.getProject().addBuildListener(bc);
@@ -157,5 +229,49 @@ public class SubAntTest {
 
     }
 
+    private static class Recorded {
+        private final String type;
+        private final BuildEvent event;
+        private final long received = System.currentTimeMillis();
+
+        Recorded(String type, BuildEvent event) {
+            this.type = type;
+            this.event = event;
+        }
+    }
+
+    private static class EventRecorder implements BuildListener {
+        private final List<Recorded> events = new ArrayList<Recorded>();
+
+        public void buildStarted(BuildEvent event) {}
+        public void buildFinished(BuildEvent event) {}
+        public void targetStarted(BuildEvent event) {
+            record("targetStarted", event);
+        }
+        public void targetFinished(BuildEvent event) {
+            record("targetFinished", event);
+        }
+        public void taskStarted(BuildEvent event) {
+            record("taskStarted", event);
+        }
+        public void taskFinished(BuildEvent event) {
+            record("taskFinished", event);
+        }
+        public void messageLogged(BuildEvent event) {
+            record("message", event);
+        }
+
+        private synchronized void record(String type, BuildEvent event) {
+            events.add(new Recorded(type, event));
+        }
 
+        Recorded find(String type, Object task) {
+            for (Recorded r : events) {
+                if (type.equals(r.type) && r.event.getTask() == task) {
+                    return r;
+                }
+            }
+            return null;
+        }
+    }
 }
@@ -199,6 +199,13 @@ public class TarTest {
         }
     }
 
+    @Test
+    public void testParallelBZip2() throws IOException {
+        buildRule.executeTarget("testParallelBZip2");
+        assertEquals(FileUtilities.getFileContents(buildRule.getProject().resolveFile("../asf-logo.gif")),
+                FileUtilities.getFileContents(new File(buildRule.getProject().getProperty("output"), "untar/asf-logo.gif")));
+    }
+
     @Test
     public void testGZipResource() throws IOException {
         buildRule.executeTarget("testGZipResource");
@@ -19,10 +19,14 @@
 package org.apache.tools.ant.taskdefs;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
 
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.BuildFileRule;
@@ -148,6 +152,29 @@ public class ZipTest {
         zipFile.close();
     }
 
+    @Test
+    public void testMergeCopiesCompressedData() throws IOException {
+        buildRule.executeTarget("testMergeCopiesCompressedData");
+        File output = new File(buildRule.getProject().getProperty("output"));
+        ZipFile source = new ZipFile(new File(output, "mergeSource.zip"));
+        ZipFile merged = new ZipFile(new File(output, "merged.zip"));
+        ZipFile recompressed = new ZipFile(new File(output, "recompressed.zip"));
+        try {
+            ZipEntry ze = source.getEntry("zip.xml");
+            ZipEntry copy = merged.getEntry("copy/zip.xml");
+            assertEquals(ze.getCrc(), copy.getCrc());
+            assertEquals(ze.getCompressedSize(), copy.getCompressedSize());
+            // level 9 has been requested explicitly
+            assertTrue(ze.getCompressedSize()
+                       > recompressed.getEntry("copy/zip.xml")
+                       .getCompressedSize());
+        } finally {
+            source.close();
+            merged.close();
+            recompressed.close();
+        }
+    }
+
     @Test
     public void testUpdateNotNecessary() {
        buildRule.executeTarget("testUpdateNotNecessary");
@@ -171,6 +198,33 @@ public class ZipTest {
 
     }
 
+    @Test
+    public void testUpdateDoesntDuplicateEntries() throws IOException {
+        buildRule.getProject().setProperty("update.millis", String.valueOf(
+            System.currentTimeMillis() + 10000));
+        buildRule.executeTarget("testUpdateDoesntDuplicateEntries");
+        File archive = new File(buildRule.getProject().getProperty("output"),
+                                "update.zip");
+        // read the archive as a stream, that's where old local
+        // headers left inside the archive would show up
+        ZipInputStream in = new ZipInputStream(new FileInputStream(archive));
+        try {
+            Set<String> names = new HashSet<String>();
+            ZipEntry e;
+            while ((e = in.getNextEntry()) != null) {
+                assertTrue(e.getName() + " appears twice",
+                           names.add(e.getName()));
+            }
+            assertEquals(4, names.size());
+            assertTrue(names.contains("test/"));
+            assertTrue(names.contains("test/small.txt"));
+            assertTrue(names.contains("test/zip.xml"));
+            assertTrue(names.contains("test/jar.xml"));
+        } finally {
+            in.close();
+        }
+    }
+
     // Bugzilla Report 19449
     @Test
     public void testFilesOnlyDoesntCauseRecreate() {
@@ -18,6 +18,7 @@
 
 package org.apache.tools.ant.taskdefs.optional.junit;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.apache.tools.ant.AntAssert.assertContains;
@@ -136,6 +137,29 @@ public class JUnitReportTest {
         assertTrue("This shouldn't be an empty stream.", reportStream.available() > 0);
     }
 
+    @Test
+    public void testStreaming() throws Exception {
+        buildRule.executeTarget("testStreaming");
+        assertIndexCreated();
+        assertTrue(new File(buildRule.getOutputDir(), "html/junit-noframes.html").exists());
+        assertEquals(readFile("dom/TESTS-TestSuites.xml"),
+                     readFile("streaming/TESTS-TestSuites.xml"));
+        String log = buildRule.getLog();
+        assertContains(XMLResultAggregator.WARNING_EMPTY_FILE, log);
+        assertContains(XMLResultAggregator.WARNING_IS_POSSIBLY_CORRUPTED, log);
+        assertContains(XMLResultAggregator.WARNING_INVALID_ROOT_ELEMENT, log);
+    }
+
+    private String readFile(String name) throws Exception {
+        FileReader r = null;
+        try {
+            r = new FileReader(new File(buildRule.getOutputDir(), name));
+            return FileUtils.readFully(r);
+        } finally {
+            FileUtils.close(r);
+        }
+    }
+
     //Bugzilla Report 39708
     @Test
     public void testWithStyleFromDir() throws Exception {
@@ -105,6 +105,15 @@ public class JUnitTaskTest {
         assertResultFilesExist("testBatchTestForkOnceToDir", ".xml");
     }
 
+    @Test
+    public void testBatchTestWorkQueue() {
+        assertResultFilesExist("testBatchTestWorkQueue", ".xml");
+        assertContains("Running tests from a shared queue", buildRule.getFullLog());
+        assertContains("Starting test VM 3", buildRule.getFullLog());
+        // second run sorts by the times recorded in the first
+        assertResultFilesExist("testBatchTestWorkQueue", ".xml");
+    }
+
     /** Bugzilla Report 32973 */
     @Test
     public void testBatchTestForkOnceExtension() {
@@ -0,0 +1,145 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.tools.ant.taskdefs.optional.junit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.Hashtable;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import junit.framework.AssertionFailedError;
+import junit.framework.TestCase;
+
+import org.junit.Test;
+import org.xml.sax.InputSource;
+
+import static org.junit.Assert.assertEquals;
+
+public class StreamingXMLJUnitResultFormatterTest {
+
+    private static final String BRACKETS = "<out>]]>";
+
+    // same stack traces for both formatters
+    private static final AssertionFailedError FAILURE =
+        new AssertionFailedError("expected <1>");
+    private static final Throwable ERROR = new RuntimeException("boom");
+    private static final Throwable ASSUMPTION =
+        new RuntimeException("not here");
+    private static final Throwable SUITE_ERROR =
+        new RuntimeException("in tearDown");
+
+    public static class Dummy extends TestCase {
+        public Dummy(String name) {
+            super(name);
+        }
+    }
+
+    @Test
+    public void testCreatesSameDocumentAsXMLFormatter() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        // make sure "]]>" spans the boundaries of the buffer used to
+        // copy the output
+        for (int i = 0; i < 10000; i++) {
+            sb.append(BRACKETS).append(i);
+        }
+        String out = sb.toString();
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        XMLJUnitResultFormatter xml = new XMLJUnitResultFormatter();
+        xml.setOutput(expected);
+        run(xml, out);
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        StreamingXMLJUnitResultFormatter streaming =
+            new StreamingXMLJUnitResultFormatter();
+        streaming.setOutput(actual);
+        run(streaming, out);
+        streaming.setSystemOutput(new StringReader(out));
+        streaming.setSystemError(new StringReader("err"));
+        streaming.endTestSuite(createSuite());
+
+        assertEquals(normalize(expected.toString("UTF-8")),
+                     normalize(actual.toString("UTF-8")));
+        // result must be well-formed
+        DocumentBuilderFactory.newInstance().newDocumentBuilder()
+            .parse(new InputSource(new StringReader(actual.toString("UTF-8"))));
+    }
+
+    @Test
+    public void testOutputSpoolMovesToFile() throws IOException {
+        OutputSpool spool = new OutputSpool();
+        PrintStream p = new PrintStream(spool);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200000; i++) {
+            sb.append("line ").append(i).append('\n');
+        }
+        p.print(sb);
+        p.close();
+        try {
+            assertEquals(sb.toString(), spool.toString());
+            assertEquals(sb.toString(),
+                         org.apache.tools.ant.util.FileUtils
+                         .readFully(spool.openReader()));
+        } finally {
+            spool.delete();
+        }
+    }
+
+    private static JUnitTest createSuite() {
+        JUnitTest suite = new JUnitTest("Dummy");
+        Hashtable<String, String> props = new Hashtable<String, String>();
+        props.put("a", "b<c");
+        suite.setProperties(props);
+        suite.setCounts(4, 1, 2, 1);
+        suite.setRunTime(1234);
+        return suite;
+    }
+
+    private static void run(JUnitResultFormatter f, String out) {
+        f.startTestSuite(createSuite());
+        Dummy passes = new Dummy("testPasses");
+        f.startTest(passes);
+        f.endTest(passes);
+        Dummy fails = new Dummy("testFails");
+        f.startTest(fails);
+        f.addFailure(fails, FAILURE);
+        f.endTest(fails);
+        Dummy errors = new Dummy("testErrors");
+        f.startTest(errors);
+        f.addError(errors, ERROR);
+        f.endTest(errors);
+        Dummy skipped = new Dummy("testSkipped");
+        f.startTest(skipped);
+        ((IgnoredTestListener) f).testAssumptionFailure(skipped, ASSUMPTION);
+        f.endTest(skipped);
+        f.addError(null, SUITE_ERROR);
+        if (f instanceof XMLJUnitResultFormatter) {
+            f.setSystemOutput(out);
+            f.setSystemError("err");
+            f.endTestSuite(createSuite());
+        }
+    }
+
+    private static String normalize(String s) {
+        return s.replaceAll(" time=\"[^\"]*\"", "")
+            .replaceAll(" timestamp=\"[^\"]*\"", "");
+    }
+}
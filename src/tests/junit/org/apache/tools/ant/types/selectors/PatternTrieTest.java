@@ -0,0 +1,163 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.tools.ant.types.selectors;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class PatternTrieTest {
+
+    private static final String[] PATTERN_TOKENS = {
+        "a", "b", "A", "*", "?", "a*", "*b", "**"
+    };
+    private static final String[] PATH_TOKENS = {
+        "a", "b", "A", "ab", "ba", "abc"
+    };
+
+    @Test
+    public void testSimplePatterns() {
+        PatternTrie t = new PatternTrie(new String[] {
+                "src" + File.separator + "**" + File.separator + "*.java",
+                "docs" + File.separator + "index.html"
+            }, new String[] {
+                "**" + File.separator + "CVS" + File.separator + "**"
+            }, true);
+        int m = t.match(path("src/org/Foo.java"));
+        assertEquals(PatternTrie.INCLUDED | PatternTrie.COULD_HOLD_INCLUDED, m);
+        assertEquals(PatternTrie.COULD_HOLD_INCLUDED, t.match(path("docs")));
+        assertEquals(0, t.match(path("docs/index.html")) & PatternTrie.INCLUDED);
+        assertEquals(PatternTrie.EXCLUDED | PatternTrie.CONTENTS_EXCLUDED
+                     | PatternTrie.COULD_HOLD_INCLUDED,
+                     t.match(path("src/CVS")));
+        assertEquals(0, t.match(path("lib")));
+    }
+
+    @Test
+    public void testCompileReusesInstances() {
+        String[] inc = new String[] {"**" + File.separator + "*.java"};
+        String[] exc = new String[] {"**" + File.separator + "*Test.java"};
+        PatternTrie t = PatternTrie.compile(inc, exc, true);
+        assertSame(t, PatternTrie.compile(inc.clone(), exc.clone(), true));
+    }
+
+    @Test
+    public void testMatchesTokenizedPatternsCaseSensitive() {
+        compareWithTokenizedPatterns(true);
+    }
+
+    @Test
+    public void testMatchesTokenizedPatternsCaseInsensitive() {
+        compareWithTokenizedPatterns(false);
+    }
+
+    private void compareWithTokenizedPatterns(boolean cs) {
+        Random r = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            String[] includes = randomPatterns(r);
+            String[] excludes = randomPatterns(r);
+            PatternTrie t = new PatternTrie(includes, excludes, cs);
+            for (int i = 0; i < 50; i++) {
+                TokenizedPath p = randomPath(r);
+                assertEquals("includes " + Arrays.asList(includes)
+                             + " excludes " + Arrays.asList(excludes)
+                             + " path " + p,
+                             expected(includes, excludes, p, cs), t.match(p));
+            }
+        }
+    }
+
+    /**
+     * What DirectoryScanner used to compute for the wildcard patterns.
+     */
+    private static int expected(String[] includes, String[] excludes,
+                                TokenizedPath p, boolean cs) {
+        int result = 0;
+        boolean couldHold = false;
+        for (int i = 0; i < includes.length; i++) {
+            TokenizedPattern pat = new TokenizedPattern(includes[i]);
+            if (SelectorUtils.hasWildcards(includes[i])
+                && pat.matchPath(p, cs)) {
+                result |= PatternTrie.INCLUDED;
+            }
+            if (pat.matchStartOf(p, cs)
+                && (pat.containsPattern(SelectorUtils.DEEP_TREE_MATCH)
+                    || pat.depth() > p.depth())) {
+                couldHold = true;
+            }
+        }
+        for (int i = 0; i < excludes.length; i++) {
+            if (!SelectorUtils.hasWildcards(excludes[i])) {
+                continue;
+            }
+            TokenizedPattern pat = new TokenizedPattern(excludes[i]);
+            if (pat.matchPath(p, cs)) {
+                result |= PatternTrie.EXCLUDED;
+            }
+            if (pat.endsWith(SelectorUtils.DEEP_TREE_MATCH)
+                && pat.withoutLastToken().matchPath(p, cs)) {
+                result |= PatternTrie.CONTENTS_EXCLUDED;
+            }
+        }
+        for (int i = 0; couldHold && i < excludes.length; i++) {
+            if (excludes[i].equals(p.toString() + File.separatorChar
+                                   + SelectorUtils.DEEP_TREE_MATCH)) {
+                couldHold = false;
+            }
+        }
+        return couldHold ? result | PatternTrie.COULD_HOLD_INCLUDED : result;
+    }
+
+    private static String[] randomPatterns(Random r) {
+        String[] result = new String[r.nextInt(6)];
+        for (int i = 0; i < result.length; i++) {
+            StringBuilder sb = new StringBuilder();
+            int depth = 1 + r.nextInt(4);
+            for (int j = 0; j < depth; j++) {
+                if (j > 0) {
+                    sb.append(File.separatorChar);
+                }
+                sb.append(PATTERN_TOKENS[r.nextInt(PATTERN_TOKENS.length)]);
+            }
+            result[i] = sb.toString();
+        }
+        return result;
+    }
+
+    private static TokenizedPath randomPath(Random r) {
+        StringBuilder sb = new StringBuilder();
+        int depth = r.nextInt(5);
+        for (int j = 0; j < depth; j++) {
+            if (j > 0) {
+                sb.append(File.separatorChar);
+            }
+            sb.append(PATH_TOKENS[r.nextInt(PATH_TOKENS.length)]);
+        }
+        return new TokenizedPath(sb.toString());
+    }
+
+    private static TokenizedPath path(String s) {
+        return new TokenizedPath(s.replace('/', File.separatorChar));
+    }
+}
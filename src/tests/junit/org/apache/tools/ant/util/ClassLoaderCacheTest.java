@@ -0,0 +1,162 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.tools.ant.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import org.apache.tools.ant.AntClassLoader;
+import org.apache.tools.ant.MagicNames;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.types.Path;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ClassLoaderCacheTest {
+
+    private static final FileUtils FILE_UTILS = FileUtils.getFileUtils();
+
+    private Project p1;
+    private Project p2;
+    private File jar;
+
+    @Before
+    public void setUp() throws IOException {
+        p1 = newProject();
+        p2 = newProject();
+        jar = FILE_UTILS.createTempFile("cache", ".jar", null, true, true);
+        writeJar("a");
+    }
+
+    @After
+    public void tearDown() {
+        p1.fireBuildFinished(null);
+        p2.fireBuildFinished(null);
+    }
+
+    @Test
+    public void testSameClasspathSharesLoader() {
+        AntClassLoader l1 = ClassLoaderCache.acquire(p1, path(p1, jar));
+        assertNotNull(l1);
+        assertSame(l1, ClassLoaderCache.acquire(p2, path(p2, jar)));
+        assertSame(l1, ClasspathUtils.getClassLoaderForPath(p2, path(p2, jar),
+                                                            null, false));
+        assertNotSame(l1, ClasspathUtils.getClassLoaderForPath(p2, path(p2, jar),
+                                                               null, true));
+        assertNotNull(l1.getResource("a"));
+    }
+
+    @Test
+    public void testDirectoriesAreNotShared() {
+        assertNull(ClassLoaderCache.acquire(p1,
+                                            path(p1, jar.getParentFile())));
+    }
+
+    @Test
+    public void testSharingCanBeDisabled() {
+        p1.setProperty(MagicNames.SHARE_CLASSLOADERS, "false");
+        assertNull(ClassLoaderCache.acquire(p1, path(p1, jar)));
+    }
+
+    @Test
+    public void testLoaderIsReleasedWithLastProject() {
+        AntClassLoader l1 = ClassLoaderCache.acquire(p1, path(p1, jar));
+        assertSame(l1, ClassLoaderCache.acquire(p2, path(p2, jar)));
+        p1.fireBuildFinished(null);
+        Project p3 = newProject();
+        assertSame(l1, ClassLoaderCache.acquire(p3, path(p3, jar)));
+        p2.fireBuildFinished(null);
+        p3.fireBuildFinished(null);
+        assertNotSame(l1, ClassLoaderCache.acquire(p1, path(p1, jar)));
+    }
+
+    @Test
+    public void testLoaderIsReleasedWithCollectedProject()
+        throws InterruptedException {
+        Project p3 = newProject();
+        AntClassLoader l1 = ClassLoaderCache.acquire(p3, path(p3, jar));
+        assertNotNull(l1);
+        WeakReference<Project> ref = new WeakReference<Project>(p3);
+        p3 = null;
+        for (int i = 0; i < 50 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertNull("project has not been collected", ref.get());
+        assertNotSame(l1, ClassLoaderCache.acquire(p1, path(p1, jar)));
+    }
+
+    @Test
+    public void testProjectsCreatingTheirOwnLoadersDontShare() {
+        final AntClassLoader own =
+            AntClassLoader.newAntClassLoader(null, null, null, true);
+        Project p3 = new Project() {
+                @Override
+                public AntClassLoader createClassLoader(Path path) {
+                    return own;
+                }
+            };
+        p3.init();
+        assertNull(ClassLoaderCache.acquire(p3, path(p3, jar)));
+        assertSame(own, ClasspathUtils.getClassLoaderForPath(p3,
+                                                             path(p3, jar),
+                                                             null, false));
+        assertNotSame(own, ClassLoaderCache.acquire(p1, path(p1, jar)));
+    }
+
+    @Test
+    public void testModifiedJarGetsNewLoader() throws IOException {
+        AntClassLoader l1 = ClassLoaderCache.acquire(p1, path(p1, jar));
+        writeJar("bb");
+        jar.setLastModified(jar.lastModified() - 10000);
+        AntClassLoader l2 = ClassLoaderCache.acquire(p2, path(p2, jar));
+        assertNotSame(l1, l2);
+        assertNotNull(l2.getResource("bb"));
+    }
+
+    private static Project newProject() {
+        Project p = new Project();
+        p.init();
+        return p;
+    }
+
+    private static Path path(Project p, File f) {
+        return new Path(p, f.getAbsolutePath());
+    }
+
+    private void writeJar(String entry) throws IOException {
+        JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+        try {
+            out.putNextEntry(new ZipEntry(entry));
+            out.closeEntry();
+        } finally {
+            out.close();
+        }
+    }
+}
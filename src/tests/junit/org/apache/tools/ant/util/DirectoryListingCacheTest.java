@@ -0,0 +1,135 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.tools.ant.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.tools.ant.DirectoryScanner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DirectoryListingCacheTest {
+
+    private static final FileUtils FILE_UTILS = FileUtils.getFileUtils();
+
+    private File base;
+    private File cacheFile;
+    private long old;
+
+    @Before
+    public void setUp() throws IOException {
+        base = FILE_UTILS.createTempFile("listing", "", null, true, false);
+        base.mkdirs();
+        cacheFile = new File(base.getParentFile(), base.getName() + ".cache");
+        old = System.currentTimeMillis() - 60000;
+        create("a/x.txt");
+        create("b/y.txt");
+        new File(base, "a").setLastModified(old);
+        new File(base, "b").setLastModified(old);
+        base.setLastModified(old);
+    }
+
+    @After
+    public void tearDown() {
+        FILE_UTILS.tryHardToDelete(cacheFile);
+        delete(base);
+    }
+
+    @Test
+    public void testUnchangedDirectoryIsTakenFromCache() {
+        DirectoryListingCache cache = new DirectoryListingCache(cacheFile);
+        assertScan(cache, "a/x.txt", "b/y.txt");
+
+        // invisible to the cache as long as b's timestamp is unchanged
+        create("b/z.txt");
+        new File(base, "b").setLastModified(old);
+        assertScan(cache, "a/x.txt", "b/y.txt");
+        assertScan(null, "a/x.txt", "b/y.txt", "b/z.txt");
+
+        new File(base, "b").setLastModified(old + 10000);
+        assertScan(cache, "a/x.txt", "b/y.txt", "b/z.txt");
+    }
+
+    @Test
+    public void testCacheIsPersisted() throws IOException {
+        DirectoryListingCache cache = new DirectoryListingCache(cacheFile);
+        assertScan(cache, "a/x.txt", "b/y.txt");
+        cache.save();
+        assertTrue(cacheFile.isFile());
+
+        create("b/z.txt");
+        new File(base, "b").setLastModified(old);
+        cache = new DirectoryListingCache(cacheFile);
+        assertScan(cache, "a/x.txt", "b/y.txt");
+
+        new File(base, "b").setLastModified(old + 10000);
+        assertScan(cache, "a/x.txt", "b/y.txt", "b/z.txt");
+    }
+
+    @Test
+    public void testFilesAreNotListed() {
+        DirectoryListingCache cache = new DirectoryListingCache(cacheFile);
+        assertScan(cache, "a/x.txt", "b/y.txt");
+        // x.txt has been seen as file, replace it by a directory
+        // without changing a's timestamp
+        File x = new File(base, "a/x.txt");
+        x.delete();
+        create("a/x.txt/w.txt");
+        new File(base, "a").setLastModified(old);
+        assertScan(cache, "a/x.txt", "b/y.txt");
+    }
+
+    private void assertScan(DirectoryListingCache cache, String... expected) {
+        DirectoryScanner ds = new DirectoryScanner();
+        ds.setBasedir(base);
+        ds.setListingCache(cache);
+        ds.scan();
+        String[] files = ds.getIncludedFiles();
+        for (int i = 0; i < files.length; i++) {
+            files[i] = files[i].replace(File.separatorChar, '/');
+        }
+        Arrays.sort(files);
+        assertEquals(Arrays.asList(expected), Arrays.asList(files));
+    }
+
+    private static void delete(File f) {
+        File[] children = f.listFiles();
+        if (children != null) {
+            for (int i = 0; i < children.length; i++) {
+                delete(children[i]);
+            }
+        }
+        f.delete();
+    }
+
+    private void create(String name) {
+        File f = new File(base, name);
+        f.getParentFile().mkdirs();
+        try {
+            f.createNewFile();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
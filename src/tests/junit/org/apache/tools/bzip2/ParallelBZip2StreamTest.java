@@ -0,0 +1,151 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.tools.bzip2;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ParallelBZip2StreamTest {
+
+    @Test
+    public void testParallelOutputIsReadableSequentially() throws IOException {
+        byte[] data = createData(450000);
+        byte[] compressed = compress(data, 4);
+        assertArrayEquals(data, read(new CBZip2InputStream(
+            new ByteArrayInputStream(compressed))));
+    }
+
+    @Test
+    public void testParallelRoundTrip() throws IOException {
+        byte[] data = createData(450000);
+        byte[] compressed = compress(data, 3);
+        assertArrayEquals(data, read(new ParallelBZip2InputStream(
+            new ByteArrayInputStream(compressed), 3)));
+    }
+
+    @Test
+    public void testParallelInputReadsSequentialOutput() throws IOException {
+        byte[] data = createData(350000);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        CBZip2OutputStream out = new CBZip2OutputStream(bos, 1);
+        out.write(data, 0, data.length);
+        out.close();
+        assertArrayEquals(data, read(new ParallelBZip2InputStream(
+            new ByteArrayInputStream(bos.toByteArray()), 2)));
+    }
+
+    @Test
+    public void testConcatenatedStreams() throws IOException {
+        byte[] first = createData(150000);
+        byte[] second = createData(250000);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        bos.write(compress(first, 2));
+        bos.write('B');
+        bos.write('Z');
+        bos.write(compress(new byte[0], 2));
+        bos.write('B');
+        bos.write('Z');
+        bos.write(compress(second, 2));
+        byte[] compressed = bos.toByteArray();
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(first);
+        expected.write(second);
+        assertArrayEquals(expected.toByteArray(),
+                          read(new ParallelBZip2InputStream(
+                              new ByteArrayInputStream(compressed), 2, true)));
+        assertArrayEquals(first,
+                          read(new ParallelBZip2InputStream(
+                              new ByteArrayInputStream(compressed), 2, false)));
+    }
+
+    @Test
+    public void testEmptyStream() throws IOException {
+        byte[] compressed = compress(new byte[0], 2);
+        assertEquals(0, read(new CBZip2InputStream(
+            new ByteArrayInputStream(compressed))).length);
+        assertEquals(0, read(new ParallelBZip2InputStream(
+            new ByteArrayInputStream(compressed), 2)).length);
+    }
+
+    @Test
+    public void testCorruptCRCIsDetected() throws IOException {
+        byte[] compressed = compress(createData(10000), 2);
+        // the last four bytes before the padding hold the stream CRC
+        compressed[compressed.length - 2] ^= 0x10;
+        try {
+            read(new ParallelBZip2InputStream(
+                new ByteArrayInputStream(compressed), 2));
+            fail("expected an exception");
+        } catch (IOException ex) {
+            assertEquals("BZip2 CRC error", ex.getMessage());
+        }
+    }
+
+    /**
+     * Compressible data with runs that exercise the run length
+     * encoding, several blocks for a block size of 1.
+     */
+    private static byte[] createData(int length) {
+        Random r = new Random(length);
+        byte[] data = new byte[length];
+        int i = 0;
+        while (i < length) {
+            int run = r.nextInt(10) == 0 ? r.nextInt(300) : 1;
+            byte b = (byte) ('a' + r.nextInt(r.nextBoolean() ? 4 : 26));
+            for (int j = 0; j < run && i < length; j++) {
+                data[i++] = b;
+            }
+        }
+        return data;
+    }
+
+    private static byte[] compress(byte[] data, int threads)
+        throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        OutputStream out = new ParallelBZip2OutputStream(bos, 1, threads);
+        out.write(data, 0, data.length);
+        out.close();
+        return bos.toByteArray();
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            byte[] b = new byte[4096];
+            int count;
+            while ((count = in.read(b)) != -1) {
+                out.write(b, 0, count);
+            }
+        } finally {
+            in.close();
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.tools.zip;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.tools.ant.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ZipFileTest {
+
+    private static final int ENTRIES = 3000;
+
+    private File archive;
+
+    @Before
+    public void setUp() throws IOException {
+        archive = FileUtils.getFileUtils()
+            .createTempFile("zipfile", ".zip", null, true, false);
+        ZipOutputStream zos = new ZipOutputStream(archive);
+        try {
+            for (int i = 0; i < ENTRIES; i++) {
+                add(zos, "dir" + (i % 10) + "/entry" + i, "content" + i);
+            }
+            add(zos, "duplicate", "first");
+            add(zos, "dir0/entry0", "second");
+            add(zos, "duplicate", "third");
+        } finally {
+            zos.close();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        archive.delete();
+    }
+
+    @Test
+    public void testReadWithoutMapping() throws IOException {
+        assertArchiveContents(new ZipFile(archive, null, true, false));
+    }
+
+    @Test
+    public void testReadWithMapping() throws IOException {
+        assertArchiveContents(new ZipFile(archive, null, true, true));
+    }
+
+    @Test
+    public void testEmptyArchive() throws IOException {
+        File empty = FileUtils.getFileUtils()
+            .createTempFile("empty", ".zip", null, true, false);
+        try {
+            new ZipOutputStream(empty).close();
+            ZipFile zf = new ZipFile(empty, null, true, true);
+            try {
+                assertEquals(0, Collections.list(zf.getEntries()).size());
+                assertNull(zf.getEntry("foo"));
+                assertEquals(0, list(zf.getEntries("foo")).size());
+            } finally {
+                ZipFile.closeQuietly(zf);
+            }
+        } finally {
+            empty.delete();
+        }
+    }
+
+    private void assertArchiveContents(ZipFile zf) throws IOException {
+        try {
+            assertEquals(ENTRIES + 3, Collections.list(zf.getEntries()).size());
+            for (int i = 0; i < ENTRIES; i += 7) {
+                ZipEntry ze = zf.getEntry("dir" + (i % 10) + "/entry" + i);
+                assertEquals("content" + i, read(zf, ze));
+            }
+            assertNull(zf.getEntry("dir1/entry0"));
+            assertEquals("content0", read(zf, zf.getEntry("dir0/entry0")));
+
+            List<ZipEntry> duplicates = list(zf.getEntries("duplicate"));
+            assertEquals(2, duplicates.size());
+            assertEquals("first", read(zf, duplicates.get(0)));
+            assertEquals("third", read(zf, duplicates.get(1)));
+            assertEquals(duplicates,
+                         list(zf.getEntriesInPhysicalOrder("duplicate")));
+            assertEquals(2, list(zf.getEntries("dir0/entry0")).size());
+        } finally {
+            ZipFile.closeQuietly(zf);
+        }
+    }
+
+    private static void add(ZipOutputStream zos, String name, String content)
+        throws IOException {
+        zos.putNextEntry(new ZipEntry(name));
+        byte[] b = content.getBytes("UTF-8");
+        zos.write(b, 0, b.length);
+        zos.closeEntry();
+    }
+
+    private static String read(ZipFile zf, ZipEntry ze) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InputStream in = zf.getInputStream(ze);
+        try {
+            byte[] b = new byte[1024];
+            int count;
+            while ((count = in.read(b)) != -1) {
+                out.write(b, 0, count);
+            }
+        } finally {
+            in.close();
+        }
+        return out.toString("UTF-8");
+    }
+
+    private static List<ZipEntry> list(Iterable<ZipEntry> entries) {
+        List<ZipEntry> result = new ArrayList<ZipEntry>();
+        for (ZipEntry ze : entries) {
+            result.add(ze);
+        }
+        return result;
+    }
+}
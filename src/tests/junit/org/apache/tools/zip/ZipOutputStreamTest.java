@@ -18,13 +18,24 @@
 
 package org.apache.tools.zip;
 
+import org.apache.tools.ant.util.FileUtils;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Random;
+import java.util.zip.CRC32;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class ZipOutputStreamTest {
     
@@ -70,4 +81,208 @@ public class ZipOutputStreamTest {
                      ZipOutputStream.adjustToLong(2 * Integer.MAX_VALUE));
     }
 
+    @Test
+    public void testParallelCompressionToStream() throws IOException {
+        ByteArrayOutputStream serial = new ByteArrayOutputStream();
+        writeArchive(new ZipOutputStream(serial), 1);
+        ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+        writeArchive(new ZipOutputStream(parallel), 4);
+        assertTrue(Arrays.equals(serial.toByteArray(), parallel.toByteArray()));
+    }
+
+    @Test
+    public void testParallelCompressionToFile() throws IOException {
+        FileUtils fu = FileUtils.getFileUtils();
+        File serial = fu.createTempFile("serial", ".zip", null, true, false);
+        File parallel = fu.createTempFile("parallel", ".zip", null, true, false);
+        writeArchive(new ZipOutputStream(serial), 1);
+        writeArchive(new ZipOutputStream(parallel), 4);
+        try {
+            assertTrue(Arrays.equals(readBytes(serial), readBytes(parallel)));
+        } finally {
+            serial.delete();
+            parallel.delete();
+        }
+    }
+
+    @Test
+    public void testAppendToArchive() throws IOException {
+        File f = FileUtils.getFileUtils()
+            .createTempFile("append", ".zip", null, true, false);
+        try {
+            writeArchive(new ZipOutputStream(f), 1);
+            ZipFile zf = new ZipFile(f);
+            ZipEntry unchanged;
+            try {
+                unchanged = zf.getEntry("entry5");
+            } finally {
+                ZipFile.closeQuietly(zf);
+            }
+
+            ZipOutputStream zos = new ZipOutputStream(f, true);
+            try {
+                addEntry(zos, "entry2", "replaced");
+                addEntry(zos, "added", "new");
+            } finally {
+                zos.close();
+            }
+
+            zf = new ZipFile(f);
+            try {
+                assertEquals(22, Collections.list(zf.getEntries()).size());
+                assertEquals("replaced", read(zf, "entry2"));
+                assertEquals("new", read(zf, "added"));
+                ZipEntry ze = zf.getEntry("entry5");
+                assertEquals(unchanged.getCrc(), ze.getCrc());
+                assertEquals(unchanged.getSize(), ze.getSize());
+                assertEquals(unchanged.getSize(), readBytes(zf, ze).length);
+            } finally {
+                ZipFile.closeQuietly(zf);
+            }
+        } finally {
+            f.delete();
+        }
+    }
+
+    @Test
+    public void testCancelRestoresArchive() throws IOException {
+        File f = FileUtils.getFileUtils()
+            .createTempFile("cancel", ".zip", null, true, false);
+        try {
+            writeArchive(new ZipOutputStream(f), 1);
+            byte[] original = readBytes(f);
+            ZipOutputStream zos = new ZipOutputStream(f, true);
+            addEntry(zos, "entry2", "replaced");
+            zos.cancel();
+            assertTrue(Arrays.equals(original, readBytes(f)));
+        } finally {
+            f.delete();
+        }
+    }
+
+    @Test
+    public void testAddRawEntry() throws IOException {
+        FileUtils fu = FileUtils.getFileUtils();
+        File source = fu.createTempFile("source", ".zip", null, true, false);
+        File serial = fu.createTempFile("serial", ".zip", null, true, false);
+        File parallel = fu.createTempFile("parallel", ".zip", null, true, false);
+        try {
+            writeArchive(new ZipOutputStream(source), 1);
+            copyRaw(source, new ZipOutputStream(serial), 1);
+            copyRaw(source, new ZipOutputStream(parallel), 4);
+            assertTrue(Arrays.equals(readBytes(serial), readBytes(parallel)));
+            ZipFile expected = new ZipFile(source);
+            ZipFile actual = new ZipFile(serial);
+            try {
+                for (ZipEntry ze : Collections.list(expected.getEntries())) {
+                    ZipEntry copy = actual.getEntry(ze.getName());
+                    assertEquals(ze.getMethod(), copy.getMethod());
+                    assertEquals(ze.getCompressedSize(),
+                                 copy.getCompressedSize());
+                    assertTrue(Arrays.equals(readBytes(expected, ze),
+                                             readBytes(actual, copy)));
+                }
+            } finally {
+                ZipFile.closeQuietly(expected);
+                ZipFile.closeQuietly(actual);
+            }
+        } finally {
+            source.delete();
+            serial.delete();
+            parallel.delete();
+        }
+    }
+
+    private static void copyRaw(File source, ZipOutputStream zos, int threads)
+        throws IOException {
+        zos.setThreads(threads);
+        ZipFile zf = new ZipFile(source);
+        try {
+            for (ZipEntry ze : Collections.list(zf.getEntries())) {
+                ZipEntry copy = new ZipEntry(ze.getName());
+                copy.setTime(ze.getTime());
+                zos.addRawEntry(copy, zf, ze);
+            }
+        } finally {
+            ZipFile.closeQuietly(zf);
+            zos.close();
+        }
+    }
+
+    private static void addEntry(ZipOutputStream zos, String name,
+                                 String content) throws IOException {
+        ZipEntry ze = new ZipEntry(name);
+        ze.setTime(time(0));
+        zos.putNextEntry(ze);
+        byte[] data = content.getBytes("UTF-8");
+        zos.write(data, 0, data.length);
+        zos.closeEntry();
+    }
+
+    private static String read(ZipFile zf, String name) throws IOException {
+        return new String(readBytes(zf, zf.getEntry(name)), "UTF-8");
+    }
+
+    private static byte[] readBytes(ZipFile zf, ZipEntry ze)
+        throws IOException {
+        return readBytes(zf.getInputStream(ze));
+    }
+
+    private static byte[] readBytes(File f) throws IOException {
+        return readBytes(new FileInputStream(f));
+    }
+
+    private static byte[] readBytes(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            byte[] b = new byte[8192];
+            int count;
+            while ((count = in.read(b)) != -1) {
+                out.write(b, 0, count);
+            }
+        } finally {
+            in.close();
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeArchive(ZipOutputStream zos, int threads)
+        throws IOException {
+        Random r = new Random(17);
+        zos.setThreads(threads);
+        try {
+            for (int i = 0; i < 20; i++) {
+                // some entries are big enough to be buffered in temp files
+                byte[] data = new byte[i % 7 == 3 ? 3 * 1024 * 1024 + i
+                                       : r.nextInt(10000)];
+                for (int j = 0; j < data.length; j++) {
+                    data[j] = (byte) ('a' + r.nextInt(i % 5 + 1));
+                }
+                ZipEntry ze = new ZipEntry("entry" + i);
+                ze.setTime(time(i));
+                if (i % 4 == 1) {
+                    CRC32 crc = new CRC32();
+                    crc.update(data);
+                    ze.setMethod(ZipEntry.STORED);
+                    ze.setSize(data.length);
+                    ze.setCrc(crc.getValue());
+                }
+                zos.setLevel(i % 10);
+                zos.putNextEntry(ze);
+                zos.write(data, 0, data.length);
+                if (i % 3 == 0) {
+                    zos.closeEntry();
+                }
+            }
+            ZipEntry empty = new ZipEntry("empty");
+            empty.setTime(time(0));
+            zos.putNextEntry(empty);
+        } finally {
+            zos.close();
+        }
+    }
+
+    private static long time(int i) {
+        return 1000000000000L + i * 2000L;
+    }
 }